@@ -10,6 +10,7 @@ export interface JobResponse {
   lastError?: string;
   lastResponse?: string;
   lockedAt?: string;
+  metricsJson?: string;
   status?: string;
   type?: string;
 }
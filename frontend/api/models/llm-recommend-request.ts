@@ -2,6 +2,7 @@
 /* Code generated by ng-openapi-gen DO NOT EDIT. */
 
 export interface LlmRecommendRequest {
+  bypassCache?: boolean;
   customPrompt?: string;
   includeNsfw?: boolean;
   limit?: number;
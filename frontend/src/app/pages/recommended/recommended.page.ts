@@ -1,5 +1,6 @@
-import { ChangeDetectionStrategy, Component, computed, inject, signal } from '@angular/core';
+import { ChangeDetectionStrategy, Component, computed, DestroyRef, inject, signal } from '@angular/core';
 import { RouterLink } from '@angular/router';
+import type { Subscription } from 'rxjs';
 
 import { EntryCardComponent } from '../../components/entry-card/entry-card.component';
 import type { EntryResponse, LlmRecommendResponse } from '../../models';
@@ -105,6 +106,8 @@ export class RecommendedPage {
     });
   }
 
+  private llmStream?: Subscription;
+
   private updateBusy(id: string, type: 'enrich' | 'thumb' | 'important' | 'delete' | null) {
     this.busyStates.update((s) => ({ ...s, [id]: type }));
   }
@@ -118,16 +121,18 @@ export class RecommendedPage {
     this.activeAction.set('llm');
 
     const pid = this.promptId();
-    this.api
-      .getLlmRecommendations({
+    this.llmStream?.unsubscribe();
+    this.llmStream = this.api
+      .streamLlmRecommendations({
         promptId: pid === 'custom' ? undefined : pid,
         customPrompt: this.customPrompt().trim() || undefined,
         limit: 10,
         includeNsfw: this.includeNsfw()
       })
       .subscribe({
-        next: (res) => {
-          this.llmItems.set(res?.items ?? []);
+        // Items arrive one by one while the model is still answering.
+        next: (item) => this.llmItems.update((items) => [...(items ?? []), item]),
+        complete: () => {
           this.loading.set(false);
           this.activeAction.set(null);
         },
@@ -150,5 +155,6 @@ export class RecommendedPage {
 
   constructor() {
     this.loadRandom();
+    inject(DestroyRef).onDestroy(() => this.llmStream?.unsubscribe());
   }
 }
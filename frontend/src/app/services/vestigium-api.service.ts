@@ -8,6 +8,7 @@ import { StrictHttpResponse } from '../../../api/strict-http-response';
 import type { EntryDetailsResponse } from '../../../api/models/entry-details-response';
 import type { EntryExportItem } from '../../../api/models/entry-export-item';
 import type { LlmRecommendRequest } from '../../../api/models/llm-recommend-request';
+import type { LlmRecommendResponse } from '../../../api/models/llm-recommend-response';
 import type { PatchEntryRequest } from '../../../api/models/patch-entry-request';
 
 @Injectable({ providedIn: 'root' })
@@ -160,6 +161,72 @@ export class VestigiumApiService {
   getLlmRecommendations(body: LlmRecommendRequest) {
     return apiFn.llm(this.http, this.api.rootUrl, { body }).pipe(switchMap(unwrapBody));
   }
+
+  /**
+   * Server-sent events from /api/recommendations/llm/stream: emits each recommendation as the model produces it and
+   * completes on the `done` event. EventSource cannot POST, so the stream is read with fetch; unsubscribing aborts it.
+   */
+  streamLlmRecommendations(body: LlmRecommendRequest): Observable<LlmRecommendResponse['items'][number]> {
+    return new Observable((subscriber) => {
+      const abort = new AbortController();
+      const fail = (message: string) => subscriber.error({ message });
+      fetch(`${this.api.rootUrl}/api/recommendations/llm/stream`, {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json', Accept: 'text/event-stream' },
+        body: JSON.stringify(body),
+        signal: abort.signal
+      })
+        .then(async (res) => {
+          if (!res.ok || !res.body) {
+            fail(`LLM recommendation failed: HTTP ${res.status}`);
+            return;
+          }
+          const reader = res.body.pipeThrough(new TextDecoderStream()).getReader();
+          let buffer = '';
+          for (;;) {
+            const { value, done } = await reader.read();
+            if (done) {
+              break;
+            }
+            buffer += value;
+            let end: number;
+            while ((end = buffer.indexOf('\n\n')) >= 0) {
+              const event = parseSseEvent(buffer.slice(0, end));
+              buffer = buffer.slice(end + 2);
+              if (event.name === 'item') {
+                subscriber.next(JSON.parse(event.data));
+              } else if (event.name === 'error') {
+                fail(JSON.parse(event.data)?.message ?? 'LLM recommendation failed');
+                return;
+              } else if (event.name === 'done') {
+                subscriber.complete();
+                return;
+              }
+            }
+          }
+          subscriber.complete();
+        })
+        .catch((e) => {
+          if (!abort.signal.aborted) {
+            fail(e?.message ?? 'LLM recommendation failed');
+          }
+        });
+      return () => abort.abort();
+    });
+  }
+}
+
+function parseSseEvent(block: string): { name: string; data: string } {
+  let name = 'message';
+  const data: string[] = [];
+  for (const line of block.split(/\r?\n/)) {
+    if (line.startsWith('event:')) {
+      name = line.slice(6).trim();
+    } else if (line.startsWith('data:')) {
+      data.push(line.slice(5).replace(/^ /, ''));
+    }
+  }
+  return { name, data: data.join('\n') };
 }
 
 function unwrapBody<T>(r: StrictHttpResponse<T>): Observable<T> {
@@ -1,9 +1,11 @@
 import { computed, inject, Injectable, signal } from '@angular/core';
 import { takeUntilDestroyed, toObservable } from '@angular/core/rxjs-interop';
 import { catchError, filter, finalize, of, switchMap, tap } from 'rxjs';
+import { Message } from '@stomp/stompjs';
 
 import type { EntryResponse } from '../models';
 import { VestigiumApiService } from '../services/vestigium-api.service';
+import { WebSocketService } from '../services/websocket.service';
 import { SettingsStore } from './settings.store';
 import { JobsStore } from './jobs.store';
 
@@ -36,6 +38,7 @@ export class EntriesStore {
   private readonly api = inject(VestigiumApiService);
   private readonly settings = inject(SettingsStore);
   private readonly jobsStore = inject(JobsStore);
+  private readonly ws = inject(WebSocketService);
 
   // Split signals to break circular dependency:
   // Updates to results (loading, items) will NOT trigger the filters computed.
@@ -157,6 +160,17 @@ export class EntriesStore {
         // because it might be a new entry that should now appear.
         this.refresh();
       });
+
+    // Title/description inferred after creation arrive per entry; patch the row in place.
+    this.ws
+      .watch('/topic/entries')
+      .pipe(takeUntilDestroyed())
+      .subscribe((message: Message) => {
+        const entry = JSON.parse(message.body) as EntryResponse;
+        this.patchResults({
+          items: this.items().map((e) => (e.id === entry.id ? entry : e))
+        });
+      });
   }
 
   private toIsoStartOfDay(dateYmd: string | null) {
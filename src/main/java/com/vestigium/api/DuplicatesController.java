@@ -0,0 +1,56 @@
+package com.vestigium.api;
+
+import com.vestigium.api.dto.DuplicateCandidateResponse;
+import com.vestigium.api.dto.DuplicatePairResponse;
+import com.vestigium.api.dto.EntryResponse;
+import com.vestigium.dedup.DuplicateDetector;
+import com.vestigium.domain.Entry;
+import com.vestigium.service.EntryService;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class DuplicatesController {
+
+    private final DuplicateDetector duplicates;
+    private final EntryService entryService;
+
+    public DuplicatesController(DuplicateDetector duplicates, EntryService entryService) {
+        this.duplicates = duplicates;
+        this.entryService = entryService;
+    }
+
+    /**
+     * Probable duplicates across all entries, page-text matches first.
+     */
+    @GetMapping("/api/duplicates")
+    public List<DuplicatePairResponse> pairs(@RequestParam(value = "limit", defaultValue = "50") int limit) {
+        var pairs = duplicates.pairs(Math.min(Math.max(1, limit), 500));
+        var byId = responses(pairs.stream().flatMap(p -> Stream.of(p.entry(), p.duplicateOf())).distinct().toList());
+        return pairs.stream()
+                .map(p -> new DuplicatePairResponse(byId.get(p.entry().id()), byId.get(p.duplicateOf().id()), p.kind().name(), p.distance()))
+                .toList();
+    }
+
+    @GetMapping("/api/entries/{id}/duplicates")
+    public List<DuplicateCandidateResponse> candidates(@PathVariable String id) {
+        entryService.getById(id);
+        var candidates = duplicates.candidatesFor(id);
+        var byId = responses(candidates.stream().map(DuplicateDetector.Candidate::entry).toList());
+        return candidates.stream()
+                .map(c -> new DuplicateCandidateResponse(byId.get(c.entry().id()), c.kind().name(), c.distance()))
+                .toList();
+    }
+
+    private Map<String, EntryResponse> responses(List<Entry> entries) {
+        return entryService.toResponses(entries).stream()
+                .collect(Collectors.toMap(EntryResponse::id, Function.identity()));
+    }
+}
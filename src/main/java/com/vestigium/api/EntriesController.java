@@ -3,6 +3,7 @@ package com.vestigium.api;
 import com.vestigium.api.dto.AttachmentResponse;
 import com.vestigium.api.dto.BulkCreateEntriesRequest;
 import com.vestigium.api.dto.BulkCreateEntriesResponse;
+import com.vestigium.api.dto.BulkOperationResponse;
 import com.vestigium.api.dto.EntryDetailsResponse;
 import com.vestigium.api.dto.EntryExportItem;
 import com.vestigium.api.dto.EntryListResponse;
@@ -12,9 +13,11 @@ import com.vestigium.api.dto.ImportEntriesResponse;
 import com.vestigium.api.dto.ListResponse;
 import com.vestigium.api.dto.PatchEntryRequest;
 import com.vestigium.api.dto.ReplaceEntryListsRequest;
+import com.vestigium.service.BulkIngestService;
 import com.vestigium.service.EntryService;
 import jakarta.validation.constraints.NotBlank;
 import java.util.List;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -24,16 +27,20 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 public class EntriesController {
 
     private final EntryService entryService;
+    private final BulkIngestService bulkIngest;
 
-    public EntriesController(EntryService entryService) {
+    public EntriesController(EntryService entryService, BulkIngestService bulkIngest) {
         this.entryService = entryService;
+        this.bulkIngest = bulkIngest;
     }
 
     @PostMapping(value = "/api/entries", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -82,20 +89,40 @@ public class EntriesController {
 
     @PostMapping(value = "/api/entries/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
     public BulkCreateEntriesResponse bulkCreate(@RequestBody BulkCreateEntriesRequest req) {
-        List<EntryService.BulkCreateItem> items = new java.util.ArrayList<>();
+        var result = bulkIngest.ingest(toBulkItems(req));
+        var errors = result.errors().stream()
+                .map(e -> new BulkCreateEntriesResponse.ErrorItem(e.url(), e.error()))
+                .toList();
+        return new BulkCreateEntriesResponse(result.createdCount(), result.skippedCount(), errors);
+    }
+
+    /**
+     * Starts a bulk ingest in the background; poll {@code GET /api/entries/bulk/{operationId}} for progress.
+     */
+    @PostMapping(value = "/api/entries/bulk/async", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BulkOperationResponse bulkCreateAsync(@RequestBody BulkCreateEntriesRequest req) {
+        return BulkOperationResponse.from(bulkIngest.start(toBulkItems(req)));
+    }
+
+    @GetMapping("/api/entries/bulk/{operationId}")
+    public BulkOperationResponse bulkOperation(@PathVariable String operationId) {
+        return bulkIngest.get(operationId)
+                .map(BulkOperationResponse::from)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    private static List<BulkIngestService.BulkCreateItem> toBulkItems(BulkCreateEntriesRequest req) {
+        List<BulkIngestService.BulkCreateItem> items = new java.util.ArrayList<>();
         if (req != null) {
             if (req.urls() != null) {
-                req.urls().forEach(url -> items.add(new EntryService.BulkCreateItem(url, null)));
+                req.urls().forEach(url -> items.add(new BulkIngestService.BulkCreateItem(url, null)));
             }
             if (req.items() != null) {
-                req.items().forEach(item -> items.add(new EntryService.BulkCreateItem(item.url(), item.title())));
+                req.items().forEach(item -> items.add(new BulkIngestService.BulkCreateItem(item.url(), item.title())));
             }
         }
-        var result = entryService.bulkCreate(items);
-        var errors = result.errors().stream()
-                .map(e -> new BulkCreateEntriesResponse.ErrorItem(e.url(), e.error()))
-                .toList();
-        return new BulkCreateEntriesResponse(result.createdCount(), result.skippedCount(), errors);
+        return items;
     }
 
     @GetMapping(value = "/api/entries/export", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -1,14 +1,21 @@
 package com.vestigium.api;
 
+import com.vestigium.enrich.AttachmentPreprocessor;
 import com.vestigium.persistence.AttachmentRepository;
 import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.ThumbnailRepository;
 import com.vestigium.storage.FileStorageService;
+import com.vestigium.thumb.ImageFormat;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -19,16 +26,33 @@ public class FilesController {
 
     private final AttachmentRepository attachments;
     private final EntryRepository entries;
+    private final ThumbnailRepository thumbnails;
     private final FileStorageService fileStorage;
+    private final AttachmentPreprocessor attachmentPreprocessor;
 
-    public FilesController(AttachmentRepository attachments, EntryRepository entries, FileStorageService fileStorage) {
+    public FilesController(
+            AttachmentRepository attachments,
+            EntryRepository entries,
+            ThumbnailRepository thumbnails,
+            FileStorageService fileStorage,
+            AttachmentPreprocessor attachmentPreprocessor
+    ) {
         this.attachments = attachments;
         this.entries = entries;
+        this.thumbnails = thumbnails;
         this.fileStorage = fileStorage;
+        this.attachmentPreprocessor = attachmentPreprocessor;
     }
 
+    /**
+     * Supports Range/If-Range and conditional requests so large PDFs and videos can be resumed and seeked.
+     */
     @GetMapping("/api/attachments/{attachmentId}")
-    public ResponseEntity<Resource> downloadAttachment(@PathVariable String attachmentId) {
+    public void downloadAttachment(
+            @PathVariable String attachmentId,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
         var attachment = attachments.getById(attachmentId)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND));
 
@@ -37,19 +61,60 @@ public class FilesController {
             throw new ResponseStatusException(NOT_FOUND);
         }
 
+        RangeStreaming.serve(
+                resource,
+                MediaType.parseMediaType(attachment.mimeType()),
+                "attachment; filename=\"" + attachment.originalName() + "\"",
+                attachment.blobHash(),
+                request,
+                response
+        );
+    }
+
+    /**
+     * Small JPEG preview made when the attachment was uploaded (images only).
+     */
+    @GetMapping("/api/attachments/{attachmentId}/thumbnail")
+    public ResponseEntity<Resource> attachmentThumbnail(@PathVariable String attachmentId) {
+        var resource = attachmentPreprocessor.thumbnail(attachmentId)
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND));
         return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(attachment.mimeType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + attachment.originalName() + "\"")
+                .contentType(MediaType.IMAGE_JPEG)
                 .body(resource);
     }
 
     @GetMapping("/api/entries/{entryId}/thumbnail")
     public ResponseEntity<Resource> entryThumbnail(
             @PathVariable String entryId,
-            @org.springframework.web.bind.annotation.RequestParam(value = "size", required = false) String size
+            @org.springframework.web.bind.annotation.RequestParam(value = "size", required = false) String size,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
     ) {
         var entry = entries.getById(entryId).orElseThrow(() -> new ResponseStatusException(NOT_FOUND));
         var wantLarge = size != null && size.equalsIgnoreCase("large");
+
+        // Prefer a smaller encoding (e.g. WebP) when the client explicitly accepts it.
+        var variants = thumbnails.listForEntry(entryId);
+        var variant = wantLarge ? "large" : "small";
+        var available = variants.stream()
+                .filter(t -> t.variant().equals(variant))
+                .flatMap(t -> ImageFormat.fromId(t.format()).stream())
+                .toList();
+        var format = ImageFormat.negotiate(accept, available);
+        if (format != ImageFormat.JPEG) {
+            var match = variants.stream()
+                    .filter(t -> t.variant().equals(variant) && t.format().equals(format.id()))
+                    .findFirst();
+            if (match.isPresent()) {
+                var resource = fileStorage.loadAsResource(match.get().storagePath());
+                if (resource.exists()) {
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.parseMediaType(format.mimeType()))
+                            .varyBy(HttpHeaders.ACCEPT)
+                            .body(resource);
+                }
+            }
+        }
+
         var path = wantLarge ? entry.thumbnailLargePath() : entry.thumbnailPath();
         if (path == null || path.isBlank()) {
             // Fallback: if large requested but not available, try small.
@@ -65,8 +130,7 @@ public class FilesController {
         }
         return ResponseEntity.ok()
                 .contentType(MediaType.IMAGE_JPEG)
+                .varyBy(HttpHeaders.ACCEPT)
                 .body(resource);
     }
 }
-
-
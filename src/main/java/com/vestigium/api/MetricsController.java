@@ -0,0 +1,86 @@
+package com.vestigium.api;
+
+import com.vestigium.embed.SemanticIndex;
+import com.vestigium.http.HostScheduler;
+import com.vestigium.http.OutboundHttp;
+import com.vestigium.llm.GeminiRateLimiter;
+import com.vestigium.llm.LlmResponseCache;
+import com.vestigium.service.RecommendationPoolService;
+import java.util.List;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class MetricsController {
+
+    private final OutboundHttp http;
+    private final HostScheduler hostScheduler;
+    private final GeminiRateLimiter llmLimiter;
+    private final LlmResponseCache llmCache;
+    private final RecommendationPoolService recommendationPools;
+    private final SemanticIndex semanticIndex;
+
+    public MetricsController(
+            OutboundHttp http,
+            HostScheduler hostScheduler,
+            GeminiRateLimiter llmLimiter,
+            LlmResponseCache llmCache,
+            RecommendationPoolService recommendationPools,
+            SemanticIndex semanticIndex
+    ) {
+        this.http = http;
+        this.hostScheduler = hostScheduler;
+        this.llmLimiter = llmLimiter;
+        this.llmCache = llmCache;
+        this.recommendationPools = recommendationPools;
+        this.semanticIndex = semanticIndex;
+    }
+
+    /**
+     * Outbound HTTP counters per call class and host since startup.
+     */
+    @GetMapping("/api/metrics/http")
+    public List<OutboundHttp.CallMetrics> http() {
+        return http.metrics();
+    }
+
+    /**
+     * Politeness state per host: in-flight fetches, consecutive throttles and any active cool-down.
+     */
+    @GetMapping("/api/metrics/hosts")
+    public List<HostScheduler.HostStatus> hosts() {
+        return hostScheduler.snapshot();
+    }
+
+    /**
+     * Gemini requests/tokens left in the current minute, any 429 cool-down, and counters since startup.
+     */
+    @GetMapping("/api/metrics/llm")
+    public GeminiRateLimiter.Budget llm() {
+        return llmLimiter.snapshot();
+    }
+
+    /**
+     * LLM response cache hits, misses and bypasses since startup, and its current size.
+     */
+    @GetMapping("/api/metrics/llm-cache")
+    public LlmResponseCache.Stats llmCache() {
+        return llmCache.stats();
+    }
+
+    /**
+     * Precomputed preset recommendation pools: size left, when computed, and whether the next run recomputes them.
+     */
+    @GetMapping("/api/metrics/recommendation-pools")
+    public List<RecommendationPoolService.PoolStatus> recommendationPools() {
+        return recommendationPools.status();
+    }
+
+    /**
+     * Embedding provider and model, vectors stored and indexed, and deleted nodes awaiting compaction.
+     */
+    @GetMapping("/api/metrics/embeddings")
+    public SemanticIndex.Status embeddings() {
+        return semanticIndex.status();
+    }
+}
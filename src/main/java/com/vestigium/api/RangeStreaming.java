@@ -0,0 +1,228 @@
+package com.vestigium.api;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Streams a stored file with HTTP range and conditional request support: single and multipart byte ranges,
+ * If-Range, ETag/Last-Modified validators (via {@link ServletWebRequest#checkNotModified}). File-backed resources are
+ * copied with {@link FileChannel#transferTo}, or handed to Tomcat's sendfile when the connector offers it.
+ */
+final class RangeStreaming {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private RangeStreaming() {}
+
+    /**
+     * @param etag strong entity tag without quotes (e.g. a content hash), or null to derive one from size and mtime
+     */
+    static void serve(
+            Resource resource,
+            MediaType contentType,
+            String contentDisposition,
+            String etag,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        var length = resource.contentLength();
+        var lastModified = lastModified(resource);
+        var quotedEtag = "\"" + (etag != null && !etag.isBlank() ? etag : Long.toHexString(length) + "-" + Long.toHexString(lastModified)) + "\"";
+
+        // Sets ETag/Last-Modified and answers 304/412 when the validators say so.
+        if (new ServletWebRequest(request, response).checkNotModified(quotedEtag, lastModified)) {
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (contentDisposition != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        }
+
+        var rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), quotedEtag, lastModified)) {
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            send(resource, 0, length, request, response, true);
+            return;
+        }
+
+        List<long[]> ranges;
+        try {
+            ranges = resolve(HttpRange.parseRanges(rangeHeader), length);
+        } catch (IllegalArgumentException e) {
+            ranges = List.of();
+        }
+        if (ranges.isEmpty()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            var r = ranges.getFirst();
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(r, length));
+            response.setContentLengthLong(r[1] - r[0] + 1);
+            send(resource, r[0], r[1] - r[0] + 1, request, response, true);
+            return;
+        }
+
+        var boundary = UUID.randomUUID().toString().replace("-", "");
+        var partHeaders = new ArrayList<byte[]>();
+        long total = 0;
+        for (var r : ranges) {
+            var head = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(r, length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(head);
+            total += head.length + (r[1] - r[0] + 1);
+        }
+        var trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        total += trailer.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(total);
+        var out = response.getOutputStream();
+        for (int i = 0; i < ranges.size(); i++) {
+            var r = ranges.get(i);
+            out.write(partHeaders.get(i));
+            send(resource, r[0], r[1] - r[0] + 1, request, response, false);
+        }
+        out.write(trailer);
+    }
+
+    /**
+     * Resolves ranges against the file length, dropping unsatisfiable ones. Returns [start, endInclusive] pairs.
+     */
+    private static List<long[]> resolve(List<HttpRange> ranges, long length) {
+        var out = new ArrayList<long[]>();
+        for (var range : ranges) {
+            if (length == 0) {
+                continue;
+            }
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (start >= length || start > end) {
+                continue;
+            }
+            out.add(new long[] {start, end});
+        }
+        return out;
+    }
+
+    /**
+     * If-Range holds either an entity tag (must match strongly) or an HTTP date (must equal Last-Modified).
+     */
+    private static boolean ifRangeMatches(String ifRange, String quotedEtag, long lastModified) {
+        if (ifRange == null || ifRange.isBlank()) {
+            return true;
+        }
+        var value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return value.equals(quotedEtag);
+        }
+        if (lastModified < 0) {
+            return false;
+        }
+        try {
+            var headers = new HttpHeaders();
+            headers.set(HttpHeaders.IF_RANGE, value);
+            return headers.getFirstDate(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void send(
+            Resource resource,
+            long start,
+            long count,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            boolean allowSendfile
+    ) throws IOException {
+        if (count <= 0 || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (resource.isFile()) {
+            var file = resource.getFile().toPath();
+            if (allowSendfile && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                // Tomcat writes the region itself (kernel sendfile) once the servlet returns.
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, start + count);
+                return;
+            }
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                var target = Channels.newChannel(response.getOutputStream());
+                long position = start;
+                long remaining = count;
+                while (remaining > 0) {
+                    var sent = channel.transferTo(position, remaining, target);
+                    if (sent <= 0) {
+                        break;
+                    }
+                    position += sent;
+                    remaining -= sent;
+                }
+            }
+            return;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            in.skipNBytes(start);
+            copy(in, response.getOutputStream(), count);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, long count) throws IOException {
+        var buffer = new byte[64 * 1024];
+        long remaining = count;
+        while (remaining > 0) {
+            var read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static String contentRange(long[] range, long length) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -3,25 +3,42 @@ package com.vestigium.api;
 import com.vestigium.api.dto.EntryResponse;
 import com.vestigium.api.dto.LlmRecommendRequest;
 import com.vestigium.api.dto.LlmRecommendResponse;
+import com.vestigium.llm.GeminiQuotaException;
 import com.vestigium.service.EntryService;
+import com.vestigium.service.RecommendationPoolService;
 import com.vestigium.service.RecommendationService;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 public class RecommendationsController {
 
+    private static final Duration STREAM_TIMEOUT = Duration.ofMinutes(3);
+
     private final RecommendationService recommendationService;
+    private final RecommendationPoolService recommendationPools;
     private final EntryService entryService;
 
-    public RecommendationsController(RecommendationService recommendationService, EntryService entryService) {
+    public RecommendationsController(
+            RecommendationService recommendationService,
+            RecommendationPoolService recommendationPools,
+            EntryService entryService
+    ) {
         this.recommendationService = recommendationService;
+        this.recommendationPools = recommendationPools;
         this.entryService = entryService;
     }
 
@@ -41,8 +58,12 @@ public class RecommendationsController {
             var limit = req != null && req.limit() != null ? req.limit() : 10;
             var promptId = req == null ? null : req.promptId();
             var customPrompt = req == null ? null : req.customPrompt();
+            var bypassCache = req != null && Boolean.TRUE.equals(req.bypassCache());
 
-            var res = recommendationService.recommendWithLlm(promptId, customPrompt, limit, includeNsfw);
+            var pooled = pooled(promptId, customPrompt, limit, includeNsfw, bypassCache);
+            var res = pooled.isPresent()
+                    ? pooled.get()
+                    : recommendationService.recommendWithLlm(promptId, customPrompt, limit, includeNsfw, bypassCache);
             var entryIds = res.items().stream().map(i -> i.entry().id()).toList();
             var entryResponses = entryService.toResponses(res.items().stream().map(RecommendationService.LlmItem::entry).toList());
             var responsesById = entryResponses.stream().collect(java.util.stream.Collectors.toMap(EntryResponse::id, r -> r));
@@ -51,10 +72,101 @@ public class RecommendationsController {
                     .map(i -> new LlmRecommendResponse.Item(responsesById.get(i.entry().id()), i.reason()))
                     .toList();
             return new LlmRecommendResponse(items);
+        } catch (GeminiQuotaException e) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "LLM quota exhausted, retry after " + e.getRetryAt());
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "LLM recommendation failed: " + e.getMessage());
         }
     }
+
+    /**
+     * Streamed variant of {@link #llm}: server-sent events with one {@code item} event per recommendation as the model
+     * produces it, then {@code done} with the count. Failures arrive as an {@code error} event carrying the status the
+     * blocking endpoint would have answered with (429 when the quota is exhausted, else 502). When the client disconnects
+     * or the stream times out, the model's answer is no longer read.
+     */
+    @PostMapping(value = "/api/recommendations/llm/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter llmStream(@RequestBody LlmRecommendRequest req) {
+        var includeNsfw = req != null && req.includeNsfw() != null ? req.includeNsfw() : true;
+        var limit = req != null && req.limit() != null ? req.limit() : 10;
+        var promptId = req == null ? null : req.promptId();
+        var customPrompt = req == null ? null : req.customPrompt();
+        var bypassCache = req != null && Boolean.TRUE.equals(req.bypassCache());
+
+        var emitter = new SseEmitter(STREAM_TIMEOUT.toMillis());
+        var worker = Thread.ofVirtual().name("llm-recommend-stream").unstarted(() -> {
+            try {
+                Consumer<RecommendationService.LlmItem> sendItem = item -> {
+                    var entry = entryService.toResponses(List.of(item.entry())).getFirst();
+                    send(emitter, "item", new LlmRecommendResponse.Item(entry, item.reason()));
+                };
+                var pooled = pooled(promptId, customPrompt, limit, includeNsfw, bypassCache);
+                pooled.ifPresent(r -> r.items().forEach(sendItem));
+                var res = pooled.isPresent()
+                        ? pooled.get()
+                        : recommendationService.streamWithLlm(promptId, customPrompt, limit, includeNsfw, bypassCache, sendItem);
+                send(emitter, "done", Map.of("count", res.items().size()));
+                emitter.complete();
+            } catch (ClientGoneException e) {
+                // The client went away; nothing left to tell it.
+                emitter.completeWithError(e.getCause());
+            } catch (GeminiQuotaException e) {
+                sendError(emitter, HttpStatus.TOO_MANY_REQUESTS, "LLM quota exhausted, retry after " + e.getRetryAt());
+            } catch (Exception e) {
+                sendError(emitter, HttpStatus.BAD_GATEWAY, "LLM recommendation failed: " + e.getMessage());
+            }
+        });
+        // Interrupting the worker aborts the blocking read of the model stream.
+        emitter.onCompletion(worker::interrupt);
+        emitter.onTimeout(worker::interrupt);
+        emitter.onError(e -> worker.interrupt());
+        worker.start();
+        return emitter;
+    }
+
+    /**
+     * Presets without extra text are answered from the precomputed pool; custom prompts and cache bypasses go live.
+     */
+    private Optional<RecommendationService.LlmResult> pooled(
+            String promptId,
+            String customPrompt,
+            int limit,
+            boolean includeNsfw,
+            boolean bypassCache
+    ) {
+        if (bypassCache || (customPrompt != null && !customPrompt.isBlank())) {
+            return Optional.empty();
+        }
+        return recommendationPools.serve(promptId, limit, includeNsfw);
+    }
+
+    private static void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            throw new ClientGoneException(e);
+        }
+    }
+
+    private static void sendError(SseEmitter emitter, HttpStatus status, String message) {
+        try {
+            send(emitter, "error", Map.of("status", status.value(), "message", message));
+            emitter.complete();
+        } catch (ClientGoneException e) {
+            emitter.completeWithError(e.getCause());
+        }
+    }
+
+    /**
+     * Writing to the client failed (disconnected, or the emitter already completed). Kept apart from
+     * {@code UncheckedIOException}, which the model stream itself throws when it breaks.
+     */
+    private static final class ClientGoneException extends RuntimeException {
+
+        ClientGoneException(Throwable cause) {
+            super(cause);
+        }
+    }
 }
 
 
@@ -0,0 +1,65 @@
+package com.vestigium.api;
+
+import com.vestigium.api.dto.EntryResponse;
+import com.vestigium.api.dto.SemanticHitResponse;
+import com.vestigium.service.EntryService;
+import com.vestigium.service.SemanticSearchService;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+public class SemanticSearchController {
+
+    private final SemanticSearchService semanticSearch;
+    private final EntryService entryService;
+
+    public SemanticSearchController(SemanticSearchService semanticSearch, EntryService entryService) {
+        this.semanticSearch = semanticSearch;
+        this.entryService = entryService;
+    }
+
+    @GetMapping("/api/search/semantic")
+    public List<SemanticHitResponse> search(
+            @RequestParam("q") String q,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "includeNsfw", defaultValue = "true") boolean includeNsfw
+    ) {
+        requireReady();
+        try {
+            return responses(semanticSearch.search(q, limit, includeNsfw));
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Embedding the query failed: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/api/entries/{id}/related")
+    public List<SemanticHitResponse> related(
+            @PathVariable String id,
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "includeNsfw", defaultValue = "true") boolean includeNsfw
+    ) {
+        requireReady();
+        return responses(semanticSearch.related(id, limit, includeNsfw));
+    }
+
+    private void requireReady() {
+        if (!semanticSearch.ready()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Semantic index is not loaded yet.");
+        }
+    }
+
+    private List<SemanticHitResponse> responses(List<SemanticSearchService.Hit> hits) {
+        var byId = entryService.toResponses(hits.stream().map(SemanticSearchService.Hit::entry).toList()).stream()
+                .collect(Collectors.toMap(EntryResponse::id, Function.identity()));
+        return hits.stream()
+                .map(h -> new SemanticHitResponse(byId.get(h.entry().id()), h.score()))
+                .toList();
+    }
+}
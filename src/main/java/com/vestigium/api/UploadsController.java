@@ -0,0 +1,70 @@
+package com.vestigium.api;
+
+import com.vestigium.api.dto.AttachmentResponse;
+import com.vestigium.api.dto.CreateUploadRequest;
+import com.vestigium.api.dto.UploadSessionResponse;
+import com.vestigium.service.UploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Resumable uploads for attachments larger than the multipart limit.
+ * Flow: create a session, PUT raw chunks with {@code Upload-Offset}, GET the session to resume, then complete.
+ */
+@RestController
+public class UploadsController {
+
+    private final UploadService uploads;
+
+    public UploadsController(UploadService uploads) {
+        this.uploads = uploads;
+    }
+
+    @PostMapping(value = "/api/entries/{entryId}/uploads", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public UploadSessionResponse create(@PathVariable String entryId, @RequestBody CreateUploadRequest req) {
+        var session = uploads.createSession(entryId, req.fileName(), req.mimeType(), req.sizeBytes());
+        return UploadSessionResponse.from(session);
+    }
+
+    @GetMapping("/api/uploads/{sessionId}")
+    public UploadSessionResponse get(@PathVariable String sessionId) {
+        return UploadSessionResponse.from(uploads.get(sessionId));
+    }
+
+    /**
+     * The body is read straight from the request stream, so chunk size is not bound by the multipart limit.
+     */
+    @PutMapping("/api/uploads/{sessionId}")
+    public UploadSessionResponse putChunk(
+            @PathVariable String sessionId,
+            @RequestHeader("Upload-Offset") long offset,
+            HttpServletRequest request
+    ) throws IOException {
+        try (var body = request.getInputStream()) {
+            return UploadSessionResponse.from(uploads.appendChunk(sessionId, offset, body));
+        }
+    }
+
+    @PostMapping("/api/uploads/{sessionId}/complete")
+    public AttachmentResponse complete(
+            @PathVariable String sessionId,
+            @RequestParam(value = "sha256", required = false) String sha256
+    ) {
+        return AttachmentResponse.from(uploads.complete(sessionId, sha256));
+    }
+
+    @DeleteMapping("/api/uploads/{sessionId}")
+    public void abort(@PathVariable String sessionId) {
+        uploads.abort(sessionId);
+    }
+}
@@ -0,0 +1,31 @@
+package com.vestigium.api.dto;
+
+import com.vestigium.service.BulkIngestService;
+import jakarta.validation.constraints.NotNull;
+import java.util.List;
+
+public record BulkOperationResponse(
+        @NotNull String id,
+        @NotNull String status,
+        int totalCount,
+        int processedCount,
+        int createdCount,
+        int skippedCount,
+        @NotNull List<BulkCreateEntriesResponse.ErrorItem> errors,
+        @NotNull String startedAt,
+        String finishedAt
+) {
+    public static BulkOperationResponse from(BulkIngestService.BulkOperationStatus s) {
+        return new BulkOperationResponse(
+                s.id(),
+                s.status(),
+                s.totalCount(),
+                s.processedCount(),
+                s.createdCount(),
+                s.skippedCount(),
+                s.errors().stream().map(e -> new BulkCreateEntriesResponse.ErrorItem(e.url(), e.error())).toList(),
+                s.startedAt(),
+                s.finishedAt()
+        );
+    }
+}
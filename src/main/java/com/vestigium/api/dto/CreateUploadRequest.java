@@ -0,0 +1,7 @@
+package com.vestigium.api.dto;
+
+public record CreateUploadRequest(
+        String fileName,
+        String mimeType,
+        long sizeBytes
+) {}
@@ -0,0 +1,13 @@
+package com.vestigium.api.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * @param kind TEXT (page text SimHash) or IMAGE (thumbnail dHash)
+ * @param distance differing fingerprint bits out of 64
+ */
+public record DuplicateCandidateResponse(
+        @NotNull EntryResponse entry,
+        @NotNull String kind,
+        int distance
+) {}
@@ -0,0 +1,13 @@
+package com.vestigium.api.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * {@code entry} was added after {@code duplicateOf}.
+ */
+public record DuplicatePairResponse(
+        @NotNull EntryResponse entry,
+        @NotNull EntryResponse duplicateOf,
+        @NotNull String kind,
+        int distance
+) {}
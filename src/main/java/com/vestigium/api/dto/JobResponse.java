@@ -13,7 +13,8 @@ public record JobResponse(
         String finishedAt,
         String lastError,
         String lastResponse,
-        @NotNull String createdAt
+        @NotNull String createdAt,
+        String metricsJson
 ) {
     public static JobResponse from(Job j) {
         return new JobResponse(
@@ -26,7 +27,8 @@ public record JobResponse(
                 j.finishedAt(),
                 j.lastError(),
                 j.lastResponse(),
-                j.createdAt()
+                j.createdAt(),
+                j.metricsJson()
         );
     }
 }
@@ -4,7 +4,8 @@ public record LlmRecommendRequest(
         String promptId,
         String customPrompt,
         Integer limit,
-        Boolean includeNsfw
+        Boolean includeNsfw,
+        Boolean bypassCache
 ) {}
 
 
@@ -0,0 +1,11 @@
+package com.vestigium.api.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * @param score cosine similarity to the query or entry, at most 1
+ */
+public record SemanticHitResponse(
+        @NotNull EntryResponse entry,
+        double score
+) {}
@@ -0,0 +1,28 @@
+package com.vestigium.api.dto;
+
+import com.vestigium.domain.UploadSession;
+import jakarta.validation.constraints.NotNull;
+
+public record UploadSessionResponse(
+        @NotNull String id,
+        @NotNull String entryId,
+        @NotNull String fileName,
+        @NotNull String mimeType,
+        long sizeBytes,
+        long receivedBytes,
+        @NotNull String status,
+        String attachmentId
+) {
+    public static UploadSessionResponse from(UploadSession s) {
+        return new UploadSessionResponse(
+                s.id(),
+                s.entryId(),
+                s.originalName(),
+                s.mimeType(),
+                s.totalBytes(),
+                s.receivedBytes(),
+                s.status(),
+                s.attachmentId()
+        );
+    }
+}
@@ -0,0 +1,233 @@
+package com.vestigium.dedup;
+
+import com.vestigium.domain.Entry;
+import com.vestigium.events.EntriesChangedEvent;
+import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.FingerprintRepository;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Near-duplicate entries by content rather than URL: a SimHash of the page text recorded by enrichment and a dHash of
+ * the thumbnail source image recorded by the thumbnail job, each kept in an {@link LshIndex} for lookups that do not
+ * scan every entry. Text within {@code text-max-distance} bits marks a probable duplicate; image matches alone are
+ * only reported, since many pages of one site share the same preview image.
+ * <p>
+ * With {@code skip-duplicate-work} (off by default), the jobs reuse an older duplicate's results instead of calling the
+ * model or taking a screenshot.
+ */
+@Service
+public class DuplicateDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicateDetector.class);
+
+    private final FingerprintRepository repository;
+    private final EntryRepository entries;
+    private final boolean enabled;
+    private final boolean skipDuplicateWork;
+    private final int textMaxDistance;
+    private final int imageMaxDistance;
+    private final int minTextChars;
+    private final LshIndex texts;
+    private final LshIndex images;
+    private volatile boolean loaded;
+
+    public DuplicateDetector(
+            FingerprintRepository repository,
+            EntryRepository entries,
+            @Value("${vestigium.dedup.enabled:true}") boolean enabled,
+            @Value("${vestigium.dedup.skip-duplicate-work:false}") boolean skipDuplicateWork,
+            @Value("${vestigium.dedup.text-max-distance:6}") int textMaxDistance,
+            @Value("${vestigium.dedup.image-max-distance:6}") int imageMaxDistance,
+            @Value("${vestigium.dedup.min-text-chars:2000}") int minTextChars
+    ) {
+        this.repository = repository;
+        this.entries = entries;
+        this.enabled = enabled;
+        this.skipDuplicateWork = skipDuplicateWork;
+        this.textMaxDistance = Math.min(Math.max(0, textMaxDistance), 15);
+        this.imageMaxDistance = Math.min(Math.max(0, imageMaxDistance), 15);
+        this.minTextChars = minTextChars;
+        this.texts = new LshIndex(this.textMaxDistance);
+        this.images = new LshIndex(this.imageMaxDistance);
+    }
+
+    /**
+     * Fingerprints the entry's readable page text. Texts shorter than {@code min-text-chars} are ignored: a bare
+     * title or cookie notice would match unrelated pages.
+     */
+    public void recordText(String entryId, String text) {
+        if (!enabled || text == null || text.strip().length() < minTextChars) {
+            return;
+        }
+        ensureLoaded();
+        var hash = SimHash.of(text);
+        repository.saveTextHash(entryId, hash);
+        texts.put(entryId, hash);
+    }
+
+    public void recordImage(String entryId, BufferedImage image) {
+        if (!enabled) {
+            return;
+        }
+        var hash = ImageHash.dHash(image);
+        if (hash == 0) {
+            return;
+        }
+        ensureLoaded();
+        repository.saveImageHash(entryId, hash);
+        images.put(entryId, hash);
+    }
+
+    /**
+     * Entries whose text or image fingerprint is close to {@code entryId}'s, closest first.
+     */
+    public List<Candidate> candidatesFor(String entryId) {
+        if (!enabled) {
+            return List.of();
+        }
+        ensureLoaded();
+        var found = new LinkedHashMap<String, Match>();
+        collect(found, texts, entryId, textMaxDistance, Kind.TEXT);
+        collect(found, images, entryId, imageMaxDistance, Kind.IMAGE);
+        var matches = found.values().stream()
+                .sorted(Comparator.comparing(Match::kind).thenComparingInt(Match::distance))
+                .toList();
+        var byId = new HashMap<String, Entry>();
+        entries.listByIds(matches.stream().map(Match::id).toList()).forEach(e -> byId.put(e.id(), e));
+        return matches.stream()
+                .filter(m -> byId.containsKey(m.id()))
+                .map(m -> new Candidate(byId.get(m.id()), m.kind(), m.distance()))
+                .toList();
+    }
+
+    /**
+     * Every pair of entries with close fingerprints, text matches first, at most {@code limit}. The entry in each
+     * pair is the newer one; {@code duplicateOf} is the one added first.
+     */
+    public List<Pair> pairs(int limit) {
+        if (!enabled) {
+            return List.of();
+        }
+        ensureLoaded();
+        var found = new LinkedHashMap<String, PairMatch>();
+        collectPairs(found, texts, textMaxDistance, Kind.TEXT, limit);
+        collectPairs(found, images, imageMaxDistance, Kind.IMAGE, limit);
+        var ids = found.values().stream().flatMap(p -> Stream.of(p.a(), p.b())).distinct().toList();
+        var byId = new HashMap<String, Entry>();
+        entries.listByIds(ids).forEach(e -> byId.put(e.id(), e));
+        var out = new ArrayList<Pair>();
+        for (var p : found.values()) {
+            var a = byId.get(p.a());
+            var b = byId.get(p.b());
+            if (a == null || b == null) {
+                continue;
+            }
+            var aFirst = a.createdAt().compareTo(b.createdAt()) <= 0;
+            out.add(aFirst ? new Pair(b, a, p.kind(), p.distance()) : new Pair(a, b, p.kind(), p.distance()));
+        }
+        return out;
+    }
+
+    /**
+     * An older entry with nearly the same page text whose results the jobs can reuse, if skipping duplicate work is
+     * on. {@code usable} says whether that entry already has what the caller needs (a description, a thumbnail).
+     */
+    public Optional<Entry> originalOf(Entry entry, Predicate<Entry> usable) {
+        if (!enabled || !skipDuplicateWork) {
+            return Optional.empty();
+        }
+        ensureLoaded();
+        var hash = texts.fingerprintOf(entry.id());
+        if (hash == null) {
+            return Optional.empty();
+        }
+        var ids = texts.near(hash, textMaxDistance, entry.id()).stream().map(LshIndex.Match::id).toList();
+        return entries.listByIds(ids).stream()
+                .filter(e -> e.createdAt().compareTo(entry.createdAt()) < 0)
+                .filter(usable)
+                .min(Comparator.comparing(Entry::createdAt));
+    }
+
+    @EventListener
+    public void onEntriesChanged(EntriesChangedEvent event) {
+        if (event.change() == EntriesChangedEvent.Change.REMOVED) {
+            event.entryIds().forEach(id -> {
+                texts.remove(id);
+                images.remove(id);
+            });
+        }
+    }
+
+    private void collect(LinkedHashMap<String, Match> found, LshIndex index, String entryId, int maxDistance, Kind kind) {
+        var hash = index.fingerprintOf(entryId);
+        if (hash == null) {
+            return;
+        }
+        for (var m : index.near(hash, maxDistance, entryId)) {
+            found.putIfAbsent(m.id(), new Match(m.id(), kind, m.distance()));
+        }
+    }
+
+    private void collectPairs(LinkedHashMap<String, PairMatch> found, LshIndex index, int maxDistance, Kind kind, int limit) {
+        for (var id : index.ids().stream().sorted().toList()) {
+            if (found.size() >= limit) {
+                return;
+            }
+            var hash = index.fingerprintOf(id);
+            if (hash == null) {
+                continue;
+            }
+            for (var m : index.near(hash, maxDistance, id)) {
+                // Each pair is seen from both sides; keep it once, under the smaller id.
+                if (id.compareTo(m.id()) < 0 && found.size() < limit) {
+                    found.putIfAbsent(id + "|" + m.id(), new PairMatch(id, m.id(), kind, m.distance()));
+                }
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            var all = repository.listAll();
+            for (var f : all) {
+                if (f.textSimhash() != null) {
+                    texts.put(f.entryId(), f.textSimhash());
+                }
+                if (f.imageDhash() != null) {
+                    images.put(f.entryId(), f.imageDhash());
+                }
+            }
+            loaded = true;
+            log.info("Loaded {} content fingerprints", all.size());
+        }
+    }
+
+    public enum Kind { TEXT, IMAGE }
+
+    public record Candidate(Entry entry, Kind kind, int distance) {}
+
+    public record Pair(Entry entry, Entry duplicateOf, Kind kind, int distance) {}
+
+    private record Match(String id, Kind kind, int distance) {}
+
+    private record PairMatch(String a, String b, Kind kind, int distance) {}
+}
@@ -0,0 +1,56 @@
+package com.vestigium.dedup;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 64-bit difference hash (dHash) of an image: the image is averaged down to a 9x8 grid of grey levels and each bit
+ * says whether a cell is brighter than its right neighbour. Resizing, recompression and small colour shifts leave most
+ * bits unchanged.
+ */
+public final class ImageHash {
+
+    private static final int COLUMNS = 9;
+    private static final int ROWS = 8;
+
+    private ImageHash() {}
+
+    /**
+     * Zero for an image with no detail (a blank screenshot), which must not match every other blank one.
+     */
+    public static long dHash(BufferedImage image) {
+        var grid = new double[ROWS][COLUMNS];
+        var width = image.getWidth();
+        var height = image.getHeight();
+        for (int r = 0; r < ROWS; r++) {
+            var y0 = r * height / ROWS;
+            var y1 = Math.max(y0 + 1, (r + 1) * height / ROWS);
+            for (int c = 0; c < COLUMNS; c++) {
+                var x0 = c * width / COLUMNS;
+                var x1 = Math.max(x0 + 1, (c + 1) * width / COLUMNS);
+                grid[r][c] = meanLuma(image, x0, Math.min(x1, width), y0, Math.min(y1, height));
+            }
+        }
+        var hash = 0L;
+        var bit = 0;
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLUMNS - 1; c++) {
+                if (grid[r][c] > grid[r][c + 1]) {
+                    hash |= 1L << bit;
+                }
+                bit++;
+            }
+        }
+        return hash;
+    }
+
+    private static double meanLuma(BufferedImage image, int x0, int x1, int y0, int y1) {
+        var sum = 0.0;
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                var rgb = image.getRGB(x, y);
+                sum += 0.299 * ((rgb >> 16) & 0xff) + 0.587 * ((rgb >> 8) & 0xff) + 0.114 * (rgb & 0xff);
+            }
+        }
+        return sum / ((x1 - x0) * (y1 - y0));
+    }
+}
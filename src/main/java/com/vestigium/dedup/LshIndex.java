@@ -0,0 +1,104 @@
+package com.vestigium.dedup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds 64-bit fingerprints within a Hamming distance without comparing against all of them. Each fingerprint is
+ * split into {@code bands} equal bit ranges and filed under every range; two fingerprints fewer than {@code bands}
+ * bits apart agree exactly on at least one range (pigeonhole), so looking in their buckets finds every match.
+ */
+final class LshIndex {
+
+    private final int bands;
+    private final int bandBits;
+    private final long bandMask;
+    private final Map<Long, Set<String>> buckets = new HashMap<>();
+    private final Map<String, Long> fingerprints = new HashMap<>();
+
+    /**
+     * @param maxDistance largest distance {@link #near} must find, at most 15
+     */
+    LshIndex(int maxDistance) {
+        var b = 4;
+        while (b <= maxDistance && b < 16) {
+            b *= 2;
+        }
+        this.bands = b;
+        this.bandBits = 64 / b;
+        this.bandMask = (1L << bandBits) - 1;
+    }
+
+    synchronized void put(String id, long fingerprint) {
+        remove(id);
+        fingerprints.put(id, fingerprint);
+        for (int band = 0; band < bands; band++) {
+            buckets.computeIfAbsent(key(band, fingerprint), k -> new HashSet<>()).add(id);
+        }
+    }
+
+    synchronized void remove(String id) {
+        var previous = fingerprints.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (int band = 0; band < bands; band++) {
+            var key = key(band, previous);
+            var bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(id);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    synchronized Long fingerprintOf(String id) {
+        return fingerprints.get(id);
+    }
+
+    synchronized List<String> ids() {
+        return List.copyOf(fingerprints.keySet());
+    }
+
+    synchronized int size() {
+        return fingerprints.size();
+    }
+
+    /**
+     * Ids within {@code maxDistance} of {@code fingerprint}, closest first, without {@code excludeId}.
+     */
+    synchronized List<Match> near(long fingerprint, int maxDistance, String excludeId) {
+        var seen = new HashSet<String>();
+        var out = new ArrayList<Match>();
+        for (int band = 0; band < bands; band++) {
+            var bucket = buckets.get(key(band, fingerprint));
+            if (bucket == null) {
+                continue;
+            }
+            for (var id : bucket) {
+                if (id.equals(excludeId) || !seen.add(id)) {
+                    continue;
+                }
+                var distance = SimHash.distance(fingerprint, fingerprints.get(id));
+                if (distance <= maxDistance) {
+                    out.add(new Match(id, distance));
+                }
+            }
+        }
+        out.sort(Comparator.comparingInt(Match::distance).thenComparing(Match::id));
+        return out;
+    }
+
+    private long key(int band, long fingerprint) {
+        return ((long) band << 32) | ((fingerprint >>> (band * bandBits)) & bandMask);
+    }
+
+    record Match(String id, int distance) {}
+}
@@ -0,0 +1,58 @@
+package com.vestigium.dedup;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 64-bit SimHash (Charikar) of a text over overlapping three-word shingles. Texts that share most of their shingles
+ * get fingerprints a few bits apart, so the same article behind two URLs (with a different ad block or footer) is
+ * found by Hamming distance rather than exact equality.
+ */
+public final class SimHash {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int SHINGLE_WORDS = 3;
+
+    private SimHash() {}
+
+    public static long of(CharSequence text) {
+        var words = new ArrayList<String>();
+        var matcher = WORD.matcher(text == null ? "" : text);
+        while (matcher.find()) {
+            words.add(matcher.group().toLowerCase(Locale.ROOT));
+        }
+        var counts = new int[64];
+        var width = Math.min(SHINGLE_WORDS, words.size());
+        for (int i = 0; i + width <= words.size() && width > 0; i++) {
+            var hash = fnv1a(String.join(" ", words.subList(i, i + width)));
+            for (int bit = 0; bit < 64; bit++) {
+                counts[bit] += ((hash >>> bit) & 1) == 1 ? 1 : -1;
+            }
+        }
+        var fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (counts[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static long fnv1a(String s) {
+        var hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // FNV's low bits mix poorly for short inputs; a final avalanche spreads them over all 64 bits.
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -8,7 +8,19 @@ public record Attachment(
         String mimeType,
         long sizeBytes,
         String storagePath,
-        String createdAt
-) {}
-
-
+        String createdAt,
+        String blobHash
+) {
+    public Attachment(
+            String id,
+            String entryId,
+            String kind,
+            String originalName,
+            String mimeType,
+            long sizeBytes,
+            String storagePath,
+            String createdAt
+    ) {
+        this(id, entryId, kind, originalName, mimeType, sizeBytes, storagePath, createdAt, null);
+    }
+}
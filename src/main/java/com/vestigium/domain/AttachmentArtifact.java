@@ -0,0 +1,20 @@
+package com.vestigium.domain;
+
+public record AttachmentArtifact(
+        String attachmentId,
+        String pdfText,
+        Integer pdfMaxChars,
+        Integer pdfPagesRead,
+        Integer pdfPageCount,
+        boolean pdfTruncated,
+        String contentHash,
+        Integer imageWidth,
+        Integer imageHeight,
+        String derivativePath,
+        String derivativeBlobHash,
+        String derivativeSpec,
+        String thumbnailPath,
+        String thumbnailBlobHash,
+        String preprocessedAt,
+        String updatedAt
+) {}
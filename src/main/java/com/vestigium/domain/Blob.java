@@ -0,0 +1,10 @@
+package com.vestigium.domain;
+
+public record Blob(
+        String hash,
+        long sizeBytes,
+        String mimeType,
+        String storagePath,
+        int refCount,
+        String createdAt
+) {}
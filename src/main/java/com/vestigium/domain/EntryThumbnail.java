@@ -0,0 +1,11 @@
+package com.vestigium.domain;
+
+public record EntryThumbnail(
+        String entryId,
+        String variant,
+        String format,
+        String storagePath,
+        long sizeBytes,
+        String createdAt,
+        String blobHash
+) {}
@@ -11,7 +11,23 @@ public record Job(
         String finishedAt,
         String lastError,
         String lastResponse,
-        String createdAt
-) {}
-
+        String createdAt,
+        String metricsJson
+) {
 
+    public Job(
+            String id,
+            String type,
+            String status,
+            String entryId,
+            String payloadJson,
+            int attempts,
+            String lockedAt,
+            String finishedAt,
+            String lastError,
+            String lastResponse,
+            String createdAt
+    ) {
+        this(id, type, status, entryId, payloadJson, attempts, lockedAt, finishedAt, lastError, lastResponse, createdAt, null);
+    }
+}
@@ -0,0 +1,11 @@
+package com.vestigium.domain;
+
+public record PageFetch(
+        String url,
+        String etag,
+        String lastModified,
+        String contentHash,
+        String extractPath,
+        String fetchedAt,
+        String updatedAt
+) {}
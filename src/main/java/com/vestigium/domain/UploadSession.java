@@ -0,0 +1,15 @@
+package com.vestigium.domain;
+
+public record UploadSession(
+        String id,
+        String entryId,
+        String originalName,
+        String mimeType,
+        long totalBytes,
+        long receivedBytes,
+        String tempPath,
+        String status,
+        String attachmentId,
+        String createdAt,
+        String updatedAt
+) {}
@@ -0,0 +1,25 @@
+package com.vestigium.embed;
+
+import java.util.List;
+
+/**
+ * Turns entry text into embedding vectors. Implementations are Spring beans; {@code vestigium.embeddings.provider}
+ * picks one by {@link #name()}.
+ */
+public interface EmbeddingProvider {
+
+    String name();
+
+    /**
+     * Identifies the vectors this provider produces. Stored next to each vector, so switching models re-embeds
+     * everything instead of mixing incompatible vectors.
+     */
+    String model();
+
+    int dimensions();
+
+    /**
+     * One vector per text, in order.
+     */
+    List<float[]> embed(List<String> texts) throws Exception;
+}
@@ -0,0 +1,92 @@
+package com.vestigium.embed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestigium.http.CallClass;
+import com.vestigium.http.OutboundHttp;
+import com.vestigium.llm.ApiKeyProvider;
+import com.vestigium.llm.GeminiQuotaException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Embeddings from the Gemini API ({@code batchEmbedContents}). Better at meaning than the local provider, but every
+ * entry costs a request against the key's quota.
+ */
+@Component
+public class GeminiEmbeddingProvider implements EmbeddingProvider {
+
+    private final ApiKeyProvider apiKeyProvider;
+    private final ObjectMapper objectMapper;
+    private final OutboundHttp http;
+    private final String model;
+    private final int dimensions;
+
+    public GeminiEmbeddingProvider(
+            ApiKeyProvider apiKeyProvider,
+            ObjectMapper objectMapper,
+            OutboundHttp http,
+            @Value("${vestigium.embeddings.gemini.model:text-embedding-004}") String model,
+            @Value("${vestigium.embeddings.gemini.dimensions:768}") int dimensions
+    ) {
+        this.apiKeyProvider = apiKeyProvider;
+        this.objectMapper = objectMapper;
+        this.http = http;
+        this.model = model;
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public String name() {
+        return "gemini";
+    }
+
+    @Override
+    public String model() {
+        return "gemini-" + model;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) throws Exception {
+        var requests = texts.stream()
+                .map(text -> Map.of(
+                        "model", "models/" + model,
+                        "content", Map.of("parts", List.of(Map.of("text", text)))
+                ))
+                .toList();
+        var body = objectMapper.writeValueAsBytes(Map.of("requests", requests));
+        var uri = URI.create("https://generativelanguage.googleapis.com/v1beta/models/" + model
+                + ":batchEmbedContents?key=" + apiKeyProvider.getGoogleApiKey());
+        var resp = http.post(CallClass.LLM, uri, "application/json", HttpRequest.BodyPublishers.ofByteArray(body));
+        if (resp.statusCode() == 429) {
+            throw new GeminiQuotaException("Gemini embedding quota exceeded (HTTP 429)", Instant.now().plusSeconds(60));
+        }
+        if (!resp.isSuccess()) {
+            throw new IllegalStateException("Gemini embedding error: HTTP " + resp.statusCode());
+        }
+        var embeddings = objectMapper.readTree(resp.body()).path("embeddings");
+        if (embeddings.size() != texts.size()) {
+            throw new IllegalStateException("Gemini returned " + embeddings.size() + " embeddings for " + texts.size() + " texts");
+        }
+        var out = new ArrayList<float[]>(texts.size());
+        for (var embedding : embeddings) {
+            var values = embedding.path("values");
+            var vector = new float[values.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = (float) values.get(i).asDouble();
+            }
+            out.add(vector);
+        }
+        return out;
+    }
+}
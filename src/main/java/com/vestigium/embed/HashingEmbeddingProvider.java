@@ -0,0 +1,83 @@
+package com.vestigium.embed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fully local embedder: signed feature hashing of words, word pairs and character trigrams into a fixed number of
+ * dimensions. No model download and no network; similar wording lands close together, although synonyms do not the
+ * way they would with a neural model. Trigrams make inflected forms ("zamek", "zamku") overlap.
+ */
+@Component
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    static final int DIMENSIONS = 384;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float PAIR_WEIGHT = 0.5f;
+    private static final float TRIGRAM_WEIGHT = 0.3f;
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public String model() {
+        return "local-hash-v1-" + DIMENSIONS;
+    }
+
+    @Override
+    public int dimensions() {
+        return DIMENSIONS;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        var out = new ArrayList<float[]>(texts.size());
+        for (var text : texts) {
+            out.add(embed(text));
+        }
+        return out;
+    }
+
+    float[] embed(String text) {
+        var vector = new float[DIMENSIONS];
+        var words = NON_WORD.split(text == null ? "" : text.toLowerCase(Locale.ROOT));
+        String previous = null;
+        for (var word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            add(vector, word, WORD_WEIGHT);
+            if (previous != null) {
+                add(vector, previous + ' ' + word, PAIR_WEIGHT);
+            }
+            var padded = '^' + word + '$';
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                add(vector, padded.substring(i, i + 3), TRIGRAM_WEIGHT);
+            }
+            previous = word;
+        }
+        return vector;
+    }
+
+    private static void add(float[] vector, String feature, float weight) {
+        var hash = fnv1a(feature);
+        var index = (int) Long.remainderUnsigned(hash, DIMENSIONS);
+        vector[index] += hash < 0 ? -weight : weight;
+    }
+
+    private static long fnv1a(String s) {
+        var hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
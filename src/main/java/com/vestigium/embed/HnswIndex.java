@@ -0,0 +1,335 @@
+package com.vestigium.embed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * In-process approximate nearest-neighbour index (HNSW, Malkov and Yashunin) over {@link QuantizedVector}s, ranked
+ * by dot product. Vectors live in one contiguous byte arena. Each node links to up to {@code m} neighbours per upper
+ * layer and {@code 2m} on layer 0, chosen with the diversity heuristic. Removing an id only marks its node deleted: it
+ * still routes searches but is never returned, and {@link #compacted()} drops such nodes for good. Writers take an
+ * exclusive lock; searches run concurrently.
+ */
+final class HnswIndex {
+
+    private static final int[] NO_LINKS = new int[0];
+
+    private final int dimensions;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final Random random;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private byte[] arena = new byte[0];
+    private float[] scales = new float[0];
+    private String[] ids = new String[0];
+    /** links[node][level]: neighbour nodes, exactly sized. */
+    private int[][][] links = new int[0][][];
+    private final BitSet deleted = new BitSet();
+    private final Map<String, Integer> nodeById = new HashMap<>();
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswIndex(int dimensions, int m, int efConstruction, long seed) {
+        this.dimensions = dimensions;
+        this.m = Math.max(2, m);
+        this.maxM0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelFactor = 1 / Math.log(this.m);
+        this.random = new Random(seed);
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Adds {@code id}, replacing its previous vector if it had one.
+     */
+    void put(String id, QuantizedVector vector) {
+        if (vector.dimensions() != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.dimensions());
+        }
+        lock.writeLock().lock();
+        try {
+            var previous = nodeById.remove(id);
+            if (previous != null) {
+                deleted.set(previous);
+            }
+            var node = allocate(id, vector);
+            var level = randomLevel();
+            links[node] = new int[level + 1][];
+            Arrays.fill(links[node], NO_LINKS);
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+            var entries = List.of(new Scored(entryPoint, similarity(vector, entryPoint)));
+            for (int l = maxLevel; l > level; l--) {
+                entries = searchLayer(vector, entries, 1, l, n -> true);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                var found = searchLayer(vector, entries, efConstruction, l, n -> n != node && !deleted.get(n));
+                var neighbours = selectNeighbours(found, l == 0 ? maxM0 : m);
+                links[node][l] = neighbours.stream().mapToInt(Scored::node).toArray();
+                for (var neighbour : neighbours) {
+                    connect(neighbour.node(), node, l);
+                }
+                if (!found.isEmpty()) {
+                    entries = found;
+                }
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            var node = nodeById.remove(id);
+            if (node != null) {
+                deleted.set(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean contains(String id) {
+        lock.readLock().lock();
+        try {
+            return nodeById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    QuantizedVector vector(String id) {
+        lock.readLock().lock();
+        try {
+            var node = nodeById.get(id);
+            if (node == null) {
+                return null;
+            }
+            var offset = node * dimensions;
+            return new QuantizedVector(Arrays.copyOfRange(arena, offset, offset + dimensions), scales[node]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code k} ids most similar to {@code query} among those {@code accept} lets through, best first. A
+     * larger {@code ef} explores more of the graph for better recall.
+     */
+    List<Hit> search(QuantizedVector query, int k, int ef, Predicate<String> accept) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return List.of();
+            }
+            var entries = List.of(new Scored(entryPoint, similarity(query, entryPoint)));
+            for (int l = maxLevel; l > 0; l--) {
+                entries = searchLayer(query, entries, 1, l, n -> true);
+            }
+            var found = searchLayer(query, entries, Math.max(ef, k), 0, n -> !deleted.get(n) && accept.test(ids[n]));
+            var out = new ArrayList<Hit>(Math.min(k, found.size()));
+            for (var s : found.subList(0, Math.min(k, found.size()))) {
+                out.add(new Hit(ids[s.node()], s.similarity()));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int liveCount() {
+        lock.readLock().lock();
+        try {
+            return nodeById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return size - nodeById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A new index holding only the live entries.
+     */
+    HnswIndex compacted() {
+        var copy = new HnswIndex(dimensions, m, efConstruction, random.nextLong());
+        lock.readLock().lock();
+        try {
+            nodeById.forEach((id, node) -> {
+                var offset = node * dimensions;
+                copy.put(id, new QuantizedVector(Arrays.copyOfRange(arena, offset, offset + dimensions), scales[node]));
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return copy;
+    }
+
+    /**
+     * Best-first search of one layer from {@code entries}. Nodes rejected by {@code accept} are still expanded, so
+     * they route the search, but never enter the result. Returns up to {@code ef} results, best first.
+     */
+    private List<Scored> searchLayer(QuantizedVector query, List<Scored> entries, int ef, int level, IntPredicate accept) {
+        var visited = new BitSet(size);
+        var candidates = new PriorityQueue<Scored>(Comparator.comparingDouble(Scored::similarity).reversed());
+        var results = new PriorityQueue<Scored>(Comparator.comparingDouble(Scored::similarity));
+        for (var entry : entries) {
+            visited.set(entry.node());
+            candidates.add(entry);
+            if (accept.test(entry.node())) {
+                offer(results, entry, ef);
+            }
+        }
+        while (!candidates.isEmpty()) {
+            var current = candidates.poll();
+            if (results.size() >= ef && current.similarity() < results.peek().similarity()) {
+                break;
+            }
+            var nodeLinks = links[current.node()];
+            if (level >= nodeLinks.length) {
+                continue;
+            }
+            for (var neighbour : nodeLinks[level]) {
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                var scored = new Scored(neighbour, similarity(query, neighbour));
+                if (results.size() < ef || scored.similarity() > results.peek().similarity()) {
+                    candidates.add(scored);
+                    if (accept.test(neighbour)) {
+                        offer(results, scored, ef);
+                    }
+                }
+            }
+        }
+        var out = new ArrayList<>(results);
+        out.sort(Comparator.comparingDouble(Scored::similarity).reversed());
+        return out;
+    }
+
+    private static void offer(PriorityQueue<Scored> results, Scored scored, int ef) {
+        results.add(scored);
+        if (results.size() > ef) {
+            results.poll();
+        }
+    }
+
+    /**
+     * Keeps a candidate only if it is closer to the base than to every neighbour already kept, so links spread in
+     * different directions instead of clustering. {@code candidates} must be best first.
+     */
+    private List<Scored> selectNeighbours(List<Scored> candidates, int max) {
+        var selected = new ArrayList<Scored>(max);
+        for (var candidate : candidates) {
+            if (selected.size() >= max) {
+                break;
+            }
+            var diverse = true;
+            for (var kept : selected) {
+                if (similarity(candidate.node(), kept.node()) > candidate.similarity()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Adds the reverse link. A full neighbour list keeps its most similar links: re-running the diversity heuristic
+     * here would cost a quadratic number of dot products for every neighbour of every insert.
+     */
+    private void connect(int from, int to, int level) {
+        var current = links[from][level];
+        var max = level == 0 ? maxM0 : m;
+        if (current.length < max) {
+            var grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = to;
+            links[from][level] = grown;
+            return;
+        }
+        var toSimilarity = similarity(from, to);
+        var worst = -1;
+        var worstSimilarity = toSimilarity;
+        for (int i = 0; i < current.length; i++) {
+            var s = similarity(from, current[i]);
+            if (s < worstSimilarity) {
+                worst = i;
+                worstSimilarity = s;
+            }
+        }
+        if (worst >= 0) {
+            var replaced = current.clone();
+            replaced[worst] = to;
+            links[from][level] = replaced;
+        }
+    }
+
+    private int allocate(String id, QuantizedVector vector) {
+        if (size == ids.length) {
+            var capacity = Math.max(64, ids.length * 2);
+            arena = Arrays.copyOf(arena, capacity * dimensions);
+            scales = Arrays.copyOf(scales, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            links = Arrays.copyOf(links, capacity);
+        }
+        var node = size++;
+        System.arraycopy(vector.values(), 0, arena, node * dimensions, dimensions);
+        scales[node] = vector.scale();
+        ids[node] = id;
+        nodeById.put(id, node);
+        return node;
+    }
+
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelFactor);
+    }
+
+    private float similarity(QuantizedVector query, int node) {
+        return QuantizedVector.dot(query.values(), 0, query.scale(), arena, node * dimensions, scales[node], dimensions);
+    }
+
+    private float similarity(int a, int b) {
+        return QuantizedVector.dot(arena, a * dimensions, scales[a], arena, b * dimensions, scales[b], dimensions);
+    }
+
+    record Hit(String id, float similarity) {}
+
+    private record Scored(int node, float similarity) {}
+}
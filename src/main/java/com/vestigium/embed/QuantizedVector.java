@@ -0,0 +1,68 @@
+package com.vestigium.embed;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An L2-normalized embedding stored as one signed byte per dimension plus a scale: {@code value[i] ~= q[i] * scale}.
+ * A quarter of the float32 size, and the dot product of two normalized vectors (their cosine similarity) stays within
+ * about 1% of the exact value.
+ */
+public record QuantizedVector(byte[] values, float scale) {
+
+    public static QuantizedVector of(float[] vector) {
+        var norm = 0.0;
+        for (var v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        var maxAbs = 0.0;
+        for (var v : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(v / norm));
+        }
+        var values = new byte[vector.length];
+        if (norm == 0 || maxAbs == 0) {
+            return new QuantizedVector(values, 0f);
+        }
+        var scale = maxAbs / 127.0;
+        for (int i = 0; i < vector.length; i++) {
+            values[i] = (byte) Math.round(vector[i] / norm / scale);
+        }
+        return new QuantizedVector(values, (float) scale);
+    }
+
+    public int dimensions() {
+        return values.length;
+    }
+
+    public float dot(QuantizedVector other) {
+        return dot(values, 0, scale, other.values, 0, other.scale, values.length);
+    }
+
+    static float dot(byte[] a, int aOffset, float aScale, byte[] b, int bOffset, float bScale, int dimensions) {
+        var sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum * aScale * bScale;
+    }
+
+    /**
+     * Storage form: the scale as a little-endian float32 followed by the values.
+     */
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(4 + values.length)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putFloat(scale)
+                .put(values)
+                .array();
+    }
+
+    public static QuantizedVector fromBytes(byte[] bytes) {
+        var buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        var scale = buffer.getFloat();
+        var values = new byte[bytes.length - 4];
+        buffer.get(values);
+        return new QuantizedVector(values, scale);
+    }
+}
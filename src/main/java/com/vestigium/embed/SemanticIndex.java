@@ -0,0 +1,253 @@
+package com.vestigium.embed;
+
+import com.vestigium.events.EntriesChangedEvent;
+import com.vestigium.persistence.EmbeddingRepository;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Embeddings of all entries (title, tags and description) in an in-memory {@link HnswIndex}, for semantic search
+ * and related entries. Vectors are stored in {@code entry_embeddings}; on startup they are loaded back into the index
+ * on a virtual thread, then a background sync embeds new and changed entries in batches. An entry whose text did not
+ * change (a visit, say) is only marked checked.
+ */
+@Service
+public class SemanticIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticIndex.class);
+
+    private final EmbeddingRepository repository;
+    private final EmbeddingProvider provider;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int batchesPerRun;
+    private final int efSearch;
+    private final int m;
+    private final int efConstruction;
+
+    private volatile HnswIndex index;
+    private final AtomicBoolean loadStarted = new AtomicBoolean();
+    private volatile boolean loaded;
+
+    public SemanticIndex(
+            EmbeddingRepository repository,
+            List<EmbeddingProvider> providers,
+            @Value("${vestigium.embeddings.enabled:true}") boolean enabled,
+            @Value("${vestigium.embeddings.provider:local}") String providerName,
+            @Value("${vestigium.embeddings.batch-size:64}") int batchSize,
+            @Value("${vestigium.embeddings.batches-per-run:8}") int batchesPerRun,
+            @Value("${vestigium.embeddings.index.m:16}") int m,
+            @Value("${vestigium.embeddings.index.ef-construction:100}") int efConstruction,
+            @Value("${vestigium.embeddings.index.ef-search:64}") int efSearch
+    ) {
+        this.repository = repository;
+        this.provider = providers.stream()
+                .filter(p -> p.name().equalsIgnoreCase(providerName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown embedding provider: " + providerName));
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchesPerRun = Math.max(1, batchesPerRun);
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = Math.max(1, efSearch);
+        this.index = newIndex();
+    }
+
+    public boolean ready() {
+        return enabled && loaded;
+    }
+
+    /**
+     * Up to {@code limit} entries closest in meaning to {@code query}, best first, among those {@code accept} lets
+     * through. Empty until the stored vectors are loaded.
+     */
+    public List<Match> search(String query, int limit, Predicate<String> accept) throws Exception {
+        if (!ready() || query == null || query.isBlank()) {
+            return List.of();
+        }
+        var vector = QuantizedVector.of(provider.embed(List.of(query)).getFirst());
+        return matches(index.search(vector, limit, Math.max(efSearch, limit), accept));
+    }
+
+    /**
+     * Entries closest to {@code entryId}, excluding itself. Empty when it has no embedding yet.
+     */
+    public List<Match> related(String entryId, int limit, Predicate<String> accept) {
+        var current = index;
+        var vector = ready() ? current.vector(entryId) : null;
+        if (vector == null) {
+            return List.of();
+        }
+        return matches(current.search(vector, limit, Math.max(efSearch, limit), id -> !id.equals(entryId) && accept.test(id)));
+    }
+
+    @EventListener
+    public void onEntriesChanged(EntriesChangedEvent event) {
+        if (event.change() == EntriesChangedEvent.Change.REMOVED) {
+            event.entryIds().forEach(index::remove);
+        }
+    }
+
+    @Scheduled(
+            fixedDelayString = "${vestigium.embeddings.sync-delay-ms:30000}",
+            initialDelayString = "${vestigium.embeddings.initial-delay-ms:5000}"
+    )
+    public void sync() {
+        if (!enabled) {
+            return;
+        }
+        if (loadStarted.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("embedding-index-load").start(this::load);
+        }
+        if (!loaded) {
+            return;
+        }
+        try {
+            var embedded = 0;
+            for (int i = 0; i < batchesPerRun; i++) {
+                var batch = syncBatch();
+                embedded += batch.embedded();
+                if (batch.checked() < batchSize) {
+                    break;
+                }
+            }
+            if (embedded > 0) {
+                log.info("Embedded {} entries with {}", embedded, provider.model());
+            }
+            compactIfNeeded();
+        } catch (Exception e) {
+            log.warn("Embedding sync failed: {}", e.getMessage());
+        }
+    }
+
+    public Status status() {
+        var current = index;
+        return new Status(
+                provider.name(),
+                provider.model(),
+                provider.dimensions(),
+                loaded,
+                current.liveCount(),
+                current.deletedCount(),
+                repository.count(provider.model())
+        );
+    }
+
+    void load() {
+        var started = System.nanoTime();
+        try {
+            var loading = newIndex();
+            repository.forEachVector(provider.model(), (id, bytes) -> loading.put(id, QuantizedVector.fromBytes(bytes)));
+            index = loading;
+            loaded = true;
+            log.info(
+                    "Loaded {} embeddings ({}) into the search index in {}ms",
+                    loading.liveCount(), provider.model(), (System.nanoTime() - started) / 1_000_000
+            );
+        } catch (RuntimeException e) {
+            loadStarted.set(false);
+            log.warn("Loading embeddings failed: {}", e.getMessage());
+        }
+    }
+
+    SyncBatch syncBatch() throws Exception {
+        var stale = repository.listStale(provider.model(), batchSize);
+        var pending = new ArrayList<Pending>();
+        for (var entry : stale) {
+            var text = document(entry);
+            var hash = sha256(text);
+            if (hash.equals(entry.contentHash()) && index.contains(entry.id())) {
+                repository.markChecked(entry.id(), entry.updatedAt());
+            } else {
+                pending.add(new Pending(entry, text, hash));
+            }
+        }
+        if (!pending.isEmpty()) {
+            var vectors = provider.embed(pending.stream().map(Pending::text).toList());
+            for (int i = 0; i < pending.size(); i++) {
+                var p = pending.get(i);
+                var vector = QuantizedVector.of(vectors.get(i));
+                repository.upsert(p.entry().id(), provider.model(), p.hash(), vector.toBytes(), p.entry().updatedAt());
+                index.put(p.entry().id(), vector);
+            }
+        }
+        return new SyncBatch(stale.size(), pending.size());
+    }
+
+    /**
+     * Removed entries stay in the graph as tombstones; once they outnumber half the live ones the graph is rebuilt.
+     */
+    private void compactIfNeeded() {
+        var current = index;
+        if (current.deletedCount() > Math.max(256, current.liveCount() / 2)) {
+            index = current.compacted();
+        }
+    }
+
+    private HnswIndex newIndex() {
+        return new HnswIndex(provider.dimensions(), m, efConstruction, 42);
+    }
+
+    /**
+     * The embedded text. Tags are sorted so their order in the database does not change the content hash.
+     */
+    static String document(EmbeddingRepository.StaleEntry entry) {
+        var text = new StringBuilder();
+        if (entry.title() != null && !entry.title().isBlank()) {
+            text.append(entry.title().strip()).append('\n');
+        }
+        if (!entry.tags().isEmpty()) {
+            text.append("Tags: ").append(String.join(", ", new TreeSet<>(entry.tags()))).append('\n');
+        }
+        if (entry.description() != null && !entry.description().isBlank()) {
+            text.append(entry.description().strip());
+        }
+        return text.toString();
+    }
+
+    private static List<Match> matches(List<HnswIndex.Hit> hits) {
+        return hits.stream().map(h -> new Match(h.id(), h.similarity())).toList();
+    }
+
+    private static String sha256(String text) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    record SyncBatch(int checked, int embedded) {}
+
+    private record Pending(EmbeddingRepository.StaleEntry entry, String text, String hash) {}
+
+    /**
+     * @param score cosine similarity, 1 for identical text
+     */
+    public record Match(String entryId, double score) {}
+
+    public record Status(
+            String provider,
+            String model,
+            int dimensions,
+            boolean loaded,
+            int indexed,
+            int deleted,
+            long stored
+    ) {}
+}
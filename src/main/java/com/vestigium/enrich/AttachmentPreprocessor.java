@@ -0,0 +1,206 @@
+package com.vestigium.enrich;
+
+import com.vestigium.domain.Attachment;
+import com.vestigium.domain.AttachmentArtifact;
+import com.vestigium.llm.GeminiClient;
+import com.vestigium.persistence.AttachmentArtifactRepository;
+import com.vestigium.storage.BlobStore;
+import com.vestigium.storage.FileStorageService;
+import com.vestigium.thumb.ImageFormat;
+import com.vestigium.thumb.ImageThumbs;
+import com.vestigium.thumb.JpegImageCodec;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Upload-time work for attachments, run by the PREPROCESS_ATTACHMENTS job: PDF text, content hash, and for images a
+ * downscaled JPEG derivative (what the model sees) plus a small thumbnail. Enrichment then reads these small artifacts
+ * instead of parsing or loading the originals.
+ * <p>
+ * The derivative is bounded by {@code derivative-max-side} and {@code derivative-max-bytes}: quality is lowered first,
+ * then the image is made smaller, until the encoding fits.
+ */
+@Component
+public class AttachmentPreprocessor {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentPreprocessor.class);
+
+    /** Characters of PDF text extracted and cached; the prompt's share of it is decided by {@link ContextAssembler}. */
+    public static final int PDF_TEXT_BUDGET = 60_000;
+
+    private static final float[] JPEG_QUALITIES = {0.85f, 0.75f, 0.65f, 0.5f};
+    private static final int MIN_DERIVATIVE_SIDE = 256;
+
+    private final FileStorageService fileStorage;
+    private final BlobStore blobStore;
+    private final AttachmentArtifactRepository artifacts;
+    private final AttachmentTextCache attachmentText;
+    private final JpegImageCodec jpeg;
+    private final int derivativeMaxSide;
+    private final long derivativeMaxBytes;
+    private final int thumbnailWidth;
+
+    public AttachmentPreprocessor(
+            FileStorageService fileStorage,
+            BlobStore blobStore,
+            AttachmentArtifactRepository artifacts,
+            AttachmentTextCache attachmentText,
+            JpegImageCodec jpeg,
+            @Value("${vestigium.attachments.derivative-max-side:1024}") int derivativeMaxSide,
+            @Value("${vestigium.attachments.derivative-max-bytes:400000}") long derivativeMaxBytes,
+            @Value("${vestigium.attachments.thumbnail-width:320}") int thumbnailWidth
+    ) {
+        this.fileStorage = fileStorage;
+        this.blobStore = blobStore;
+        this.artifacts = artifacts;
+        this.attachmentText = attachmentText;
+        this.jpeg = jpeg;
+        this.derivativeMaxSide = Math.max(MIN_DERIVATIVE_SIDE, derivativeMaxSide);
+        this.derivativeMaxBytes = derivativeMaxBytes;
+        this.thumbnailWidth = thumbnailWidth;
+    }
+
+    /**
+     * Computes all artifacts for {@code attachment}. Already processed attachments are skipped unless {@code force}.
+     */
+    public void preprocess(Attachment attachment, boolean force) throws IOException {
+        if (!force && artifacts.find(attachment.id()).map(AttachmentArtifact::preprocessedAt).isPresent()) {
+            return;
+        }
+        var file = fileStorage.loadAsResource(attachment.storagePath());
+        if (!file.exists()) {
+            log.warn("Attachment file missing for attachmentId={} path={}", attachment.id(), attachment.storagePath());
+            return;
+        }
+        var contentHash = attachment.blobHash() != null ? attachment.blobHash() : sha256(file);
+
+        if ("PDF".equalsIgnoreCase(attachment.kind())) {
+            attachmentText.pdfText(attachment, file, PDF_TEXT_BUDGET);
+            artifacts.markPreprocessed(attachment.id(), contentHash);
+        } else if ("IMAGE".equalsIgnoreCase(attachment.kind())) {
+            storeImageArtifacts(attachment, file, contentHash);
+        } else {
+            artifacts.markPreprocessed(attachment.id(), contentHash);
+        }
+    }
+
+    /**
+     * The image to send to the model: the stored derivative, rebuilt now if the upload was not pre-processed yet or
+     * the derivative settings changed since. Falls back to the original bytes when the image cannot be decoded.
+     */
+    public GeminiClient.InlineImage modelImage(Attachment attachment) throws IOException {
+        var artifact = artifacts.find(attachment.id());
+        var stale = artifact.map(AttachmentArtifact::derivativePath).isPresent()
+                && !derivativeSpec().equals(artifact.get().derivativeSpec());
+        var derivative = stale ? Optional.<Resource>empty() : derivative(attachment);
+        if (derivative.isEmpty()) {
+            preprocess(attachment, stale);
+            derivative = derivative(attachment);
+        }
+        if (derivative.isPresent()) {
+            return new GeminiClient.InlineImage(ImageFormat.JPEG.mimeType(), derivative.get().getContentAsByteArray());
+        }
+        var original = fileStorage.loadAsResource(attachment.storagePath());
+        return new GeminiClient.InlineImage(attachment.mimeType(), original.getContentAsByteArray());
+    }
+
+    public Optional<Resource> thumbnail(String attachmentId) {
+        return artifacts.find(attachmentId)
+                .map(AttachmentArtifact::thumbnailPath)
+                .map(fileStorage::loadAsResource)
+                .filter(Resource::exists);
+    }
+
+    private Optional<Resource> derivative(Attachment attachment) {
+        return artifacts.find(attachment.id())
+                .map(AttachmentArtifact::derivativePath)
+                .map(fileStorage::loadAsResource)
+                .filter(Resource::exists);
+    }
+
+    private void storeImageArtifacts(Attachment attachment, Resource file, String contentHash) throws IOException {
+        var previous = artifacts.find(attachment.id());
+        ImageThumbs.Decoded decoded;
+        try (var in = file.getInputStream()) {
+            decoded = ImageThumbs.decodeForMaxSide(in, derivativeMaxSide);
+        } catch (IllegalArgumentException | IOException e) {
+            log.warn("Cannot decode image attachmentId={}: {}", attachment.id(), e.getMessage());
+            artifacts.markPreprocessed(attachment.id(), contentHash);
+            return;
+        }
+        var derivativeBytes = encodeWithinBudget(decoded.image());
+        var derivative = blobStore.put(derivativeBytes, ImageFormat.JPEG.mimeType());
+        var thumbnail = blobStore.put(jpeg.encode(ImageThumbs.scaleToWidth(decoded.image(), thumbnailWidth)), ImageFormat.JPEG.mimeType());
+        artifacts.saveImageArtifacts(
+                attachment.id(),
+                contentHash,
+                decoded.width(),
+                decoded.height(),
+                derivative.storagePath(),
+                derivative.hash(),
+                derivativeSpec(),
+                thumbnail.storagePath(),
+                thumbnail.hash()
+        );
+        log.info(
+                "Stored image derivative for attachmentId={}: {}x{} {} bytes -> {} bytes",
+                attachment.id(), decoded.width(), decoded.height(), attachment.sizeBytes(), derivativeBytes.length
+        );
+        // New references are taken before the old ones are dropped, so unchanged blobs are never deleted.
+        previous.ifPresent(p -> {
+            var old = new ArrayList<String>();
+            old.add(p.derivativeBlobHash());
+            old.add(p.thumbnailBlobHash());
+            fileStorage.releaseBlobs(old.stream().filter(Objects::nonNull).toList());
+        });
+    }
+
+    /**
+     * Lowers JPEG quality, then dimensions, until the encoding fits the byte budget. Returns the smallest attempt
+     * when even the minimum size does not fit.
+     */
+    byte[] encodeWithinBudget(BufferedImage source) throws IOException {
+        var side = Math.min(derivativeMaxSide, Math.max(source.getWidth(), source.getHeight()));
+        byte[] best = null;
+        while (true) {
+            var scaled = ImageThumbs.scaleToFit(source, side);
+            for (var quality : JPEG_QUALITIES) {
+                var bytes = jpeg.encode(scaled, quality);
+                if (bytes.length <= derivativeMaxBytes) {
+                    return bytes;
+                }
+                if (best == null || bytes.length < best.length) {
+                    best = bytes;
+                }
+            }
+            if (side <= MIN_DERIVATIVE_SIDE) {
+                return best;
+            }
+            side = Math.max(MIN_DERIVATIVE_SIDE, side * 3 / 4);
+        }
+    }
+
+    private String derivativeSpec() {
+        return "jpeg/" + derivativeMaxSide + "px/" + derivativeMaxBytes + "b";
+    }
+
+    private static String sha256(Resource file) throws IOException {
+        var digest = BlobStore.newDigest();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,52 @@
+package com.vestigium.enrich;
+
+import com.vestigium.domain.Attachment;
+import com.vestigium.persistence.AttachmentArtifactRepository;
+import java.io.IOException;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * PDF text per attachment, extracted once and stored in {@code attachment_artifacts}. A stored extraction is reused
+ * when it covers the requested budget (or the whole document); only a larger budget re-parses the file.
+ */
+@Component
+public class AttachmentTextCache {
+
+    private final PdfTextExtractor extractor;
+    private final AttachmentArtifactRepository artifacts;
+
+    public AttachmentTextCache(PdfTextExtractor extractor, AttachmentArtifactRepository artifacts) {
+        this.extractor = extractor;
+        this.artifacts = artifacts;
+    }
+
+    public String pdfText(Attachment attachment, Resource file, int maxChars) throws IOException {
+        var cached = artifacts.find(attachment.id())
+                .filter(a -> a.pdfText() != null)
+                .filter(a -> !a.pdfTruncated() || (a.pdfMaxChars() != null && a.pdfMaxChars() >= maxChars));
+        if (cached.isPresent()) {
+            var text = cached.get().pdfText();
+            return text.length() <= maxChars ? text : text.substring(0, maxChars);
+        }
+
+        PdfTextExtractor.PdfText extracted;
+        if (file.isFile()) {
+            extracted = extractor.extract(file.getFile().toPath(), maxChars);
+        } else {
+            try (var in = file.getInputStream()) {
+                var text = extractor.extractText(in, maxChars);
+                extracted = new PdfTextExtractor.PdfText(text, 0, 0, text.length() >= maxChars);
+            }
+        }
+        artifacts.savePdfText(
+                attachment.id(),
+                extracted.text(),
+                maxChars,
+                extracted.pagesRead(),
+                extracted.pageCount(),
+                extracted.truncated()
+        );
+        return extracted.text();
+    }
+}
@@ -0,0 +1,37 @@
+package com.vestigium.enrich;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Limits for batched enrichment of bulk-imported (URL-only) entries: how many entries share one model request, the
+ * prompt size in estimated tokens, the context budget of each entry, and the answer budget per entry.
+ * Missing values fall back to the defaults below; {@code maxEntries} of 1 turns batching off.
+ */
+@ConfigurationProperties(prefix = "vestigium.enrich.batch")
+public record BatchEnrichmentProperties(
+        Integer maxEntries,
+        Integer maxPromptTokens,
+        Integer contextTokensPerEntry,
+        Integer outputTokensPerEntry
+) {
+
+    public int batchSize() {
+        return positive(maxEntries, 8);
+    }
+
+    public int promptTokenBudget() {
+        return positive(maxPromptTokens, 24_000);
+    }
+
+    public int entryContextTokens() {
+        return positive(contextTokensPerEntry, 1_500);
+    }
+
+    public int outputTokensFor(int entries) {
+        return positive(outputTokensPerEntry, 1_024) * Math.max(1, entries);
+    }
+
+    private static int positive(Integer value, int fallback) {
+        return value == null || value <= 0 ? fallback : value;
+    }
+}
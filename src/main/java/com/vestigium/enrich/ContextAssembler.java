@@ -0,0 +1,127 @@
+package com.vestigium.enrich;
+
+import com.vestigium.llm.TokenEstimator;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds prompt context within a token budget. Fixed parts (URL, metadata, notes) are always kept. Flexible parts
+ * (page text, PDF text) share what is left by weight: a source that needs less than its share keeps all of its text
+ * and leaves the rest to the others. Longer sources are shortened by {@link ExtractiveTrimmer}. Parts stay in the order
+ * they were added.
+ */
+public final class ContextAssembler {
+
+    /** A flexible part that would have to be cut below this many tokens is left out rather than kept as a fragment. */
+    static final int MIN_SECTION_TOKENS = 32;
+
+    private final List<Section> sections = new ArrayList<>();
+
+    public ContextAssembler fixed(String text) {
+        if (text != null && !text.isEmpty()) {
+            sections.add(new Section(text, null, 0));
+        }
+        return this;
+    }
+
+    /**
+     * Adds {@code header}, {@code body} and a newline, with {@code body} trimmed to this part's share of the budget.
+     * Nothing is added when the body is blank or no useful share is left for it.
+     */
+    public ContextAssembler flexible(String header, String body, int weight) {
+        if (body != null && !body.isBlank()) {
+            sections.add(new Section(header == null ? "" : header, body, Math.max(1, weight)));
+        }
+        return this;
+    }
+
+    public Assembled assemble(int tokenBudget) {
+        var remaining = (long) tokenBudget;
+        var flexible = new ArrayList<Section>();
+        for (var s : sections) {
+            if (s.body() == null) {
+                remaining -= TokenEstimator.estimate(s.text());
+            } else {
+                flexible.add(s);
+            }
+        }
+        var allocations = allocate(flexible, Math.max(0, remaining));
+
+        var text = new StringBuilder();
+        var trimmed = 0;
+        var dropped = 0;
+        var next = 0;
+        for (var s : sections) {
+            if (s.body() == null) {
+                text.append(s.text());
+                continue;
+            }
+            var allowed = allocations[next++];
+            if (allowed < Math.min(MIN_SECTION_TOKENS, TokenEstimator.estimate(s.body()))) {
+                dropped++;
+                continue;
+            }
+            var body = ExtractiveTrimmer.trim(s.body(), allowed);
+            if (!body.equals(s.body())) {
+                trimmed++;
+            }
+            text.append(s.text()).append(body).append('\n');
+        }
+        var result = text.toString();
+        return new Assembled(result, TokenEstimator.estimate(result), trimmed, dropped);
+    }
+
+    /**
+     * Weighted water-filling: every round, parts that fit in their weighted share of the remaining budget get all
+     * they need; once no part fits, the ones left split the remainder by weight.
+     */
+    private static int[] allocate(List<Section> flexible, long budget) {
+        var allocations = new int[flexible.size()];
+        var needs = new long[flexible.size()];
+        var open = new boolean[flexible.size()];
+        var remaining = budget;
+        for (int i = 0; i < flexible.size(); i++) {
+            var s = flexible.get(i);
+            remaining -= TokenEstimator.estimate(s.text()) + 1;
+            needs[i] = TokenEstimator.estimate(s.body());
+            open[i] = true;
+        }
+        remaining = Math.max(0, remaining);
+        while (true) {
+            long totalWeight = 0;
+            for (int i = 0; i < open.length; i++) {
+                totalWeight += open[i] ? flexible.get(i).weight() : 0;
+            }
+            if (totalWeight == 0) {
+                return allocations;
+            }
+            var satisfied = false;
+            var round = remaining;
+            for (int i = 0; i < open.length; i++) {
+                if (open[i] && needs[i] <= round * flexible.get(i).weight() / totalWeight) {
+                    allocations[i] = (int) needs[i];
+                    remaining -= needs[i];
+                    open[i] = false;
+                    satisfied = true;
+                }
+            }
+            if (!satisfied) {
+                for (int i = 0; i < open.length; i++) {
+                    if (open[i]) {
+                        allocations[i] = (int) Math.min(Integer.MAX_VALUE, remaining * flexible.get(i).weight() / totalWeight);
+                    }
+                }
+                return allocations;
+            }
+        }
+    }
+
+    /**
+     * @param trimmedSections flexible parts that were shortened
+     * @param droppedSections flexible parts left out because no useful share of the budget was left
+     */
+    public record Assembled(String text, int estimatedTokens, int trimmedSections, int droppedSections) {}
+
+    /** {@code text} is the whole fixed part or the header of a flexible one; {@code body} is null for fixed parts. */
+    private record Section(String text, String body, int weight) {}
+}
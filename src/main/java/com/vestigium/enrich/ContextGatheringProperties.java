@@ -0,0 +1,48 @@
+package com.vestigium.enrich;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Limits for gathering enrichment context. Sources (oEmbed, IMDb, page, each attachment) run in parallel; each has its
+ * own timeout and all of them share {@code deadlineMs}. The gathered text is assembled within {@code maxTokens}
+ * estimated tokens. Missing values fall back to the defaults below.
+ */
+@ConfigurationProperties(prefix = "vestigium.enrich.context")
+public record ContextGatheringProperties(
+        Long deadlineMs,
+        Long youtubeTimeoutMs,
+        Long imdbTimeoutMs,
+        Long pageTimeoutMs,
+        Long attachmentTimeoutMs,
+        Integer maxTokens
+) {
+
+    public Duration deadline() {
+        return millis(deadlineMs, 45_000);
+    }
+
+    public Duration youtubeTimeout() {
+        return millis(youtubeTimeoutMs, 10_000);
+    }
+
+    public Duration imdbTimeout() {
+        return millis(imdbTimeoutMs, 25_000);
+    }
+
+    public Duration pageTimeout() {
+        return millis(pageTimeoutMs, 30_000);
+    }
+
+    public Duration attachmentTimeout() {
+        return millis(attachmentTimeoutMs, 30_000);
+    }
+
+    public int tokenBudget() {
+        return maxTokens == null || maxTokens <= 0 ? 12_000 : maxTokens;
+    }
+
+    private static Duration millis(Long value, long fallback) {
+        return Duration.ofMillis(value == null || value <= 0 ? fallback : value);
+    }
+}
@@ -1,6 +1,9 @@
 package com.vestigium.enrich;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 import org.springframework.stereotype.Component;
 
@@ -8,6 +11,7 @@ import org.springframework.stereotype.Component;
 public class EnrichmentParser {
 
     private static final Pattern JSON_OBJECT = Pattern.compile("\\{[\\s\\S]*\\}");
+    private static final Pattern JSON_ARRAY = Pattern.compile("\\[[\\s\\S]*\\]");
 
     private final ObjectMapper objectMapper;
 
@@ -24,6 +28,26 @@ public class EnrichmentParser {
         var json = matcher.group();
         return objectMapper.readValue(json, EnrichmentResult.class);
     }
-}
-
 
+    /**
+     * Parses a batched answer: a JSON array of results, each with the {@code id} of the entry it belongs to, keyed by
+     * that id. Items without an id are skipped; the caller decides what to do with entries that got no result.
+     */
+    public Map<String, EnrichmentResult> parseBatchFromModelText(String modelText) throws Exception {
+        var trimmed = modelText == null ? "" : modelText.trim();
+        var matcher = JSON_ARRAY.matcher(trimmed);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("No JSON array found in LLM output.");
+        }
+        var results = new LinkedHashMap<String, EnrichmentResult>();
+        for (var item : objectMapper.readTree(matcher.group())) {
+            var id = item.path("id").asText("");
+            if (id.isBlank() || !(item instanceof ObjectNode fields)) {
+                continue;
+            }
+            fields.remove("id");
+            results.put(id, objectMapper.treeToValue(fields, EnrichmentResult.class));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,150 @@
+package com.vestigium.enrich;
+
+import com.vestigium.llm.TokenEstimator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Shortens text to a token budget by choosing whole blocks instead of cutting a prefix. The opening block, headings
+ * and the first block under each heading are taken first, then the remaining blocks in document order while they
+ * fit. Blocks are paragraphs when the text has blank lines, else lines, else sentences; left-out stretches are marked
+ * with {@value #GAP}.
+ */
+final class ExtractiveTrimmer {
+
+    static final String GAP = "[...]";
+
+    private static final Pattern BLANK_LINES = Pattern.compile("\\n\\s*\\n");
+    private static final Pattern LINES = Pattern.compile("\\n");
+    private static final Pattern SENTENCES = Pattern.compile("(?<=[.!?])\\s+");
+    private static final int MIN_BLOCKS = 3;
+    private static final int MAX_HEADING_CHARS = 80;
+    private static final int MAX_HEADING_WORDS = 12;
+
+    private ExtractiveTrimmer() {}
+
+    static String trim(String text, int maxTokens) {
+        if (text == null || text.isBlank() || maxTokens <= 0) {
+            return "";
+        }
+        if (TokenEstimator.estimate(text) <= maxTokens) {
+            return text;
+        }
+        var split = split(text);
+        var blocks = split.blocks();
+        var kept = new String[blocks.size()];
+        var used = 0;
+        for (int i = 0; i < blocks.size() && used < maxTokens; i++) {
+            if (i == 0 || isHeading(blocks.get(i)) || isHeading(blocks.get(i - 1))) {
+                used += take(blocks, kept, i, maxTokens - used, true);
+            }
+        }
+        for (int i = 0; i < blocks.size() && used < maxTokens; i++) {
+            if (kept[i] == null) {
+                used += take(blocks, kept, i, maxTokens - used, false);
+            }
+        }
+        return join(kept, split.separator());
+    }
+
+    /**
+     * Keeps block {@code i} if it fits; the first sentences of it when {@code partial} is allowed. Returns tokens used.
+     */
+    private static int take(List<String> blocks, String[] kept, int i, int remaining, boolean partial) {
+        var block = blocks.get(i);
+        var cost = TokenEstimator.estimate(block) + 1;
+        if (cost <= remaining) {
+            kept[i] = block;
+            return cost;
+        }
+        if (!partial) {
+            return 0;
+        }
+        var prefix = new StringBuilder();
+        for (var sentence : SENTENCES.split(block)) {
+            var candidate = prefix.isEmpty() ? sentence : prefix + " " + sentence;
+            if (TokenEstimator.estimate(candidate) + 1 > remaining) {
+                break;
+            }
+            prefix.setLength(0);
+            prefix.append(candidate);
+        }
+        var cut = prefix.isEmpty() ? hardCut(block, remaining - 1) : prefix.toString();
+        if (cut.isBlank()) {
+            return 0;
+        }
+        kept[i] = cut + " " + GAP;
+        return TokenEstimator.estimate(kept[i]) + 1;
+    }
+
+    private static String hardCut(String block, int maxTokens) {
+        if (maxTokens <= 0) {
+            return "";
+        }
+        var cut = block.substring(0, Math.min(block.length(), maxTokens * 4));
+        while (!cut.isEmpty() && TokenEstimator.estimate(cut) > maxTokens) {
+            cut = cut.substring(0, cut.length() * 3 / 4);
+        }
+        // End on a word boundary when there is one.
+        var lastSpace = cut.lastIndexOf(' ');
+        return lastSpace > 0 && cut.length() < block.length() ? cut.substring(0, lastSpace) : cut;
+    }
+
+    private static String join(String[] kept, String separator) {
+        var out = new StringBuilder();
+        var gap = false;
+        for (var block : kept) {
+            if (block == null) {
+                gap = !out.isEmpty();
+                continue;
+            }
+            if (!out.isEmpty()) {
+                out.append(separator);
+                if (gap && !endsWithGap(out)) {
+                    out.append(GAP).append(separator);
+                }
+            }
+            out.append(block);
+            gap = false;
+        }
+        if (gap && !endsWithGap(out)) {
+            out.append(separator).append(GAP);
+        }
+        return out.toString();
+    }
+
+    private static boolean endsWithGap(StringBuilder out) {
+        return out.length() >= GAP.length() && out.substring(out.length() - GAP.length()).equals(GAP);
+    }
+
+    static boolean isHeading(String block) {
+        var b = block.strip();
+        if (b.startsWith("#")) {
+            return true;
+        }
+        if (b.isEmpty() || b.length() > MAX_HEADING_CHARS || ".,;:!?".indexOf(b.charAt(b.length() - 1)) >= 0) {
+            return false;
+        }
+        return b.split("\\s+").length <= MAX_HEADING_WORDS && b.chars().anyMatch(Character::isLetter);
+    }
+
+    private static Split split(String text) {
+        for (var mode : List.of(new Mode(BLANK_LINES, "\n\n"), new Mode(LINES, "\n"), new Mode(SENTENCES, " "))) {
+            var blocks = nonBlank(mode.pattern().split(text));
+            if (blocks.size() >= MIN_BLOCKS) {
+                return new Split(blocks, mode.separator());
+            }
+        }
+        return new Split(nonBlank(SENTENCES.split(text)), " ");
+    }
+
+    private static List<String> nonBlank(String[] parts) {
+        return new ArrayList<>(Arrays.stream(parts).map(String::strip).filter(p -> !p.isEmpty()).toList());
+    }
+
+    private record Mode(Pattern pattern, String separator) {}
+
+    private record Split(List<String> blocks, String separator) {}
+}
@@ -2,11 +2,8 @@ package com.vestigium.enrich;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestigium.http.OutboundHttp;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -18,12 +15,11 @@ import org.springframework.stereotype.Component;
 public class ImdbMetadataFetcher {
 
     private final ObjectMapper objectMapper;
-    private final HttpClient client = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+    private final OutboundHttp http;
 
-    public ImdbMetadataFetcher(ObjectMapper objectMapper) {
+    public ImdbMetadataFetcher(ObjectMapper objectMapper, OutboundHttp http) {
         this.objectMapper = objectMapper;
+        this.http = http;
     }
 
     public Optional<ImdbMetadata> fetch(String url) {
@@ -35,17 +31,12 @@ public class ImdbMetadataFetcher {
         }
 
         try {
-            var req = HttpRequest.newBuilder(URI.create(url))
-                    .timeout(Duration.ofSeconds(20))
-                    .header("User-Agent", "vestigium/0.1")
-                    .GET()
-                    .build();
-            var resp = client.send(req, HttpResponse.BodyHandlers.ofString());
-            if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+            var resp = http.fetchPage(URI.create(url));
+            if (!resp.isSuccess()) {
                 return Optional.empty();
             }
 
-            Document doc = Jsoup.parse(resp.body(), url);
+            Document doc = Jsoup.parse(resp.bodyAsString(), url);
             var scripts = doc.select("script[type=application/ld+json]");
             for (var el : scripts) {
                 var raw = el.data();
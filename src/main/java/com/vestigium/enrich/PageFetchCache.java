@@ -0,0 +1,168 @@
+package com.vestigium.enrich;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestigium.domain.PageFetch;
+import com.vestigium.persistence.PageFetchRepository;
+import com.vestigium.storage.BlobStore;
+import com.vestigium.storage.StoragePaths;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Conditional re-fetch in front of {@link UrlContentFetcher}. The readable-text extraction of each URL is kept as
+ * gzipped JSON on disk with its ETag/Last-Modified and body hash, so re-enrichment revalidates instead of
+ * re-downloading and re-parsing. Model answers are cached by {@code GeminiClient}, not here.
+ * <p>
+ * Extractions not fetched for {@code ttl-days} and the least recently fetched beyond {@code max-entries} are deleted
+ * periodically; deleting an entry deletes the extraction of its URL.
+ */
+@Component
+public class PageFetchCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PageFetchCache.class);
+
+    private final UrlContentFetcher fetcher;
+    private final PageFetchRepository repository;
+    private final StoragePaths paths;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final int maxEntries;
+
+    public PageFetchCache(
+            UrlContentFetcher fetcher,
+            PageFetchRepository repository,
+            StoragePaths paths,
+            ObjectMapper objectMapper,
+            @Value("${vestigium.enrich.page-cache.ttl-days:30}") long ttlDays,
+            @Value("${vestigium.enrich.page-cache.max-entries:5000}") int maxEntries
+    ) {
+        this.fetcher = fetcher;
+        this.repository = repository;
+        this.paths = paths;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofDays(Math.max(1, ttlDays));
+        this.maxEntries = maxEntries;
+    }
+
+    public UrlContentFetcher.PageContent fetchReadableText(String url) throws Exception {
+        var cached = repository.find(url);
+        var stored = cached.flatMap(this::readExtract);
+        if (stored.isEmpty()) {
+            // Nothing to revalidate against: plain fetch, then store.
+            var fresh = fetcher.fetchIfChanged(url, null, null, null);
+            store(url, fresh);
+            return fresh.content();
+        }
+
+        var row = cached.get();
+        var result = fetcher.fetchIfChanged(url, row.etag(), row.lastModified(), row.contentHash());
+        if (!result.changed()) {
+            log.debug("Reusing stored extraction for url={}", url);
+            repository.markRevalidated(url, result.etag(), result.lastModified());
+            return stored.get();
+        }
+        store(url, result);
+        return result.content();
+    }
+
+    /**
+     * Deletes the stored extraction of {@code url}, e.g. when its entry is deleted.
+     */
+    public void evict(String url) {
+        repository.find(url).ifPresent(this::delete);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${vestigium.enrich.page-cache.cleanup-delay-ms:3600000}",
+            initialDelayString = "${vestigium.enrich.page-cache.cleanup-initial-delay-ms:60000}"
+    )
+    public void trim() {
+        try {
+            var deleted = 0;
+            for (var row : repository.listEvictable(Instant.now().minus(ttl).toString(), maxEntries)) {
+                if (delete(row)) {
+                    deleted++;
+                }
+            }
+            if (deleted > 0) {
+                log.info("Deleted {} stored page extractions", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("Page extraction cleanup failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the row, then its file. A URL fetched again since {@code row} was read keeps its row and file.
+     */
+    private boolean delete(PageFetch row) {
+        if (!repository.deleteIfFetchedAt(row.url(), row.fetchedAt())) {
+            return false;
+        }
+        if (row.extractPath() != null) {
+            var file = paths.root().resolve(row.extractPath()).normalize();
+            try {
+                if (file.startsWith(paths.pageCacheRoot())) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                log.debug("Failed to delete page extraction {}: {}", file, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void store(String url, UrlContentFetcher.ConditionalFetch fetch) {
+        try {
+            var file = extractFile(url);
+            Files.createDirectories(file.getParent());
+            var tmp = Files.createTempFile(file.getParent(), "extract", ".tmp");
+            try (var out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                objectMapper.writeValue(out, fetch.content());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            repository.upsertFetch(url, fetch.etag(), fetch.lastModified(), fetch.contentHash(), relativePath(file));
+        } catch (IOException e) {
+            // The cache is an optimisation; the fetch itself succeeded.
+            log.warn("Failed to store page extraction for url={}: {}", url, e.getMessage());
+        }
+    }
+
+    private Optional<UrlContentFetcher.PageContent> readExtract(PageFetch row) {
+        if (row.extractPath() == null || row.contentHash() == null) {
+            return Optional.empty();
+        }
+        var file = paths.root().resolve(row.extractPath()).normalize();
+        if (!file.startsWith(paths.root()) || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (var in = new GZIPInputStream(Files.newInputStream(file))) {
+            return Optional.of(objectMapper.readValue(in, UrlContentFetcher.PageContent.class));
+        } catch (IOException e) {
+            log.debug("Unreadable page extraction {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Path extractFile(String url) {
+        var key = BlobStore.sha256Hex(url.getBytes(StandardCharsets.UTF_8));
+        return paths.pageCacheRoot().resolve(key.substring(0, 2)).resolve(key + ".json.gz");
+    }
+
+    private String relativePath(Path absolute) {
+        return paths.root().relativize(absolute).toString().replace('\\', '/');
+    }
+}
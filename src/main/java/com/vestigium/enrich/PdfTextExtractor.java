@@ -2,28 +2,77 @@ package com.vestigium.enrich;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Extracts text from PDFs without holding the file in heap: the document is read through a file-backed
+ * {@code RandomAccessRead}, parser buffers spill to temp files past a memory limit, and pages are stripped one at a
+ * time until the character budget is used up.
+ */
 @Component
 public class PdfTextExtractor {
 
+    private final long maxMainMemoryBytes;
+
+    public PdfTextExtractor(@Value("${vestigium.enrich.pdf.max-main-memory-bytes:16777216}") long maxMainMemoryBytes) {
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+    }
+
     public String extractText(InputStream in, int maxChars) throws IOException {
-        byte[] bytes = in.readAllBytes();
-        try (PDDocument doc = Loader.loadPDF(bytes)) {
+        var tmp = Files.createTempFile("vestigium-pdf-", ".pdf");
+        try {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            return extract(tmp, maxChars).text();
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public PdfText extract(Path file, int maxChars) throws IOException {
+        try (PDDocument doc = load(file)) {
+            var pageCount = doc.getNumberOfPages();
             var stripper = new PDFTextStripper();
-            var text = stripper.getText(doc);
-            if (text == null) {
-                return "";
+            var text = new StringBuilder();
+            var pagesRead = 0;
+            while (pagesRead < pageCount && text.length() < maxChars) {
+                pagesRead++;
+                stripper.setStartPage(pagesRead);
+                stripper.setEndPage(pagesRead);
+                var pageText = stripper.getText(doc);
+                if (pageText != null) {
+                    text.append(pageText);
+                }
             }
-            if (text.length() <= maxChars) {
-                return text;
+            var truncated = text.length() > maxChars || pagesRead < pageCount;
+            if (text.length() > maxChars) {
+                text.setLength(maxChars);
             }
-            return text.substring(0, maxChars);
+            return new PdfText(text.toString(), pagesRead, pageCount, truncated);
         }
     }
-}
 
+    private PDDocument load(Path file) throws IOException {
+        var source = new RandomAccessReadBufferedFile(file.toFile());
+        try {
+            // The document owns the source from here and closes it with itself.
+            return Loader.loadPDF(source, "", null, null, MemoryUsageSetting.setupMixed(maxMainMemoryBytes).streamCache);
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+    }
 
+    /**
+     * {@code truncated} is true when the budget ran out before the end of the document.
+     */
+    public record PdfText(String text, int pagesRead, int pageCount, boolean truncated) {}
+}
@@ -1,10 +1,10 @@
 package com.vestigium.enrich;
 
+import com.vestigium.http.OutboundHttp;
+import com.vestigium.storage.BlobStore;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.function.Supplier;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -13,62 +13,137 @@ import org.springframework.stereotype.Component;
 @Component
 public class UrlContentFetcher {
 
-    private final HttpClient client = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+    /**
+     * Upper bound on extracted page text. The prompt budget is applied later by {@link ContextAssembler}; this only
+     * keeps pathological pages from being stored whole.
+     */
+    static final int MAX_TEXT_CHARS = 60_000;
+
+    private static final String BLOCK_SELECTOR = "h1, h2, h3, h4, h5, h6, p, li, blockquote, pre, figcaption, dt, dd";
+
+    private final OutboundHttp http;
+
+    public UrlContentFetcher(OutboundHttp http) {
+        this.http = http;
+    }
 
     public PageContent fetchReadableText(String url) throws Exception {
-        var req = HttpRequest.newBuilder(URI.create(url))
-                .timeout(Duration.ofSeconds(20))
-                .header("User-Agent", "vestigium/0.1")
-                .GET()
-                .build();
-        return client.sendAsync(req, HttpResponse.BodyHandlers.ofString())
-                .thenApply(resp -> {
-                    if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-                        throw new IllegalStateException("Fetch failed: HTTP " + resp.statusCode());
-                    }
-
-                    Document doc = Jsoup.parse(resp.body(), url);
-                    var title = firstNonBlank(
-                            () -> attr(doc, "meta[property=og:title]", "content"),
-                            () -> attr(doc, "meta[name=twitter:title]", "content"),
-                            doc::title
-                    );
-                    var metaDescription = firstNonBlank(
-                            () -> attr(doc, "meta[property=og:description]", "content"),
-                            () -> attr(doc, "meta[name=twitter:description]", "content"),
-                            () -> attr(doc, "meta[name=description]", "content")
-                    );
-                    doc.select("script,style,noscript").remove();
-                    var text = doc.body() == null ? "" : doc.body().text();
-
-                    // Specific support for Reddit comments.
-                    var extraText = new StringBuilder();
-                    if (url.contains("reddit.com")) {
-                        // In Reddit's current UI, comments are often in shreddit-comment elements.
-                        // We look for the first one that has a substantial body.
-                        var firstComment = doc.select("shreddit-comment [slot=comment]").first();
-                        if (firstComment != null) {
-                            var commentBody = firstComment.text();
-                            if (commentBody != null && !commentBody.isBlank()) {
-                                extraText.append("\nTop Reddit Comment: ").append(commentBody).append("\n");
-                            }
-                        } else {
-                            // Fallback for older/other Reddit UI variants
-                            var fallbackComment = doc.select(".comment .md").first();
-                            if (fallbackComment != null) {
-                                extraText.append("\nTop Reddit Comment: ").append(fallbackComment.text()).append("\n");
-                            }
-                        }
-                    }
-
-                    return new PageContent(
-                            truncate(title, 300),
-                            truncate(metaDescription, 1000),
-                            truncate(text + extraText.toString(), 20000)
-                    );
-                }).get();
+        return fetchIfChanged(url, null, null, null).content();
+    }
+
+    /**
+     * One fetch of {@code url} for entry creation: the extracted page plus where redirects ended and the page's
+     * {@code <link rel=canonical>}, so canonical URL and metadata do not each cost a request.
+     */
+    public LandingPage fetchLanding(String url) throws Exception {
+        var resp = http.fetchPage(URI.create(url));
+        if (!resp.isSuccess()) {
+            throw new IllegalStateException("Fetch failed: HTTP " + resp.statusCode());
+        }
+        var finalUrl = resp.uri().toString();
+        Document doc = Jsoup.parse(resp.bodyAsString(), finalUrl);
+        var canonicalLink = doc.selectFirst("link[rel=canonical][href]");
+        return new LandingPage(finalUrl, canonicalLink == null ? null : canonicalLink.absUrl("href"), extract(doc, url));
+    }
+
+    /**
+     * Revalidates with the given validators. Returns {@code changed=false} (and no content) on 304 or when the body
+     * hashes to {@code knownContentHash}, so the caller can reuse its stored extraction without parsing.
+     */
+    public ConditionalFetch fetchIfChanged(String url, String etag, String lastModified, String knownContentHash) throws Exception {
+        var headers = new LinkedHashMap<String, String>();
+        if (etag != null && !etag.isBlank()) {
+            headers.put("If-None-Match", etag);
+        }
+        if (lastModified != null && !lastModified.isBlank()) {
+            headers.put("If-Modified-Since", lastModified);
+        }
+        var resp = http.fetchPage(URI.create(url), http.pageByteLimit(), headers);
+        var newEtag = resp.headers().firstValue("ETag").orElse(etag);
+        var newLastModified = resp.headers().firstValue("Last-Modified").orElse(lastModified);
+        if (resp.statusCode() == 304 && knownContentHash != null) {
+            return new ConditionalFetch(false, null, newEtag, newLastModified, knownContentHash);
+        }
+        if (!resp.isSuccess()) {
+            throw new IllegalStateException("Fetch failed: HTTP " + resp.statusCode());
+        }
+        var hash = BlobStore.sha256Hex(resp.body());
+        if (hash.equals(knownContentHash)) {
+            return new ConditionalFetch(false, null, newEtag, newLastModified, hash);
+        }
+        return new ConditionalFetch(true, extract(Jsoup.parse(resp.bodyAsString(), url), url), newEtag, newLastModified, hash);
+    }
+
+    private static PageContent extract(Document doc, String url) {
+        var title = firstNonBlank(
+                () -> attr(doc, "meta[property=og:title]", "content"),
+                () -> attr(doc, "meta[name=twitter:title]", "content"),
+                doc::title
+        );
+        var metaDescription = firstNonBlank(
+                () -> attr(doc, "meta[property=og:description]", "content"),
+                () -> attr(doc, "meta[name=twitter:description]", "content"),
+                () -> attr(doc, "meta[name=description]", "content")
+        );
+        doc.select("script,style,noscript").remove();
+        var text = readableText(doc);
+
+        // Specific support for Reddit comments.
+        var extraText = new StringBuilder();
+        if (url.contains("reddit.com")) {
+            // In Reddit's current UI, comments are often in shreddit-comment elements.
+            // We look for the first one that has a substantial body.
+            var firstComment = doc.select("shreddit-comment [slot=comment]").first();
+            if (firstComment != null) {
+                var commentBody = firstComment.text();
+                if (commentBody != null && !commentBody.isBlank()) {
+                    extraText.append("\nTop Reddit Comment: ").append(commentBody).append("\n");
+                }
+            } else {
+                // Fallback for older/other Reddit UI variants
+                var fallbackComment = doc.select(".comment .md").first();
+                if (fallbackComment != null) {
+                    extraText.append("\nTop Reddit Comment: ").append(fallbackComment.text()).append("\n");
+                }
+            }
+        }
+
+        return new PageContent(
+                truncate(title, 300),
+                truncate(metaDescription, 1000),
+                truncate(text + extraText.toString(), MAX_TEXT_CHARS)
+        );
+    }
+
+    /**
+     * Body text as blank-line separated blocks with Markdown-style {@code #} headings, so later trimming can keep
+     * headings and opening paragraphs. Pages laid out with bare divs have few such blocks; for those the flat body text
+     * is used instead.
+     */
+    private static String readableText(Document doc) {
+        if (doc.body() == null) {
+            return "";
+        }
+        var flat = doc.body().text();
+        var blocks = new ArrayList<String>();
+        for (var el : doc.body().select(BLOCK_SELECTOR)) {
+            // Nested blocks (a paragraph inside a list item) are already part of the outer block's text.
+            if (el.parents().stream().anyMatch(p -> p.is(BLOCK_SELECTOR))) {
+                continue;
+            }
+            var blockText = el.text();
+            if (blockText.isBlank()) {
+                continue;
+            }
+            var tag = el.normalName();
+            if (tag.length() == 2 && tag.charAt(0) == 'h' && Character.isDigit(tag.charAt(1))) {
+                blocks.add("#".repeat(tag.charAt(1) - '0') + " " + blockText);
+            } else {
+                blocks.add(blockText);
+            }
+        }
+        var structured = String.join("\n\n", blocks);
+        return structured.length() >= flat.length() / 2 ? structured : flat;
     }
 
     private static String attr(Document doc, String selector, String attr) {
@@ -108,6 +183,17 @@ public class UrlContentFetcher {
     }
 
     public record PageContent(String title, String metaDescription, String text) {}
+
+    /**
+     * @param finalUrl      URL after redirects
+     * @param canonicalLink absolute {@code <link rel=canonical>} target, or null
+     */
+    public record LandingPage(String finalUrl, String canonicalLink, PageContent content) {}
+
+    /**
+     * @param content extracted page, or null when {@code changed} is false
+     */
+    public record ConditionalFetch(boolean changed, PageContent content, String etag, String lastModified, String contentHash) {}
 }
 
 
@@ -2,14 +2,12 @@ package com.vestigium.enrich;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestigium.http.CallClass;
+import com.vestigium.http.OutboundHttp;
 import com.vestigium.thumb.YouTube;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.util.Optional;
 import org.springframework.stereotype.Component;
 
@@ -17,12 +15,11 @@ import org.springframework.stereotype.Component;
 public class YouTubeMetadataFetcher {
 
     private final ObjectMapper objectMapper;
-    private final HttpClient client = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+    private final OutboundHttp http;
 
-    public YouTubeMetadataFetcher(ObjectMapper objectMapper) {
+    public YouTubeMetadataFetcher(ObjectMapper objectMapper, OutboundHttp http) {
         this.objectMapper = objectMapper;
+        this.http = http;
     }
 
     /**
@@ -39,29 +36,18 @@ public class YouTubeMetadataFetcher {
         try {
             var encodedUrl = URLEncoder.encode(url, StandardCharsets.UTF_8);
             var oembed = URI.create("https://www.youtube.com/oembed?format=json&url=" + encodedUrl);
-            var req = HttpRequest.newBuilder(oembed)
-                    .timeout(Duration.ofSeconds(15))
-                    .header("User-Agent", "vestigium/0.1")
-                    .GET()
-                    .build();
-            return client.sendAsync(req, HttpResponse.BodyHandlers.ofString())
-                    .thenApply(resp -> {
-                        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-                            return Optional.<YouTubeMetadata>empty();
-                        }
-                        try {
-                            JsonNode root = objectMapper.readTree(resp.body());
-                            var title = text(root, "title");
-                            var author = text(root, "author_name");
-                            var thumbnailUrl = text(root, "thumbnail_url");
-                            if (title == null || title.isBlank()) {
-                                return Optional.<YouTubeMetadata>empty();
-                            }
-                            return Optional.of(new YouTubeMetadata(title, author, thumbnailUrl));
-                        } catch (Exception e) {
-                            return Optional.<YouTubeMetadata>empty();
-                        }
-                    }).get();
+            var resp = http.get(CallClass.API, oembed);
+            if (!resp.isSuccess()) {
+                return Optional.empty();
+            }
+            JsonNode root = objectMapper.readTree(resp.body());
+            var title = text(root, "title");
+            var author = text(root, "author_name");
+            var thumbnailUrl = text(root, "thumbnail_url");
+            if (title == null || title.isBlank()) {
+                return Optional.empty();
+            }
+            return Optional.of(new YouTubeMetadata(title, author, thumbnailUrl));
         } catch (Exception ignored) {
             return Optional.empty();
         }
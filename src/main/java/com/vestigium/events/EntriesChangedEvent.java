@@ -0,0 +1,11 @@
+package com.vestigium.events;
+
+import java.util.List;
+
+/**
+ * Entries were added, visited or removed, i.e. the set of unvisited entries changed.
+ */
+public record EntriesChangedEvent(Change change, List<String> entryIds) {
+
+    public enum Change { ADDED, VISITED, REMOVED }
+}
@@ -0,0 +1,22 @@
+package com.vestigium.events;
+
+import com.vestigium.api.dto.EntryResponse;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EntryEventListener {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public EntryEventListener(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @EventListener
+    public void handleEntryUpdated(EntryUpdatedEvent event) {
+        EntryResponse response = EntryResponse.from(event.entry(), event.latestJobFailed());
+        messagingTemplate.convertAndSend("/topic/entries", response);
+    }
+}
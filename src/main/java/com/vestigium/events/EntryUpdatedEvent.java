@@ -0,0 +1,6 @@
+package com.vestigium.events;
+
+import com.vestigium.domain.Entry;
+
+public record EntryUpdatedEvent(Entry entry, boolean latestJobFailed) {
+}
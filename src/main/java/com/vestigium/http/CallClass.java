@@ -0,0 +1,46 @@
+package com.vestigium.http;
+
+/**
+ * Kinds of outbound calls, each with its own timeout, retry count and response size limit.
+ */
+public enum CallClass {
+    /** HTML pages fetched for text, metadata or og:image lookup; page fetches stop at the limit. */
+    PAGE(20_000, 1, 1024 * 1024, true),
+    /** Image downloads (thumbnails). */
+    IMAGE(20_000, 1, 20L * 1024 * 1024, true),
+    /** Small JSON APIs such as YouTube oEmbed. */
+    API(15_000, 1, 1024 * 1024, false),
+    /** Model calls; slow, so a single retry on gateway errors only. */
+    LLM(60_000, 1, 8L * 1024 * 1024, false);
+
+    private final int defaultTimeoutMs;
+    private final int defaultRetries;
+    private final long defaultMaxBytes;
+    private final boolean polite;
+
+    CallClass(int defaultTimeoutMs, int defaultRetries, long defaultMaxBytes, boolean polite) {
+        this.defaultTimeoutMs = defaultTimeoutMs;
+        this.defaultRetries = defaultRetries;
+        this.defaultMaxBytes = defaultMaxBytes;
+        this.polite = polite;
+    }
+
+    /**
+     * Whether calls go through {@link HostScheduler} (rate limited per host) rather than just the per-host cap.
+     */
+    boolean polite() {
+        return polite;
+    }
+
+    int defaultTimeoutMs() {
+        return defaultTimeoutMs;
+    }
+
+    int defaultRetries() {
+        return defaultRetries;
+    }
+
+    long defaultMaxBytes() {
+        return defaultMaxBytes;
+    }
+}
@@ -0,0 +1,27 @@
+package com.vestigium.http;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Thrown when a host cannot be contacted within the caller's wait budget (cooling down or saturated).
+ */
+public class HostBusyException extends IOException {
+
+    private final String host;
+    private final Instant readyAt;
+
+    public HostBusyException(String host, Instant readyAt) {
+        super("Host " + host + " is busy until " + readyAt);
+        this.host = host;
+        this.readyAt = readyAt;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public Instant getReadyAt() {
+        return readyAt;
+    }
+}
@@ -0,0 +1,323 @@
+package com.vestigium.http;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-host politeness for page fetches, image downloads and screenshots: a token bucket (steady rate plus burst), a
+ * max in-flight cap and a cool-down driven by 429/Retry-After. Hosts are independent, so many domains proceed in
+ * parallel while each one sees a modest request rate.
+ * <p>
+ * A host left alone for {@code idle-eviction-minutes} with a full bucket and no cool-down is forgotten; it comes back
+ * as a fresh host, so only its penalty streak and its place in {@link #pickInterleaved} are lost.
+ */
+@Component
+public class HostScheduler {
+
+    private static final Duration BASE_PENALTY = Duration.ofSeconds(5);
+    private static final long MAX_SLEEP_MS = 250;
+
+    private final Clock clock;
+    private final double ratePerSecond;
+    private final int burst;
+    private final int maxInFlight;
+    private final Duration maxBackoff;
+    private final Duration idleEviction;
+
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HostScheduler(
+            @Value("${vestigium.http.politeness.requests-per-second:1.0}") double ratePerSecond,
+            @Value("${vestigium.http.politeness.burst:2}") int burst,
+            @Value("${vestigium.http.politeness.max-in-flight:2}") int maxInFlight,
+            @Value("${vestigium.http.politeness.max-backoff-seconds:600}") long maxBackoffSeconds,
+            @Value("${vestigium.http.politeness.idle-eviction-minutes:30}") long idleEvictionMinutes
+    ) {
+        this(
+                Clock.systemUTC(),
+                ratePerSecond,
+                burst,
+                maxInFlight,
+                Duration.ofSeconds(maxBackoffSeconds),
+                Duration.ofMinutes(Math.max(1, idleEvictionMinutes))
+        );
+    }
+
+    HostScheduler(Clock clock, double ratePerSecond, int burst, int maxInFlight, Duration maxBackoff, Duration idleEviction) {
+        this.clock = clock;
+        this.ratePerSecond = ratePerSecond <= 0 ? 1.0 : ratePerSecond;
+        this.burst = Math.max(1, burst);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxBackoff = maxBackoff;
+        this.idleEviction = idleEviction;
+    }
+
+    /**
+     * Waits for a token and an in-flight slot for {@code host}. Throws {@link HostBusyException} if the host is not
+     * usable within {@code maxWait} (e.g. it is cooling down after a 429).
+     */
+    public Permit acquire(String host, Duration maxWait) throws HostBusyException, InterruptedException {
+        var key = normalize(host);
+        var state = touch(key);
+        var deadline = clock.millis() + maxWait.toMillis();
+        while (true) {
+            long waitMs;
+            synchronized (state) {
+                var now = clock.millis();
+                state.lastUsed = now;
+                state.refill(now, ratePerSecond, burst);
+                if (now >= state.blockedUntil && state.inFlight < maxInFlight && state.tokens >= 1) {
+                    state.tokens -= 1;
+                    state.inFlight++;
+                    state.lastDispatched = now;
+                    return new Permit(key, state);
+                }
+                waitMs = state.waitMillis(now, ratePerSecond, maxInFlight);
+                if (now + waitMs > deadline) {
+                    var readyAt = Instant.ofEpochMilli(now + Math.max(waitMs, 1));
+                    throw new HostBusyException(key, readyAt);
+                }
+            }
+            Thread.sleep(Math.max(1, Math.min(waitMs, MAX_SLEEP_MS)));
+        }
+    }
+
+    /**
+     * Records a throttling response. {@code retryAfter} comes from the server; without it the cool-down doubles with
+     * each consecutive penalty, capped at the configured maximum. Returns when the host is usable again.
+     */
+    public Instant backoff(String host, Duration retryAfter) {
+        var state = touch(normalize(host));
+        synchronized (state) {
+            state.penalties = Math.min(state.penalties + 1, 16);
+            var delay = retryAfter != null && !retryAfter.isNegative()
+                    ? retryAfter
+                    : BASE_PENALTY.multipliedBy(1L << Math.min(state.penalties - 1, 10));
+            if (delay.compareTo(maxBackoff) > 0) {
+                delay = maxBackoff;
+            }
+            state.blockedUntil = Math.max(state.blockedUntil, clock.millis() + delay.toMillis());
+            state.tokens = 0;
+            return Instant.ofEpochMilli(state.blockedUntil);
+        }
+    }
+
+    public void recordSuccess(String host) {
+        var state = hosts.get(normalize(host));
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            state.penalties = 0;
+        }
+    }
+
+    /**
+     * True when a request to {@code host} could start now without waiting.
+     */
+    public boolean isReady(String host) {
+        var state = hosts.get(normalize(host));
+        if (state == null) {
+            return true;
+        }
+        synchronized (state) {
+            var now = clock.millis();
+            state.refill(now, ratePerSecond, burst);
+            return now >= state.blockedUntil && state.inFlight < maxInFlight && state.tokens >= 1;
+        }
+    }
+
+    /**
+     * Picks up to {@code limit} candidates (given oldest first) so that each pick is for a different host that is
+     * ready now, preferring hosts that were served least recently. Hosts in {@code busyHosts} are skipped.
+     */
+    public <T> List<T> pickInterleaved(List<T> candidates, Function<T, String> hostOf, Set<String> busyHosts, int limit) {
+        var seen = new HashSet<String>();
+        busyHosts.forEach(h -> seen.add(normalize(h)));
+        var firstPerHost = new ArrayList<T>();
+        for (var candidate : candidates) {
+            var host = normalize(hostOf.apply(candidate));
+            if (seen.add(host) && isReady(host)) {
+                firstPerHost.add(candidate);
+            }
+        }
+        return firstPerHost.stream()
+                .sorted(Comparator.comparingLong(c -> lastDispatched(hostOf.apply(c))))
+                .limit(Math.max(0, limit))
+                .toList();
+    }
+
+    /**
+     * Drops hosts that have been idle for {@code idle-eviction-minutes}. A host is only dropped when a new state
+     * would behave the same: nothing in flight, no cool-down and a full bucket.
+     */
+    @Scheduled(
+            fixedDelayString = "${vestigium.http.politeness.eviction-delay-ms:300000}",
+            initialDelayString = "${vestigium.http.politeness.eviction-delay-ms:300000}"
+    )
+    public void evictIdleHosts() {
+        for (var key : hosts.keySet()) {
+            hosts.computeIfPresent(key, (h, state) -> {
+                synchronized (state) {
+                    var now = clock.millis();
+                    state.refill(now, ratePerSecond, burst);
+                    var idle = state.inFlight == 0
+                            && now >= state.blockedUntil
+                            && state.tokens >= burst
+                            && now - state.lastUsed >= idleEviction.toMillis();
+                    return idle ? null : state;
+                }
+            });
+        }
+    }
+
+    public List<HostStatus> snapshot() {
+        var now = clock.millis();
+        return hosts.entrySet().stream()
+                .map(e -> {
+                    var s = e.getValue();
+                    synchronized (s) {
+                        return new HostStatus(
+                                e.getKey(),
+                                s.inFlight,
+                                s.penalties,
+                                s.blockedUntil > now ? Instant.ofEpochMilli(s.blockedUntil).toString() : null
+                        );
+                    }
+                })
+                .sorted(Comparator.comparing(HostStatus::host))
+                .toList();
+    }
+
+    /**
+     * Parses Retry-After as delta-seconds or an HTTP date.
+     */
+    public static Optional<Duration> parseRetryAfter(String value, Instant now) {
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        var v = value.trim();
+        try {
+            return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(v))));
+        } catch (NumberFormatException ignored) {
+            // fall through to HTTP date
+        }
+        try {
+            var at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            var delta = Duration.between(now, at);
+            return Optional.of(delta.isNegative() ? Duration.ZERO : delta);
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    private long lastDispatched(String host) {
+        var state = hosts.get(normalize(host));
+        if (state == null) {
+            return Long.MIN_VALUE;
+        }
+        synchronized (state) {
+            return state.lastDispatched;
+        }
+    }
+
+    /**
+     * State of {@code key}, marked as used inside the map update so {@link #evictIdleHosts} cannot drop it between
+     * the lookup and the caller taking its lock.
+     */
+    private HostState touch(String key) {
+        return hosts.compute(key, (h, state) -> {
+            var now = clock.millis();
+            var s = state == null ? new HostState(burst, now) : state;
+            synchronized (s) {
+                s.lastUsed = Math.max(s.lastUsed, now);
+            }
+            return s;
+        });
+    }
+
+    private static String normalize(String host) {
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+
+    public record HostStatus(String host, int inFlight, int penalties, String blockedUntil) {}
+
+    public static final class Permit implements AutoCloseable {
+        private final String host;
+        private final HostState state;
+        private boolean released;
+
+        private Permit(String host, HostState state) {
+            this.host = host;
+            this.state = state;
+        }
+
+        public String host() {
+            return host;
+        }
+
+        @Override
+        public void close() {
+            synchronized (state) {
+                if (!released) {
+                    released = true;
+                    state.inFlight--;
+                }
+            }
+        }
+    }
+
+    private static final class HostState {
+        private double tokens;
+        private long lastRefill;
+        private int inFlight;
+        private long blockedUntil;
+        private int penalties;
+        private long lastDispatched = Long.MIN_VALUE;
+        private long lastUsed;
+
+        HostState(int tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+            this.lastUsed = now;
+        }
+
+        void refill(long now, double ratePerSecond, int burst) {
+            if (now > lastRefill) {
+                tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerSecond / 1000.0);
+                lastRefill = now;
+            }
+        }
+
+        long waitMillis(long now, double ratePerSecond, int maxInFlight) {
+            var wait = Math.max(0, blockedUntil - now);
+            if (tokens < 1) {
+                wait = Math.max(wait, (long) Math.ceil((1 - tokens) * 1000.0 / ratePerSecond));
+            }
+            if (inFlight >= maxInFlight) {
+                // Unknown until a permit is released; poll.
+                wait = Math.max(wait, MAX_SLEEP_MS);
+            }
+            return wait;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.vestigium.http;
+
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Outbound HTTP settings. {@code calls} is keyed by lower-case {@link CallClass} name; missing values fall back to the
+ * call class defaults.
+ */
+@ConfigurationProperties(prefix = "vestigium.http")
+public record HttpProperties(
+        String userAgent,
+        Integer connectTimeoutMs,
+        Integer maxPerHost,
+        Map<String, CallLimits> calls
+) {
+
+    public record CallLimits(Integer timeoutMs, Integer retries, Long maxBytes) {}
+}
@@ -0,0 +1,522 @@
+package com.vestigium.http;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single outbound HTTP entry point: one shared HTTP/2-capable client (connection reuse across fetchers), per-host
+ * concurrency caps, per-{@link CallClass} timeouts/retries/size limits and in-memory metrics. Page and image calls
+ * are additionally paced by {@link HostScheduler}, which also absorbs 429/Retry-After. Slots and metrics of hosts not
+ * called for {@link #IDLE_EVICTION} are dropped.
+ */
+@Component
+public class OutboundHttp {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundHttp.class);
+
+    private static final String DEFAULT_USER_AGENT = "vestigium/0.1";
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final long RETRY_BASE_DELAY_MS = 250;
+    private static final int READ_BUFFER_BYTES = 16 * 1024;
+    static final Duration IDLE_EVICTION = Duration.ofMinutes(30);
+
+    private final HttpClient client;
+    private final HostScheduler scheduler;
+    private final String userAgent;
+    private final int maxPerHost;
+    private final Map<CallClass, Limits> limits;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public OutboundHttp(HttpProperties properties, HostScheduler scheduler) {
+        this.scheduler = scheduler;
+        var props = properties == null ? new HttpProperties(null, null, null, null) : properties;
+        this.userAgent = props.userAgent() == null || props.userAgent().isBlank() ? DEFAULT_USER_AGENT : props.userAgent();
+        this.maxPerHost = props.maxPerHost() == null || props.maxPerHost() < 1 ? 4 : props.maxPerHost();
+        var connectTimeoutMs = props.connectTimeoutMs() == null ? 10_000 : props.connectTimeoutMs();
+        this.limits = resolveLimits(props.calls());
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
+    public Response get(CallClass callClass, URI uri) throws IOException, InterruptedException {
+        return get(callClass, uri, Map.of());
+    }
+
+    public Response get(CallClass callClass, URI uri, Map<String, String> headers) throws IOException, InterruptedException {
+        var builder = HttpRequest.newBuilder(uri).GET();
+        headers.forEach(builder::header);
+        return send(callClass, builder);
+    }
+
+    /**
+     * Fetches an HTML page as a stream: negotiates gzip/deflate (brotli when a decoder is present), rejects non-page
+     * content types before reading the body, and stops after the PAGE byte limit instead of failing.
+     */
+    public Response fetchPage(URI uri) throws IOException, InterruptedException {
+        return fetchPage(uri, limits.get(CallClass.PAGE).maxBytes());
+    }
+
+    /**
+     * Like {@link #fetchPage(URI)} but reads at most {@code readLimit} decoded bytes, e.g. for head-only lookups.
+     */
+    public Response fetchPage(URI uri, long readLimit) throws IOException, InterruptedException {
+        return fetchPage(uri, readLimit, Map.of());
+    }
+
+    /**
+     * Page fetch with extra request headers, e.g. If-None-Match/If-Modified-Since for revalidation (a 304 comes back
+     * as a response with an empty body).
+     */
+    public Response fetchPage(URI uri, long readLimit, Map<String, String> headers) throws IOException, InterruptedException {
+        var builder = HttpRequest.newBuilder(uri)
+                .header("Accept", "text/html,application/xhtml+xml;q=0.9,*/*;q=0.5")
+                .header("Accept-Encoding", PageBodies.acceptEncoding())
+                .GET();
+        headers.forEach(builder::header);
+        return send(CallClass.PAGE, builder, (response, host, limit) -> readPage(response, host, Math.min(readLimit, limit.maxBytes())));
+    }
+
+    /**
+     * Byte limit applied to {@link #fetchPage(URI)}.
+     */
+    public long pageByteLimit() {
+        return limits.get(CallClass.PAGE).maxBytes();
+    }
+
+    public Response post(CallClass callClass, URI uri, String contentType, HttpRequest.BodyPublisher body)
+            throws IOException, InterruptedException {
+        var builder = HttpRequest.newBuilder(uri)
+                .header("Content-Type", contentType)
+                .POST(body);
+        return send(callClass, builder);
+    }
+
+    /**
+     * POST whose successful body is handed to {@code onLine} line by line as it arrives (server-sent events, NDJSON),
+     * within the call class byte limit; the returned response has an empty body. Error bodies are read whole and
+     * returned as usual. The call is retried only while no line has been delivered yet, so {@code onLine} never sees
+     * the stream twice. An exception thrown by {@code onLine} stops reading and is passed on.
+     */
+    public Response postStreaming(CallClass callClass, URI uri, String contentType, HttpRequest.BodyPublisher body, LineHandler onLine)
+            throws IOException, InterruptedException {
+        var builder = HttpRequest.newBuilder(uri)
+                .header("Content-Type", contentType)
+                .header("Accept", "text/event-stream")
+                .POST(body);
+        return send(callClass, builder, (response, host, limit) -> readLines(response, host, limit, onLine));
+    }
+
+    /**
+     * Sends with the call class limits applied. Connection errors and 502/503/504 are retried with exponential
+     * backoff; the last 5xx response is returned rather than thrown so callers keep their own status handling. Other
+     * I/O failures, timeouts included, are retried only for idempotent non-LLM requests: a POST the server may already
+     * be processing (and, for the model, billing) is not sent twice.
+     */
+    public Response send(CallClass callClass, HttpRequest.Builder builder) throws IOException, InterruptedException {
+        return send(callClass, builder, OutboundHttp::readFully);
+    }
+
+    private Response send(CallClass callClass, HttpRequest.Builder builder, BodyReader reader) throws IOException, InterruptedException {
+        var limit = limits.get(callClass);
+        var request = builder
+                .timeout(Duration.ofMillis(limit.timeoutMs()))
+                .setHeader("User-Agent", userAgent)
+                .build();
+        var host = hostOf(request.uri());
+        var stat = touchStats(callClass, host);
+
+        for (int attempt = 0; ; attempt++) {
+            var started = System.nanoTime();
+            stat.requests.incrementAndGet();
+            try {
+                var response = sendOnce(callClass, request, host, limit, stat, reader);
+                stat.recordLatency(System.nanoTime() - started);
+                if (callClass.polite() && isThrottled(response)) {
+                    // The next acquire waits out the cool-down if it fits in the call timeout, else fails fast.
+                    var retryAfter = HostScheduler.parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null), Instant.now());
+                    scheduler.backoff(host, retryAfter.orElse(null));
+                    stat.throttled.incrementAndGet();
+                    if (attempt < limit.retries()) {
+                        stat.retries.incrementAndGet();
+                        continue;
+                    }
+                } else if (RETRYABLE_STATUSES.contains(response.statusCode()) && attempt < limit.retries()) {
+                    stat.retries.incrementAndGet();
+                    backoff(attempt);
+                    continue;
+                }
+                if (!response.isSuccess()) {
+                    stat.failures.incrementAndGet();
+                } else if (callClass.polite()) {
+                    scheduler.recordSuccess(host);
+                }
+                return response;
+            } catch (HostBusyException e) {
+                stat.failures.incrementAndGet();
+                throw e;
+            } catch (ResponseTooLargeException e) {
+                stat.failures.incrementAndGet();
+                stat.tooLarge.incrementAndGet();
+                throw e;
+            } catch (UnsupportedContentException e) {
+                stat.recordLatency(System.nanoTime() - started);
+                stat.rejected.incrementAndGet();
+                throw e;
+            } catch (IOException e) {
+                stat.recordLatency(System.nanoTime() - started);
+                if (attempt < limit.retries() && isRetryable(callClass, request, e)) {
+                    log.debug("Retrying {} {} after {}", callClass, host, e.toString());
+                    stat.retries.incrementAndGet();
+                    backoff(attempt);
+                    continue;
+                }
+                stat.failures.incrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    public List<CallMetrics> metrics() {
+        return stats.values().stream()
+                .map(Stats::snapshot)
+                .sorted(Comparator.comparing(CallMetrics::host).thenComparing(CallMetrics::callClass))
+                .toList();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${vestigium.http.eviction-delay-ms:300000}",
+            initialDelayString = "${vestigium.http.eviction-delay-ms:300000}"
+    )
+    public void evictIdleHosts() {
+        evictIdleHosts(Instant.now().minus(IDLE_EVICTION).toEpochMilli());
+    }
+
+    /**
+     * Drops metrics with nothing in flight that were last used before {@code usedBefore} (epoch millis), then the
+     * connection slots of hosts left without metrics that nobody holds.
+     */
+    void evictIdleHosts(long usedBefore) {
+        for (var key : stats.keySet()) {
+            stats.computeIfPresent(key, (k, stat) -> stat.inFlight.get() == 0 && stat.lastUsed.get() < usedBefore ? null : stat);
+        }
+        var activeHosts = new HashSet<String>();
+        stats.values().forEach(stat -> activeHosts.add(stat.host));
+        for (var host : hostPermits.keySet()) {
+            hostPermits.computeIfPresent(
+                    host,
+                    (h, permits) -> activeHosts.contains(h) || permits.availablePermits() < maxPerHost ? permits : null
+            );
+        }
+    }
+
+    /**
+     * Metrics of {@code callClass} calls to {@code host}, marked as used inside the map update so eviction cannot
+     * drop them between the lookup and the call.
+     */
+    private Stats touchStats(CallClass callClass, String host) {
+        return stats.compute(callClass.name() + " " + host, (k, stat) -> {
+            var s = stat == null ? new Stats(callClass, host) : stat;
+            s.lastUsed.set(System.currentTimeMillis());
+            return s;
+        });
+    }
+
+    private Response sendOnce(CallClass callClass, HttpRequest request, String host, Limits limit, Stats stat, BodyReader reader)
+            throws IOException, InterruptedException {
+        try (var slot = acquireSlot(callClass, host, limit)) {
+            return exchange(request, host, limit, stat, reader);
+        }
+    }
+
+    /**
+     * Polite classes wait on the host scheduler (rate + in-flight + cool-down); others only on the per-host cap.
+     */
+    private Slot acquireSlot(CallClass callClass, String host, Limits limit) throws IOException, InterruptedException {
+        var maxWait = Duration.ofMillis(limit.timeoutMs());
+        if (callClass.polite()) {
+            var permit = scheduler.acquire(host, maxWait);
+            return permit::close;
+        }
+        while (true) {
+            var permits = hostPermits.computeIfAbsent(host, h -> new Semaphore(maxPerHost, true));
+            if (!permits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new HttpTimeoutException("Timed out waiting for a connection slot to " + host);
+            }
+            if (hostPermits.get(host) == permits) {
+                return permits::release;
+            }
+            // Evicted while this call waited; a slot only counts on the semaphore now in the map.
+            permits.release();
+        }
+    }
+
+    private static boolean isRetryable(CallClass callClass, HttpRequest request, IOException e) {
+        if (e instanceof HttpConnectTimeoutException || e instanceof ConnectException || e.getCause() instanceof ConnectException) {
+            // Never reached the server.
+            return true;
+        }
+        return callClass != CallClass.LLM && IDEMPOTENT_METHODS.contains(request.method());
+    }
+
+    private static boolean isThrottled(Response response) {
+        return response.statusCode() == 429
+                || (response.statusCode() == 503 && response.headers().firstValue("Retry-After").isPresent());
+    }
+
+    private Response exchange(HttpRequest request, String host, Limits limit, Stats stat, BodyReader reader)
+            throws IOException, InterruptedException {
+        stat.inFlight.incrementAndGet();
+        try {
+            var response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream in = response.body()) {
+                // Closing the stream early (limit hit, rejected type) cancels the rest of the transfer.
+                var result = reader.read(response, host, limit);
+                stat.bytes.addAndGet(result.body().length);
+                return result;
+            }
+        } finally {
+            stat.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Whole body, failing with {@link ResponseTooLargeException} past the call class limit.
+     */
+    private static Response readFully(HttpResponse<InputStream> response, String host, Limits limit) throws IOException {
+        var declared = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        if (declared > limit.maxBytes()) {
+            throw new ResponseTooLargeException("Response from " + host + " declares " + declared + " bytes");
+        }
+        var body = readLimited(response.body(), limit.maxBytes(), host);
+        return new Response(response.statusCode(), response.headers(), response.uri(), body);
+    }
+
+    private static Response readLines(HttpResponse<InputStream> response, String host, Limits limit, LineHandler onLine)
+            throws IOException {
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            return readFully(response, host, limit);
+        }
+        var reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+        long total = 0;
+        var delivered = false;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                total += line.length() + 1;
+                if (total > limit.maxBytes()) {
+                    throw new ResponseTooLargeException("Streamed response from " + host + " exceeds " + limit.maxBytes() + " bytes");
+                }
+                delivered = true;
+                onLine.line(line);
+            }
+        } catch (ResponseTooLargeException e) {
+            throw e;
+        } catch (IOException e) {
+            if (delivered) {
+                // Not retryable: a retry would replay lines the handler has already seen.
+                throw new UncheckedIOException(e);
+            }
+            throw e;
+        }
+        return new Response(response.statusCode(), response.headers(), response.uri(), new byte[0]);
+    }
+
+    /**
+     * Decoded page bytes up to {@code readLimit}; the rest of the page is never read. Non-page content types are
+     * rejected from the headers alone, and untyped bodies are sniffed.
+     */
+    private static Response readPage(HttpResponse<InputStream> response, String host, long readLimit) throws IOException {
+        var headers = response.headers();
+        var success = response.statusCode() >= 200 && response.statusCode() < 300;
+        var markup = PageBodies.isMarkupType(headers);
+        if (success && markup.isPresent() && !markup.get()) {
+            throw new UnsupportedContentException("Not a page: " + headers.firstValue("Content-Type").orElse("") + " from " + host);
+        }
+        var decoded = PageBodies.decode(response.body(), headers);
+        var limit = (int) Math.min(Integer.MAX_VALUE - 1, Math.max(0, readLimit));
+        var bytes = decoded.readNBytes(limit + 1);
+        var truncated = bytes.length > limit;
+        if (truncated) {
+            bytes = Arrays.copyOf(bytes, limit);
+        }
+        if (success && markup.isEmpty() && !PageBodies.looksTextual(bytes)) {
+            throw new UnsupportedContentException("Binary body without a page content type from " + host);
+        }
+        return new Response(response.statusCode(), headers, response.uri(), bytes, truncated);
+    }
+
+    private static byte[] readLimited(InputStream in, long maxBytes, String host) throws IOException {
+        var out = new ByteArrayOutputStream();
+        var buffer = new byte[READ_BUFFER_BYTES];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw new ResponseTooLargeException("Response from " + host + " exceeds " + maxBytes + " bytes");
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void backoff(int attempt) throws InterruptedException {
+        Thread.sleep(RETRY_BASE_DELAY_MS << Math.min(attempt, 5));
+    }
+
+    private static String hostOf(URI uri) {
+        var host = uri.getHost();
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+
+    private static Map<CallClass, Limits> resolveLimits(Map<String, HttpProperties.CallLimits> configured) {
+        var out = new EnumMap<CallClass, Limits>(CallClass.class);
+        for (var callClass : CallClass.values()) {
+            var c = configured == null ? null : configured.get(callClass.name().toLowerCase(Locale.ROOT));
+            out.put(callClass, new Limits(
+                    c == null || c.timeoutMs() == null ? callClass.defaultTimeoutMs() : c.timeoutMs(),
+                    c == null || c.retries() == null ? callClass.defaultRetries() : Math.max(0, c.retries()),
+                    c == null || c.maxBytes() == null ? callClass.defaultMaxBytes() : c.maxBytes()
+            ));
+        }
+        return out;
+    }
+
+    private record Limits(int timeoutMs, int retries, long maxBytes) {}
+
+    @FunctionalInterface
+    public interface LineHandler {
+        void line(String line) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface BodyReader {
+        Response read(HttpResponse<InputStream> response, String host, Limits limit) throws IOException;
+    }
+
+    private interface Slot extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * @param truncated true when a page fetch stopped at its byte limit
+     */
+    public record Response(int statusCode, HttpHeaders headers, URI uri, byte[] body, boolean truncated) {
+
+        public Response(int statusCode, HttpHeaders headers, URI uri, byte[] body) {
+            this(statusCode, headers, uri, body, false);
+        }
+
+        public boolean isSuccess() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+
+        /**
+         * Decodes the body using the Content-Type charset, a byte order mark or a {@code <meta>} charset, in that
+         * order, falling back to UTF-8.
+         */
+        public String bodyAsString() {
+            var offset = PageBodies.bomLength(body);
+            return new String(body, offset, body.length - offset, PageBodies.detectCharset(headers, body));
+        }
+    }
+
+    public record CallMetrics(
+            String callClass,
+            String host,
+            long requests,
+            long failures,
+            long retries,
+            long tooLarge,
+            long throttled,
+            long rejected,
+            long bytesReceived,
+            long avgLatencyMs,
+            long maxLatencyMs,
+            long inFlight
+    ) {}
+
+    private static final class Stats {
+        private final CallClass callClass;
+        private final String host;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong tooLarge = new AtomicLong();
+        private final AtomicLong throttled = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong latencyNanos = new AtomicLong();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong inFlight = new AtomicLong();
+        private final AtomicLong lastUsed = new AtomicLong();
+
+        Stats(CallClass callClass, String host) {
+            this.callClass = callClass;
+            this.host = host;
+        }
+
+        void recordLatency(long nanos) {
+            completed.incrementAndGet();
+            latencyNanos.addAndGet(nanos);
+            maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        CallMetrics snapshot() {
+            var done = completed.get();
+            return new CallMetrics(
+                    callClass.name(),
+                    host,
+                    requests.get(),
+                    failures.get(),
+                    retries.get(),
+                    tooLarge.get(),
+                    throttled.get(),
+                    rejected.get(),
+                    bytes.get(),
+                    done == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(latencyNanos.get() / done),
+                    TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()),
+                    inFlight.get()
+            );
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.vestigium.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.http.HttpHeaders;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Helpers for streamed page bodies: content-encoding negotiation and decoding, content-type gating, markup sniffing
+ * and charset detection (Content-Type, then BOM, then {@code <meta>}).
+ */
+final class PageBodies {
+
+    private static final Pattern META_CHARSET = Pattern.compile(
+            "<meta[^>]+charset\\s*=\\s*[\"']?\\s*([A-Za-z0-9_.:-]+)",
+            Pattern.CASE_INSENSITIVE
+    );
+    private static final int META_SCAN_BYTES = 4096;
+    private static final int SNIFF_BYTES = 512;
+
+    /**
+     * Brotli needs a third-party decoder; it is negotiated only when one is on the classpath.
+     */
+    private static final Constructor<?> BROTLI = findBrotliDecoder();
+
+    private PageBodies() {}
+
+    static String acceptEncoding() {
+        return BROTLI == null ? "gzip, deflate" : "gzip, deflate, br";
+    }
+
+    /**
+     * Wraps {@code in} with decoders for each Content-Encoding, applied in reverse order of the header.
+     */
+    static InputStream decode(InputStream in, HttpHeaders headers) throws IOException {
+        var header = headers.firstValue("Content-Encoding").orElse("");
+        var codings = Arrays.stream(header.split(","))
+                .map(s -> s.trim().toLowerCase(Locale.ROOT))
+                .filter(s -> !s.isEmpty() && !s.equals("identity"))
+                .toList();
+        var out = in;
+        for (int i = codings.size() - 1; i >= 0; i--) {
+            out = switch (codings.get(i)) {
+                case "gzip", "x-gzip" -> new GZIPInputStream(out);
+                case "deflate" -> inflate(out);
+                case "br" -> brotli(out);
+                default -> throw new UnsupportedContentException("Unsupported Content-Encoding: " + codings.get(i));
+            };
+        }
+        return out;
+    }
+
+    /**
+     * True for types worth parsing as a page; false for media/archives. Missing or generic types return empty so
+     * the caller sniffs the bytes instead.
+     */
+    static Optional<Boolean> isMarkupType(HttpHeaders headers) {
+        var type = headers.firstValue("Content-Type")
+                .map(v -> v.split(";", 2)[0].trim().toLowerCase(Locale.ROOT))
+                .orElse("");
+        if (type.isEmpty() || type.equals("application/octet-stream") || type.equals("binary/octet-stream")) {
+            return Optional.empty();
+        }
+        return Optional.of(type.startsWith("text/") || type.contains("html") || type.contains("xml"));
+    }
+
+    /**
+     * Rejects bodies that look binary (NUL bytes near the start); markup and plain text pass.
+     */
+    static boolean looksTextual(byte[] body) {
+        var n = Math.min(body.length, SNIFF_BYTES);
+        for (int i = bomLength(body); i < n; i++) {
+            if (body[i] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Charset detectCharset(HttpHeaders headers, byte[] body) {
+        var declared = headerCharset(headers);
+        if (declared.isPresent()) {
+            return declared.get();
+        }
+        if (startsWith(body, 0xEF, 0xBB, 0xBF)) {
+            return StandardCharsets.UTF_8;
+        }
+        if (startsWith(body, 0xFE, 0xFF)) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (startsWith(body, 0xFF, 0xFE)) {
+            return StandardCharsets.UTF_16LE;
+        }
+        var head = new String(body, 0, Math.min(body.length, META_SCAN_BYTES), StandardCharsets.ISO_8859_1);
+        var m = META_CHARSET.matcher(head);
+        if (m.find()) {
+            var fromMeta = forName(m.group(1));
+            if (fromMeta.isPresent()) {
+                return fromMeta.get();
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    static Optional<Charset> headerCharset(HttpHeaders headers) {
+        var contentType = headers.firstValue("Content-Type").orElse("");
+        for (var param : contentType.split(";")) {
+            var p = param.trim();
+            if (p.regionMatches(true, 0, "charset=", 0, 8)) {
+                return forName(p.substring(8).replace("\"", "").trim());
+            }
+        }
+        return Optional.empty();
+    }
+
+    static int bomLength(byte[] body) {
+        if (startsWith(body, 0xEF, 0xBB, 0xBF)) {
+            return 3;
+        }
+        if (startsWith(body, 0xFE, 0xFF) || startsWith(body, 0xFF, 0xFE)) {
+            return 2;
+        }
+        return 0;
+    }
+
+    private static Optional<Charset> forName(String name) {
+        try {
+            return Optional.of(Charset.forName(name));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static boolean startsWith(byte[] body, int... prefix) {
+        if (body.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((body[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * "deflate" is meant to be zlib-wrapped, but some servers send raw deflate; the first two bytes tell them apart.
+     */
+    private static InputStream inflate(InputStream in) throws IOException {
+        var pushback = new PushbackInputStream(in, 2);
+        var header = pushback.readNBytes(2);
+        pushback.unread(header);
+        var zlib = header.length == 2
+                && (header[0] & 0x0F) == 8
+                && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0;
+        return new InflaterInputStream(pushback, new Inflater(!zlib));
+    }
+
+    private static InputStream brotli(InputStream in) throws IOException {
+        if (BROTLI == null) {
+            throw new UnsupportedContentException("Brotli response without a decoder");
+        }
+        try {
+            return (InputStream) BROTLI.newInstance(in);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static Constructor<?> findBrotliDecoder() {
+        for (var name : new String[] {"org.brotli.dec.BrotliInputStream", "com.aayushatharva.brotli4j.decoder.BrotliInputStream"}) {
+            try {
+                return Class.forName(name).getConstructor(InputStream.class);
+            } catch (ReflectiveOperationException | LinkageError ignored) {
+                // not on the classpath
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.vestigium.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a response body exceeds the byte limit of its {@link CallClass}. Never retried.
+ */
+public class ResponseTooLargeException extends IOException {
+
+    public ResponseTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.vestigium.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a page fetch returns something that is not a page (media, archives, unknown encodings). Never retried.
+ */
+public class UnsupportedContentException extends IOException {
+
+    public UnsupportedContentException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,134 @@
+package com.vestigium.jobs;
+
+import com.vestigium.http.HostBusyException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the context sources of one job in parallel on virtual threads. Each source has its own timeout and all of them
+ * share the job deadline, so gathering takes as long as the slowest source that is still worth waiting for. A source
+ * that fails or is late is reported as missing; the caller builds its prompt from whatever did arrive.
+ */
+final class ContextTasks implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ContextTasks.class);
+
+    enum Status { OK, EMPTY, FAILED, TIMEOUT }
+
+    record SourceTiming(Status status, long ms) {}
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long startedAt = System.nanoTime();
+    private final long deadlineAt;
+    private final Map<String, SourceTiming> timings = new LinkedHashMap<>();
+
+    ContextTasks(Duration deadline) {
+        this.deadlineAt = startedAt + deadline.toNanos();
+    }
+
+    <T> Task<T> submit(String source, Duration timeout, Callable<T> work) {
+        var submittedAt = System.nanoTime();
+        var finishedAt = new AtomicLong();
+        Future<T> future = executor.submit(() -> {
+            try {
+                return work.call();
+            } finally {
+                finishedAt.set(System.nanoTime());
+            }
+        });
+        return new Task<>(source, future, submittedAt, submittedAt + timeout.toNanos(), finishedAt);
+    }
+
+    /**
+     * Waits for {@code task} until its own timeout or the job deadline, whichever comes first. Empty when the source
+     * returned nothing, failed or ran out of time; the reason is kept in {@link #timings()}.
+     */
+    <T> Optional<T> await(Task<T> task) throws InterruptedException {
+        var waitUntil = Math.min(task.timeoutAt(), deadlineAt);
+        try {
+            var value = task.future().get(Math.max(0, waitUntil - System.nanoTime()), TimeUnit.NANOSECONDS);
+            record(task, value == null ? Status.EMPTY : Status.OK);
+            return Optional.ofNullable(value);
+        } catch (TimeoutException e) {
+            task.future().cancel(true);
+            record(task, Status.TIMEOUT);
+        } catch (ExecutionException e) {
+            if (hostBusy(e.getCause()) != null) {
+                log.debug("Context source {} skipped: {}", task.source(), e.getCause().getMessage());
+            } else {
+                log.warn("Context source {} failed", task.source(), e.getCause());
+            }
+            record(task, Status.FAILED);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Like {@link #await}, but a source that failed because its host is cooling down or saturated is passed on, so
+     * the job can be deferred instead of going ahead without it.
+     */
+    <T> Optional<T> awaitUnlessBusy(Task<T> task) throws InterruptedException, HostBusyException {
+        var value = await(task);
+        if (value.isEmpty() && task.future().isDone() && !task.future().isCancelled()) {
+            try {
+                task.future().get();
+            } catch (ExecutionException e) {
+                var busy = hostBusy(e.getCause());
+                if (busy != null) {
+                    throw busy;
+                }
+            }
+        }
+        return value;
+    }
+
+    Map<String, SourceTiming> timings() {
+        synchronized (timings) {
+            return new LinkedHashMap<>(timings);
+        }
+    }
+
+    long elapsedMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void record(Task<?> task, Status status) {
+        var end = task.finishedAt().get();
+        if (end == 0) {
+            // Still running: it was given up on at its own timeout or the deadline, not when it was awaited.
+            end = Math.min(System.nanoTime(), Math.min(task.timeoutAt(), deadlineAt));
+        }
+        var ms = TimeUnit.NANOSECONDS.toMillis(end - task.submittedAt());
+        synchronized (timings) {
+            timings.put(task.source(), new SourceTiming(status, ms));
+        }
+    }
+
+    private static HostBusyException hostBusy(Throwable failure) {
+        for (var t = failure; t != null; t = t.getCause()) {
+            if (t instanceof HostBusyException busy) {
+                return busy;
+            }
+        }
+        return null;
+    }
+
+    record Task<T>(String source, Future<T> future, long submittedAt, long timeoutAt, AtomicLong finishedAt) {}
+}
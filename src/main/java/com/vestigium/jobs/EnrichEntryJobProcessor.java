@@ -2,22 +2,38 @@ package com.vestigium.jobs;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vestigium.dedup.DuplicateDetector;
+import com.vestigium.enrich.AttachmentPreprocessor;
+import com.vestigium.enrich.AttachmentTextCache;
+import com.vestigium.enrich.BatchEnrichmentProperties;
+import com.vestigium.enrich.ContextAssembler;
+import com.vestigium.enrich.ContextGatheringProperties;
 import com.vestigium.enrich.EnrichmentParser;
-import com.vestigium.enrich.PdfTextExtractor;
 import com.vestigium.enrich.ImdbMetadataFetcher;
+import com.vestigium.enrich.PageFetchCache;
 import com.vestigium.enrich.UrlContentFetcher;
 import com.vestigium.enrich.YouTubeMetadataFetcher;
+import com.vestigium.http.HostBusyException;
 import com.vestigium.llm.GeminiClient;
+import com.vestigium.llm.GeminiQuotaException;
+import com.vestigium.llm.TokenEstimator;
 import com.vestigium.persistence.AttachmentRepository;
 import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.JobRepository;
 import com.vestigium.persistence.TagRepository;
 import com.vestigium.service.TagNormalizer;
 import com.vestigium.service.UrlTagger;
 import com.vestigium.storage.FileStorageService;
-import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
@@ -28,42 +44,61 @@ public class EnrichEntryJobProcessor implements JobProcessor {
 
     private static final Logger log = LoggerFactory.getLogger(EnrichEntryJobProcessor.class);
 
+    /** Relative shares of the context token budget: the page counts three times as much as each PDF. */
+    private static final int PAGE_WEIGHT = 3;
+    private static final int PDF_WEIGHT = 1;
+
     private final EntryRepository entries;
     private final TagRepository tags;
     private final AttachmentRepository attachments;
     private final FileStorageService fileStorage;
-    private final UrlContentFetcher urlFetcher;
+    private final PageFetchCache pageCache;
     private final YouTubeMetadataFetcher youtubeMetadata;
     private final ImdbMetadataFetcher imdb;
-    private final PdfTextExtractor pdfTextExtractor;
+    private final AttachmentTextCache attachmentText;
+    private final AttachmentPreprocessor attachmentPreprocessor;
     private final GeminiClient gemini;
     private final EnrichmentParser enrichmentParser;
     private final ObjectMapper objectMapper;
+    private final JobRepository jobs;
+    private final ContextGatheringProperties contextLimits;
+    private final BatchEnrichmentProperties batchLimits;
+    private final DuplicateDetector duplicates;
 
     public EnrichEntryJobProcessor(
             EntryRepository entries,
             TagRepository tags,
             AttachmentRepository attachments,
             FileStorageService fileStorage,
-            UrlContentFetcher urlFetcher,
+            PageFetchCache pageCache,
             YouTubeMetadataFetcher youtubeMetadata,
             ImdbMetadataFetcher imdb,
-            PdfTextExtractor pdfTextExtractor,
+            AttachmentTextCache attachmentText,
+            AttachmentPreprocessor attachmentPreprocessor,
             GeminiClient gemini,
             EnrichmentParser enrichmentParser,
-            ObjectMapper objectMapper
+            ObjectMapper objectMapper,
+            JobRepository jobs,
+            ContextGatheringProperties contextLimits,
+            BatchEnrichmentProperties batchLimits,
+            DuplicateDetector duplicates
     ) {
         this.entries = entries;
         this.tags = tags;
         this.attachments = attachments;
         this.fileStorage = fileStorage;
-        this.urlFetcher = urlFetcher;
+        this.pageCache = pageCache;
         this.youtubeMetadata = youtubeMetadata;
         this.imdb = imdb;
-        this.pdfTextExtractor = pdfTextExtractor;
+        this.attachmentText = attachmentText;
+        this.attachmentPreprocessor = attachmentPreprocessor;
         this.gemini = gemini;
         this.enrichmentParser = enrichmentParser;
         this.objectMapper = objectMapper;
+        this.jobs = jobs;
+        this.contextLimits = contextLimits;
+        this.batchLimits = batchLimits;
+        this.duplicates = duplicates;
     }
 
     @Override
@@ -73,127 +108,44 @@ public class EnrichEntryJobProcessor implements JobProcessor {
 
     @Override
     public void process(com.vestigium.domain.Job job) throws Exception {
+        if (batchLimits.batchSize() > 1 && payloadBoolean(job.payloadJson(), "batch")) {
+            processBatch(job);
+            return;
+        }
+        processSingle(job);
+    }
+
+    private void processSingle(com.vestigium.domain.Job job) throws Exception {
         var entry = entries.getById(job.entryId()).orElseThrow();
         var attachmentList = attachments.listForEntry(entry.id());
 
         boolean force = payloadForce(job.payloadJson());
         boolean titleIsSuggestion = payloadBoolean(job.payloadJson(), "isTitleSuggestion");
 
-        var images = new ArrayList<GeminiClient.InlineImage>();
-        var contextText = new StringBuilder();
-        contextText.append("URL: ").append(entry.url()).append("\n");
-        if (entry.title() != null && !entry.title().isBlank()) {
-            contextText.append("Existing Title: ").append(entry.title()).append("\n");
-            if (titleIsSuggestion) {
-                contextText.append("(Note: the title above is just a suggestion from the user, feel free to generate a better/proper one)\n");
-            }
-        }
-        if (entry.description() != null && !entry.description().isBlank()) {
-            contextText.append("Existing Description: ").append(entry.description()).append("\n");
+        var gathered = gatherContext(job, entry, attachmentList, force, titleIsSuggestion, contextLimits.tokenBudget());
+        if (!force && reuseDuplicateEnrichment(entry)) {
+            return;
         }
-        contextText.append("\n");
+        var contextText = gathered.text();
+        var images = gathered.images();
 
-        // Site-specific extra metadata (best-effort).
-        boolean isYoutube = entry.url().contains("youtube.com") || entry.url().contains("youtu.be");
-        try {
-            log.info("Starting enrichment for entryId={} url={}", entry.id(), entry.url());
-            if (isYoutube) {
-                youtubeMetadata.fetch(entry.url()).ifPresent(yt -> {
-                    log.info("Fetched YouTube metadata for entryId={}: channel={}", entry.id(), yt.authorName());
-                    contextText.append("YouTube Metadata:\n");
-                    contextText.append("- Title: ").append(yt.title()).append("\n");
-                    if (yt.authorName() != null) {
-                        contextText.append("- Channel: ").append(yt.authorName()).append("\n");
-                    }
-                    contextText.append("\n");
-                });
-            }
-            imdb.fetch(entry.url()).ifPresent(m -> {
-                contextText.append("IMDb metadata:\n");
-                if (m.datePublished() != null && !m.datePublished().isBlank()) {
-                    contextText.append("- Release date: ").append(m.datePublished()).append("\n");
-                }
-                if (m.duration() != null && !m.duration().isBlank()) {
-                    contextText.append("- Runtime: ").append(m.duration()).append("\n");
-                }
-                if (m.stars() != null && !m.stars().isEmpty()) {
-                    var take = m.stars().stream().limit(5).toList();
-                    contextText.append("- Stars: ").append(String.join(", ", take)).append("\n");
-                }
-                contextText.append("\n");
-            });
-        } catch (Exception ignored) {
-            // ignore
-        }
-
-        if (!attachmentList.isEmpty()) {
-            contextText.append("The user provided attachments. Use them to infer a good description and tags.\n");
-            for (var a : attachmentList) {
-                Resource res = fileStorage.loadAsResource(a.storagePath());
-                if (!res.exists()) {
-                    continue;
-                }
-
-                if ("PDF".equalsIgnoreCase(a.kind())) {
-                    try (InputStream in = res.getInputStream()) {
-                        var text = pdfTextExtractor.extractText(in, 15000);
-                        contextText.append("\nPDF: ").append(a.originalName()).append("\n");
-                        contextText.append(text).append("\n");
-                    }
-                } else if ("IMAGE".equalsIgnoreCase(a.kind())) {
-                    var bytes = res.getContentAsByteArray();
-                    images.add(new GeminiClient.InlineImage(a.mimeType(), bytes));
-                    contextText.append("\nImage: ").append(a.originalName()).append(" (see attached image)\n");
-                }
-            }
-        } else {
-            UrlContentFetcher.PageContent page;
-            if (isYoutube) {
-                // Skip generic HTML fetching for YouTube, we already have oEmbed metadata.
-                page = new UrlContentFetcher.PageContent(null, null, "");
-            } else {
-                try {
-                    page = urlFetcher.fetchReadableText(entry.url());
-                } catch (Exception e) {
-                    // Some pages (or temporary test URLs) can fail; still allow LLM to work on URL-only context.
-                    page = new UrlContentFetcher.PageContent(null, null, "");
-                }
-            }
-
-            // Even without LLM, we can often fill missing title/description from HTML metadata.
-            var metaTitle = page.title();
-            var metaDesc = page.metaDescription();
-            var metaUpdateTitle = shouldUpdate(entry.title(), metaTitle, force || titleIsSuggestion) ? metaTitle : null;
-            var metaUpdateDesc = shouldUpdate(entry.description(), metaDesc, force) ? metaDesc : null;
-            if (metaUpdateTitle != null || metaUpdateDesc != null) {
-                entries.updateCore(entry.id(), metaUpdateTitle, metaUpdateDesc, null, null, null);
-            }
-
-            contextText.append("Fetched page content:\n");
-            if (page.title() != null && !page.title().isBlank()) {
-                contextText.append("Title: ").append(page.title()).append("\n");
-            }
-            if (page.metaDescription() != null && !page.metaDescription().isBlank()) {
-                contextText.append("Meta description: ").append(page.metaDescription()).append("\n");
-            }
-            if (page.text() != null && !page.text().isBlank()) {
-                contextText.append("\nText:\n").append(page.text()).append("\n");
-            }
-        }
-
-        var prompt = buildPrompt(contextText.toString());
+        var prompt = buildPrompt(contextText);
         log.info("Requesting LLM enrichment for entryId={}...", entry.id());
 
+        // Unchanged inputs are answered from GeminiClient's response cache; a forced re-enrichment bypasses it.
         com.vestigium.enrich.EnrichmentResult enrichment;
         String modelText = null;
         try {
-            modelText = gemini.generateText(prompt, images);
+            modelText = gemini.generateText(prompt, images, force);
             enrichment = enrichmentParser.parseFromModelText(modelText);
+        } catch (GeminiQuotaException e) {
+            // Not a model failure; the worker defers the job.
+            throw e;
         } catch (Exception e) {
             String errorMsg = e.getMessage() != null ? e.getMessage() : "";
             if (errorMsg.contains("PROHIBITED_CONTENT") || errorMsg.contains("SAFETY")) {
                 log.warn("Gemini blocked content for entryId={} url={}: {}", entry.id(), entry.url(), errorMsg);
-                handleProhibitedContent(entry, contextText.toString());
+                handleProhibitedContent(entry, contextText);
                 return;
             }
 
@@ -211,7 +163,132 @@ public class EnrichEntryJobProcessor implements JobProcessor {
         }
 
         log.info("LLM enrichment received for entryId={}: tags={}", entry.id(), enrichment.tags());
+        applyEnrichment(entry, enrichment, force, titleIsSuggestion);
+    }
+
+    /**
+     * Builds the prompt context for one entry. Site metadata, attachments and the page are fetched in parallel;
+     * whatever arrives in time goes in. Metadata is kept whole; page and PDF text share the rest of
+     * {@code tokenBudget}, with the page weighted above each PDF.
+     */
+    private GatheredContext gatherContext(
+            com.vestigium.domain.Job job,
+            com.vestigium.domain.Entry entry,
+            List<com.vestigium.domain.Attachment> attachmentList,
+            boolean force,
+            boolean titleIsSuggestion,
+            int tokenBudget
+    ) throws InterruptedException, HostBusyException {
+        var images = new ArrayList<GeminiClient.InlineImage>();
+        var context = new ContextAssembler();
+        var head = new StringBuilder();
+        head.append("URL: ").append(entry.url()).append("\n");
+        if (entry.title() != null && !entry.title().isBlank()) {
+            head.append("Existing Title: ").append(entry.title()).append("\n");
+            if (titleIsSuggestion) {
+                head.append("(Note: the title above is just a suggestion from the user, feel free to generate a better/proper one)\n");
+            }
+        }
+        if (entry.description() != null && !entry.description().isBlank()) {
+            head.append("Existing Description: ").append(entry.description()).append("\n");
+        }
+        head.append("\n");
+        context.fixed(head.toString());
+
+        boolean isYoutube = entry.url().contains("youtube.com") || entry.url().contains("youtu.be");
+        log.info("Starting enrichment for entryId={} url={}", entry.id(), entry.url());
+        try (var tasks = new ContextTasks(contextLimits.deadline())) {
+            var youtubeTask = isYoutube
+                    ? tasks.submit("youtube", contextLimits.youtubeTimeout(), () -> youtubeMetadata.fetch(entry.url()).orElse(null))
+                    : null;
+            var imdbTask = tasks.submit("imdb", contextLimits.imdbTimeout(), () -> imdb.fetch(entry.url()).orElse(null));
+            var attachmentTasks = new ArrayList<ContextTasks.Task<AttachmentContext>>();
+            for (var a : attachmentList) {
+                attachmentTasks.add(tasks.submit("attachment:" + a.id(), contextLimits.attachmentTimeout(), () -> readAttachment(a)));
+            }
+            // Skip generic HTML fetching for YouTube, we already have oEmbed metadata.
+            var pageTask = attachmentList.isEmpty() && !isYoutube
+                    ? tasks.submit("page", contextLimits.pageTimeout(), () -> pageCache.fetchReadableText(entry.url()))
+                    : null;
+
+            if (youtubeTask != null) {
+                tasks.await(youtubeTask).ifPresent(yt -> {
+                    log.info("Fetched YouTube metadata for entryId={}: channel={}", entry.id(), yt.authorName());
+                    var block = new StringBuilder("YouTube Metadata:\n");
+                    block.append("- Title: ").append(yt.title()).append("\n");
+                    if (yt.authorName() != null) {
+                        block.append("- Channel: ").append(yt.authorName()).append("\n");
+                    }
+                    context.fixed(block.append("\n").toString());
+                });
+            }
+            tasks.await(imdbTask).ifPresent(m -> {
+                var block = new StringBuilder("IMDb metadata:\n");
+                if (m.datePublished() != null && !m.datePublished().isBlank()) {
+                    block.append("- Release date: ").append(m.datePublished()).append("\n");
+                }
+                if (m.duration() != null && !m.duration().isBlank()) {
+                    block.append("- Runtime: ").append(m.duration()).append("\n");
+                }
+                if (m.stars() != null && !m.stars().isEmpty()) {
+                    var take = m.stars().stream().limit(5).toList();
+                    block.append("- Stars: ").append(String.join(", ", take)).append("\n");
+                }
+                context.fixed(block.append("\n").toString());
+            });
+
+            if (!attachmentList.isEmpty()) {
+                context.fixed("The user provided attachments. Use them to infer a good description and tags.\n");
+                for (var task : attachmentTasks) {
+                    tasks.await(task).ifPresent(ac -> {
+                        if (ac.text() != null) {
+                            context.flexible(ac.header(), ac.text(), PDF_WEIGHT);
+                        } else {
+                            context.fixed(ac.header());
+                        }
+                        if (ac.image() != null) {
+                            images.add(ac.image());
+                        }
+                    });
+                }
+            } else {
+                // Some pages (or temporary test URLs) can fail or be slow; still allow LLM to work on URL-only context.
+                var page = pageTask == null
+                        ? new UrlContentFetcher.PageContent(null, null, "")
+                        : tasks.awaitUnlessBusy(pageTask).orElse(new UrlContentFetcher.PageContent(null, null, ""));
+                duplicates.recordText(entry.id(), page.text());
+
+                // Even without LLM, we can often fill missing title/description from HTML metadata.
+                var metaTitle = page.title();
+                var metaDesc = page.metaDescription();
+                var metaUpdateTitle = shouldUpdate(entry.title(), metaTitle, force || titleIsSuggestion) ? metaTitle : null;
+                var metaUpdateDesc = shouldUpdate(entry.description(), metaDesc, force) ? metaDesc : null;
+                if (metaUpdateTitle != null || metaUpdateDesc != null) {
+                    entries.updateCore(entry.id(), metaUpdateTitle, metaUpdateDesc, null, null, null);
+                }
 
+                var block = new StringBuilder("Fetched page content:\n");
+                if (page.title() != null && !page.title().isBlank()) {
+                    block.append("Title: ").append(page.title()).append("\n");
+                }
+                if (page.metaDescription() != null && !page.metaDescription().isBlank()) {
+                    block.append("Meta description: ").append(page.metaDescription()).append("\n");
+                }
+                context.fixed(block.toString());
+                context.flexible("\nText:\n", page.text(), PAGE_WEIGHT);
+            }
+            var assembled = context.assemble(tokenBudget);
+            recordContextMetrics(job.id(), tasks, assembled, tokenBudget);
+            return new GatheredContext(assembled.text(), images);
+        }
+    }
+
+    private void applyEnrichment(
+            com.vestigium.domain.Entry entry,
+            com.vestigium.enrich.EnrichmentResult enrichment,
+            boolean force,
+            boolean titleIsSuggestion
+    ) {
         var newTitle = shouldUpdate(entry.title(), enrichment.title(), force || titleIsSuggestion) ? enrichment.title() : null;
         var newDescription = shouldUpdate(entry.description(), enrichment.description(), force) ? enrichment.description() : null;
         var newDetailedDescription = shouldUpdate(entry.detailedDescription(), enrichment.detailedDescription(), force)
@@ -237,6 +314,274 @@ public class EnrichEntryJobProcessor implements JobProcessor {
         }
     }
 
+    /**
+     * Enriches this job's entry together with other pending bulk-import jobs in one model request, within the batch
+     * size and prompt budget. A batch whose answer cannot be used (unparseable, blocked by safety filters, ...) is
+     * split in half and retried; an entry left on its own goes through the single-entry path, and entries the answer
+     * skipped are handed back as single jobs.
+     */
+    private void processBatch(com.vestigium.domain.Job lead) throws Exception {
+        var leadEntry = entries.getById(lead.entryId()).orElseThrow();
+        if (!attachments.listForEntry(leadEntry.id()).isEmpty()) {
+            processSingle(lead);
+            return;
+        }
+        var others = jobs.claimPendingBatch(type(), lead.id(), batchLimits.batchSize() - 1);
+        if (others.isEmpty()) {
+            processSingle(lead);
+            return;
+        }
+        // Claimed jobs that still need an outcome; whatever is left at the end is handed back as a single job.
+        var open = new ConcurrentHashMap<String, com.vestigium.domain.Job>();
+        others.forEach(j -> open.put(j.id(), j));
+        log.info("Batch enrichment for jobId={} with {} more jobs", lead.id(), others.size());
+        try {
+            var claimed = new ArrayList<com.vestigium.domain.Job>();
+            claimed.add(lead);
+            claimed.addAll(others);
+            enrichBatch(lead, fitBatchBudget(gatherBatch(claimed, open), open), open);
+        } catch (GeminiQuotaException e) {
+            for (var job : open.values()) {
+                jobs.defer(job.id(), e.getRetryAt(), e.getMessage());
+            }
+            open.clear();
+            throw e;
+        } finally {
+            for (var job : open.values()) {
+                jobs.requeue(job.id(), withoutBatchFlag(job.payloadJson()), "Returned from batch enrichment");
+            }
+        }
+    }
+
+    /**
+     * Gathers context for all claimed entries in parallel. Jobs whose entry is gone are failed; entries that now have
+     * attachments are left out (and later run on their own).
+     */
+    private List<BatchMember> gatherBatch(List<com.vestigium.domain.Job> claimed, Map<String, com.vestigium.domain.Job> open)
+            throws Exception {
+        var members = new ArrayList<BatchMember>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = new ArrayList<Future<BatchMember>>();
+            for (var job : claimed) {
+                futures.add(executor.submit(() -> gatherBatchMember(job, open)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    var member = futures.get(i).get();
+                    if (member != null) {
+                        members.add(member);
+                    }
+                } catch (ExecutionException e) {
+                    if (i == 0 && e.getCause() instanceof Exception cause) {
+                        throw cause;
+                    }
+                    if (e.getCause() instanceof HostBusyException busy) {
+                        // Not a failure: wait for the host instead of enriching without the page.
+                        var job = claimed.get(i);
+                        jobs.defer(job.id(), busy.getReadyAt(), busy.getMessage());
+                        open.remove(job.id());
+                        continue;
+                    }
+                    log.warn("Could not gather batch context for jobId={}: {}", claimed.get(i).id(), String.valueOf(e.getCause()));
+                }
+            }
+        }
+        return members;
+    }
+
+    private BatchMember gatherBatchMember(com.vestigium.domain.Job job, Map<String, com.vestigium.domain.Job> open) throws Exception {
+        var entry = entries.getById(job.entryId());
+        if (entry.isEmpty()) {
+            jobs.markFailed(job.id(), "Entry not found", false);
+            open.remove(job.id());
+            return null;
+        }
+        if (!attachments.listForEntry(entry.get().id()).isEmpty()) {
+            return null;
+        }
+        var force = payloadForce(job.payloadJson());
+        var titleIsSuggestion = payloadBoolean(job.payloadJson(), "isTitleSuggestion");
+        var context = gatherContext(job, entry.get(), List.of(), force, titleIsSuggestion, batchLimits.entryContextTokens());
+        if (!force && reuseDuplicateEnrichment(entry.get())) {
+            // The lead job is not in open; it succeeds when this run returns.
+            if (open.remove(job.id()) != null) {
+                jobs.markSucceeded(job.id());
+            }
+            return null;
+        }
+        return new BatchMember(job, entry.get(), context.text(), force, titleIsSuggestion);
+    }
+
+    /**
+     * Keeps members, in claim order, while the prompt stays within the token budget; the rest go back to the queue
+     * for a later batch. The first member (this run's own job) is always kept.
+     */
+    private List<BatchMember> fitBatchBudget(List<BatchMember> members, Map<String, com.vestigium.domain.Job> open) {
+        var budget = batchLimits.promptTokenBudget() - TokenEstimator.estimate(buildBatchPrompt(List.of()));
+        var fitting = new ArrayList<BatchMember>();
+        var used = 0;
+        for (var member : members) {
+            var cost = TokenEstimator.estimate(batchEntryBlock(member));
+            if (!fitting.isEmpty() && used + cost > budget) {
+                jobs.requeue(member.job().id(), member.job().payloadJson(), null);
+                open.remove(member.job().id());
+                continue;
+            }
+            fitting.add(member);
+            used += cost;
+        }
+        return fitting;
+    }
+
+    private void enrichBatch(com.vestigium.domain.Job lead, List<BatchMember> members, Map<String, com.vestigium.domain.Job> open)
+            throws Exception {
+        if (members.isEmpty()) {
+            return;
+        }
+        if (members.size() == 1) {
+            var only = members.getFirst().job();
+            if (only.id().equals(lead.id())) {
+                processSingle(lead);
+            } else {
+                jobs.requeue(only.id(), withoutBatchFlag(only.payloadJson()), "Enriching on its own after a failed batch");
+                open.remove(only.id());
+            }
+            return;
+        }
+
+        Map<String, com.vestigium.enrich.EnrichmentResult> results;
+        try {
+            var bypassCache = members.stream().anyMatch(BatchMember::force);
+            var modelText = gemini.generateText(buildBatchPrompt(members), List.of(), bypassCache, batchLimits.outputTokensFor(members.size()));
+            results = enrichmentParser.parseBatchFromModelText(modelText);
+        } catch (GeminiQuotaException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Batch enrichment of {} entries failed, splitting: {}", members.size(), e.getMessage());
+            var half = members.size() / 2;
+            enrichBatch(lead, members.subList(0, half), open);
+            enrichBatch(lead, members.subList(half, members.size()), open);
+            return;
+        }
+
+        BatchMember leadMember = null;
+        for (var member : members) {
+            var result = results.get(member.entry().id());
+            if (member.job().id().equals(lead.id())) {
+                leadMember = member;
+            } else if (result == null) {
+                enrichBatch(lead, List.of(member), open);
+            } else {
+                try {
+                    applyEnrichment(member.entry(), result, member.force(), member.titleIsSuggestion());
+                    jobs.markSucceeded(member.job().id());
+                    open.remove(member.job().id());
+                } catch (Exception e) {
+                    log.warn("Applying batch result failed for jobId={}: {}", member.job().id(), e.getMessage());
+                }
+            }
+        }
+        if (leadMember != null) {
+            var result = results.get(leadMember.entry().id());
+            if (result == null) {
+                processSingle(lead);
+            } else {
+                log.info("LLM enrichment received in batch for entryId={}: tags={}", leadMember.entry().id(), result.tags());
+                applyEnrichment(leadMember.entry(), result, leadMember.force(), leadMember.titleIsSuggestion());
+            }
+        }
+    }
+
+    /**
+     * Copies the enrichment of an older entry with nearly the same page text instead of asking the model again.
+     */
+    private boolean reuseDuplicateEnrichment(com.vestigium.domain.Entry entry) {
+        var original = duplicates.originalOf(entry, e -> e.description() != null && !e.description().isBlank());
+        if (original.isEmpty()) {
+            return false;
+        }
+        var o = original.get();
+        log.info("Content of entryId={} nearly matches entryId={}, reusing its enrichment", entry.id(), o.id());
+        applyEnrichment(entry, new com.vestigium.enrich.EnrichmentResult(o.title(), o.description(), o.detailedDescription(), o.tags()), false, false);
+        return true;
+    }
+
+    private String withoutBatchFlag(String payloadJson) {
+        try {
+            if (payloadJson != null && objectMapper.readTree(payloadJson) instanceof ObjectNode node) {
+                node.remove("batch");
+                return node.isEmpty() ? null : objectMapper.writeValueAsString(node);
+            }
+        } catch (Exception ignored) {
+            // keep the payload as it was
+        }
+        return payloadJson;
+    }
+
+    private record GatheredContext(String text, List<GeminiClient.InlineImage> images) {}
+
+    private record BatchMember(
+            com.vestigium.domain.Job job,
+            com.vestigium.domain.Entry entry,
+            String context,
+            boolean force,
+            boolean titleIsSuggestion
+    ) {}
+
+    private AttachmentContext readAttachment(com.vestigium.domain.Attachment a) throws Exception {
+        Resource res = fileStorage.loadAsResource(a.storagePath());
+        if (!res.exists()) {
+            return null;
+        }
+        if ("PDF".equalsIgnoreCase(a.kind())) {
+            var text = attachmentText.pdfText(a, res, AttachmentPreprocessor.PDF_TEXT_BUDGET);
+            return new AttachmentContext("\nPDF: " + a.originalName() + "\n", text, null);
+        }
+        if ("IMAGE".equalsIgnoreCase(a.kind())) {
+            // The downscaled derivative made at upload time, not the original file.
+            var image = attachmentPreprocessor.modelImage(a);
+            return new AttachmentContext("\nImage: " + a.originalName() + " (see attached image)\n", null, image);
+        }
+        return null;
+    }
+
+    /**
+     * Stores per-source status and duration on the job so slow or failing sources show up in /api/jobs.
+     */
+    private void recordContextMetrics(String jobId, ContextTasks tasks, ContextAssembler.Assembled assembled, int tokenBudget) {
+        var sources = new LinkedHashMap<String, Object>();
+        tasks.timings().forEach((source, t) -> {
+            var timing = new LinkedHashMap<String, Object>();
+            timing.put("status", t.status().name());
+            timing.put("ms", t.ms());
+            sources.put(source, timing);
+        });
+        var context = new LinkedHashMap<String, Object>();
+        context.put("totalMs", tasks.elapsedMs());
+        context.put("deadlineMs", contextLimits.deadline().toMillis());
+        context.put("sources", sources);
+        var tokens = new LinkedHashMap<String, Object>();
+        tokens.put("budget", tokenBudget);
+        tokens.put("estimated", assembled.estimatedTokens());
+        tokens.put("trimmedSections", assembled.trimmedSections());
+        tokens.put("droppedSections", assembled.droppedSections());
+        context.put("tokens", tokens);
+        try {
+            jobs.saveMetrics(jobId, objectMapper.writeValueAsString(Map.of("context", context)));
+        } catch (Exception e) {
+            log.warn("Failed to record context metrics for jobId={}: {}", jobId, e.getMessage());
+        }
+        log.info(
+                "Gathered enrichment context for jobId={} in {}ms (~{} tokens): {}",
+                jobId, tasks.elapsedMs(), assembled.estimatedTokens(), tasks.timings()
+        );
+    }
+
+    /**
+     * {@code text} is the trimmable body (PDF text), null for images.
+     */
+    private record AttachmentContext(String header, String text, GeminiClient.InlineImage image) {}
+
     private boolean isOnlyObviousTags(List<String> currentTags, String url) {
         if (currentTags == null || currentTags.isEmpty()) {
             log.info("isOnlyObviousTags: currentTags is empty");
@@ -297,6 +642,22 @@ public class EnrichEntryJobProcessor implements JobProcessor {
         entries.replaceTags(entry.id(), TagNormalizer.normalize(fallbackTags), tags);
     }
 
+    private static final String ENRICHMENT_RULES = """
+            Description rules:
+            - be informative (what it is, why it matters, key entities)
+            - aim for ~400-900 characters unless the page is very small
+
+            Detailed description rules:
+            - include any concrete facts you can extract (people, dates, runtime/length, notable attributes)
+            - if nothing extra is known, you can repeat/expand the short description
+
+            Tag rules:
+            - keep tags short, lowercase, and specific
+            - 3 to 8 tags
+            - include topical tags when obvious (examples: youtube, music, news, politics, gaming, climate, coding, java)
+            - include named-entity tags if clearly present (examples: asmongold, path of exile)
+            """;
+
     private static String buildPrompt(String context) {
         return """
                You are helping build a personal repository of website links. Generate a concise, useful description and a small set of tags.
@@ -309,24 +670,37 @@ public class EnrichEntryJobProcessor implements JobProcessor {
                  "tags": ["lowercase tag", "another tag"]
                }
 
-               Description rules:
-               - be informative (what it is, why it matters, key entities)
-               - aim for ~400-900 characters unless the page is very small
+               %s
+               Context:
+               %s
+               """.formatted(ENRICHMENT_RULES, context);
+    }
 
-               Detailed description rules:
-               - include any concrete facts you can extract (people, dates, runtime/length, notable attributes)
-               - if nothing extra is known, you can repeat/expand the short description
+    private static String buildBatchPrompt(List<BatchMember> members) {
+        var context = new StringBuilder();
+        for (var member : members) {
+            context.append(batchEntryBlock(member));
+        }
+        return """
+               You are helping build a personal repository of website links. For each entry below, generate a concise, useful description and a small set of tags.
 
-               Tag rules:
-               - keep tags short, lowercase, and specific
-               - 3 to 8 tags
-               - include topical tags when obvious (examples: youtube, music, news, politics, gaming, climate, coding, java)
-               - include named-entity tags if clearly present (examples: asmongold, path of exile)
+               Output MUST be a single JSON array (no markdown) with one object per entry, each with this exact shape:
+               {
+                 "id": "the entry id exactly as given",
+                 "title": "optional short title",
+                 "description": "useful description, 2-8 sentences (can be 1-2 short paragraphs)",
+                 "detailedDescription": "longer description with key details; can be multiple short paragraphs and/or bullet points",
+                 "tags": ["lowercase tag", "another tag"]
+               }
+               Judge each entry only by its own context.
 
-               Context:
                %s
-               """.formatted(context);
+               Entries:
+               %s
+               """.formatted(ENRICHMENT_RULES, context);
     }
-}
-
 
+    private static String batchEntryBlock(BatchMember member) {
+        return "=== Entry id: " + member.entry().id() + " ===\n" + member.context() + "\n";
+    }
+}
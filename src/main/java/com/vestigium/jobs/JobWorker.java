@@ -1,39 +1,100 @@
 package com.vestigium.jobs;
 
+import com.vestigium.domain.Job;
+import com.vestigium.http.HostBusyException;
+import com.vestigium.http.HostScheduler;
+import com.vestigium.llm.GeminiQuotaException;
 import com.vestigium.persistence.JobRepository;
+import jakarta.annotation.PreDestroy;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+/**
+ * Runs up to {@code vestigium.jobs.concurrency} jobs at once, at most one per host. Each poll looks at the oldest
+ * pending jobs and takes the first job of every host that {@link HostScheduler} considers ready, least recently
+ * served hosts first, so a large import from one site does not starve or hammer anything.
+ * <p>
+ * A job that runs out of Gemini quota, or whose host is cooling down or saturated ({@link HostBusyException}), is
+ * deferred until the quota returns or the host is ready without using up an attempt, so a mass import drains at the
+ * allowed rate.
+ */
 @Component
 public class JobWorker {
 
     private static final Logger log = LoggerFactory.getLogger(JobWorker.class);
 
+    private static final int CANDIDATE_WINDOW = 200;
+
     private final JobRepository jobs;
     private final JobDispatcher dispatcher;
+    private final HostScheduler hostScheduler;
     private final int maxAttempts;
+    private final int concurrency;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    /** Running job id to entry host. */
+    private final Map<String, String> running = new ConcurrentHashMap<>();
 
     public JobWorker(
             JobRepository jobs,
             JobDispatcher dispatcher,
-            @Value("${vestigium.jobs.max-attempts:3}") int maxAttempts
+            HostScheduler hostScheduler,
+            @Value("${vestigium.jobs.max-attempts:3}") int maxAttempts,
+            @Value("${vestigium.jobs.concurrency:4}") int concurrency
     ) {
         this.jobs = jobs;
         this.dispatcher = dispatcher;
+        this.hostScheduler = hostScheduler;
         this.maxAttempts = maxAttempts;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
     }
 
     @Scheduled(fixedDelayString = "${vestigium.jobs.poll-delay-ms:2000}")
-    public void pollAndProcessOne() {
-        var claimed = jobs.claimNextPending();
-        if (claimed.isEmpty()) {
+    public void poll() {
+        var free = concurrency - running.size();
+        if (free <= 0) {
+            return;
+        }
+        var candidates = jobs.listPendingCandidates(CANDIDATE_WINDOW);
+        if (candidates.isEmpty()) {
             return;
         }
+        var picks = hostScheduler.pickInterleaved(
+                candidates,
+                c -> hostOf(c.entryUrl()),
+                new HashSet<>(running.values()),
+                free
+        );
+        for (var pick : picks) {
+            jobs.claimPending(pick.jobId()).ifPresent(job -> {
+                running.put(job.id(), hostOf(pick.entryUrl()));
+                executor.submit(() -> {
+                    try {
+                        process(job);
+                    } finally {
+                        running.remove(job.id());
+                    }
+                });
+            });
+        }
+    }
 
-        var job = claimed.get();
+    void process(Job job) {
         try {
             log.info("Processing job id={} type={} entryId={} attempt={}", job.id(), job.type(), job.entryId(), job.attempts());
             dispatcher.dispatch(job);
@@ -46,6 +107,19 @@ public class JobWorker {
             }
 
             var msg = actual.getClass().getSimpleName() + ": " + (actual.getMessage() == null ? "" : actual.getMessage());
+
+            // Out of LLM quota or a busy host is not a failure of the job: put it back for when the budget returns.
+            for (Throwable q = e; q != null; q = q.getCause()) {
+                var retryAt = q instanceof GeminiQuotaException quota ? quota.getRetryAt()
+                        : q instanceof HostBusyException busy ? busy.getReadyAt()
+                        : null;
+                if (retryAt != null) {
+                    jobs.defer(job.id(), retryAt, msg);
+                    log.info("Job deferred id={} type={} entryId={} until={}: {}", job.id(), job.type(), job.entryId(), retryAt, q.getMessage());
+                    return;
+                }
+            }
+
             var retry = job.attempts() < maxAttempts;
             String lastResponse = null;
 
@@ -75,6 +149,16 @@ public class JobWorker {
             );
         }
     }
-}
-
 
+    static String hostOf(String url) {
+        if (url == null) {
+            return "";
+        }
+        try {
+            var host = URI.create(url.trim()).getHost();
+            return host == null ? "" : host.toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
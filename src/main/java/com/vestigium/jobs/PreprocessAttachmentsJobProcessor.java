@@ -0,0 +1,56 @@
+package com.vestigium.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestigium.enrich.AttachmentPreprocessor;
+import com.vestigium.persistence.AttachmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pre-processes attachments right after upload. Payload {@code {"attachmentId": "..."}} limits the job to one file;
+ * without it every attachment of the entry is checked. {@code "force": true} recomputes existing artifacts.
+ */
+@Component
+public class PreprocessAttachmentsJobProcessor implements JobProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(PreprocessAttachmentsJobProcessor.class);
+
+    private final AttachmentRepository attachments;
+    private final AttachmentPreprocessor preprocessor;
+    private final ObjectMapper objectMapper;
+
+    public PreprocessAttachmentsJobProcessor(
+            AttachmentRepository attachments,
+            AttachmentPreprocessor preprocessor,
+            ObjectMapper objectMapper
+    ) {
+        this.attachments = attachments;
+        this.preprocessor = preprocessor;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String type() {
+        return "PREPROCESS_ATTACHMENTS";
+    }
+
+    @Override
+    public void process(com.vestigium.domain.Job job) throws Exception {
+        String attachmentId = null;
+        boolean force = false;
+        if (job.payloadJson() != null && !job.payloadJson().isBlank()) {
+            var node = objectMapper.readTree(job.payloadJson());
+            attachmentId = node.hasNonNull("attachmentId") ? node.get("attachmentId").asText() : null;
+            force = node.path("force").asBoolean(false);
+        }
+
+        var targets = attachmentId == null
+                ? attachments.listForEntry(job.entryId())
+                : attachments.getById(attachmentId).stream().toList();
+        for (var attachment : targets) {
+            preprocessor.preprocess(attachment, force);
+        }
+        log.info("Pre-processed {} attachment(s) for entryId={}", targets.size(), job.entryId());
+    }
+}
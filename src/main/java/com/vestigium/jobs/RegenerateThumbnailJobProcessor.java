@@ -1,39 +1,64 @@
 package com.vestigium.jobs;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestigium.dedup.DuplicateDetector;
+import com.vestigium.domain.Entry;
+import com.vestigium.domain.EntryThumbnail;
 import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.ThumbnailRepository;
 import com.vestigium.storage.FileStorageService;
+import com.vestigium.thumb.ImageCodecs;
+import com.vestigium.thumb.ImageFormat;
 import com.vestigium.thumb.ImageThumbs;
 import com.vestigium.thumb.PageScreenshotter;
 import com.vestigium.thumb.ThumbnailFetcher;
 import com.vestigium.thumb.YouTube;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
 import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 @Component
 public class RegenerateThumbnailJobProcessor implements JobProcessor {
 
+    private static final Logger log = LoggerFactory.getLogger(RegenerateThumbnailJobProcessor.class);
+
+    private static final int SMALL_WIDTH = 360;
+    private static final int LARGE_WIDTH = 1280;
+
     private final EntryRepository entries;
+    private final ThumbnailRepository thumbnails;
     private final ThumbnailFetcher fetcher;
     private final PageScreenshotter screenshotter;
     private final FileStorageService fileStorage;
+    private final ImageCodecs imageCodecs;
     private final ObjectMapper objectMapper;
+    private final DuplicateDetector duplicates;
 
     public RegenerateThumbnailJobProcessor(
             EntryRepository entries,
+            ThumbnailRepository thumbnails,
             ThumbnailFetcher fetcher,
             PageScreenshotter screenshotter,
             FileStorageService fileStorage,
-            ObjectMapper objectMapper
+            ImageCodecs imageCodecs,
+            ObjectMapper objectMapper,
+            DuplicateDetector duplicates
     ) {
         this.entries = entries;
+        this.thumbnails = thumbnails;
         this.fetcher = fetcher;
         this.screenshotter = screenshotter;
         this.fileStorage = fileStorage;
+        this.imageCodecs = imageCodecs;
         this.objectMapper = objectMapper;
+        this.duplicates = duplicates;
     }
 
     @Override
@@ -79,15 +104,81 @@ public class RegenerateThumbnailJobProcessor implements JobProcessor {
         } else {
             sourceImage = tryGetYouTubeThumb(entry.url())
                     .or(() -> tryGetOgImage(entry.url()))
+                    .or(() -> duplicateScreenshot(entry))
                     .orElseGet(() -> screenshotter.screenshotPng(entry.url()));
         }
 
-        var jpegSmall = ImageThumbs.toJpegThumbnail(sourceImage, 360);
-        var jpegLarge = ImageThumbs.toJpegThumbnail(sourceImage, 1280);
+        // Each variant row owns one blob reference; new blobs are acquired before the old ones are released, so
+        // unchanged images are never rewritten.
+        var previous = thumbnails.listForEntry(entry.id());
+
+        var decoded = ImageThumbs.decode(sourceImage);
+        var small = ImageThumbs.scaleToWidth(decoded, SMALL_WIDTH);
+        var large = ImageThumbs.scaleToWidth(decoded, LARGE_WIDTH);
+        duplicates.recordImage(entry.id(), small);
+
+        FileStorageService.StoredFile jpegSmall = null;
+        FileStorageService.StoredFile jpegLarge = null;
+        var writtenFormats = new ArrayList<String>();
+        for (var codec : imageCodecs.encoders()) {
+            var format = codec.format();
+            FileStorageService.StoredFile storedSmall;
+            FileStorageService.StoredFile storedLarge;
+            try {
+                var smallBytes = codec.encode(small);
+                var largeBytes = codec.encode(large);
+                if (format == ImageFormat.JPEG) {
+                    storedSmall = fileStorage.saveThumbnailJpeg(entry.id(), smallBytes);
+                    storedLarge = fileStorage.saveThumbnailJpeg(entry.id(), "large", largeBytes);
+                    jpegSmall = storedSmall;
+                    jpegLarge = storedLarge;
+                } else {
+                    storedSmall = fileStorage.saveThumbnail(entry.id(), null, format.extension(), format.mimeType(), smallBytes);
+                    storedLarge = fileStorage.saveThumbnail(entry.id(), "large", format.extension(), format.mimeType(), largeBytes);
+                }
+            } catch (IOException e) {
+                if (format == ImageFormat.JPEG) {
+                    throw e;
+                }
+                // Extra formats are an optimization; JPEG alone is enough to serve every client.
+                log.warn("Failed to encode {} thumbnail for entryId={}: {}", format.id(), entry.id(), e.getMessage());
+                continue;
+            }
+            thumbnails.upsert(entry.id(), "small", format.id(), storedSmall.storagePath(), storedSmall.sizeBytes(), storedSmall.blobHash());
+            thumbnails.upsert(entry.id(), "large", format.id(), storedLarge.storagePath(), storedLarge.sizeBytes(), storedLarge.blobHash());
+            writtenFormats.add(format.id());
+        }
+        thumbnails.deleteFormatsNotIn(entry.id(), writtenFormats);
 
-        var storedSmall = fileStorage.saveThumbnailJpeg(entry.id(), jpegSmall);
-        var storedLarge = fileStorage.saveThumbnailJpeg(entry.id(), "large", jpegLarge);
-        entries.updateThumbnailPaths(entry.id(), storedSmall.storagePath(), storedLarge.storagePath());
+        if (jpegSmall == null || jpegLarge == null) {
+            throw new IllegalStateException("No JPEG encoder available");
+        }
+        entries.updateThumbnailPaths(entry.id(), jpegSmall.storagePath(), jpegLarge.storagePath());
+
+        fileStorage.releaseBlobs(previous.stream().map(EntryThumbnail::blobHash).filter(Objects::nonNull).toList());
+        fileStorage.deleteLegacyThumbnail(entry.thumbnailPath());
+        fileStorage.deleteLegacyThumbnail(entry.thumbnailLargePath());
+        for (var t : previous) {
+            if (t.blobHash() == null) {
+                fileStorage.deleteLegacyThumbnail(t.storagePath());
+            }
+        }
+    }
+
+    /**
+     * The large thumbnail of an older entry with nearly the same page text, so the page is not screenshotted again.
+     */
+    private Optional<byte[]> duplicateScreenshot(Entry entry) {
+        return duplicates.originalOf(entry, e -> e.thumbnailLargePath() != null).flatMap(original -> {
+            try {
+                var bytes = fileStorage.loadAsResource(original.thumbnailLargePath()).getContentAsByteArray();
+                log.info("Content of entryId={} nearly matches entryId={}, reusing its screenshot", entry.id(), original.id());
+                return Optional.of(bytes);
+            } catch (IOException e) {
+                log.warn("Could not read thumbnail of entryId={}: {}", original.id(), e.getMessage());
+                return Optional.empty();
+            }
+        });
     }
 
     private Optional<byte[]> tryGetYouTubeThumb(String url) {
@@ -147,8 +238,8 @@ public class RegenerateThumbnailJobProcessor implements JobProcessor {
         try {
             var img = ImageIO.read(new ByteArrayInputStream(bytes));
             if (img == null) {
-                // If we cannot decode the image (e.g., unsupported format like WebP or AVIF),
-                // we should fallback to a screenshot instead of crashing later.
+                // If we cannot decode the image (e.g., AVIF, which has no ImageIO reader; WebP is decoded by the
+                // TwelveMonkeys reader, see ImageCodecs), we should fallback to a screenshot instead of crashing later.
                 return false;
             }
             int w = img.getWidth();
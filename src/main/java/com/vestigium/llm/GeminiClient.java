@@ -2,93 +2,213 @@ package com.vestigium.llm;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestigium.http.CallClass;
+import com.vestigium.http.HostScheduler;
+import com.vestigium.http.OutboundHttp;
+import com.vestigium.storage.BlobStore;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.Base64;
+import java.time.Instant;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Calls go through {@link GeminiRateLimiter}: a request waits for requests/tokens-per-minute budget, and a 429 sets a
+ * cool-down from its {@code RetryInfo} and surfaces as {@link GeminiQuotaException} rather than a generic failure.
+ * Answers are kept in {@link LlmResponseCache}; an identical request (model, generation config, prompt and images) is
+ * answered from there without spending budget.
+ */
 @Component
 public class GeminiClient {
 
+    /** Up to four 768px tiles at 258 tokens each, the most a 1024px derivative costs. */
+    private static final int TOKENS_PER_IMAGE = 4 * 258;
+
+    public static final int DEFAULT_MAX_OUTPUT_TOKENS = 2048;
+
     private final ApiKeyProvider apiKeyProvider;
     private final ObjectMapper objectMapper;
-    private final HttpClient httpClient;
+    private final OutboundHttp http;
+    private final GeminiRateLimiter rateLimiter;
+    private final LlmResponseCache cache;
     private final String model;
 
     public GeminiClient(
             ApiKeyProvider apiKeyProvider,
             ObjectMapper objectMapper,
+            OutboundHttp http,
+            GeminiRateLimiter rateLimiter,
+            LlmResponseCache cache,
             @Value("${vestigium.llm.model:gemini-2.5-flash}") String model
     ) {
         this.apiKeyProvider = apiKeyProvider;
         this.objectMapper = objectMapper;
+        this.http = http;
+        this.rateLimiter = rateLimiter;
+        this.cache = cache;
         this.model = model;
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
     }
 
     public String generateText(String prompt, List<InlineImage> images) throws Exception {
+        return generateText(prompt, images, false);
+    }
+
+    /**
+     * @param bypassCache ask the model even if the same request was answered before; the new answer is cached
+     */
+    public String generateText(String prompt, List<InlineImage> images, boolean bypassCache) throws Exception {
+        return generateText(prompt, images, bypassCache, DEFAULT_MAX_OUTPUT_TOKENS);
+    }
+
+    /**
+     * @param maxOutputTokens answer budget; raise it for prompts that ask for several results at once
+     */
+    public String generateText(String prompt, List<InlineImage> images, boolean bypassCache, int maxOutputTokens) throws Exception {
+        var generationConfig = generationConfig(maxOutputTokens);
+        var cacheKey = cacheKey(prompt, images, generationConfig);
+        var cached = cache.get(cacheKey, bypassCache);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        // Images are Base64-encoded while the body is sent rather than into one big JSON string.
+        var body = GeminiRequestBody.of(objectMapper, prompt, images, generationConfig);
+        var reservation = rateLimiter.acquire(estimateTokens(prompt, images), rateLimiter.maxWait());
+        var resp = http.post(CallClass.LLM, endpoint("generateContent", ""), "application/json", body.publisher());
+        checkStatus(resp);
+        var responseBody = resp.bodyAsString();
+
+        String text;
+        try {
+            JsonNode root = objectMapper.readTree(responseBody);
+            rateLimiter.recordSuccess();
+            rateLimiter.settle(reservation, root.path("usageMetadata").path("promptTokenCount").asLong(0));
+            var textNode = root.at("/candidates/0/content/parts/0/text");
+            if (textNode.isMissingNode() || textNode.asText().isBlank()) {
+                throw new IllegalStateException("Gemini returned empty response. Body: " + responseBody);
+            }
+            text = textNode.asText();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse Gemini response: " + e.getMessage() + " Body: " + responseBody, e);
+        }
+        cache.put(cacheKey, model, text);
+        return text;
+    }
+
+    /**
+     * Streams the answer from {@code streamGenerateContent}: {@code onText} receives each piece of text as the model
+     * produces it and the whole text is returned at the end. Rate limiting and caching work as in
+     * {@link #generateText}; a cached answer is delivered as a single piece.
+     */
+    public String streamText(String prompt, boolean bypassCache, int maxOutputTokens, Consumer<String> onText) throws Exception {
+        var generationConfig = generationConfig(maxOutputTokens);
+        var cacheKey = cacheKey(prompt, List.of(), generationConfig);
+        var cached = cache.get(cacheKey, bypassCache);
+        if (cached.isPresent()) {
+            onText.accept(cached.get());
+            return cached.get();
+        }
+
+        var body = GeminiRequestBody.of(objectMapper, prompt, List.of(), generationConfig);
+        var reservation = rateLimiter.acquire(estimateTokens(prompt, List.of()), rateLimiter.maxWait());
+        var text = new StringBuilder();
+        var promptTokens = new AtomicLong();
+        var resp = http.postStreaming(CallClass.LLM, endpoint("streamGenerateContent", "alt=sse&"), "application/json", body.publisher(), line -> {
+            // Each event is one GenerateContentResponse; the last one carries the usage metadata.
+            if (!line.startsWith("data:")) {
+                return;
+            }
+            var chunk = objectMapper.readTree(line.substring("data:".length()).trim());
+            var tokens = chunk.path("usageMetadata").path("promptTokenCount").asLong(0);
+            if (tokens > 0) {
+                promptTokens.set(tokens);
+            }
+            for (var part : chunk.at("/candidates/0/content/parts")) {
+                var piece = part.path("text").asText("");
+                if (!piece.isEmpty() && !part.path("thought").asBoolean(false)) {
+                    text.append(piece);
+                    onText.accept(piece);
+                }
+            }
+        });
+        checkStatus(resp);
+        rateLimiter.recordSuccess();
+        rateLimiter.settle(reservation, promptTokens.get());
+        if (text.isEmpty()) {
+            throw new IllegalStateException("Gemini returned an empty streamed response.");
+        }
+        cache.put(cacheKey, model, text.toString());
+        return text.toString();
+    }
+
+    private URI endpoint(String method, String query) {
         var key = apiKeyProvider.getGoogleApiKey();
-        var url = URI.create("https://generativelanguage.googleapis.com/v1beta/models/" + model + ":generateContent?key=" + key);
-
-        var parts = new java.util.ArrayList<Map<String, Object>>();
-        parts.add(Map.of("text", prompt));
-        if (images != null) {
-            for (var img : images) {
-                parts.add(Map.of(
-                        "inlineData",
-                        Map.of(
-                                "mimeType", img.mimeType(),
-                                "data", Base64.getEncoder().encodeToString(img.bytes())
-                        )
-                ));
+        return URI.create("https://generativelanguage.googleapis.com/v1beta/models/" + model + ":" + method + "?" + query + "key=" + key);
+    }
+
+    /**
+     * A 429 sets the rate limiter's cool-down and becomes {@link GeminiQuotaException}; other errors fail the call.
+     */
+    private void checkStatus(OutboundHttp.Response resp) throws GeminiQuotaException {
+        if (resp.statusCode() == 429) {
+            var retryDelay = retryDelay(resp.bodyAsString())
+                    .or(() -> HostScheduler.parseRetryAfter(resp.headers().firstValue("Retry-After").orElse(null), Instant.now()));
+            var retryAt = rateLimiter.penalize(retryDelay.orElse(null));
+            throw new GeminiQuotaException("Gemini quota exceeded (HTTP 429), retry at " + retryAt, retryAt);
+        }
+        if (!resp.isSuccess()) {
+            var bodySnippet = resp.bodyAsString();
+            if (bodySnippet.length() > 400) {
+                bodySnippet = bodySnippet.substring(0, 400);
             }
+            throw new IllegalStateException("Gemini error: HTTP " + resp.statusCode() + " body=" + bodySnippet);
         }
+    }
+
+    /**
+     * Sorted, so the cache key built from it does not change between runs.
+     */
+    private static Map<String, Object> generationConfig(int maxOutputTokens) {
+        var config = new TreeMap<String, Object>();
+        config.put("temperature", 0.2);
+        config.put("maxOutputTokens", Math.max(1, maxOutputTokens));
+        return config;
+    }
+
+    private String cacheKey(String prompt, List<InlineImage> images, Map<String, Object> generationConfig) {
+        var digest = BlobStore.newDigest();
+        for (var part : List.of(String.valueOf(model), generationConfig.toString(), String.valueOf(prompt))) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        for (var img : images == null ? List.<InlineImage>of() : images) {
+            digest.update(String.valueOf(img.mimeType()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(img.bytes());
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Optional<Duration> retryDelay(String responseBody) {
+        try {
+            return GeminiRateLimiter.parseRetryInfo(objectMapper.readTree(responseBody));
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
 
-        var body = Map.of(
-                "contents", List.of(Map.of("role", "user", "parts", parts)),
-                "generationConfig", Map.of(
-                        "temperature", 0.2,
-                        "maxOutputTokens", 2048
-                )
-        );
-
-        var json = objectMapper.writeValueAsString(body);
-        var req = HttpRequest.newBuilder(url)
-                .timeout(Duration.ofSeconds(60))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(json))
-                .build();
-
-        return httpClient.sendAsync(req, HttpResponse.BodyHandlers.ofString())
-                .thenApply(resp -> {
-                    if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-                        var bodySnippet = resp.body() == null ? "" : resp.body();
-                        if (bodySnippet.length() > 400) {
-                            bodySnippet = bodySnippet.substring(0, 400);
-                        }
-                        throw new IllegalStateException("Gemini error: HTTP " + resp.statusCode() + " body=" + bodySnippet);
-                    }
-
-                    try {
-                        JsonNode root = objectMapper.readTree(resp.body());
-                        var textNode = root.at("/candidates/0/content/parts/0/text");
-                        if (textNode.isMissingNode() || textNode.asText().isBlank()) {
-                            throw new IllegalStateException("Gemini returned empty response. Body: " + resp.body());
-                        }
-                        return textNode.asText();
-                    } catch (Exception e) {
-                        throw new RuntimeException("Failed to parse Gemini response: " + e.getMessage() + (resp.body() != null ? " Body: " + resp.body() : ""), e);
-                    }
-                }).get();
+    private static long estimateTokens(String prompt, List<InlineImage> images) {
+        var textTokens = TokenEstimator.estimate(prompt);
+        return textTokens + (long) TOKENS_PER_IMAGE * (images == null ? 0 : images.size());
     }
 
     public record InlineImage(String mimeType, byte[] bytes) {}
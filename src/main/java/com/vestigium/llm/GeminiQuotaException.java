@@ -0,0 +1,23 @@
+package com.vestigium.llm;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Thrown when a Gemini call cannot be made within the caller's wait budget, either because the client-side
+ * requests/tokens per minute are used up or because the API answered 429. Jobs are deferred until {@link #getRetryAt()}
+ * instead of spending an attempt.
+ */
+public class GeminiQuotaException extends IOException {
+
+    private final Instant retryAt;
+
+    public GeminiQuotaException(String message, Instant retryAt) {
+        super(message);
+        this.retryAt = retryAt;
+    }
+
+    public Instant getRetryAt() {
+        return retryAt;
+    }
+}
@@ -0,0 +1,216 @@
+package com.vestigium.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Client-side Gemini quota: a requests-per-minute and a tokens-per-minute bucket, both refilled continuously, plus a
+ * cool-down set by 429 responses. Callers wait until both budgets allow their request; when that would take longer
+ * than they can wait they get {@link GeminiQuotaException} with the time the budget is expected back.
+ */
+@Component
+public class GeminiRateLimiter {
+
+    private static final Duration BASE_PENALTY = Duration.ofSeconds(10);
+    private static final Duration MAX_PENALTY = Duration.ofMinutes(10);
+    private static final long MAX_SLEEP_MS = 250;
+    private static final double MINUTE_MS = 60_000.0;
+
+    private final Clock clock;
+    private final int requestsPerMinute;
+    private final long tokensPerMinute;
+    private final Duration maxWait;
+
+    private double requests;
+    private double tokens;
+    private long refilledAt;
+    private long blockedUntil;
+    private int penalties;
+
+    private long granted;
+    private long deferred;
+    private long throttled;
+    private long waitedMs;
+
+    @Autowired
+    public GeminiRateLimiter(
+            @Value("${vestigium.llm.rate.requests-per-minute:10}") int requestsPerMinute,
+            @Value("${vestigium.llm.rate.tokens-per-minute:250000}") long tokensPerMinute,
+            @Value("${vestigium.llm.rate.max-wait-ms:30000}") long maxWaitMs
+    ) {
+        this(Clock.systemUTC(), requestsPerMinute, tokensPerMinute, Duration.ofMillis(maxWaitMs));
+    }
+
+    GeminiRateLimiter(Clock clock, int requestsPerMinute, long tokensPerMinute, Duration maxWait) {
+        this.clock = clock;
+        this.requestsPerMinute = Math.max(1, requestsPerMinute);
+        this.tokensPerMinute = Math.max(1, tokensPerMinute);
+        this.maxWait = maxWait;
+        this.requests = this.requestsPerMinute;
+        this.tokens = this.tokensPerMinute;
+        this.refilledAt = clock.millis();
+    }
+
+    /**
+     * How long {@link GeminiClient} waits for budget before giving up with {@link GeminiQuotaException}.
+     */
+    public Duration maxWait() {
+        return maxWait;
+    }
+
+    /**
+     * Takes one request and {@code estimatedTokens} from the buckets, waiting up to {@code maxWait} for them. An
+     * estimate above the per-minute limit is capped to it, so an oversized prompt still goes out once the bucket is
+     * full.
+     */
+    public Reservation acquire(long estimatedTokens, Duration maxWait) throws GeminiQuotaException, InterruptedException {
+        var cost = Math.min(Math.max(0, estimatedTokens), tokensPerMinute);
+        var started = clock.millis();
+        var deadline = started + maxWait.toMillis();
+        while (true) {
+            long waitMs;
+            synchronized (this) {
+                var now = clock.millis();
+                refill(now);
+                waitMs = waitMillis(now, cost);
+                if (waitMs == 0) {
+                    requests -= 1;
+                    tokens -= cost;
+                    granted++;
+                    waitedMs += now - started;
+                    return new Reservation(cost);
+                }
+                if (now + waitMs > deadline) {
+                    deferred++;
+                    var readyAt = Instant.ofEpochMilli(now + waitMs);
+                    throw new GeminiQuotaException("Gemini rate limit reached, budget available at " + readyAt, readyAt);
+                }
+            }
+            Thread.sleep(Math.max(1, Math.min(waitMs, MAX_SLEEP_MS)));
+        }
+    }
+
+    /**
+     * Replaces the estimate of {@code reservation} with the token count the API reported. The bucket may go below
+     * zero when the estimate was low; later requests then wait for it to refill.
+     */
+    public synchronized void settle(Reservation reservation, long actualTokens) {
+        if (actualTokens <= 0) {
+            return;
+        }
+        refill(clock.millis());
+        tokens = Math.min(tokensPerMinute, tokens + reservation.tokens() - actualTokens);
+    }
+
+    /**
+     * Records a 429. {@code retryDelay} comes from the response; without it the cool-down doubles with each
+     * consecutive 429. Returns when requests may resume.
+     */
+    public synchronized Instant penalize(Duration retryDelay) {
+        penalties = Math.min(penalties + 1, 16);
+        throttled++;
+        var delay = retryDelay != null && !retryDelay.isNegative()
+                ? retryDelay
+                : BASE_PENALTY.multipliedBy(1L << Math.min(penalties - 1, 6));
+        if (delay.compareTo(MAX_PENALTY) > 0) {
+            delay = MAX_PENALTY;
+        }
+        var now = clock.millis();
+        refill(now);
+        blockedUntil = Math.max(blockedUntil, now + delay.toMillis());
+        // The server disagrees with our count; resume at a steady pace rather than with a burst.
+        requests = Math.min(requests, 0);
+        return Instant.ofEpochMilli(blockedUntil);
+    }
+
+    public synchronized void recordSuccess() {
+        penalties = 0;
+    }
+
+    public synchronized Budget snapshot() {
+        var now = clock.millis();
+        refill(now);
+        return new Budget(
+                requestsPerMinute,
+                (int) Math.max(0, Math.floor(requests)),
+                tokensPerMinute,
+                (long) Math.max(0, Math.floor(tokens)),
+                blockedUntil > now ? Instant.ofEpochMilli(blockedUntil).toString() : null,
+                granted,
+                deferred,
+                throttled,
+                waitedMs
+        );
+    }
+
+    /**
+     * Reads {@code google.rpc.RetryInfo.retryDelay} (e.g. {@code "37s"} or {@code "1.5s"}) from a Gemini error body.
+     */
+    public static Optional<Duration> parseRetryInfo(JsonNode errorBody) {
+        if (errorBody == null) {
+            return Optional.empty();
+        }
+        for (var detail : errorBody.path("error").path("details")) {
+            if (!detail.path("@type").asText("").endsWith("google.rpc.RetryInfo")) {
+                continue;
+            }
+            var value = detail.path("retryDelay").asText("").trim();
+            if (!value.endsWith("s")) {
+                return Optional.empty();
+            }
+            try {
+                var millis = new BigDecimal(value.substring(0, value.length() - 1)).movePointRight(3).longValue();
+                return Optional.of(Duration.ofMillis(Math.max(0, millis)));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void refill(long now) {
+        var elapsed = now - refilledAt;
+        if (elapsed <= 0) {
+            return;
+        }
+        requests = Math.min(requestsPerMinute, requests + elapsed * requestsPerMinute / MINUTE_MS);
+        tokens = Math.min(tokensPerMinute, tokens + elapsed * tokensPerMinute / MINUTE_MS);
+        refilledAt = now;
+    }
+
+    private long waitMillis(long now, long cost) {
+        var wait = Math.max(0, blockedUntil - now);
+        if (requests < 1) {
+            wait = Math.max(wait, (long) Math.ceil((1 - requests) * MINUTE_MS / requestsPerMinute));
+        }
+        if (tokens < cost) {
+            wait = Math.max(wait, (long) Math.ceil((cost - tokens) * MINUTE_MS / tokensPerMinute));
+        }
+        return wait;
+    }
+
+    public record Reservation(long tokens) {}
+
+    /**
+     * Remaining budget right now and counters since startup: requests let through, requests that gave up waiting
+     * (deferred jobs), 429s received and total time spent waiting for budget.
+     */
+    public record Budget(
+            int requestsPerMinute,
+            int requestsRemaining,
+            long tokensPerMinute,
+            long tokensRemaining,
+            String blockedUntil,
+            long granted,
+            long deferred,
+            long throttled,
+            long waitedMs
+    ) {}
+}
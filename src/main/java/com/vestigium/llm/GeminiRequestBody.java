@@ -0,0 +1,99 @@
+package com.vestigium.llm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams a generateContent request body. The JSON around the images is small and built up front; image data is
+ * Base64-encoded chunk by chunk while the request is being sent, so the encoded images never exist as one string.
+ * Iterating again (a retry) starts from the beginning.
+ */
+final class GeminiRequestBody implements Iterable<byte[]> {
+
+    /** Multiple of 3 so chunks encode without padding in the middle of the data. */
+    private static final int CHUNK_BYTES = 48 * 1024;
+
+    private final List<byte[]> json;
+    private final List<GeminiClient.InlineImage> images;
+
+    private GeminiRequestBody(List<byte[]> json, List<GeminiClient.InlineImage> images) {
+        this.json = json;
+        this.images = images;
+    }
+
+    static GeminiRequestBody of(
+            ObjectMapper objectMapper,
+            String prompt,
+            List<GeminiClient.InlineImage> images,
+            Map<String, Object> generationConfig
+    ) throws JsonProcessingException {
+        var safeImages = images == null ? List.<GeminiClient.InlineImage>of() : images;
+        // json[i] precedes image i; the last element closes the document.
+        var json = new ArrayList<byte[]>();
+        var head = new StringBuilder("{\"contents\":[{\"role\":\"user\",\"parts\":[{\"text\":")
+                .append(objectMapper.writeValueAsString(prompt))
+                .append('}');
+        for (var img : safeImages) {
+            head.append(",{\"inlineData\":{\"mimeType\":")
+                    .append(objectMapper.writeValueAsString(img.mimeType()))
+                    .append(",\"data\":\"");
+            json.add(head.toString().getBytes(StandardCharsets.UTF_8));
+            head = new StringBuilder("\"}}");
+        }
+        head.append("]}],\"generationConfig\":")
+                .append(objectMapper.writeValueAsString(generationConfig))
+                .append('}');
+        json.add(head.toString().getBytes(StandardCharsets.UTF_8));
+        return new GeminiRequestBody(json, safeImages);
+    }
+
+    HttpRequest.BodyPublisher publisher() {
+        return HttpRequest.BodyPublishers.ofByteArrays(this);
+    }
+
+    @Override
+    public Iterator<byte[]> iterator() {
+        return new Iterator<>() {
+            private int part;
+            private int offset = -1;
+
+            @Override
+            public boolean hasNext() {
+                return part < json.size();
+            }
+
+            @Override
+            public byte[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (offset < 0) {
+                    offset = 0;
+                    var chunk = json.get(part);
+                    if (part == images.size()) {
+                        part++;
+                    }
+                    return chunk;
+                }
+                var data = images.get(part).bytes();
+                var end = Math.min(data.length, offset + CHUNK_BYTES);
+                var encoded = Base64.getEncoder().encode(Arrays.copyOfRange(data, offset, end));
+                offset = end;
+                if (offset >= data.length) {
+                    part++;
+                    offset = -1;
+                }
+                return encoded;
+            }
+        };
+    }
+}
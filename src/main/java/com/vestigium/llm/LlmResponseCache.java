@@ -0,0 +1,107 @@
+package com.vestigium.llm;
+
+import com.vestigium.persistence.LlmCacheRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persistent model answers for {@link GeminiClient}, keyed by a hash of everything that determines the answer. Entries
+ * expire after {@code ttl-hours}; past {@code max-entries} or {@code max-bytes} the least recently used go first. A
+ * cache failure is logged and treated as a miss, never as a failed call.
+ */
+@Component
+public class LlmResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    private final LlmCacheRepository repository;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public LlmResponseCache(
+            LlmCacheRepository repository,
+            @Value("${vestigium.llm.cache.enabled:true}") boolean enabled,
+            @Value("${vestigium.llm.cache.ttl-hours:720}") long ttlHours,
+            @Value("${vestigium.llm.cache.max-entries:5000}") int maxEntries,
+            @Value("${vestigium.llm.cache.max-bytes:67108864}") long maxBytes
+    ) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.ttl = Duration.ofHours(Math.max(0, ttlHours));
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The stored answer for {@code key}; empty when missing, expired, disabled or {@code bypass} is set.
+     */
+    public Optional<String> get(String key, boolean bypass) {
+        if (!enabled || bypass) {
+            bypassed.incrementAndGet();
+            return Optional.empty();
+        }
+        try {
+            var found = repository.find(key, notBefore());
+            (found.isPresent() ? hits : misses).incrementAndGet();
+            return found;
+        } catch (DataAccessException e) {
+            log.warn("LLM cache lookup failed: {}", e.getMessage());
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores an answer (also after a bypassed lookup, so the fresh answer replaces the old one) and trims the cache.
+     */
+    public void put(String key, String model, String responseText) {
+        if (!enabled || responseText == null) {
+            return;
+        }
+        try {
+            repository.put(key, model, responseText);
+            stored.incrementAndGet();
+            evicted.addAndGet(repository.trim(notBefore(), maxEntries, maxBytes));
+        } catch (DataAccessException e) {
+            log.warn("LLM cache store failed: {}", e.getMessage());
+        }
+    }
+
+    public Stats stats() {
+        var totals = repository.totals();
+        return new Stats(enabled, hits.get(), misses.get(), bypassed.get(), stored.get(), evicted.get(), totals.entries(), totals.bytes());
+    }
+
+    private String notBefore() {
+        return Instant.now().minus(ttl).toString();
+    }
+
+    /**
+     * Counters since startup plus the current size of the cache.
+     */
+    public record Stats(
+            boolean enabled,
+            long hits,
+            long misses,
+            long bypassed,
+            long stored,
+            long evicted,
+            long entries,
+            long bytes
+    ) {}
+}
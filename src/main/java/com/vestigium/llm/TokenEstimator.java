@@ -0,0 +1,32 @@
+package com.vestigium.llm;
+
+/**
+ * Cheap local token count for prompt budgeting, close enough to the model tokenizer to size prompts without a round
+ * trip: about four characters per token for Latin script, two for other alphabets (Greek, Cyrillic, Arabic, ...) and
+ * one per character for CJK and everything else. Also what {@link GeminiClient} reserves against the rate limit.
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {}
+
+    public static int estimate(CharSequence text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        long latin = 0;
+        long alphabetic = 0;
+        long other = 0;
+        for (int i = 0; i < text.length(); ) {
+            int cp = Character.codePointAt(text, i);
+            i += Character.charCount(cp);
+            if (cp < 0x0250 || Character.isWhitespace(cp)) {
+                latin++;
+            } else if (cp < 0x2E80) {
+                alphabetic++;
+            } else {
+                other++;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (latin + 3) / 4 + (alphabetic + 1) / 2 + other);
+    }
+}
@@ -0,0 +1,159 @@
+package com.vestigium.persistence;
+
+import com.vestigium.domain.AttachmentArtifact;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class AttachmentArtifactRepository {
+
+    private static final RowMapper<AttachmentArtifact> ARTIFACT_ROW_MAPPER = new AttachmentArtifactRowMapper();
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public AttachmentArtifactRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public Optional<AttachmentArtifact> find(String attachmentId) {
+        var rows = jdbc.query(
+                """
+                SELECT attachment_id, pdf_text, pdf_max_chars, pdf_pages_read, pdf_page_count, pdf_truncated,
+                       content_hash, image_width, image_height, derivative_path, derivative_blob_hash, derivative_spec,
+                       thumbnail_path, thumbnail_blob_hash, preprocessed_at, updated_at
+                FROM attachment_artifacts
+                WHERE attachment_id = :attachmentId
+                """,
+                Map.of("attachmentId", attachmentId),
+                ARTIFACT_ROW_MAPPER
+        );
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.getFirst());
+    }
+
+    public void savePdfText(String attachmentId, String text, int maxChars, int pagesRead, int pageCount, boolean truncated) {
+        jdbc.update(
+                """
+                INSERT INTO attachment_artifacts (attachment_id, pdf_text, pdf_max_chars, pdf_pages_read, pdf_page_count, pdf_truncated, updated_at)
+                VALUES (:attachmentId, :text, :maxChars, :pagesRead, :pageCount, :truncated, :now)
+                ON CONFLICT(attachment_id) DO UPDATE SET
+                  pdf_text = excluded.pdf_text,
+                  pdf_max_chars = excluded.pdf_max_chars,
+                  pdf_pages_read = excluded.pdf_pages_read,
+                  pdf_page_count = excluded.pdf_page_count,
+                  pdf_truncated = excluded.pdf_truncated,
+                  updated_at = excluded.updated_at
+                """,
+                Map.of(
+                        "attachmentId", attachmentId,
+                        "text", text,
+                        "maxChars", maxChars,
+                        "pagesRead", pagesRead,
+                        "pageCount", pageCount,
+                        "truncated", truncated ? 1 : 0,
+                        "now", InstantSql.nowIso()
+                )
+        );
+    }
+
+    /**
+     * Stores image artifacts. The caller hands over one reference for each blob hash and releases the ones this row
+     * held before.
+     */
+    public void saveImageArtifacts(
+            String attachmentId,
+            String contentHash,
+            int width,
+            int height,
+            String derivativePath,
+            String derivativeBlobHash,
+            String derivativeSpec,
+            String thumbnailPath,
+            String thumbnailBlobHash
+    ) {
+        var params = new HashMap<String, Object>();
+        params.put("attachmentId", attachmentId);
+        params.put("contentHash", contentHash);
+        params.put("width", width);
+        params.put("height", height);
+        params.put("derivativePath", derivativePath);
+        params.put("derivativeBlobHash", derivativeBlobHash);
+        params.put("derivativeSpec", derivativeSpec);
+        params.put("thumbnailPath", thumbnailPath);
+        params.put("thumbnailBlobHash", thumbnailBlobHash);
+        params.put("now", InstantSql.nowIso());
+        jdbc.update(
+                """
+                INSERT INTO attachment_artifacts (attachment_id, content_hash, image_width, image_height, derivative_path,
+                                                  derivative_blob_hash, derivative_spec, thumbnail_path, thumbnail_blob_hash,
+                                                  preprocessed_at, updated_at)
+                VALUES (:attachmentId, :contentHash, :width, :height, :derivativePath,
+                        :derivativeBlobHash, :derivativeSpec, :thumbnailPath, :thumbnailBlobHash, :now, :now)
+                ON CONFLICT(attachment_id) DO UPDATE SET
+                  content_hash = excluded.content_hash,
+                  image_width = excluded.image_width,
+                  image_height = excluded.image_height,
+                  derivative_path = excluded.derivative_path,
+                  derivative_blob_hash = excluded.derivative_blob_hash,
+                  derivative_spec = excluded.derivative_spec,
+                  thumbnail_path = excluded.thumbnail_path,
+                  thumbnail_blob_hash = excluded.thumbnail_blob_hash,
+                  preprocessed_at = excluded.preprocessed_at,
+                  updated_at = excluded.updated_at
+                """,
+                params
+        );
+    }
+
+    public void markPreprocessed(String attachmentId, String contentHash) {
+        var params = new HashMap<String, Object>();
+        params.put("attachmentId", attachmentId);
+        params.put("contentHash", contentHash);
+        params.put("now", InstantSql.nowIso());
+        jdbc.update(
+                """
+                INSERT INTO attachment_artifacts (attachment_id, content_hash, preprocessed_at, updated_at)
+                VALUES (:attachmentId, :contentHash, :now, :now)
+                ON CONFLICT(attachment_id) DO UPDATE SET
+                  content_hash = excluded.content_hash,
+                  preprocessed_at = excluded.preprocessed_at,
+                  updated_at = excluded.updated_at
+                """,
+                params
+        );
+    }
+
+    private static final class AttachmentArtifactRowMapper implements RowMapper<AttachmentArtifact> {
+        @Override
+        public AttachmentArtifact mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new AttachmentArtifact(
+                    rs.getString("attachment_id"),
+                    rs.getString("pdf_text"),
+                    nullableInt(rs, "pdf_max_chars"),
+                    nullableInt(rs, "pdf_pages_read"),
+                    nullableInt(rs, "pdf_page_count"),
+                    rs.getInt("pdf_truncated") != 0,
+                    rs.getString("content_hash"),
+                    nullableInt(rs, "image_width"),
+                    nullableInt(rs, "image_height"),
+                    rs.getString("derivative_path"),
+                    rs.getString("derivative_blob_hash"),
+                    rs.getString("derivative_spec"),
+                    rs.getString("thumbnail_path"),
+                    rs.getString("thumbnail_blob_hash"),
+                    rs.getString("preprocessed_at"),
+                    rs.getString("updated_at")
+            );
+        }
+
+        private static Integer nullableInt(ResultSet rs, String column) throws SQLException {
+            var value = rs.getInt(column);
+            return rs.wasNull() ? null : value;
+        }
+    }
+}
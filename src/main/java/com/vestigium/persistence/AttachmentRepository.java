@@ -3,6 +3,7 @@ package com.vestigium.persistence;
 import com.vestigium.domain.Attachment;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -28,32 +29,48 @@ public class AttachmentRepository {
             String mimeType,
             long sizeBytes,
             String storagePath
+    ) {
+        return create(entryId, kind, originalName, mimeType, sizeBytes, storagePath, null);
+    }
+
+    /**
+     * Creates an attachment backed by a blob. The caller hands over the blob reference it acquired.
+     */
+    public Attachment create(
+            String entryId,
+            String kind,
+            String originalName,
+            String mimeType,
+            long sizeBytes,
+            String storagePath,
+            String blobHash
     ) {
         var id = UUID.randomUUID().toString();
         var createdAt = InstantSql.nowIso();
+        var params = new HashMap<String, Object>();
+        params.put("id", id);
+        params.put("entryId", entryId);
+        params.put("kind", kind);
+        params.put("originalName", originalName);
+        params.put("mimeType", mimeType);
+        params.put("sizeBytes", sizeBytes);
+        params.put("storagePath", storagePath);
+        params.put("blobHash", blobHash);
+        params.put("createdAt", createdAt);
         jdbc.update(
                 """
-                INSERT INTO attachments (id, entry_id, kind, original_name, mime_type, size_bytes, storage_path, created_at)
-                VALUES (:id, :entryId, :kind, :originalName, :mimeType, :sizeBytes, :storagePath, :createdAt)
+                INSERT INTO attachments (id, entry_id, kind, original_name, mime_type, size_bytes, storage_path, blob_hash, created_at)
+                VALUES (:id, :entryId, :kind, :originalName, :mimeType, :sizeBytes, :storagePath, :blobHash, :createdAt)
                 """,
-                Map.of(
-                        "id", id,
-                        "entryId", entryId,
-                        "kind", kind,
-                        "originalName", originalName,
-                        "mimeType", mimeType,
-                        "sizeBytes", sizeBytes,
-                        "storagePath", storagePath,
-                        "createdAt", createdAt
-                )
+                params
         );
-        return new Attachment(id, entryId, kind, originalName, mimeType, sizeBytes, storagePath, createdAt);
+        return new Attachment(id, entryId, kind, originalName, mimeType, sizeBytes, storagePath, createdAt, blobHash);
     }
 
     public List<Attachment> listForEntry(String entryId) {
         return jdbc.query(
                 """
-                SELECT id, entry_id, kind, original_name, mime_type, size_bytes, storage_path, created_at
+                SELECT id, entry_id, kind, original_name, mime_type, size_bytes, storage_path, created_at, blob_hash
                 FROM attachments
                 WHERE entry_id = :entryId
                 ORDER BY created_at ASC
@@ -66,7 +83,7 @@ public class AttachmentRepository {
     public java.util.Optional<Attachment> getById(String id) {
         var rows = jdbc.query(
                 """
-                SELECT id, entry_id, kind, original_name, mime_type, size_bytes, storage_path, created_at
+                SELECT id, entry_id, kind, original_name, mime_type, size_bytes, storage_path, created_at, blob_hash
                 FROM attachments
                 WHERE id = :id
                 """,
@@ -76,6 +93,28 @@ public class AttachmentRepository {
         return rows.isEmpty() ? java.util.Optional.empty() : java.util.Optional.of(rows.getFirst());
     }
 
+    /**
+     * Attachments written before uploads moved into the blob store.
+     */
+    public List<Attachment> listWithoutBlob() {
+        return jdbc.query(
+                """
+                SELECT id, entry_id, kind, original_name, mime_type, size_bytes, storage_path, created_at, blob_hash
+                FROM attachments
+                WHERE blob_hash IS NULL
+                """,
+                Map.of(),
+                ATTACHMENT_ROW_MAPPER
+        );
+    }
+
+    public void updateBlob(String id, String storagePath, String blobHash) {
+        jdbc.update(
+                "UPDATE attachments SET storage_path = :storagePath, blob_hash = :blobHash WHERE id = :id",
+                Map.of("id", id, "storagePath", storagePath, "blobHash", blobHash)
+        );
+    }
+
     private static final class AttachmentRowMapper implements RowMapper<Attachment> {
         @Override
         public Attachment mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -87,7 +126,8 @@ public class AttachmentRepository {
                     rs.getString("mime_type"),
                     rs.getLong("size_bytes"),
                     rs.getString("storage_path"),
-                    rs.getString("created_at")
+                    rs.getString("created_at"),
+                    rs.getString("blob_hash")
             );
         }
     }
@@ -0,0 +1,127 @@
+package com.vestigium.persistence;
+
+import com.vestigium.domain.Blob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Metadata for content-addressed blobs. {@code ref_count} is the number of rows (attachments, thumbnails, ...)
+ * pointing at a blob; the file is removed when it drops to zero.
+ */
+@Repository
+public class BlobRepository {
+
+    private static final RowMapper<Blob> BLOB_ROW_MAPPER = new BlobRowMapper();
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public BlobRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public Optional<Blob> find(String hash) {
+        var rows = jdbc.query(
+                """
+                SELECT hash, size_bytes, mime_type, storage_path, ref_count, created_at
+                FROM blobs
+                WHERE hash = :hash
+                """,
+                Map.of("hash", hash),
+                BLOB_ROW_MAPPER
+        );
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.getFirst());
+    }
+
+    /**
+     * Inserts a new blob holding one reference.
+     */
+    public Blob insert(String hash, long sizeBytes, String mimeType, String storagePath) {
+        var now = InstantSql.nowIso();
+        jdbc.update(
+                """
+                INSERT INTO blobs (hash, size_bytes, mime_type, storage_path, ref_count, created_at, updated_at)
+                VALUES (:hash, :sizeBytes, :mimeType, :storagePath, 1, :now, :now)
+                """,
+                Map.of(
+                        "hash", hash,
+                        "sizeBytes", sizeBytes,
+                        "mimeType", mimeType,
+                        "storagePath", storagePath,
+                        "now", now
+                )
+        );
+        return new Blob(hash, sizeBytes, mimeType, storagePath, 1, now);
+    }
+
+    /**
+     * Adds a reference. Returns false if the blob does not exist.
+     */
+    public boolean incrementRef(String hash) {
+        return jdbc.update(
+                "UPDATE blobs SET ref_count = ref_count + 1, updated_at = :now WHERE hash = :hash",
+                Map.of("hash", hash, "now", InstantSql.nowIso())
+        ) > 0;
+    }
+
+    /**
+     * Drops a reference and returns the remaining count (empty if the blob does not exist).
+     */
+    public Optional<Integer> decrementRef(String hash) {
+        var rows = jdbc.query(
+                """
+                UPDATE blobs
+                SET ref_count = MAX(ref_count - 1, 0), updated_at = :now
+                WHERE hash = :hash
+                RETURNING ref_count
+                """,
+                Map.of("hash", hash, "now", InstantSql.nowIso()),
+                (rs, rowNum) -> rs.getInt("ref_count")
+        );
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.getFirst());
+    }
+
+    public int deleteIfUnreferenced(String hash) {
+        return jdbc.update("DELETE FROM blobs WHERE hash = :hash AND ref_count <= 0", Map.of("hash", hash));
+    }
+
+    /**
+     * Blob hashes referenced by an entry's rows, one element per reference (duplicates are intentional).
+     */
+    public List<String> listRefsForEntry(String entryId) {
+        return jdbc.query(
+                """
+                SELECT blob_hash FROM attachments WHERE entry_id = :entryId AND blob_hash IS NOT NULL
+                UNION ALL
+                SELECT blob_hash FROM entry_thumbnails WHERE entry_id = :entryId AND blob_hash IS NOT NULL
+                UNION ALL
+                SELECT aa.derivative_blob_hash FROM attachment_artifacts aa JOIN attachments a ON a.id = aa.attachment_id
+                WHERE a.entry_id = :entryId AND aa.derivative_blob_hash IS NOT NULL
+                UNION ALL
+                SELECT aa.thumbnail_blob_hash FROM attachment_artifacts aa JOIN attachments a ON a.id = aa.attachment_id
+                WHERE a.entry_id = :entryId AND aa.thumbnail_blob_hash IS NOT NULL
+                """,
+                Map.of("entryId", entryId),
+                (rs, rowNum) -> rs.getString("blob_hash")
+        );
+    }
+
+    private static final class BlobRowMapper implements RowMapper<Blob> {
+        @Override
+        public Blob mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new Blob(
+                    rs.getString("hash"),
+                    rs.getLong("size_bytes"),
+                    rs.getString("mime_type"),
+                    rs.getString("storage_path"),
+                    rs.getInt("ref_count"),
+                    rs.getString("created_at")
+            );
+        }
+    }
+}
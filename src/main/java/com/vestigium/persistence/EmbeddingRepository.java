@@ -0,0 +1,117 @@
+package com.vestigium.persistence;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class EmbeddingRepository {
+
+    private static final String TAG_SEPARATOR = "\u001f";
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public EmbeddingRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Entries with no embedding from {@code model}, or changed since theirs was last checked; most recently changed
+     * first. {@code contentHash} is that of the stored embedding, null when there is none for this model.
+     */
+    public List<StaleEntry> listStale(String model, int limit) {
+        return jdbc.query(
+                """
+                SELECT e.id, e.title, e.description, e.updated_at, ee.content_hash,
+                       (SELECT group_concat(t.name, char(31))
+                        FROM entry_tags et
+                        JOIN tags t ON t.id = et.tag_id
+                        WHERE et.entry_id = e.id) AS tag_names
+                FROM entries e
+                LEFT JOIN entry_embeddings ee ON ee.entry_id = e.id AND ee.model = :model
+                WHERE ee.entry_id IS NULL OR ee.source_updated_at <> e.updated_at
+                ORDER BY e.updated_at DESC
+                LIMIT :limit
+                """,
+                Map.of("model", model, "limit", Math.max(1, limit)),
+                (rs, rowNum) -> {
+                    var tagNames = rs.getString("tag_names");
+                    return new StaleEntry(
+                            rs.getString("id"),
+                            rs.getString("title"),
+                            rs.getString("description"),
+                            tagNames == null ? List.of() : Arrays.asList(tagNames.split(TAG_SEPARATOR)),
+                            rs.getString("updated_at"),
+                            rs.getString("content_hash")
+                    );
+                }
+        );
+    }
+
+    public void upsert(String entryId, String model, String contentHash, byte[] vector, String sourceUpdatedAt) {
+        var params = new HashMap<String, Object>();
+        params.put("entryId", entryId);
+        params.put("model", model);
+        params.put("contentHash", contentHash);
+        params.put("vector", vector);
+        params.put("sourceUpdatedAt", sourceUpdatedAt);
+        params.put("now", InstantSql.nowIso());
+        jdbc.update(
+                """
+                INSERT INTO entry_embeddings (entry_id, model, content_hash, vector, source_updated_at, updated_at)
+                VALUES (:entryId, :model, :contentHash, :vector, :sourceUpdatedAt, :now)
+                ON CONFLICT(entry_id) DO UPDATE SET
+                  model = excluded.model,
+                  content_hash = excluded.content_hash,
+                  vector = excluded.vector,
+                  source_updated_at = excluded.source_updated_at,
+                  updated_at = excluded.updated_at
+                """,
+                params
+        );
+    }
+
+    /**
+     * Records that the entry changed without changing the embedded text (a visit, for example).
+     */
+    public void markChecked(String entryId, String sourceUpdatedAt) {
+        jdbc.update(
+                "UPDATE entry_embeddings SET source_updated_at = :sourceUpdatedAt WHERE entry_id = :entryId",
+                Map.of("entryId", entryId, "sourceUpdatedAt", sourceUpdatedAt)
+        );
+    }
+
+    /**
+     * Streams every stored vector of {@code model} without collecting them into a list.
+     */
+    public void forEachVector(String model, BiConsumer<String, byte[]> consumer) {
+        jdbc.query(
+                "SELECT entry_id, vector FROM entry_embeddings WHERE model = :model",
+                Map.of("model", model),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getString("entry_id"), rs.getBytes("vector"))
+        );
+    }
+
+    public long count(String model) {
+        var count = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM entry_embeddings WHERE model = :model",
+                Map.of("model", model),
+                Long.class
+        );
+        return count == null ? 0 : count;
+    }
+
+    public record StaleEntry(
+            String id,
+            String title,
+            String description,
+            List<String> tags,
+            String updatedAt,
+            String contentHash
+    ) {}
+}
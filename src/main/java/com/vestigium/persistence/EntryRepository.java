@@ -5,18 +5,25 @@ import com.vestigium.service.NsfwConfigService;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class EntryRepository {
 
+    private static final int URL_LOOKUP_CHUNK = 500;
+
     private static final RowMapper<EntryRow> ENTRY_ROW_MAPPER = new EntryRowMapper();
 
     private final NamedParameterJdbcTemplate jdbc;
@@ -27,12 +34,13 @@ public class EntryRepository {
         this.nsfwConfig = nsfwConfig;
     }
 
-    public Entry create(String url, String title, String description, String manualThumbnailUrl, boolean important) {
+    public Entry create(String url, String canonicalUrl, String title, String description, String manualThumbnailUrl, boolean important) {
         var id = UUID.randomUUID().toString();
         var now = InstantSql.nowIso();
         var params = new HashMap<String, Object>();
         params.put("id", id);
         params.put("url", url);
+        params.put("canonicalUrl", canonicalUrl == null ? url : canonicalUrl);
         params.put("title", title);
         params.put("description", description);
         params.put("manualThumbnailUrl", manualThumbnailUrl);
@@ -41,20 +49,21 @@ public class EntryRepository {
         params.put("updatedAt", now);
         jdbc.update(
                 """
-                INSERT INTO entries (id, url, title, description, detailed_description, thumbnail_path, visited_at, important, created_at, updated_at, manual_thumbnail_url)
-                VALUES (:id, :url, :title, :description, NULL, NULL, NULL, :important, :createdAt, :updatedAt, :manualThumbnailUrl)
+                INSERT INTO entries (id, url, canonical_url, title, description, detailed_description, thumbnail_path, visited_at, important, created_at, updated_at, manual_thumbnail_url)
+                VALUES (:id, :url, :canonicalUrl, :title, :description, NULL, NULL, NULL, :important, :createdAt, :updatedAt, :manualThumbnailUrl)
                 """,
                 params
         );
         return getById(id).orElseThrow();
     }
 
-    public Entry createWithTimestamps(String url, String title, String description, String manualThumbnailUrl, boolean important, String createdAt, String updatedAt) {
+    public Entry createWithTimestamps(String url, String canonicalUrl, String title, String description, String manualThumbnailUrl, boolean important, String createdAt, String updatedAt) {
         var id = UUID.randomUUID().toString();
         var now = InstantSql.nowIso();
         var params = new HashMap<String, Object>();
         params.put("id", id);
         params.put("url", url);
+        params.put("canonicalUrl", canonicalUrl == null ? url : canonicalUrl);
         params.put("title", title);
         params.put("description", description);
         params.put("manualThumbnailUrl", manualThumbnailUrl);
@@ -63,14 +72,114 @@ public class EntryRepository {
         params.put("updatedAt", updatedAt == null || updatedAt.isBlank() ? now : updatedAt.trim());
         jdbc.update(
                 """
-                INSERT INTO entries (id, url, title, description, detailed_description, thumbnail_path, visited_at, important, created_at, updated_at, manual_thumbnail_url)
-                VALUES (:id, :url, :title, :description, NULL, NULL, NULL, :important, :createdAt, :updatedAt, :manualThumbnailUrl)
+                INSERT INTO entries (id, url, canonical_url, title, description, detailed_description, thumbnail_path, visited_at, important, created_at, updated_at, manual_thumbnail_url)
+                VALUES (:id, :url, :canonicalUrl, :title, :description, NULL, NULL, NULL, :important, :createdAt, :updatedAt, :manualThumbnailUrl)
                 """,
                 params
         );
         return getById(id).orElseThrow();
     }
 
+    public record NewEntry(String url, String canonicalUrl, String title) {}
+
+    /**
+     * Inserts many URL-only entries with one batched statement. URLs that already exist are ignored; returns the
+     * ids of the rows actually inserted, keyed by URL.
+     */
+    public Map<String, String> batchCreate(List<NewEntry> items) {
+        var out = new LinkedHashMap<String, String>();
+        if (items == null || items.isEmpty()) {
+            return out;
+        }
+        var now = InstantSql.nowIso();
+        var ids = new ArrayList<String>(items.size());
+        var batch = new MapSqlParameterSource[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            var item = items.get(i);
+            var id = UUID.randomUUID().toString();
+            ids.add(id);
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("id", id)
+                    .addValue("url", item.url())
+                    .addValue("canonicalUrl", item.canonicalUrl() == null ? item.url() : item.canonicalUrl())
+                    .addValue("title", item.title())
+                    .addValue("createdAt", now)
+                    .addValue("updatedAt", now);
+        }
+        var counts = jdbc.batchUpdate(
+                """
+                INSERT OR IGNORE INTO entries (id, url, canonical_url, title, description, detailed_description, thumbnail_path, visited_at, important, created_at, updated_at, manual_thumbnail_url)
+                VALUES (:id, :url, :canonicalUrl, :title, NULL, NULL, NULL, NULL, 0, :createdAt, :updatedAt, NULL)
+                """,
+                batch
+        );
+        for (int i = 0; i < items.size(); i++) {
+            if (counts[i] > 0) {
+                out.put(items.get(i).url(), ids.get(i));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns which of the given URLs already exist, in as few queries as SQLite's parameter limit allows.
+     */
+    public Set<String> findExistingUrls(Collection<String> urls) {
+        return findExisting("SELECT url FROM entries WHERE url IN (:urls)", urls);
+    }
+
+    /**
+     * Returns which of the given canonical URLs already belong to an entry.
+     */
+    public Set<String> findExistingCanonicalUrls(Collection<String> canonicalUrls) {
+        return findExisting("SELECT canonical_url FROM entries WHERE canonical_url IN (:urls)", canonicalUrls);
+    }
+
+    private Set<String> findExisting(String sql, Collection<String> urls) {
+        var out = new HashSet<String>();
+        if (urls == null || urls.isEmpty()) {
+            return out;
+        }
+        var list = new ArrayList<>(urls);
+        for (int i = 0; i < list.size(); i += URL_LOOKUP_CHUNK) {
+            var chunk = list.subList(i, Math.min(list.size(), i + URL_LOOKUP_CHUNK));
+            out.addAll(jdbc.queryForList(sql, Map.of("urls", chunk), String.class));
+        }
+        return out;
+    }
+
+    public void updateCanonicalUrl(String id, String canonicalUrl) {
+        jdbc.update(
+                "UPDATE entries SET canonical_url = :canonicalUrl WHERE id = :id",
+                Map.of("id", id, "canonicalUrl", canonicalUrl)
+        );
+    }
+
+    public void updateCanonicalUrls(Map<String, String> canonicalUrlByEntryId) {
+        if (canonicalUrlByEntryId == null || canonicalUrlByEntryId.isEmpty()) {
+            return;
+        }
+        var batch = canonicalUrlByEntryId.entrySet().stream()
+                .map(e -> new MapSqlParameterSource().addValue("id", e.getKey()).addValue("canonicalUrl", e.getValue()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbc.batchUpdate("UPDATE entries SET canonical_url = :canonicalUrl WHERE id = :id", batch);
+    }
+
+    /**
+     * Up to {@code limit} entries created before canonical URLs were recorded, as entry id to URL.
+     */
+    public Map<String, String> listMissingCanonicalUrl(int limit) {
+        var out = new LinkedHashMap<String, String>();
+        jdbc.query(
+                "SELECT id, url FROM entries WHERE canonical_url IS NULL LIMIT :limit",
+                Map.of("limit", limit),
+                rs -> {
+                    out.put(rs.getString("id"), rs.getString("url"));
+                }
+        );
+        return out;
+    }
+
     public Optional<Entry> getById(String id) {
         var rows = jdbc.query(
                 """
@@ -90,22 +199,57 @@ public class EntryRepository {
         return Optional.of(row.toEntry(tags));
     }
 
-    public Optional<Entry> getByUrl(String url) {
+    /**
+     * The existing entries among {@code ids}, in the order given; unknown ids are skipped.
+     */
+    public List<Entry> listByIds(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        var rows = new HashMap<String, EntryRow>();
+        for (int i = 0; i < ids.size(); i += URL_LOOKUP_CHUNK) {
+            var chunk = ids.subList(i, Math.min(ids.size(), i + URL_LOOKUP_CHUNK));
+            jdbc.query(
+                    """
+                    SELECT id, url, title, description, detailed_description, thumbnail_path, thumbnail_large_path, visited_at, important, created_at, updated_at, manual_thumbnail_url, ai_safe, ai_context
+                    FROM entries
+                    WHERE id IN (:ids)
+                    """,
+                    Map.of("ids", chunk),
+                    ENTRY_ROW_MAPPER
+            ).forEach(row -> rows.put(row.id(), row));
+        }
+        var tagsByEntry = getTagsForEntries(List.copyOf(rows.keySet()));
+        var out = new ArrayList<Entry>(rows.size());
+        for (var id : ids) {
+            var row = rows.get(id);
+            if (row != null) {
+                out.add(row.toEntry(tagsByEntry.getOrDefault(id, List.of())));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * The entry stored under {@code url} or with canonical URL {@code canonicalUrl}; an exact URL match wins.
+     */
+    public Optional<Entry> findByUrlOrCanonical(String url, String canonicalUrl) {
         var rows = jdbc.query(
                 """
                 SELECT id, url, title, description, detailed_description, thumbnail_path, thumbnail_large_path, visited_at, important, created_at, updated_at, manual_thumbnail_url, ai_safe, ai_context
                 FROM entries
-                WHERE url = :url
+                WHERE url = :url OR canonical_url = :canonicalUrl
+                ORDER BY url = :url DESC
+                LIMIT 1
                 """,
-                Map.of("url", url),
+                Map.of("url", url, "canonicalUrl", canonicalUrl),
                 ENTRY_ROW_MAPPER
         );
         if (rows.isEmpty()) {
             return Optional.empty();
         }
         var row = rows.getFirst();
-        var tags = getTagsForEntry(row.id());
-        return Optional.of(row.toEntry(tags));
+        return Optional.of(row.toEntry(getTagsForEntry(row.id())));
     }
 
     public List<Entry> listAllForExport() {
@@ -125,6 +269,30 @@ public class EntryRepository {
         return out;
     }
 
+    /**
+     * Ids of all unvisited entries, without NSFW-tagged ones unless {@code includeNsfw}.
+     */
+    public List<String> listUnvisitedIds(boolean includeNsfw) {
+        var params = new HashMap<String, Object>();
+        var nsfwFilter = "";
+        if (!includeNsfw) {
+            nsfwFilter = """
+                    AND id NOT IN (
+                      SELECT et.entry_id
+                      FROM entry_tags et
+                      JOIN tags t ON t.id = et.tag_id
+                      WHERE t.name IN (:nsfwTags)
+                    )
+                    """;
+            params.put("nsfwTags", nsfwConfig.getNsfwTags());
+        }
+        return jdbc.queryForList(
+                "SELECT id FROM entries WHERE visited_at IS NULL " + nsfwFilter,
+                params,
+                String.class
+        );
+    }
+
     public List<Entry> listRandomUnvisited(int limit, boolean includeNsfw) {
         var where = new ArrayList<String>();
         var params = new HashMap<String, Object>();
@@ -397,6 +565,27 @@ public class EntryRepository {
         );
     }
 
+    public record ThumbnailPaths(String id, String thumbnailPath, String thumbnailLargePath) {}
+
+    /**
+     * Entries whose thumbnail paths still start with the given prefix (pre-blob flat layout).
+     */
+    public List<ThumbnailPaths> listThumbnailPathsWithPrefix(String prefix) {
+        return jdbc.query(
+                """
+                SELECT id, thumbnail_path, thumbnail_large_path
+                FROM entries
+                WHERE thumbnail_path LIKE :prefix OR thumbnail_large_path LIKE :prefix
+                """,
+                Map.of("prefix", prefix + "%"),
+                (rs, rowNum) -> new ThumbnailPaths(
+                        rs.getString("id"),
+                        rs.getString("thumbnail_path"),
+                        rs.getString("thumbnail_large_path")
+                )
+        );
+    }
+
     public List<String> getTagsForEntry(String entryId) {
         return jdbc.query(
                 """
@@ -457,6 +646,33 @@ public class EntryRepository {
         );
     }
 
+    /**
+     * Adds tags to freshly created entries in one batch (no delete, unlike {@link #replaceTags}).
+     */
+    public void batchAddTags(Map<String, List<String>> normalizedTagsByEntryId, TagRepository tagRepository) {
+        if (normalizedTagsByEntryId == null || normalizedTagsByEntryId.isEmpty()) {
+            return;
+        }
+        var allNames = normalizedTagsByEntryId.values().stream().flatMap(List::stream).distinct().toList();
+        if (allNames.isEmpty()) {
+            return;
+        }
+        var tagsByName = tagRepository.upsertAndGetIds(allNames);
+        var batch = new ArrayList<MapSqlParameterSource>();
+        normalizedTagsByEntryId.forEach((entryId, names) -> {
+            for (var name : names) {
+                var tagId = tagsByName.get(name);
+                if (tagId != null) {
+                    batch.add(new MapSqlParameterSource().addValue("entryId", entryId).addValue("tagId", tagId));
+                }
+            }
+        });
+        jdbc.batchUpdate(
+                "INSERT OR IGNORE INTO entry_tags (entry_id, tag_id) VALUES (:entryId, :tagId)",
+                batch.toArray(new MapSqlParameterSource[0])
+        );
+    }
+
     public int deleteById(String id) {
         return jdbc.update("DELETE FROM entries WHERE id = :id", Map.of("id", id));
     }
@@ -0,0 +1,56 @@
+package com.vestigium.persistence;
+
+import java.util.List;
+import java.util.Map;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class FingerprintRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public FingerprintRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void saveTextHash(String entryId, long simhash) {
+        jdbc.update(
+                """
+                INSERT INTO entry_fingerprints (entry_id, text_simhash, updated_at)
+                VALUES (:entryId, :hash, :now)
+                ON CONFLICT(entry_id) DO UPDATE SET
+                  text_simhash = excluded.text_simhash,
+                  updated_at = excluded.updated_at
+                """,
+                Map.of("entryId", entryId, "hash", simhash, "now", InstantSql.nowIso())
+        );
+    }
+
+    public void saveImageHash(String entryId, long dhash) {
+        jdbc.update(
+                """
+                INSERT INTO entry_fingerprints (entry_id, image_dhash, updated_at)
+                VALUES (:entryId, :hash, :now)
+                ON CONFLICT(entry_id) DO UPDATE SET
+                  image_dhash = excluded.image_dhash,
+                  updated_at = excluded.updated_at
+                """,
+                Map.of("entryId", entryId, "hash", dhash, "now", InstantSql.nowIso())
+        );
+    }
+
+    public List<Fingerprint> listAll() {
+        return jdbc.query(
+                "SELECT entry_id, text_simhash, image_dhash FROM entry_fingerprints",
+                Map.of(),
+                (rs, rowNum) -> new Fingerprint(
+                        rs.getString("entry_id"),
+                        rs.getObject("text_simhash") == null ? null : rs.getLong("text_simhash"),
+                        rs.getObject("image_dhash") == null ? null : rs.getLong("image_dhash")
+                )
+        );
+    }
+
+    public record Fingerprint(String entryId, Long textSimhash, Long imageDhash) {}
+}
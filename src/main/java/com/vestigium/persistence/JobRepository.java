@@ -3,6 +3,8 @@ package com.vestigium.persistence;
 import com.vestigium.domain.Job;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +12,7 @@ import java.util.HashMap;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -47,6 +50,38 @@ public class JobRepository {
         return job;
     }
 
+    /**
+     * Enqueues one job per entry with a single batched INSERT. Values of {@code payloadByEntryId} may be null. Unlike
+     * {@link #enqueue}, no {@code JobUpdatedEvent} is published: batches run inside the caller's transaction, which
+     * publishes the returned jobs once it has committed.
+     */
+    public List<Job> enqueueBatch(String type, Map<String, String> payloadByEntryId) {
+        if (payloadByEntryId == null || payloadByEntryId.isEmpty()) {
+            return List.of();
+        }
+        var now = InstantSql.nowIso();
+        var jobs = new ArrayList<Job>(payloadByEntryId.size());
+        var batch = new ArrayList<MapSqlParameterSource>(payloadByEntryId.size());
+        payloadByEntryId.forEach((entryId, payloadJson) -> {
+            var id = UUID.randomUUID().toString();
+            batch.add(new MapSqlParameterSource()
+                    .addValue("id", id)
+                    .addValue("type", type)
+                    .addValue("entryId", entryId)
+                    .addValue("payloadJson", payloadJson)
+                    .addValue("createdAt", now));
+            jobs.add(new Job(id, type, "PENDING", entryId, payloadJson, 0, null, null, null, null, now));
+        });
+        jdbc.batchUpdate(
+                """
+                INSERT INTO jobs (id, type, status, entry_id, payload_json, attempts, locked_at, finished_at, last_error, last_response, created_at)
+                VALUES (:id, :type, 'PENDING', :entryId, :payloadJson, 0, NULL, NULL, NULL, NULL, :createdAt)
+                """,
+                batch.toArray(new MapSqlParameterSource[0])
+        );
+        return jobs;
+    }
+
     /**
      * Claims exactly one pending job by setting it to RUNNING in a single UPDATE. Returns claimed job if successful.
      * <p>
@@ -61,11 +96,11 @@ public class JobRepository {
                 WHERE id = (
                   SELECT id
                   FROM jobs
-                  WHERE status = 'PENDING'
+                  WHERE status = 'PENDING' AND (run_after IS NULL OR run_after <= :lockedAt)
                   ORDER BY created_at ASC
                   LIMIT 1
                 )
-                RETURNING id, type, status, entry_id, payload_json, attempts, locked_at, finished_at, last_error, last_response, created_at
+                RETURNING id, type, status, entry_id, payload_json, attempts, locked_at, finished_at, last_error, last_response, created_at, metrics_json
                 """,
                 Map.of("lockedAt", now),
                 JOB_ROW_MAPPER
@@ -78,6 +113,103 @@ public class JobRepository {
         return Optional.of(job);
     }
 
+    /**
+     * Oldest pending jobs with their entry URL, for host-aware claiming. Deferred jobs are left out until their
+     * {@code run_after} time.
+     */
+    public List<PendingCandidate> listPendingCandidates(int limit) {
+        return jdbc.query(
+                """
+                SELECT j.id, j.type, j.entry_id, e.url
+                FROM jobs j
+                LEFT JOIN entries e ON e.id = j.entry_id
+                WHERE j.status = 'PENDING' AND (j.run_after IS NULL OR j.run_after <= :now)
+                ORDER BY j.created_at ASC
+                LIMIT :limit
+                """,
+                Map.of("limit", Math.max(limit, 1), "now", InstantSql.nowIso()),
+                (rs, rowNum) -> new PendingCandidate(
+                        rs.getString("id"),
+                        rs.getString("type"),
+                        rs.getString("entry_id"),
+                        rs.getString("url")
+                )
+        );
+    }
+
+    /**
+     * Claims a specific job if it is still pending. Returns empty when another worker (or a cancel) got there first.
+     */
+    public Optional<Job> claimPending(String jobId) {
+        var rows = jdbc.query(
+                """
+                UPDATE jobs
+                SET status = 'RUNNING', locked_at = :lockedAt, attempts = attempts + 1
+                WHERE id = :id AND status = 'PENDING' AND (run_after IS NULL OR run_after <= :lockedAt)
+                RETURNING id, type, status, entry_id, payload_json, attempts, locked_at, finished_at, last_error, last_response, created_at, metrics_json
+                """,
+                Map.of("id", jobId, "lockedAt", InstantSql.nowIso()),
+                JOB_ROW_MAPPER
+        );
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        var job = rows.getFirst();
+        events.publishEvent(new com.vestigium.events.JobUpdatedEvent(job));
+        return Optional.of(job);
+    }
+
+    /**
+     * Claims up to {@code limit} more pending jobs of {@code type} whose payload has {@code "batch": true}, oldest
+     * first, so one run can handle them together. Deferred jobs are skipped.
+     */
+    public List<Job> claimPendingBatch(String type, String excludeJobId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        var now = InstantSql.nowIso();
+        var claimed = jdbc.query(
+                """
+                UPDATE jobs
+                SET status = 'RUNNING', locked_at = :lockedAt, attempts = attempts + 1
+                WHERE id IN (
+                  SELECT id
+                  FROM jobs
+                  WHERE status = 'PENDING' AND type = :type AND id != :excludeId
+                    AND json_extract(payload_json, '$.batch') = 1
+                    AND (run_after IS NULL OR run_after <= :lockedAt)
+                  ORDER BY created_at ASC
+                  LIMIT :limit
+                )
+                RETURNING id, type, status, entry_id, payload_json, attempts, locked_at, finished_at, last_error, last_response, created_at, metrics_json
+                """,
+                Map.of("type", type, "excludeId", excludeJobId, "lockedAt", now, "limit", limit),
+                JOB_ROW_MAPPER
+        );
+        claimed.forEach(job -> events.publishEvent(new com.vestigium.events.JobUpdatedEvent(job)));
+        return claimed;
+    }
+
+    /**
+     * Returns a claimed job to PENDING with a new payload, without counting the attempt. Used to hand a job from a
+     * batch back to the queue (e.g. to run on its own).
+     */
+    public void requeue(String jobId, String payloadJson, String reason) {
+        var params = new HashMap<String, Object>();
+        params.put("id", jobId);
+        params.put("payloadJson", payloadJson);
+        params.put("err", reason);
+        jdbc.update(
+                """
+                UPDATE jobs
+                SET status = 'PENDING', attempts = MAX(attempts - 1, 0), payload_json = :payloadJson, last_error = :err, locked_at = NULL
+                WHERE id = :id
+                """,
+                params
+        );
+        getById(jobId).ifPresent(j -> events.publishEvent(new com.vestigium.events.JobUpdatedEvent(j)));
+    }
+
     public void markSucceeded(String jobId) {
         markSucceeded(jobId, null);
     }
@@ -107,6 +239,16 @@ public class JobRepository {
         getById(jobId).ifPresent(j -> events.publishEvent(new com.vestigium.events.JobUpdatedEvent(j)));
     }
 
+    /**
+     * Replaces the job's metrics JSON. Not published as an event; metrics are read via /api/jobs.
+     */
+    public void saveMetrics(String jobId, String metricsJson) {
+        var params = new HashMap<String, Object>();
+        params.put("id", jobId);
+        params.put("metricsJson", metricsJson);
+        jdbc.update("UPDATE jobs SET metrics_json = :metricsJson WHERE id = :id", params);
+    }
+
     public void markFailed(String jobId, String errorMessage, boolean retry) {
         markFailed(jobId, errorMessage, null, retry);
     }
@@ -140,10 +282,31 @@ public class JobRepository {
         getById(jobId).ifPresent(j -> events.publishEvent(new com.vestigium.events.JobUpdatedEvent(j)));
     }
 
+    /**
+     * Puts a running job back to PENDING without counting the attempt, to be claimed again no earlier than
+     * {@code runAfter}. Used when the job could not run for lack of quota rather than because it failed.
+     */
+    public void defer(String jobId, Instant runAfter, String reason) {
+        var params = new HashMap<String, Object>();
+        params.put("id", jobId);
+        params.put("err", reason);
+        // Whole seconds keep the ISO strings comparable with nowIso(); rounding up never claims too early.
+        params.put("runAfter", runAfter.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1).toString());
+        jdbc.update(
+                """
+                UPDATE jobs
+                SET status = 'PENDING', attempts = MAX(attempts - 1, 0), run_after = :runAfter, last_error = :err, locked_at = NULL
+                WHERE id = :id
+                """,
+                params
+        );
+        getById(jobId).ifPresent(j -> events.publishEvent(new com.vestigium.events.JobUpdatedEvent(j)));
+    }
+
     public Optional<Job> getById(String id) {
         var rows = jdbc.query(
                 """
-                SELECT id, type, status, entry_id, payload_json, attempts, locked_at, finished_at, last_error, last_response, created_at
+                SELECT id, type, status, entry_id, payload_json, attempts, locked_at, finished_at, last_error, last_response, created_at, metrics_json
                 FROM jobs
                 WHERE id = :id
                 """,
@@ -170,7 +333,7 @@ public class JobRepository {
 
         return jdbc.query(
                 """
-                SELECT id, type, status, entry_id, payload_json, attempts, locked_at, finished_at, last_error, last_response, created_at
+                SELECT id, type, status, entry_id, payload_json, attempts, locked_at, finished_at, last_error, last_response, created_at, metrics_json
                 FROM jobs
                 %s
                 ORDER BY created_at ASC
@@ -212,7 +375,7 @@ public class JobRepository {
         var updated = jdbc.update(
                 """
                 UPDATE jobs
-                SET status = 'PENDING', finished_at = NULL, locked_at = NULL, attempts = 0
+                SET status = 'PENDING', finished_at = NULL, locked_at = NULL, run_after = NULL, attempts = 0
                 WHERE id = :id AND status IN ('FAILED', 'CANCELLED')
                 """,
                 Map.of("id", id)
@@ -251,7 +414,7 @@ public class JobRepository {
     public List<Job> listForEntry(String entryId, int limit) {
         return jdbc.query(
                 """
-                SELECT id, type, status, entry_id, payload_json, attempts, locked_at, finished_at, last_error, last_response, created_at
+                SELECT id, type, status, entry_id, payload_json, attempts, locked_at, finished_at, last_error, last_response, created_at, metrics_json
                 FROM jobs
                 WHERE entry_id = :entryId
                 ORDER BY created_at DESC
@@ -262,6 +425,8 @@ public class JobRepository {
         );
     }
 
+    public record PendingCandidate(String jobId, String type, String entryId, String entryUrl) {}
+
     private static final class JobRowMapper implements RowMapper<Job> {
         @Override
         public Job mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -276,7 +441,8 @@ public class JobRepository {
                     rs.getString("finished_at"),
                     rs.getString("last_error"),
                     rs.getString("last_response"),
-                    rs.getString("created_at")
+                    rs.getString("created_at"),
+                    rs.getString("metrics_json")
             );
         }
     }
@@ -0,0 +1,102 @@
+package com.vestigium.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class LlmCacheRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public LlmCacheRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * The cached answer if it was stored at or after {@code notBefore} (ISO instant). A hit refreshes its LRU time.
+     */
+    public Optional<String> find(String cacheKey, String notBefore) {
+        var rows = jdbc.query(
+                """
+                SELECT response_text
+                FROM llm_cache
+                WHERE cache_key = :cacheKey AND created_at >= :notBefore
+                """,
+                Map.of("cacheKey", cacheKey, "notBefore", notBefore),
+                (rs, rowNum) -> rs.getString("response_text")
+        );
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        jdbc.update(
+                "UPDATE llm_cache SET hits = hits + 1, last_used_at = :now WHERE cache_key = :cacheKey",
+                Map.of("cacheKey", cacheKey, "now", InstantSql.nowIso())
+        );
+        return Optional.of(rows.getFirst());
+    }
+
+    public void put(String cacheKey, String model, String responseText) {
+        var now = InstantSql.nowIso();
+        var params = new HashMap<String, Object>();
+        params.put("cacheKey", cacheKey);
+        params.put("model", model);
+        params.put("responseText", responseText);
+        params.put("sizeBytes", responseText.getBytes(StandardCharsets.UTF_8).length);
+        params.put("now", now);
+        jdbc.update(
+                """
+                INSERT INTO llm_cache (cache_key, model, response_text, size_bytes, hits, created_at, last_used_at)
+                VALUES (:cacheKey, :model, :responseText, :sizeBytes, 0, :now, :now)
+                ON CONFLICT(cache_key) DO UPDATE SET
+                  model = excluded.model,
+                  response_text = excluded.response_text,
+                  size_bytes = excluded.size_bytes,
+                  created_at = excluded.created_at,
+                  last_used_at = excluded.last_used_at
+                """,
+                params
+        );
+    }
+
+    /**
+     * Deletes answers stored before {@code notBefore}, then the least recently used ones beyond {@code maxEntries}
+     * rows or {@code maxBytes} of response text. Returns the number of rows deleted.
+     */
+    public int trim(String notBefore, int maxEntries, long maxBytes) {
+        var expired = jdbc.update(
+                "DELETE FROM llm_cache WHERE created_at < :notBefore",
+                Map.of("notBefore", notBefore)
+        );
+        var evicted = jdbc.update(
+                """
+                DELETE FROM llm_cache
+                WHERE cache_key IN (
+                  SELECT cache_key
+                  FROM (
+                    SELECT cache_key,
+                           ROW_NUMBER() OVER (ORDER BY last_used_at DESC, cache_key) AS position,
+                           SUM(size_bytes) OVER (ORDER BY last_used_at DESC, cache_key ROWS UNBOUNDED PRECEDING) AS running_bytes
+                    FROM llm_cache
+                  )
+                  WHERE position > :maxEntries OR running_bytes > :maxBytes
+                )
+                """,
+                Map.of("maxEntries", Math.max(0, maxEntries), "maxBytes", Math.max(0, maxBytes))
+        );
+        return expired + evicted;
+    }
+
+    public Totals totals() {
+        return jdbc.queryForObject(
+                "SELECT COUNT(*) AS entries, COALESCE(SUM(size_bytes), 0) AS bytes FROM llm_cache",
+                Map.of(),
+                (rs, rowNum) -> new Totals(rs.getLong("entries"), rs.getLong("bytes"))
+        );
+    }
+
+    public record Totals(long entries, long bytes) {}
+}
@@ -0,0 +1,140 @@
+package com.vestigium.persistence;
+
+import com.vestigium.domain.PageFetch;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class PageFetchRepository {
+
+    private static final RowMapper<PageFetch> PAGE_FETCH_ROW_MAPPER = new PageFetchRowMapper();
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public PageFetchRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public Optional<PageFetch> find(String url) {
+        var rows = jdbc.query(
+                """
+                SELECT url, etag, last_modified, content_hash, extract_path, fetched_at, updated_at
+                FROM page_fetch_cache
+                WHERE url = :url
+                """,
+                Map.of("url", url),
+                PAGE_FETCH_ROW_MAPPER
+        );
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.getFirst());
+    }
+
+    /**
+     * Records a fetch.
+     */
+    public void upsertFetch(String url, String etag, String lastModified, String contentHash, String extractPath) {
+        var now = InstantSql.nowIso();
+        var params = new HashMap<String, Object>();
+        params.put("url", url);
+        params.put("etag", etag);
+        params.put("lastModified", lastModified);
+        params.put("contentHash", contentHash);
+        params.put("extractPath", extractPath);
+        params.put("now", now);
+        jdbc.update(
+                """
+                INSERT INTO page_fetch_cache (url, etag, last_modified, content_hash, extract_path, fetched_at, updated_at)
+                VALUES (:url, :etag, :lastModified, :contentHash, :extractPath, :now, :now)
+                ON CONFLICT(url) DO UPDATE SET
+                  etag = excluded.etag,
+                  last_modified = excluded.last_modified,
+                  content_hash = excluded.content_hash,
+                  extract_path = excluded.extract_path,
+                  fetched_at = excluded.fetched_at,
+                  updated_at = excluded.updated_at
+                """,
+                params
+        );
+    }
+
+    /**
+     * Refreshes validators after a 304 or an unchanged body.
+     */
+    public void markRevalidated(String url, String etag, String lastModified) {
+        var now = InstantSql.nowIso();
+        var params = new HashMap<String, Object>();
+        params.put("url", url);
+        params.put("etag", etag);
+        params.put("lastModified", lastModified);
+        params.put("now", now);
+        jdbc.update(
+                """
+                UPDATE page_fetch_cache
+                SET etag = COALESCE(:etag, etag),
+                    last_modified = COALESCE(:lastModified, last_modified),
+                    fetched_at = :now,
+                    updated_at = :now
+                WHERE url = :url
+                """,
+                params
+        );
+    }
+
+    /**
+     * Rows fetched before {@code notBefore} (ISO instant) plus the least recently fetched ones beyond
+     * {@code maxEntries}, oldest first.
+     */
+    public List<PageFetch> listEvictable(String notBefore, int maxEntries) {
+        return jdbc.query(
+                """
+                SELECT url, etag, last_modified, content_hash, extract_path, fetched_at, updated_at
+                FROM page_fetch_cache
+                WHERE fetched_at IS NULL
+                   OR fetched_at < :notBefore
+                   OR url IN (
+                     SELECT url
+                     FROM page_fetch_cache
+                     ORDER BY fetched_at DESC, url
+                     LIMIT -1 OFFSET :maxEntries
+                   )
+                ORDER BY fetched_at, url
+                """,
+                Map.of("notBefore", notBefore, "maxEntries", Math.max(0, maxEntries)),
+                PAGE_FETCH_ROW_MAPPER
+        );
+    }
+
+    /**
+     * Deletes the row of {@code url} unless it was fetched again after {@code fetchedAt}; true when a row was deleted.
+     */
+    public boolean deleteIfFetchedAt(String url, String fetchedAt) {
+        var params = new HashMap<String, Object>();
+        params.put("url", url);
+        params.put("fetchedAt", fetchedAt);
+        return jdbc.update(
+                "DELETE FROM page_fetch_cache WHERE url = :url AND fetched_at IS :fetchedAt",
+                params
+        ) > 0;
+    }
+
+    private static final class PageFetchRowMapper implements RowMapper<PageFetch> {
+        @Override
+        public PageFetch mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new PageFetch(
+                    rs.getString("url"),
+                    rs.getString("etag"),
+                    rs.getString("last_modified"),
+                    rs.getString("content_hash"),
+                    rs.getString("extract_path"),
+                    rs.getString("fetched_at"),
+                    rs.getString("updated_at")
+            );
+        }
+    }
+}
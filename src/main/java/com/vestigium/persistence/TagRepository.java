@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -68,12 +69,10 @@ public class TagRepository {
             return out;
         }
 
-        for (var name : normalizedNames) {
-            jdbc.update(
-                    "INSERT OR IGNORE INTO tags (id, name) VALUES (:id, :name)",
-                    Map.of("id", UUID.randomUUID().toString(), "name", name)
-            );
-        }
+        var batch = normalizedNames.stream()
+                .map(name -> new MapSqlParameterSource().addValue("id", UUID.randomUUID().toString()).addValue("name", name))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbc.batchUpdate("INSERT OR IGNORE INTO tags (id, name) VALUES (:id, :name)", batch);
 
         var rows = jdbc.query(
                 "SELECT id, name FROM tags WHERE name IN (:names)",
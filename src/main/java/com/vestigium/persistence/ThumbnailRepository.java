@@ -0,0 +1,120 @@
+package com.vestigium.persistence;
+
+import com.vestigium.domain.EntryThumbnail;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Encoded thumbnail variants per entry (e.g. small/large x jpeg/webp). The JPEG paths are also kept on the entry row
+ * for export/backwards compatibility.
+ */
+@Repository
+public class ThumbnailRepository {
+
+    private static final RowMapper<EntryThumbnail> THUMBNAIL_ROW_MAPPER = new ThumbnailRowMapper();
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public ThumbnailRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void upsert(String entryId, String variant, String format, String storagePath, long sizeBytes, String blobHash) {
+        var params = new HashMap<String, Object>();
+        params.put("entryId", entryId);
+        params.put("variant", variant);
+        params.put("format", format);
+        params.put("storagePath", storagePath);
+        params.put("sizeBytes", sizeBytes);
+        params.put("blobHash", blobHash);
+        params.put("createdAt", InstantSql.nowIso());
+        jdbc.update(
+                """
+                INSERT INTO entry_thumbnails (entry_id, variant, format, storage_path, size_bytes, blob_hash, created_at)
+                VALUES (:entryId, :variant, :format, :storagePath, :sizeBytes, :blobHash, :createdAt)
+                ON CONFLICT (entry_id, variant, format) DO UPDATE SET
+                  storage_path = excluded.storage_path,
+                  size_bytes = excluded.size_bytes,
+                  blob_hash = excluded.blob_hash,
+                  created_at = excluded.created_at
+                """,
+                params
+        );
+    }
+
+    /**
+     * Removes variants in formats that were not produced by the latest regeneration.
+     */
+    public void deleteFormatsNotIn(String entryId, List<String> keepFormats) {
+        if (keepFormats == null || keepFormats.isEmpty()) {
+            jdbc.update("DELETE FROM entry_thumbnails WHERE entry_id = :entryId", Map.of("entryId", entryId));
+            return;
+        }
+        jdbc.update(
+                "DELETE FROM entry_thumbnails WHERE entry_id = :entryId AND format NOT IN (:formats)",
+                Map.of("entryId", entryId, "formats", keepFormats)
+        );
+    }
+
+    public List<EntryThumbnail> listForEntry(String entryId) {
+        return jdbc.query(
+                """
+                SELECT entry_id, variant, format, storage_path, size_bytes, created_at, blob_hash
+                FROM entry_thumbnails
+                WHERE entry_id = :entryId
+                """,
+                Map.of("entryId", entryId),
+                THUMBNAIL_ROW_MAPPER
+        );
+    }
+
+    /**
+     * Rows written before thumbnails moved into the blob store.
+     */
+    public List<EntryThumbnail> listWithoutBlob() {
+        return jdbc.query(
+                """
+                SELECT entry_id, variant, format, storage_path, size_bytes, created_at, blob_hash
+                FROM entry_thumbnails
+                WHERE blob_hash IS NULL
+                """,
+                Map.of(),
+                THUMBNAIL_ROW_MAPPER
+        );
+    }
+
+    public Optional<EntryThumbnail> find(String entryId, String variant, String format) {
+        var rows = jdbc.query(
+                """
+                SELECT entry_id, variant, format, storage_path, size_bytes, created_at, blob_hash
+                FROM entry_thumbnails
+                WHERE entry_id = :entryId AND variant = :variant AND format = :format
+                """,
+                Map.of("entryId", entryId, "variant", variant, "format", format),
+                THUMBNAIL_ROW_MAPPER
+        );
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.getFirst());
+    }
+
+    private static final class ThumbnailRowMapper implements RowMapper<EntryThumbnail> {
+        @Override
+        public EntryThumbnail mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new EntryThumbnail(
+                    rs.getString("entry_id"),
+                    rs.getString("variant"),
+                    rs.getString("format"),
+                    rs.getString("storage_path"),
+                    rs.getLong("size_bytes"),
+                    rs.getString("created_at"),
+                    rs.getString("blob_hash")
+            );
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.vestigium.persistence;
+
+import com.vestigium.domain.UploadSession;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class UploadSessionRepository {
+
+    private static final RowMapper<UploadSession> UPLOAD_SESSION_ROW_MAPPER = new UploadSessionRowMapper();
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public UploadSessionRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public UploadSession create(String entryId, String originalName, String mimeType, long totalBytes, String tempPath) {
+        var id = UUID.randomUUID().toString();
+        var now = InstantSql.nowIso();
+        jdbc.update(
+                """
+                INSERT INTO upload_sessions (id, entry_id, original_name, mime_type, total_bytes, received_bytes, temp_path, status, created_at, updated_at)
+                VALUES (:id, :entryId, :originalName, :mimeType, :totalBytes, 0, :tempPath, 'OPEN', :now, :now)
+                """,
+                Map.of(
+                        "id", id,
+                        "entryId", entryId,
+                        "originalName", originalName,
+                        "mimeType", mimeType,
+                        "totalBytes", totalBytes,
+                        "tempPath", tempPath,
+                        "now", now
+                )
+        );
+        return new UploadSession(id, entryId, originalName, mimeType, totalBytes, 0, tempPath, "OPEN", null, now, now);
+    }
+
+    public Optional<UploadSession> getById(String id) {
+        var rows = jdbc.query(
+                """
+                SELECT id, entry_id, original_name, mime_type, total_bytes, received_bytes, temp_path, status, attachment_id, created_at, updated_at
+                FROM upload_sessions
+                WHERE id = :id
+                """,
+                Map.of("id", id),
+                UPLOAD_SESSION_ROW_MAPPER
+        );
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.getFirst());
+    }
+
+    public void updateReceived(String id, long receivedBytes) {
+        jdbc.update(
+                "UPDATE upload_sessions SET received_bytes = :receivedBytes, updated_at = :now WHERE id = :id",
+                Map.of("id", id, "receivedBytes", receivedBytes, "now", InstantSql.nowIso())
+        );
+    }
+
+    public void markCompleted(String id, String attachmentId) {
+        jdbc.update(
+                "UPDATE upload_sessions SET status = 'COMPLETED', attachment_id = :attachmentId, updated_at = :now WHERE id = :id",
+                Map.of("id", id, "attachmentId", attachmentId, "now", InstantSql.nowIso())
+        );
+    }
+
+    public void deleteById(String id) {
+        jdbc.update("DELETE FROM upload_sessions WHERE id = :id", Map.of("id", id));
+    }
+
+    /**
+     * Sessions not touched since the given ISO timestamp (abandoned uploads and old completed markers).
+     */
+    public List<UploadSession> listUpdatedBefore(String beforeIso) {
+        return jdbc.query(
+                """
+                SELECT id, entry_id, original_name, mime_type, total_bytes, received_bytes, temp_path, status, attachment_id, created_at, updated_at
+                FROM upload_sessions
+                WHERE updated_at < :before
+                """,
+                Map.of("before", beforeIso),
+                UPLOAD_SESSION_ROW_MAPPER
+        );
+    }
+
+    private static final class UploadSessionRowMapper implements RowMapper<UploadSession> {
+        @Override
+        public UploadSession mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new UploadSession(
+                    rs.getString("id"),
+                    rs.getString("entry_id"),
+                    rs.getString("original_name"),
+                    rs.getString("mime_type"),
+                    rs.getLong("total_bytes"),
+                    rs.getLong("received_bytes"),
+                    rs.getString("temp_path"),
+                    rs.getString("status"),
+                    rs.getString("attachment_id"),
+                    rs.getString("created_at"),
+                    rs.getString("updated_at")
+            );
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.vestigium.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class UrlResolutionRepository {
+
+    private static final int URL_LOOKUP_CHUNK = 500;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public UrlResolutionRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * The resolution of {@code url} recorded at or after {@code notBefore} (ISO instant).
+     */
+    public Optional<Resolution> find(String url, String notBefore) {
+        var rows = jdbc.query(
+                """
+                SELECT url, canonical_url, page_checked
+                FROM url_resolutions
+                WHERE url = :url AND resolved_at >= :notBefore
+                """,
+                Map.of("url", url, "notBefore", notBefore),
+                (rs, rowNum) -> new Resolution(rs.getString("url"), rs.getString("canonical_url"), rs.getInt("page_checked") == 1)
+        );
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.getFirst());
+    }
+
+    /**
+     * Resolutions recorded at or after {@code notBefore} for any of {@code urls}, keyed by URL.
+     */
+    public Map<String, Resolution> findAll(Collection<String> urls, String notBefore) {
+        var out = new HashMap<String, Resolution>();
+        if (urls == null || urls.isEmpty()) {
+            return out;
+        }
+        var list = new ArrayList<>(urls);
+        for (int i = 0; i < list.size(); i += URL_LOOKUP_CHUNK) {
+            var chunk = list.subList(i, Math.min(list.size(), i + URL_LOOKUP_CHUNK));
+            jdbc.query(
+                    """
+                    SELECT url, canonical_url, page_checked
+                    FROM url_resolutions
+                    WHERE url IN (:urls) AND resolved_at >= :notBefore
+                    """,
+                    Map.of("urls", chunk, "notBefore", notBefore),
+                    (rs, rowNum) -> new Resolution(rs.getString("url"), rs.getString("canonical_url"), rs.getInt("page_checked") == 1)
+            ).forEach(r -> out.put(r.url(), r));
+        }
+        return out;
+    }
+
+    public void save(String url, String canonicalUrl, boolean pageChecked) {
+        jdbc.update(
+                """
+                INSERT INTO url_resolutions (url, canonical_url, page_checked, resolved_at)
+                VALUES (:url, :canonicalUrl, :pageChecked, :now)
+                ON CONFLICT(url) DO UPDATE SET
+                  canonical_url = excluded.canonical_url,
+                  page_checked = excluded.page_checked,
+                  resolved_at = excluded.resolved_at
+                """,
+                Map.of("url", url, "canonicalUrl", canonicalUrl, "pageChecked", pageChecked ? 1 : 0, "now", InstantSql.nowIso())
+        );
+    }
+
+    public record Resolution(String url, String canonicalUrl, boolean pageChecked) {}
+}
@@ -0,0 +1,302 @@
+package com.vestigium.service;
+
+import com.vestigium.domain.Job;
+import com.vestigium.events.EntriesChangedEvent;
+import com.vestigium.events.JobUpdatedEvent;
+import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.JobRepository;
+import com.vestigium.persistence.TagRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk URL ingestion. Each chunk is one transaction: two existence queries, a batched entry insert, batched tags
+ * and batched ENRICH_ENTRY/REGENERATE_THUMBNAIL jobs. Page metadata is left to the enrichment job; its jobs are
+ * marked {@code batch} so several entries can share one model request.
+ * <p>
+ * Entries keep the submitted URL; duplicates are matched by canonical URL: rule-based for all of them, plus redirect
+ * targets of shortener links, resolved before the chunk's transaction so no network call holds the database.
+ */
+@Service
+public class BulkIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkIngestService.class);
+
+    private static final Duration FINISHED_OPERATION_TTL = Duration.ofHours(1);
+
+    private final EntryRepository entries;
+    private final TagRepository tags;
+    private final JobRepository jobs;
+    private final ApplicationEventPublisher events;
+    private final CanonicalUrlResolver canonicalUrls;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    public BulkIngestService(
+            EntryRepository entries,
+            TagRepository tags,
+            JobRepository jobs,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher events,
+            CanonicalUrlResolver canonicalUrls,
+            @Value("${vestigium.bulk.chunk-size:200}") int chunkSize
+    ) {
+        this.entries = entries;
+        this.tags = tags;
+        this.jobs = jobs;
+        this.events = events;
+        this.canonicalUrls = canonicalUrls;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public record BulkCreateItem(String url, String title) {}
+    public record BulkCreateError(String url, String error) {}
+    public record BulkCreateResult(int createdCount, int skippedCount, List<BulkCreateError> errors) {}
+
+    public record BulkOperationStatus(
+            String id,
+            String status,
+            int totalCount,
+            int processedCount,
+            int createdCount,
+            int skippedCount,
+            List<BulkCreateError> errors,
+            String startedAt,
+            String finishedAt
+    ) {}
+
+    /**
+     * Runs the pipeline on the calling thread.
+     */
+    public BulkCreateResult ingest(List<BulkCreateItem> items) {
+        var op = new Operation(UUID.randomUUID().toString());
+        run(op, items);
+        var status = op.snapshot();
+        return new BulkCreateResult(status.createdCount(), status.skippedCount(), status.errors());
+    }
+
+    /**
+     * Starts the pipeline in the background; poll {@link #get} for progress.
+     */
+    public BulkOperationStatus start(List<BulkCreateItem> items) {
+        evictFinished();
+        var op = new Operation(UUID.randomUUID().toString());
+        operations.put(op.id, op);
+        executor.submit(() -> run(op, items));
+        return op.snapshot();
+    }
+
+    public Optional<BulkOperationStatus> get(String operationId) {
+        return Optional.ofNullable(operations.get(operationId)).map(Operation::snapshot);
+    }
+
+    private void run(Operation op, List<BulkCreateItem> items) {
+        try {
+            var unique = dedupe(items, op);
+            op.begin(unique.size());
+            var urls = new ArrayList<>(unique.keySet());
+            for (int i = 0; i < urls.size(); i += chunkSize) {
+                var chunk = urls.subList(i, Math.min(urls.size(), i + chunkSize));
+                try {
+                    var canonical = canonicalize(chunk);
+                    var inserted = tx.execute(status -> insertChunk(chunk, unique, canonical));
+                    var created = inserted == null ? InsertedChunk.EMPTY : inserted;
+                    // Only after commit: listeners (WebSocket pushes, the semantic index) read the new rows.
+                    if (!created.entryIds().isEmpty()) {
+                        events.publishEvent(new EntriesChangedEvent(EntriesChangedEvent.Change.ADDED, created.entryIds()));
+                    }
+                    created.jobs().forEach(job -> events.publishEvent(new JobUpdatedEvent(job)));
+                    op.chunkDone(chunk.size(), created.entryIds().size());
+                } catch (Exception e) {
+                    log.warn("Bulk ingest chunk failed: {}", e.getMessage());
+                    var message = e.getClass().getSimpleName() + ": " + Objects.toString(e.getMessage(), "");
+                    op.chunkFailed(chunk, message);
+                }
+            }
+            op.finish("SUCCEEDED");
+        } catch (Exception e) {
+            log.warn("Bulk ingest failed: {}", e.getMessage(), e);
+            op.finish("FAILED");
+        }
+    }
+
+    /**
+     * Normalizes and de-dupes within the request (preserving order, preferring items with titles).
+     */
+    private static LinkedHashMap<String, String> dedupe(List<BulkCreateItem> items, Operation op) {
+        var unique = new LinkedHashMap<String, String>();
+        if (items == null) {
+            return unique;
+        }
+        for (var item : items) {
+            if (item == null || item.url() == null) continue;
+            try {
+                var url = EntryService.normalizeUrl(item.url().trim());
+                if (url.isBlank()) continue;
+
+                // If already present, only update title if the new one is not null
+                if (!unique.containsKey(url) || (item.title() != null && !item.title().isBlank())) {
+                    unique.put(url, item.title());
+                }
+            } catch (Exception e) {
+                op.error(item.url(), e.getClass().getSimpleName() + ": " + Objects.toString(e.getMessage(), ""));
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Canonical URL of each URL in the chunk: the rule-based form, or where a shortener link redirects.
+     */
+    private Map<String, String> canonicalize(List<String> urls) {
+        var rules = new LinkedHashMap<String, String>();
+        for (var url : urls) {
+            rules.put(url, UrlCanonicalizer.canonicalize(url));
+        }
+        var resolved = canonicalUrls.resolveRedirects(new LinkedHashSet<>(rules.values()));
+        var out = new LinkedHashMap<String, String>();
+        rules.forEach((url, rule) -> out.put(url, resolved.getOrDefault(rule, rule)));
+        return out;
+    }
+
+    /**
+     * A URL is skipped when it or its canonical URL is already taken, including by an earlier URL of the same chunk.
+     */
+    private InsertedChunk insertChunk(List<String> urls, Map<String, String> titles, Map<String, String> canonical) {
+        var existingUrls = entries.findExistingUrls(urls);
+        var existingCanonical = entries.findExistingCanonicalUrls(new LinkedHashSet<>(canonical.values()));
+        var claimed = new HashSet<String>();
+        var toCreate = urls.stream()
+                .filter(url -> {
+                    var target = canonical.get(url);
+                    return !existingUrls.contains(url) && !existingCanonical.contains(target) && claimed.add(target);
+                })
+                .map(url -> new EntryRepository.NewEntry(url, canonical.get(url), blankToNull(titles.get(url))))
+                .toList();
+        if (toCreate.isEmpty()) {
+            return InsertedChunk.EMPTY;
+        }
+        var createdIds = entries.batchCreate(toCreate);
+
+        var tagsByEntryId = new LinkedHashMap<String, List<String>>();
+        var enrichPayloads = new LinkedHashMap<String, String>();
+        var thumbnailPayloads = new LinkedHashMap<String, String>();
+        createdIds.forEach((url, entryId) -> {
+            var urlTags = TagNormalizer.normalize(UrlTagger.tagsForUrl(url));
+            if (!urlTags.isEmpty()) {
+                tagsByEntryId.put(entryId, urlTags);
+            }
+            var hasTitle = blankToNull(titles.get(url)) != null;
+            // URL-only entries: the enrichment worker may handle several of these in one model request.
+            enrichPayloads.put(entryId, hasTitle ? "{\"isTitleSuggestion\":true,\"batch\":true}" : "{\"batch\":true}");
+            thumbnailPayloads.put(entryId, null);
+        });
+        entries.batchAddTags(tagsByEntryId, tags);
+        var enqueued = new ArrayList<Job>(jobs.enqueueBatch("ENRICH_ENTRY", enrichPayloads));
+        enqueued.addAll(jobs.enqueueBatch("REGENERATE_THUMBNAIL", thumbnailPayloads));
+        return new InsertedChunk(List.copyOf(createdIds.values()), enqueued);
+    }
+
+    /**
+     * What a chunk's transaction created, announced once it has committed.
+     */
+    private record InsertedChunk(List<String> entryIds, List<Job> jobs) {
+        static final InsertedChunk EMPTY = new InsertedChunk(List.of(), List.of());
+    }
+
+    private void evictFinished() {
+        var cutoff = Instant.now().minus(FINISHED_OPERATION_TTL);
+        operations.values().removeIf(op -> op.finishedBefore(cutoff));
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+
+    private static final class Operation {
+        private final String id;
+        private final String startedAt = Instant.now().toString();
+        private final List<BulkCreateError> errors = new ArrayList<>();
+        private String status = "RUNNING";
+        private int total;
+        private int processed;
+        private int created;
+        private int skipped;
+        private Instant finishedAt;
+
+        Operation(String id) {
+            this.id = id;
+        }
+
+        synchronized void begin(int total) {
+            this.total = total;
+        }
+
+        synchronized void chunkDone(int size, int createdInChunk) {
+            processed += size;
+            created += createdInChunk;
+            skipped += size - createdInChunk;
+        }
+
+        synchronized void chunkFailed(List<String> urls, String message) {
+            processed += urls.size();
+            urls.forEach(url -> errors.add(new BulkCreateError(url, message)));
+        }
+
+        synchronized void error(String url, String message) {
+            errors.add(new BulkCreateError(url, message));
+        }
+
+        synchronized void finish(String finalStatus) {
+            status = finalStatus;
+            finishedAt = Instant.now();
+        }
+
+        synchronized boolean finishedBefore(Instant cutoff) {
+            return finishedAt != null && finishedAt.isBefore(cutoff);
+        }
+
+        synchronized BulkOperationStatus snapshot() {
+            return new BulkOperationStatus(
+                    id,
+                    status,
+                    total,
+                    processed,
+                    created,
+                    skipped,
+                    List.copyOf(errors),
+                    startedAt,
+                    finishedAt == null ? null : finishedAt.toString()
+            );
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.vestigium.service;
+
+import com.vestigium.http.CallClass;
+import com.vestigium.http.OutboundHttp;
+import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.UrlResolutionRepository;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Canonical URLs that need the network: where redirects end up and what the page declares with
+ * {@code <link rel=canonical>}. Results are re-canonicalized by {@link UrlCanonicalizer} and cached in
+ * {@code url_resolutions} for {@code resolution-ttl-days}, keyed by the rule-based canonical URL. The page itself is
+ * fetched by the caller (entry creation needs its metadata anyway) and handed to {@link #recordPage}; only shortener
+ * links are requested from here.
+ * <p>
+ * A redirect or canonical link that lands on a site's front page from a deeper path is ignored (login walls, dead
+ * links, misconfigured tags), as is a canonical link pointing to another site. Failures fall back to the rule-based
+ * URL and are not cached.
+ */
+@Service
+public class CanonicalUrlResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(CanonicalUrlResolver.class);
+
+    private static final int BACKFILL_BATCH = 500;
+
+    /** Hosts whose links are only redirects; bulk ingest and import resolve these without reading pages. */
+    private static final Set<String> SHORTENER_HOSTS = Set.of(
+            "t.co", "bit.ly", "buff.ly", "ow.ly", "tinyurl.com", "goo.gl", "is.gd", "lnkd.in", "amzn.to", "amzn.eu",
+            "dlvr.it", "fb.me", "trib.al", "rebrand.ly", "shorturl.at", "t.ly", "cutt.ly", "redd.it", "spoti.fi",
+            "apple.co", "flip.it", "tiny.cc", "wp.me", "bit.do", "s.id"
+    );
+
+    private final UrlResolutionRepository cache;
+    private final EntryRepository entries;
+    private final OutboundHttp http;
+    private final boolean enabled;
+    private final Duration ttl;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public CanonicalUrlResolver(
+            UrlResolutionRepository cache,
+            EntryRepository entries,
+            OutboundHttp http,
+            @Value("${vestigium.urls.resolve:true}") boolean enabled,
+            @Value("${vestigium.urls.resolution-ttl-days:30}") int ttlDays
+    ) {
+        this.cache = cache;
+        this.entries = entries;
+        this.http = http;
+        this.enabled = enabled;
+        this.ttl = Duration.ofDays(Math.max(1, ttlDays));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A cached resolution of {@code canonicalUrl} that read the page, so the caller can skip fetching it for this.
+     */
+    public Optional<String> cachedPageResolution(String canonicalUrl) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return cache.find(canonicalUrl, notBefore())
+                .filter(UrlResolutionRepository.Resolution::pageChecked)
+                .map(UrlResolutionRepository.Resolution::canonicalUrl);
+    }
+
+    /**
+     * Resolves {@code canonicalUrl} from a fetch of the page made by the caller: the URL the fetch ended at after
+     * redirects and the page's canonical link (null when it has none).
+     */
+    public String recordPage(String canonicalUrl, String finalUrl, String canonicalLink) {
+        if (!enabled) {
+            return canonicalUrl;
+        }
+        var target = finalUrl == null ? canonicalUrl : accept(canonicalUrl, finalUrl, false);
+        if (canonicalLink != null && !canonicalLink.isBlank()) {
+            target = accept(target, canonicalLink, true);
+        }
+        cache.save(canonicalUrl, target, true);
+        return target;
+    }
+
+    /**
+     * The canonical URL for the rule-canonical {@code url} without reading pages: a cached resolution, or for
+     * shortener links where their redirects end. Returns {@code url} itself when nothing better is known.
+     */
+    public String resolveRedirect(String url) {
+        if (!enabled) {
+            return url;
+        }
+        var cached = cache.find(url, notBefore());
+        if (cached.isPresent()) {
+            return cached.get().canonicalUrl();
+        }
+        if (!isShortener(url)) {
+            return url;
+        }
+        try {
+            var canonical = followRedirects(url);
+            cache.save(url, canonical, false);
+            return canonical;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Cannot resolve canonical URL of {}: {}", url, e.getMessage());
+            return url;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return url;
+        }
+    }
+
+    /**
+     * Redirect-only resolution of many URLs: cache hits in one query, shortener links followed in parallel. Returns
+     * only the URLs whose canonical form differs from the URL itself.
+     */
+    public Map<String, String> resolveRedirects(Collection<String> urls) {
+        var out = new LinkedHashMap<String, String>();
+        if (!enabled || urls == null || urls.isEmpty()) {
+            return out;
+        }
+        var cached = cache.findAll(urls, notBefore());
+        var pending = new LinkedHashMap<String, Future<String>>();
+        for (var url : urls) {
+            var hit = cached.get(url);
+            if (hit != null) {
+                if (!hit.canonicalUrl().equals(url)) {
+                    out.put(url, hit.canonicalUrl());
+                }
+            } else if (isShortener(url)) {
+                pending.put(url, executor.submit((Callable<String>) () -> resolveRedirect(url)));
+            }
+        }
+        for (var e : pending.entrySet()) {
+            try {
+                var canonical = e.getValue().get();
+                if (!canonical.equals(e.getKey())) {
+                    out.put(e.getKey(), canonical);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                pending.values().forEach(f -> f.cancel(true));
+                break;
+            } catch (Exception ex) {
+                log.debug("Cannot resolve canonical URL of {}: {}", e.getKey(), ex.getMessage());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Fills in canonical URLs of entries created before they were recorded, using the rules only.
+     */
+    @Scheduled(
+            fixedDelayString = "${vestigium.urls.backfill-delay-ms:600000}",
+            initialDelayString = "${vestigium.urls.backfill-initial-delay-ms:10000}"
+    )
+    public void backfillCanonicalUrls() {
+        try {
+            var total = 0;
+            while (true) {
+                var batch = entries.listMissingCanonicalUrl(BACKFILL_BATCH);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                var canonical = new HashMap<String, String>();
+                batch.forEach((id, url) -> canonical.put(id, rulesOrSelf(url)));
+                entries.updateCanonicalUrls(canonical);
+                total += batch.size();
+                if (batch.size() < BACKFILL_BATCH) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                log.info("Backfilled canonical URLs for {} entries", total);
+            }
+        } catch (Exception e) {
+            log.warn("Canonical URL backfill failed: {}", e.getMessage());
+        }
+    }
+
+    static boolean isShortener(String url) {
+        try {
+            var host = URI.create(url).getHost();
+            return host != null && SHORTENER_HOSTS.contains(host.toLowerCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private String followRedirects(String url) throws IOException, InterruptedException {
+        var resp = http.send(
+                CallClass.PAGE,
+                HttpRequest.newBuilder(URI.create(url)).method("HEAD", HttpRequest.BodyPublishers.noBody())
+        );
+        // Some servers refuse HEAD, but the redirects before the refusal are still valid.
+        if (resp.statusCode() >= 400 && resp.statusCode() != 405) {
+            return url;
+        }
+        return accept(url, resp.uri().toString(), false);
+    }
+
+    /**
+     * {@code candidate} in canonical form when it is a plausible replacement for {@code from}, else {@code from}.
+     */
+    private static String accept(String from, String candidate, boolean sameSiteOnly) {
+        String canonical;
+        try {
+            canonical = UrlCanonicalizer.canonicalize(candidate);
+        } catch (IllegalArgumentException e) {
+            return from;
+        }
+        var fromUri = URI.create(from);
+        var toUri = URI.create(canonical);
+        if (isRoot(toUri) && !isRoot(fromUri)) {
+            return from;
+        }
+        if (sameSiteOnly && !site(fromUri.getHost()).equals(site(toUri.getHost()))) {
+            return from;
+        }
+        return canonical;
+    }
+
+    private static boolean isRoot(URI uri) {
+        var path = uri.getRawPath();
+        return (path == null || path.isEmpty() || path.equals("/")) && uri.getRawQuery() == null;
+    }
+
+    /** Host without the prefixes sites commonly serve the same pages under. */
+    private static String site(String host) {
+        var h = host == null ? "" : host;
+        for (var prefix : List.of("www.", "m.", "mobile.", "amp.")) {
+            if (h.startsWith(prefix)) {
+                return h.substring(prefix.length());
+            }
+        }
+        return h;
+    }
+
+    private static String rulesOrSelf(String url) {
+        try {
+            return UrlCanonicalizer.canonicalize(url);
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    private String notBefore() {
+        return Instant.now().minus(ttl).toString();
+    }
+}
@@ -3,17 +3,31 @@ package com.vestigium.service;
 import com.vestigium.domain.Attachment;
 import com.vestigium.domain.Entry;
 import com.vestigium.api.dto.EntryResponse;
+import com.vestigium.enrich.PageFetchCache;
 import com.vestigium.enrich.UrlContentFetcher;
 import com.vestigium.enrich.YouTubeMetadataFetcher;
+import com.vestigium.events.EntriesChangedEvent;
+import com.vestigium.events.EntryUpdatedEvent;
 import com.vestigium.persistence.AttachmentRepository;
 import com.vestigium.persistence.EntryRepository;
 import com.vestigium.persistence.JobRepository;
 import com.vestigium.persistence.TagRepository;
 import com.vestigium.storage.FileStorageService;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.net.URI;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -21,6 +35,8 @@ import org.springframework.web.multipart.MultipartFile;
 @Service
 public class EntryService {
 
+    private static final Logger log = LoggerFactory.getLogger(EntryService.class);
+
     private final EntryRepository entries;
     private final TagRepository tags;
     private final AttachmentRepository attachments;
@@ -29,6 +45,15 @@ public class EntryService {
     private final UrlContentFetcher urlFetcher;
     private final YouTubeMetadataFetcher youtubeMetadata;
     private final com.vestigium.persistence.ListRepository lists;
+    private final ApplicationEventPublisher events;
+    private final CanonicalUrlResolver canonicalUrls;
+    private final PageFetchCache pageCache;
+    private final long inferenceBudgetMs;
+
+    /**
+     * Page/YouTube metadata fetches are blocking network calls; virtual threads keep them off the request thread.
+     */
+    private final ExecutorService inferenceExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     public EntryService(
             EntryRepository entries,
@@ -38,7 +63,11 @@ public class EntryService {
             FileStorageService fileStorage,
             UrlContentFetcher urlFetcher,
             YouTubeMetadataFetcher youtubeMetadata,
-            com.vestigium.persistence.ListRepository lists
+            com.vestigium.persistence.ListRepository lists,
+            ApplicationEventPublisher events,
+            CanonicalUrlResolver canonicalUrls,
+            PageFetchCache pageCache,
+            @Value("${vestigium.entries.inference-budget-ms:1500}") long inferenceBudgetMs
     ) {
         this.entries = entries;
         this.tags = tags;
@@ -48,6 +77,15 @@ public class EntryService {
         this.urlFetcher = urlFetcher;
         this.youtubeMetadata = youtubeMetadata;
         this.lists = lists;
+        this.events = events;
+        this.canonicalUrls = canonicalUrls;
+        this.pageCache = pageCache;
+        this.inferenceBudgetMs = inferenceBudgetMs;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        inferenceExecutor.shutdownNow();
     }
 
     public CreatedEntry create(
@@ -61,13 +99,32 @@ public class EntryService {
             List<MultipartFile> uploadFiles
     ) {
         var normalizedUrl = normalizeUrl(url);
+        var ruleCanonicalUrl = UrlCanonicalizer.canonicalize(normalizedUrl);
 
-        if (entries.getByUrl(normalizedUrl).isPresent()) {
+        if (entries.findByUrlOrCanonical(normalizedUrl, ruleCanonicalUrl).isPresent()) {
             throw new VestigiumException("ENTRY_URL_ALREADY_EXISTS", HttpStatus.CONFLICT, "URL already exists.");
         }
 
-        var inferred = inferMetadata(normalizedUrl, title, description, rawTags);
-        var entry = entries.create(normalizedUrl, inferred.title(), inferred.description(), manualThumbnailUrl, important);
+        // One page fetch gives both the canonical URL (redirects, rel=canonical) and page metadata. Wait for it only
+        // up to the latency budget; anything slower is applied after the insert.
+        var pendingMetadata = CompletableFuture.supplyAsync(
+                () -> fetchMetadata(normalizedUrl, ruleCanonicalUrl, title, description),
+                inferenceExecutor
+        );
+        var fetched = awaitWithinBudget(pendingMetadata);
+        var canonicalUrl = fetched.map(InferredMetadata::canonicalUrl).orElse(ruleCanonicalUrl);
+        if (!canonicalUrl.equals(ruleCanonicalUrl) && entries.findByUrlOrCanonical(normalizedUrl, canonicalUrl).isPresent()) {
+            throw new VestigiumException("ENTRY_URL_ALREADY_EXISTS", HttpStatus.CONFLICT, "URL already exists.");
+        }
+        var inferred = fetched
+                .map(m -> new InferredMetadata(m.title(), m.description(), inferTags(normalizedUrl, rawTags), canonicalUrl))
+                .orElseGet(() -> new InferredMetadata(title, description, inferTags(normalizedUrl, rawTags), canonicalUrl));
+        var entry = entries.create(normalizedUrl, canonicalUrl, inferred.title(), inferred.description(), manualThumbnailUrl, important);
+        events.publishEvent(new EntriesChangedEvent(EntriesChangedEvent.Change.ADDED, List.of(entry.id())));
+        if (!pendingMetadata.isDone()) {
+            var entryId = entry.id();
+            pendingMetadata.thenAccept(m -> applyLateMetadata(entryId, ruleCanonicalUrl, m));
+        }
 
         var normalizedTags = TagNormalizer.normalize(inferred.tags());
         if (!normalizedTags.isEmpty()) {
@@ -76,6 +133,10 @@ public class EntryService {
         }
 
         var createdAttachments = saveAttachments(entry.id(), uploadFiles);
+        if (!createdAttachments.isEmpty()) {
+            // Queued before enrichment so it can read the extracted text and image derivatives.
+            jobs.enqueue("PREPROCESS_ATTACHMENTS", entry.id(), null);
+        }
 
         // Always enqueue enrichment; worker decides how to enrich (URL-only vs attachments).
         String enrichPayload = titleIsSuggestion ? "{\"isTitleSuggestion\":true}" : null;
@@ -90,21 +151,39 @@ public class EntryService {
         return new CreatedEntry(entry, createdAttachments);
     }
 
-    private InferredMetadata inferMetadata(String url, String title, String description, List<String> rawTags) {
-        var outTitle = title;
-        var outDescription = description;
-        var outTags = rawTags;
-
+    private static List<String> inferTags(String url, List<String> rawTags) {
         // Add obvious tags derived from URL when user didn't provide any tags.
-        if (outTags == null || outTags.isEmpty()) {
-            outTags = UrlTagger.tagsForUrl(url);
+        if (rawTags == null || rawTags.isEmpty()) {
+            return UrlTagger.tagsForUrl(url);
+        }
+        return rawTags;
+    }
+
+    private Optional<InferredMetadata> awaitWithinBudget(CompletableFuture<InferredMetadata> pending) {
+        try {
+            return Optional.of(pending.get(inferenceBudgetMs, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            return Optional.empty();
         }
+    }
+
+    /**
+     * Title, description and canonical URL from a single fetch of the page. The page is skipped only when the user
+     * gave both title and description and the canonical URL is cached; without a page, shortener links are still
+     * followed.
+     */
+    private InferredMetadata fetchMetadata(String url, String ruleCanonicalUrl, String title, String description) {
+        var outTitle = title;
+        var outDescription = description;
+        var canonicalUrl = canonicalUrls.cachedPageResolution(ruleCanonicalUrl);
 
         boolean needTitle = outTitle == null || outTitle.isBlank();
         boolean needDesc = outDescription == null || outDescription.isBlank();
-        if (!needTitle && !needDesc) {
-            return new InferredMetadata(outTitle, outDescription, outTags);
-        }
 
         // Best-effort metadata fetch: never fail entry creation because of external fetch.
         try {
@@ -115,8 +194,12 @@ public class EntryService {
                     needTitle = false;
                 }
             }
-            if (needTitle || needDesc) {
-                var page = urlFetcher.fetchReadableText(url);
+            if (needTitle || needDesc || canonicalUrl.isEmpty()) {
+                var landing = urlFetcher.fetchLanding(url);
+                if (canonicalUrl.isEmpty()) {
+                    canonicalUrl = Optional.of(canonicalUrls.recordPage(ruleCanonicalUrl, landing.finalUrl(), landing.canonicalLink()));
+                }
+                var page = landing.content();
                 if (needTitle && page.title() != null && !page.title().isBlank()) {
                     outTitle = page.title();
                 }
@@ -127,10 +210,49 @@ public class EntryService {
         } catch (Exception ignored) {
             // ignore
         }
-        return new InferredMetadata(outTitle, outDescription, outTags);
+        return new InferredMetadata(
+                outTitle,
+                outDescription,
+                List.of(),
+                canonicalUrl.orElseGet(() -> canonicalUrls.resolveRedirect(ruleCanonicalUrl))
+        );
+    }
+
+    /**
+     * Fills title/description that were still blank when the budget ran out. Fields set meanwhile (user edit,
+     * enrichment) win; the result is pushed to WebSocket clients. A canonical URL that resolved late is recorded too:
+     * too late to refuse the entry, but later submissions of the same page are caught by it.
+     */
+    private void applyLateMetadata(String entryId, String ruleCanonicalUrl, InferredMetadata inferred) {
+        try {
+            if (inferred.canonicalUrl() != null && !inferred.canonicalUrl().equals(ruleCanonicalUrl)) {
+                entries.updateCanonicalUrl(entryId, inferred.canonicalUrl());
+            }
+            var current = entries.getById(entryId);
+            if (current.isEmpty()) {
+                return;
+            }
+            var entry = current.get();
+            var newTitle = isBlank(entry.title()) && !isBlank(inferred.title()) ? inferred.title() : null;
+            var newDescription = isBlank(entry.description()) && !isBlank(inferred.description()) ? inferred.description() : null;
+            if (newTitle == null && newDescription == null) {
+                return;
+            }
+            entries.updateCore(entryId, newTitle, newDescription, null, null, null);
+            entries.getById(entryId).ifPresent(updated -> {
+                var failed = jobs.findEntryIdsWithFailedLatestJob(List.of(entryId)).contains(entryId);
+                events.publishEvent(new EntryUpdatedEvent(updated, failed));
+            });
+        } catch (Exception e) {
+            log.debug("Failed to apply late metadata for entryId={}: {}", entryId, e.getMessage());
+        }
     }
 
-    private record InferredMetadata(String title, String description, List<String> tags) {}
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private record InferredMetadata(String title, String description, List<String> tags, String canonicalUrl) {}
 
     public Entry update(String entryId, String title, String description, String detailedDescription, String manualThumbnailUrl, Boolean important, List<String> rawTags) {
         var existing = entries.getById(entryId)
@@ -154,6 +276,7 @@ public class EntryService {
             throw new VestigiumException("ENTRY_NOT_FOUND", HttpStatus.NOT_FOUND, "Entry not found.");
         }
         entries.setVisitedNow(entryId);
+        events.publishEvent(new EntriesChangedEvent(EntriesChangedEvent.Change.VISITED, List.of(entryId)));
     }
 
     public void enqueueEnrich(String entryId) {
@@ -171,66 +294,24 @@ public class EntryService {
     }
 
     public void delete(String entryId) {
-        if (entries.getById(entryId).isEmpty()) {
-            throw new VestigiumException("ENTRY_NOT_FOUND", HttpStatus.NOT_FOUND, "Entry not found.");
-        }
+        var entry = entries.getById(entryId)
+                .orElseThrow(() -> new VestigiumException("ENTRY_NOT_FOUND", HttpStatus.NOT_FOUND, "Entry not found."));
+        // Blob references live on rows that cascade away with the entry; collect them first.
+        var blobRefs = fileStorage.blobRefsForEntry(entryId);
         entries.deleteById(entryId);
+        events.publishEvent(new EntriesChangedEvent(EntriesChangedEvent.Change.REMOVED, List.of(entryId)));
         try {
-            fileStorage.deleteEntryData(entryId);
+            fileStorage.deleteEntryData(entryId, blobRefs);
         } catch (Exception ignored) {
             // best-effort cleanup
         }
-    }
-
-    public record BulkCreateItem(String url, String title) {}
-
-    public BulkCreateResult bulkCreate(List<BulkCreateItem> items) {
-        if (items == null || items.isEmpty()) {
-            return new BulkCreateResult(0, 0, List.of());
-        }
-
-        int created = 0;
-        int skipped = 0;
-        var errors = new java.util.ArrayList<BulkCreateError>();
-
-        // De-dupe within request (preserve order), prefer items with titles
-        var unique = new java.util.LinkedHashMap<String, String>();
-        for (var item : items) {
-            if (item == null || item.url() == null) continue;
-            try {
-                var url = normalizeUrl(item.url().trim());
-                if (url.isBlank()) continue;
-                
-                // If already present, only update title if the new one is not null
-                if (!unique.containsKey(url) || (item.title() != null && !item.title().isBlank())) {
-                    unique.put(url, item.title());
-                }
-            } catch (Exception e) {
-                errors.add(new BulkCreateError(item.url(), e.getClass().getSimpleName() + ": " + Objects.toString(e.getMessage(), "")));
-            }
-        }
-
-        for (var entry : unique.entrySet()) {
-            var normalized = entry.getKey();
-            var title = entry.getValue();
-            try {
-                if (entries.getByUrl(normalized).isPresent()) {
-                    skipped++;
-                    continue;
-                }
-                boolean suggestion = title != null && !title.isBlank();
-                create(normalized, title, null, null, null, false, suggestion, null);
-                created++;
-            } catch (Exception e) {
-                errors.add(new BulkCreateError(normalized, e.getClass().getSimpleName() + ": " + Objects.toString(e.getMessage(), "")));
-            }
+        try {
+            pageCache.evict(entry.url());
+        } catch (Exception ignored) {
+            // best-effort cleanup
         }
-        return new BulkCreateResult(created, skipped, errors);
     }
 
-    public record BulkCreateError(String url, String error) {}
-    public record BulkCreateResult(int createdCount, int skippedCount, List<BulkCreateError> errors) {}
-
     public ExportResult exportAll() {
         var all = entries.listAllForExport();
         var items = all.stream()
@@ -272,10 +353,20 @@ public class EntryService {
             var rawUrl = item.url().trim();
             try {
                 var normalized = normalizeUrl(rawUrl);
-                var existingOpt = entries.getByUrl(normalized);
+                var canonical = UrlCanonicalizer.canonicalize(normalized);
+                var existingOpt = entries.findByUrlOrCanonical(normalized, canonical);
+                if (existingOpt.isEmpty()) {
+                    // Only shortener links are resolved here; reading every page would make large imports crawl.
+                    var resolved = canonicalUrls.resolveRedirect(canonical);
+                    if (!resolved.equals(canonical)) {
+                        canonical = resolved;
+                        existingOpt = entries.findByUrlOrCanonical(normalized, canonical);
+                    }
+                }
                 if (existingOpt.isEmpty()) {
                     createImported(
                             normalized,
+                            canonical,
                             item.addedAt(),
                             item.thumbnailPath(),
                             item.thumbnailLargePath(),
@@ -321,6 +412,7 @@ public class EntryService {
 
     private void createImported(
             String normalizedUrl,
+            String canonicalUrl,
             String addedAt,
             String thumbnailPath,
             String thumbnailLargePath,
@@ -330,12 +422,13 @@ public class EntryService {
             List<String> listNames,
             List<String> tags
     ) {
-        if (entries.getByUrl(normalizedUrl).isPresent()) {
+        if (entries.findByUrlOrCanonical(normalizedUrl, canonicalUrl).isPresent()) {
             throw new VestigiumException("ENTRY_URL_ALREADY_EXISTS", HttpStatus.CONFLICT, "URL already exists.");
         }
         var now = com.vestigium.persistence.InstantSql.nowIso();
         var createdAt = (addedAt == null || addedAt.isBlank()) ? now : addedAt.trim();
-        var entry = entries.createWithTimestamps(normalizedUrl, title, description, null, false, createdAt, createdAt);
+        var entry = entries.createWithTimestamps(normalizedUrl, canonicalUrl, title, description, null, false, createdAt, createdAt);
+        events.publishEvent(new EntriesChangedEvent(EntriesChangedEvent.Change.ADDED, List.of(entry.id())));
         if (detailedDescription != null && !detailedDescription.isBlank()) {
             entries.updateCore(entry.id(), null, null, detailedDescription.trim(), null, null);
             entry = entries.getById(entry.id()).orElseThrow();
@@ -496,7 +589,8 @@ public class EntryService {
                                 stored.originalName(),
                                 stored.mimeType(),
                                 stored.sizeBytes(),
-                                stored.storagePath()
+                                stored.storagePath(),
+                                stored.blobHash()
                         )
                 );
             } catch (IOException e) {
@@ -506,7 +600,7 @@ public class EntryService {
         return out;
     }
 
-    private static String classifyAttachmentKind(String mimeType) {
+    static String classifyAttachmentKind(String mimeType) {
         if (mimeType == null) {
             return "OTHER";
         }
@@ -520,28 +614,12 @@ public class EntryService {
         return "OTHER";
     }
 
-    private static String normalizeUrl(String url) {
+    static String normalizeUrl(String url) {
         if (url == null || url.isBlank()) {
             throw new VestigiumException("URL_REQUIRED", HttpStatus.BAD_REQUEST, "url is required.");
         }
         try {
-            var uri = URI.create(url.trim());
-            if (uri.getScheme() == null || uri.getHost() == null) {
-                throw new IllegalArgumentException("Missing scheme or host");
-            }
-            if (!uri.getScheme().equalsIgnoreCase("http") && !uri.getScheme().equalsIgnoreCase("https")) {
-                throw new IllegalArgumentException("Only http/https supported");
-            }
-            // Normalize a bit (lowercase scheme/host)
-            return new URI(
-                    uri.getScheme().toLowerCase(),
-                    uri.getUserInfo(),
-                    uri.getHost().toLowerCase(),
-                    uri.getPort(),
-                    uri.getPath(),
-                    uri.getQuery(),
-                    uri.getFragment()
-            ).toString();
+            return UrlCanonicalizer.clean(url);
         } catch (Exception e) {
             throw new VestigiumException("URL_INVALID", HttpStatus.BAD_REQUEST, "url is invalid.");
         }
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.regex.Pattern;
 import org.springframework.stereotype.Component;
 
@@ -41,6 +42,86 @@ public class LlmRecommendationParser {
         return new Result(List.copyOf(out));
     }
 
+    /**
+     * Parser for an answer that arrives in pieces: each {@link Incremental#feed} returns the recommendation objects
+     * completed by that piece, so they can be shown before the model has finished.
+     */
+    public Incremental incremental() {
+        return new Incremental();
+    }
+
+    /**
+     * Scans the growing text for the {@code recommendations} array and parses each element once its closing brace
+     * arrives. Elements that are not valid JSON or have no id are skipped.
+     */
+    public final class Incremental {
+
+        private final StringBuilder buffer = new StringBuilder();
+        private int position = -1;
+        private int depth;
+        private int objectStart;
+        private boolean inString;
+        private boolean escaped;
+        private boolean finished;
+
+        public List<Item> feed(String piece) {
+            buffer.append(piece == null ? "" : piece);
+            var out = new ArrayList<Item>();
+            if (position < 0 && !findArray()) {
+                return out;
+            }
+            for (; position < buffer.length() && !finished; position++) {
+                var c = buffer.charAt(position);
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{') {
+                    if (depth++ == 0) {
+                        objectStart = position;
+                    }
+                } else if (c == '}' && depth > 0) {
+                    if (--depth == 0) {
+                        element(buffer.substring(objectStart, position + 1)).ifPresent(out::add);
+                    }
+                } else if (c == ']' && depth == 0) {
+                    finished = true;
+                }
+            }
+            return out;
+        }
+
+        private boolean findArray() {
+            var key = buffer.indexOf("\"recommendations\"");
+            var open = key < 0 ? -1 : buffer.indexOf("[", key);
+            if (open < 0) {
+                return false;
+            }
+            position = open + 1;
+            return true;
+        }
+
+        private Optional<Item> element(String json) {
+            try {
+                var node = objectMapper.readTree(json);
+                var id = text(node, "id");
+                if (id == null) {
+                    return Optional.empty();
+                }
+                var reason = text(node, "reason");
+                return Optional.of(new Item(id, reason == null ? "" : reason));
+            } catch (Exception e) {
+                return Optional.empty();
+            }
+        }
+    }
+
     private static String text(JsonNode node, String field) {
         if (node == null) return null;
         var v = node.path(field);
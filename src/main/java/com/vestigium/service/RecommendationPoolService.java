@@ -0,0 +1,240 @@
+package com.vestigium.service;
+
+import com.vestigium.events.EntriesChangedEvent;
+import com.vestigium.llm.GeminiQuotaException;
+import com.vestigium.persistence.EntryRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ranked recommendations per preset prompt and NSFW mode, computed in the background so preset requests are answered
+ * without a model call. A pool keeps serving (minus visited and removed entries) until it is refreshed, which happens
+ * when entries were added since it was computed, when visits have used it up, or when it is older than
+ * {@code max-age-hours}. Each run refreshes at most {@code refreshes-per-run} pools, missing ones first, so live
+ * requests keep most of the model quota. Runs happen on their own virtual thread: the model calls would otherwise hold
+ * the shared scheduler thread that job polling and the other periodic tasks run on.
+ */
+@Service
+public class RecommendationPoolService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationPoolService.class);
+
+    private final RecommendationService recommendations;
+    private final EntryRepository entries;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int poolSize;
+    private final int refillBelow;
+    private final int refreshesPerRun;
+    private final Duration maxAge;
+
+    private final Map<PoolKey, Pool> pools = new ConcurrentHashMap<>();
+    /** Bumped on every addition; a pool computed under an older generation has not seen the new entries. */
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    public RecommendationPoolService(
+            RecommendationService recommendations,
+            EntryRepository entries,
+            @Value("${vestigium.recommendations.pool.enabled:true}") boolean enabled,
+            @Value("${vestigium.recommendations.pool.size:30}") int poolSize,
+            @Value("${vestigium.recommendations.pool.refill-below:10}") int refillBelow,
+            @Value("${vestigium.recommendations.pool.refreshes-per-run:2}") int refreshesPerRun,
+            @Value("${vestigium.recommendations.pool.max-age-hours:24}") long maxAgeHours
+    ) {
+        this(recommendations, entries, Clock.systemUTC(), enabled, poolSize, refillBelow, refreshesPerRun, Duration.ofHours(maxAgeHours));
+    }
+
+    RecommendationPoolService(
+            RecommendationService recommendations,
+            EntryRepository entries,
+            Clock clock,
+            boolean enabled,
+            int poolSize,
+            int refillBelow,
+            int refreshesPerRun,
+            Duration maxAge
+    ) {
+        this.recommendations = recommendations;
+        this.entries = entries;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.poolSize = Math.min(Math.max(1, poolSize), RecommendationService.MAX_PICKS);
+        this.refillBelow = Math.max(1, refillBelow);
+        this.refreshesPerRun = Math.max(1, refreshesPerRun);
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Up to {@code limit} pooled recommendations that are still unvisited, best first. Empty when {@code promptId} is
+     * not a preset or its pool has not been computed yet (or is used up); the caller then asks the model live.
+     */
+    public Optional<RecommendationService.LlmResult> serve(String promptId, int limit, boolean includeNsfw) {
+        var key = key(promptId, includeNsfw);
+        var pool = key == null || !enabled ? null : pools.get(key);
+        if (pool == null || pool.items().isEmpty()) {
+            return Optional.empty();
+        }
+        var reasons = new HashMap<String, String>();
+        pool.items().forEach(i -> reasons.put(i.entryId(), i.reason()));
+        var out = new ArrayList<RecommendationService.LlmItem>();
+        for (var entry : entries.listByIds(pool.items().stream().map(PoolItem::entryId).toList())) {
+            if (entry.visitedAt() == null) {
+                out.add(new RecommendationService.LlmItem(entry, reasons.get(entry.id())));
+            }
+            if (out.size() >= Math.max(1, limit)) {
+                break;
+            }
+        }
+        return out.isEmpty() ? Optional.empty() : Optional.of(new RecommendationService.LlmResult(List.copyOf(out)));
+    }
+
+    @EventListener
+    public void onEntriesChanged(EntriesChangedEvent event) {
+        if (event.change() == EntriesChangedEvent.Change.ADDED) {
+            generation.incrementAndGet();
+            return;
+        }
+        var gone = new HashSet<>(event.entryIds());
+        pools.replaceAll((key, pool) -> pool.without(gone));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts a {@link #refreshDue} run in the background unless the previous one is still going.
+     */
+    @Scheduled(
+            fixedDelayString = "${vestigium.recommendations.pool.refresh-delay-ms:60000}",
+            initialDelayString = "${vestigium.recommendations.pool.initial-delay-ms:30000}"
+    )
+    public void scheduleRefresh() {
+        if (!enabled || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.submit(() -> {
+                try {
+                    refreshDue();
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            throw e;
+        }
+    }
+
+    public void refreshDue() {
+        if (!enabled) {
+            return;
+        }
+        var due = new ArrayList<PoolKey>();
+        for (var promptId : RecommendationService.PRESET_GOALS.keySet()) {
+            for (var includeNsfw : List.of(true, false)) {
+                var key = new PoolKey(promptId, includeNsfw);
+                if (needsRefresh(pools.get(key))) {
+                    due.add(key);
+                }
+            }
+        }
+        due.sort(Comparator.comparing((PoolKey k) -> Optional.ofNullable(pools.get(k)).map(Pool::computedAt).orElse(Instant.MIN)));
+        for (var key : due.subList(0, Math.min(refreshesPerRun, due.size()))) {
+            try {
+                refresh(key);
+            } catch (GeminiQuotaException e) {
+                log.info("Recommendation pool refresh deferred, LLM quota exhausted until {}", e.getRetryAt());
+                return;
+            } catch (Exception e) {
+                log.warn("Recommendation pool refresh failed for {}: {}", key, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public List<PoolStatus> status() {
+        return pools.entrySet().stream()
+                .map(e -> new PoolStatus(
+                        e.getKey().promptId(),
+                        e.getKey().includeNsfw(),
+                        e.getValue().items().size(),
+                        e.getValue().computedAt(),
+                        needsRefresh(e.getValue())
+                ))
+                .sorted(Comparator.comparing(PoolStatus::promptId).thenComparing(PoolStatus::includeNsfw))
+                .toList();
+    }
+
+    void refresh(PoolKey key) throws Exception {
+        // Read before sampling: an addition during the model call leaves the new pool due again.
+        var seen = generation.get();
+        var started = System.nanoTime();
+        var ranked = recommendations.rankForPool(key.promptId(), key.includeNsfw(), poolSize);
+        var items = ranked.stream().map(i -> new PoolItem(i.entry().id(), i.reason())).toList();
+        pools.put(key, new Pool(items, items.size(), seen, clock.instant()));
+        log.info(
+                "Recomputed recommendation pool {} with {} items in {}ms",
+                key, items.size(), Duration.ofNanos(System.nanoTime() - started).toMillis()
+        );
+    }
+
+    private boolean needsRefresh(Pool pool) {
+        if (pool == null) {
+            return true;
+        }
+        // A pool that came out small (few candidates) is only due again once something in it changed.
+        var usedUp = pool.items().size() < Math.min(refillBelow, pool.computedSize());
+        var expired = pool.computedAt().plus(maxAge).isBefore(clock.instant());
+        return usedUp || expired || pool.generation() != generation.get();
+    }
+
+    private static PoolKey key(String promptId, boolean includeNsfw) {
+        var id = promptId == null ? "" : promptId.trim().toLowerCase();
+        return RecommendationService.PRESET_GOALS.containsKey(id) ? new PoolKey(id, includeNsfw) : null;
+    }
+
+    record PoolKey(String promptId, boolean includeNsfw) {}
+
+    private record PoolItem(String entryId, String reason) {}
+
+    private record Pool(List<PoolItem> items, int computedSize, long generation, Instant computedAt) {
+
+        Pool without(Set<String> entryIds) {
+            var kept = items.stream().filter(i -> !entryIds.contains(i.entryId())).toList();
+            return kept.size() == items.size() ? this : new Pool(kept, computedSize, generation, computedAt);
+        }
+    }
+
+    /**
+     * @param due whether the next refresh run will recompute this pool
+     */
+    public record PoolStatus(String promptId, boolean includeNsfw, int size, Instant computedAt, boolean due) {}
+}
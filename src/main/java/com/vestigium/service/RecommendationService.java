@@ -4,24 +4,57 @@ import com.vestigium.domain.Entry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vestigium.llm.GeminiClient;
 import com.vestigium.persistence.EntryRepository;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class RecommendationService {
 
+    private static final Logger log = LoggerFactory.getLogger(RecommendationService.class);
+
+    /** Most recommendations one answer can hold, live or pooled. */
+    public static final int MAX_PICKS = 30;
+
+    /** Candidates sent to the model when there is no semantic preselection. */
+    private static final int RANDOM_CANDIDATES = 100;
+
+    /** Goals behind the preset buttons, by prompt id. */
+    public static final Map<String, String> PRESET_GOALS = presetGoals();
+
     private final EntryRepository entries;
     private final GeminiClient gemini;
     private final LlmRecommendationParser parser;
     private final ObjectMapper objectMapper;
+    private final SemanticSearchService semanticSearch;
+    private final int similarCandidates;
+    private final int diverseCandidates;
 
-    public RecommendationService(EntryRepository entries, GeminiClient gemini, LlmRecommendationParser parser, ObjectMapper objectMapper) {
+    public RecommendationService(
+            EntryRepository entries,
+            GeminiClient gemini,
+            LlmRecommendationParser parser,
+            ObjectMapper objectMapper,
+            SemanticSearchService semanticSearch,
+            @Value("${vestigium.recommendations.preselect.similar:40}") int similarCandidates,
+            @Value("${vestigium.recommendations.preselect.diverse:10}") int diverseCandidates
+    ) {
         this.entries = entries;
         this.gemini = gemini;
         this.parser = parser;
         this.objectMapper = objectMapper;
+        this.semanticSearch = semanticSearch;
+        this.similarCandidates = Math.max(0, similarCandidates);
+        this.diverseCandidates = Math.max(0, diverseCandidates);
     }
 
     public List<Entry> randomUnvisited(int limit, boolean includeNsfw) {
@@ -29,53 +62,111 @@ public class RecommendationService {
         return entries.listRandomUnvisited(l, includeNsfw);
     }
 
-    public LlmResult recommendWithLlm(String promptId, String customPrompt, int limit, boolean includeNsfw) throws Exception {
-        int outLimit = Math.min(Math.max(limit, 1), 30);
-        // sample up to 100 unvisited candidates (random if more exist)
-        var candidates = entries.listRandomUnvisited(100, includeNsfw);
+    /**
+     * @param bypassCache ask the model again even if the same prompt over the same candidates was answered before
+     */
+    public LlmResult recommendWithLlm(String promptId, String customPrompt, int limit, boolean includeNsfw, boolean bypassCache) throws Exception {
+        var goal = buildUserPrompt(promptId, customPrompt);
+        var candidates = sampleCandidates(goal, includeNsfw);
         if (candidates.isEmpty()) {
             return new LlmResult(List.of());
         }
-
-        var userPrompt = buildUserPrompt(promptId, customPrompt);
-        var prompt = buildPrompt(userPrompt, candidates);
-        var modelText = gemini.generateText(prompt, List.of());
+        var prompt = buildPrompt(goal, candidates);
+        var modelText = gemini.generateText(prompt, List.of(), bypassCache);
         var parsed = parser.parse(modelText);
 
-        var byId = candidates.stream().collect(Collectors.toMap(Entry::id, e -> e, (a, b) -> a));
-        var out = new java.util.ArrayList<LlmItem>();
-        for (var rec : parsed.recommendations()) {
-            var e = byId.get(rec.id());
-            if (e == null) continue;
-            out.add(new LlmItem(e, rec.reason()));
-            if (out.size() >= outLimit) break;
+        var picks = new Picks(candidates, limit);
+        parsed.recommendations().forEach(picks::add);
+        return picks.result(item -> {});
+    }
+
+    /**
+     * Same as {@link #recommendWithLlm} but streams the model's answer: each recommendation is checked against the
+     * candidates and handed to {@code onItem} as soon as its JSON object is complete. The fallback picks, when the
+     * model returned no usable ids, are handed over at the end.
+     */
+    public LlmResult streamWithLlm(
+            String promptId,
+            String customPrompt,
+            int limit,
+            boolean includeNsfw,
+            boolean bypassCache,
+            Consumer<LlmItem> onItem
+    ) throws Exception {
+        var goal = buildUserPrompt(promptId, customPrompt);
+        var candidates = sampleCandidates(goal, includeNsfw);
+        if (candidates.isEmpty()) {
+            return new LlmResult(List.of());
         }
-        // Fallback: if model didn't return usable ids, just return a few random ones.
-        if (out.isEmpty()) {
-            for (var e : candidates) {
-                out.add(new LlmItem(e, "Random pick (LLM returned no usable ids)."));
-                if (out.size() >= outLimit) break;
+        var prompt = buildPrompt(goal, candidates);
+        var picks = new Picks(candidates, limit);
+        var incremental = parser.incremental();
+        gemini.streamText(prompt, bypassCache, GeminiClient.DEFAULT_MAX_OUTPUT_TOKENS, piece -> {
+            for (var rec : incremental.feed(piece)) {
+                picks.add(rec).ifPresent(onItem);
+            }
+        });
+        return picks.result(onItem);
+    }
+
+    /**
+     * Ranks a candidate sample for a preset, best match first, for {@link RecommendationPoolService}. Asks for more
+     * picks than a live request so the pool lasts while entries get visited.
+     */
+    public List<LlmItem> rankForPool(String promptId, boolean includeNsfw, int size) throws Exception {
+        var goal = buildUserPrompt(promptId, null);
+        var candidates = sampleCandidates(goal, includeNsfw);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        var prompt = buildPrompt(goal, candidates, Math.max(1, size / 2), size, true);
+        var parsed = parser.parse(gemini.generateText(prompt, List.of()));
+        var picks = new Picks(candidates, size);
+        parsed.recommendations().forEach(picks::add);
+        // No fallback picks here: a pool of random entries would be served as if the model had chosen them.
+        return picks.picked();
+    }
+
+    /**
+     * The unvisited entries closest in meaning to {@code goal}, plus a few random ones so the model can still pick
+     * something the goal's wording does not match. Falls back to 100 random candidates while the semantic index is
+     * not loaded. Sorted by id: the same candidate set builds the same prompt, which the LLM cache can answer.
+     */
+    private List<Entry> sampleCandidates(String goal, boolean includeNsfw) {
+        var similar = List.<Entry>of();
+        try {
+            similar = similarCandidates == 0 ? List.of() : semanticSearch.nearestUnvisited(goal, similarCandidates, includeNsfw);
+        } catch (Exception e) {
+            log.warn("Semantic preselection failed, using random candidates: {}", e.getMessage());
+        }
+        if (similar.isEmpty()) {
+            return sorted(entries.listRandomUnvisited(RANDOM_CANDIDATES, includeNsfw));
+        }
+        var candidates = new LinkedHashMap<String, Entry>();
+        similar.forEach(e -> candidates.put(e.id(), e));
+        var diverse = 0;
+        for (var e : entries.listRandomUnvisited(diverseCandidates + similar.size(), includeNsfw)) {
+            if (diverse >= diverseCandidates) {
+                break;
+            }
+            if (candidates.putIfAbsent(e.id(), e) == null) {
+                diverse++;
             }
         }
-        return new LlmResult(List.copyOf(out));
+        log.debug("Preselected {} similar and {} random candidates", similar.size(), diverse);
+        return sorted(candidates.values());
+    }
+
+    private static List<Entry> sorted(Collection<Entry> candidates) {
+        return candidates.stream()
+                .sorted(Comparator.comparing(Entry::id))
+                .toList();
     }
 
     private static String buildUserPrompt(String promptId, String customPrompt) {
         var p = (customPrompt == null ? "" : customPrompt.trim());
         var id = promptId == null ? "" : promptId.trim().toLowerCase();
-        var base = switch (id) {
-            case "movie" -> "I want to watch a good movie.";
-            case "short_funny" -> "I want to watch something short and funny.";
-            case "learn" -> "I want to learn something.";
-            case "music" -> "I want to listen to some good music.";
-            case "food" -> "I want to cook or eat something tasty.";
-            case "workout" -> "I want something about fitness or workouts.";
-            case "news" -> "I want to catch up on something interesting and current.";
-            case "coding" -> "I want to learn or practice coding.";
-            case "relax" -> "I want something relaxing.";
-            case "surprise" -> "Surprise me with something good.";
-            default -> "Recommend something I haven't viewed yet.";
-        };
+        var base = PRESET_GOALS.getOrDefault(id, "Recommend something I haven't viewed yet.");
 
         // If no custom prompt is provided, use the preset only.
         if (p.isBlank()) {
@@ -89,7 +180,26 @@ public class RecommendationService {
         return base + "\nAdditional context: " + p;
     }
 
+    private static Map<String, String> presetGoals() {
+        var goals = new LinkedHashMap<String, String>();
+        goals.put("movie", "I want to watch a good movie.");
+        goals.put("short_funny", "I want to watch something short and funny.");
+        goals.put("learn", "I want to learn something.");
+        goals.put("music", "I want to listen to some good music.");
+        goals.put("food", "I want to cook or eat something tasty.");
+        goals.put("workout", "I want something about fitness or workouts.");
+        goals.put("news", "I want to catch up on something interesting and current.");
+        goals.put("coding", "I want to learn or practice coding.");
+        goals.put("relax", "I want something relaxing.");
+        goals.put("surprise", "Surprise me with something good.");
+        return java.util.Collections.unmodifiableMap(goals);
+    }
+
     private String buildPrompt(String userPrompt, List<Entry> candidates) throws Exception {
+        return buildPrompt(userPrompt, candidates, 5, 15, false);
+    }
+
+    private String buildPrompt(String userPrompt, List<Entry> candidates, int minPicks, int maxPicks, boolean ranked) throws Exception {
         // Keep payload reasonably small: send only id/title/tags (+ short description if present).
         var items = new java.util.ArrayList<Map<String, Object>>();
         for (var e : candidates) {
@@ -119,10 +229,56 @@ public class RecommendationService {
                }
 
                Rules:
-               - pick 5 to 15 items max
+               - pick %d to %d items max
                - id MUST match one of the candidate ids exactly
                - reasons should be 1 sentence each
-               """.formatted(userPrompt, obj);
+               """.formatted(userPrompt, obj, minPicks, maxPicks)
+               + (ranked ? "- order them best match first\n" : "");
+    }
+
+    /**
+     * Recommendations that name a candidate, each entry once, up to the output limit.
+     */
+    private static final class Picks {
+
+        private final List<Entry> candidates;
+        private final Map<String, Entry> byId;
+        private final int limit;
+        private final Map<String, LlmItem> picked = new LinkedHashMap<>();
+
+        Picks(List<Entry> candidates, int limit) {
+            this.candidates = candidates;
+            this.byId = candidates.stream().collect(Collectors.toMap(Entry::id, e -> e, (a, b) -> a));
+            this.limit = Math.min(Math.max(limit, 1), MAX_PICKS);
+        }
+
+        Optional<LlmItem> add(LlmRecommendationParser.Item rec) {
+            var e = byId.get(rec.id());
+            if (e == null || picked.containsKey(e.id()) || picked.size() >= limit) {
+                return Optional.empty();
+            }
+            var item = new LlmItem(e, rec.reason());
+            picked.put(e.id(), item);
+            return Optional.of(item);
+        }
+
+        List<LlmItem> picked() {
+            return List.copyOf(picked.values());
+        }
+
+        /**
+         * Falls back to the first candidates when the model returned no usable ids; {@code onFallback} sees those.
+         */
+        LlmResult result(Consumer<LlmItem> onFallback) {
+            if (picked.isEmpty()) {
+                for (var e : candidates.subList(0, Math.min(limit, candidates.size()))) {
+                    var item = new LlmItem(e, "Random pick (LLM returned no usable ids).");
+                    picked.put(e.id(), item);
+                    onFallback.accept(item);
+                }
+            }
+            return new LlmResult(List.copyOf(picked.values()));
+        }
     }
 
     public record LlmItem(Entry entry, String reason) {}
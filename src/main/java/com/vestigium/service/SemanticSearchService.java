@@ -0,0 +1,89 @@
+package com.vestigium.service;
+
+import com.vestigium.domain.Entry;
+import com.vestigium.embed.SemanticIndex;
+import com.vestigium.persistence.EntryRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+/**
+ * Semantic search and related entries on top of {@link SemanticIndex}. The index knows only ids, so it is asked for
+ * a few more hits than needed and the NSFW filter is applied to the loaded entries.
+ */
+@Service
+public class SemanticSearchService {
+
+    private static final int MAX_LIMIT = 100;
+    private static final int OVERFETCH = 3;
+
+    private final SemanticIndex index;
+    private final EntryRepository entries;
+    private final NsfwConfigService nsfwConfig;
+
+    public SemanticSearchService(SemanticIndex index, EntryRepository entries, NsfwConfigService nsfwConfig) {
+        this.index = index;
+        this.entries = entries;
+        this.nsfwConfig = nsfwConfig;
+    }
+
+    public boolean ready() {
+        return index.ready();
+    }
+
+    public List<Hit> search(String query, int limit, boolean includeNsfw) throws Exception {
+        var l = clamp(limit);
+        return hits(index.search(query, overfetch(l, includeNsfw), id -> true), l, includeNsfw);
+    }
+
+    public List<Hit> related(String entryId, int limit, boolean includeNsfw) {
+        if (entries.getById(entryId).isEmpty()) {
+            throw new VestigiumException("ENTRY_NOT_FOUND", HttpStatus.NOT_FOUND, "Entry not found.");
+        }
+        var l = clamp(limit);
+        return hits(index.related(entryId, overfetch(l, includeNsfw), id -> true), l, includeNsfw);
+    }
+
+    /**
+     * Up to {@code limit} unvisited entries closest in meaning to {@code query}, best first. Empty while the index is
+     * not loaded.
+     */
+    public List<Entry> nearestUnvisited(String query, int limit, boolean includeNsfw) throws Exception {
+        if (!index.ready()) {
+            return List.of();
+        }
+        var unvisited = new HashSet<>(entries.listUnvisitedIds(includeNsfw));
+        var matches = index.search(query, limit, unvisited::contains);
+        return entries.listByIds(matches.stream().map(SemanticIndex.Match::entryId).toList());
+    }
+
+    private List<Hit> hits(List<SemanticIndex.Match> matches, int limit, boolean includeNsfw) {
+        var scores = new HashMap<String, Double>();
+        matches.forEach(m -> scores.put(m.entryId(), m.score()));
+        var nsfwTags = includeNsfw ? null : new HashSet<>(nsfwConfig.getNsfwTags());
+        var out = new ArrayList<Hit>(limit);
+        for (var entry : entries.listByIds(matches.stream().map(SemanticIndex.Match::entryId).toList())) {
+            if (nsfwTags != null && entry.tags().stream().anyMatch(nsfwTags::contains)) {
+                continue;
+            }
+            out.add(new Hit(entry, scores.get(entry.id())));
+            if (out.size() >= limit) {
+                break;
+            }
+        }
+        return out;
+    }
+
+    private static int clamp(int limit) {
+        return Math.min(Math.max(1, limit), MAX_LIMIT);
+    }
+
+    private static int overfetch(int limit, boolean includeNsfw) {
+        return includeNsfw ? limit + 1 : limit * OVERFETCH;
+    }
+
+    public record Hit(Entry entry, double score) {}
+}
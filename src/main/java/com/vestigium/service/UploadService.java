@@ -0,0 +1,341 @@
+package com.vestigium.service;
+
+import com.vestigium.domain.Attachment;
+import com.vestigium.domain.UploadSession;
+import com.vestigium.persistence.AttachmentRepository;
+import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.JobRepository;
+import com.vestigium.persistence.UploadSessionRepository;
+import com.vestigium.storage.BlobStore;
+import com.vestigium.storage.StoragePaths;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Resumable chunked uploads. Chunks are appended to a temp file next to the blob store while a SHA-256 digest is
+ * updated incrementally, so completing an upload is a rename into the store rather than another copy.
+ */
+@Service
+public class UploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadService.class);
+
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final UploadSessionRepository sessions;
+    private final EntryRepository entries;
+    private final AttachmentRepository attachments;
+    private final JobRepository jobs;
+    private final BlobStore blobStore;
+    private final StoragePaths paths;
+    private final long maxBytes;
+    private final Duration sessionTtl;
+
+    /**
+     * Digest state per open session. Lost on restart; rebuilt from the temp file on the next chunk.
+     */
+    private final Map<String, ChunkState> states = new ConcurrentHashMap<>();
+
+    public UploadService(
+            UploadSessionRepository sessions,
+            EntryRepository entries,
+            AttachmentRepository attachments,
+            JobRepository jobs,
+            BlobStore blobStore,
+            StoragePaths paths,
+            @Value("${vestigium.uploads.max-bytes:4294967296}") long maxBytes,
+            @Value("${vestigium.uploads.session-ttl-hours:24}") long sessionTtlHours
+    ) {
+        this.sessions = sessions;
+        this.entries = entries;
+        this.attachments = attachments;
+        this.jobs = jobs;
+        this.blobStore = blobStore;
+        this.paths = paths;
+        this.maxBytes = maxBytes;
+        this.sessionTtl = Duration.ofHours(sessionTtlHours);
+    }
+
+    public UploadSession createSession(String entryId, String fileName, String mimeType, long totalBytes) {
+        if (entries.getById(entryId).isEmpty()) {
+            throw new VestigiumException("ENTRY_NOT_FOUND", HttpStatus.NOT_FOUND, "Entry not found.");
+        }
+        if (totalBytes <= 0) {
+            throw new VestigiumException("UPLOAD_INVALID_SIZE", HttpStatus.BAD_REQUEST, "Upload size must be positive.");
+        }
+        if (totalBytes > maxBytes) {
+            throw new VestigiumException("UPLOAD_TOO_LARGE", HttpStatus.PAYLOAD_TOO_LARGE, "Upload exceeds the maximum size.");
+        }
+        var name = fileName == null || fileName.isBlank() ? "upload" : sanitizeFileName(fileName);
+        var mime = mimeType == null || mimeType.isBlank() ? MediaType.APPLICATION_OCTET_STREAM_VALUE : mimeType.trim();
+        try {
+            var tmp = blobStore.newTempFile();
+            return sessions.create(entryId, name, mime, totalBytes, relativePath(tmp));
+        } catch (IOException e) {
+            throw new VestigiumException("UPLOAD_SESSION_FAILED", HttpStatus.INTERNAL_SERVER_ERROR, "Failed to create upload session.");
+        }
+    }
+
+    public UploadSession get(String sessionId) {
+        return sessions.getById(sessionId)
+                .orElseThrow(() -> new VestigiumException("UPLOAD_NOT_FOUND", HttpStatus.NOT_FOUND, "Upload session not found."));
+    }
+
+    /**
+     * Writes a chunk at {@code offset}, which must equal the bytes received so far. A client that lost a response
+     * reads the session, then resumes from its {@code receivedBytes}.
+     */
+    public UploadSession appendChunk(String sessionId, long offset, InputStream body) {
+        var state = openState(sessionId);
+        synchronized (state) {
+            var session = requireOpen(sessionId, state);
+            if (offset != session.receivedBytes()) {
+                throw new VestigiumException(
+                        "UPLOAD_OFFSET_MISMATCH",
+                        HttpStatus.CONFLICT,
+                        "Expected offset " + session.receivedBytes() + "."
+                );
+            }
+            var file = resolve(session.tempPath());
+            try {
+                state.catchUp(file, offset);
+                long position = offset;
+                try (var channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+                    // Drop bytes from a chunk that was interrupted before its offset was recorded.
+                    channel.truncate(offset);
+                    channel.position(offset);
+                    var buffer = new byte[COPY_BUFFER_BYTES];
+                    int read;
+                    while ((read = body.read(buffer)) != -1) {
+                        if (position + read > session.totalBytes()) {
+                            throw new VestigiumException("UPLOAD_TOO_LARGE", HttpStatus.PAYLOAD_TOO_LARGE, "Chunk exceeds the declared upload size.");
+                        }
+                        var bb = ByteBuffer.wrap(buffer, 0, read);
+                        while (bb.hasRemaining()) {
+                            channel.write(bb);
+                        }
+                        state.digest.update(buffer, 0, read);
+                        position += read;
+                    }
+                } catch (VestigiumException e) {
+                    state.invalidate();
+                    throw e;
+                }
+                state.hashedBytes = position;
+                sessions.updateReceived(sessionId, position);
+                return sessions.getById(sessionId).orElseThrow();
+            } catch (IOException e) {
+                // The digest may have consumed bytes that never reached the file; rebuild it on the next chunk.
+                state.invalidate();
+                throw new VestigiumException("UPLOAD_WRITE_FAILED", HttpStatus.INTERNAL_SERVER_ERROR, "Failed to write upload chunk.");
+            }
+        }
+    }
+
+    /**
+     * Moves the finished file into the blob store and links it to the entry as an attachment.
+     */
+    public Attachment complete(String sessionId, String expectedSha256) {
+        var completed = completedAttachment(get(sessionId));
+        if (completed != null) {
+            return completed;
+        }
+        var state = openState(sessionId);
+        synchronized (state) {
+            // Another request may have completed the session while this one waited for the lock.
+            var session = get(sessionId, state);
+            completed = completedAttachment(session);
+            if (completed != null) {
+                states.remove(sessionId, state);
+                return completed;
+            }
+            requireOpen(session, state);
+            if (session.receivedBytes() != session.totalBytes()) {
+                throw new VestigiumException(
+                        "UPLOAD_INCOMPLETE",
+                        HttpStatus.CONFLICT,
+                        "Received " + session.receivedBytes() + " of " + session.totalBytes() + " bytes."
+                );
+            }
+            var file = resolve(session.tempPath());
+            try {
+                state.catchUp(file, session.totalBytes());
+                var hash = HexFormat.of().formatHex(state.digest.digest());
+                state.invalidate();
+                if (expectedSha256 != null && !expectedSha256.isBlank() && !expectedSha256.trim().equalsIgnoreCase(hash)) {
+                    throw new VestigiumException("UPLOAD_CHECKSUM_MISMATCH", HttpStatus.UNPROCESSABLE_ENTITY, "Upload checksum does not match.");
+                }
+                var blob = blobStore.adopt(file, hash, session.totalBytes(), session.mimeType());
+                Files.deleteIfExists(file);
+                var attachment = attachments.create(
+                        session.entryId(),
+                        EntryService.classifyAttachmentKind(session.mimeType()),
+                        session.originalName(),
+                        session.mimeType(),
+                        session.totalBytes(),
+                        blob.storagePath(),
+                        blob.hash()
+                );
+                sessions.markCompleted(sessionId, attachment.id());
+                states.remove(sessionId);
+                // Attachments feed enrichment (PDF text, images), so pre-process the new file and refresh enrichment.
+                jobs.enqueue("PREPROCESS_ATTACHMENTS", session.entryId(), "{\"attachmentId\":\"" + attachment.id() + "\"}");
+                jobs.enqueue("ENRICH_ENTRY", session.entryId(), null);
+                return attachment;
+            } catch (IOException e) {
+                throw new VestigiumException("UPLOAD_COMPLETE_FAILED", HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store upload.");
+            }
+        }
+    }
+
+    public void abort(String sessionId) {
+        var session = get(sessionId);
+        var state = states.computeIfAbsent(sessionId, id -> new ChunkState());
+        synchronized (state) {
+            deleteTemp(session);
+            sessions.deleteById(sessionId);
+            states.remove(sessionId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${vestigium.uploads.cleanup-delay-ms:3600000}")
+    public void cleanupStaleSessions() {
+        var cutoff = Instant.now().minus(sessionTtl).toString();
+        for (var session : sessions.listUpdatedBefore(cutoff)) {
+            try {
+                abort(session.id());
+            } catch (Exception e) {
+                log.debug("Failed to clean up upload session {}: {}", session.id(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Digest state of an open session. The session is checked before the state is created, so requests for unknown,
+     * aborted or completed ids leave nothing behind.
+     */
+    private ChunkState openState(String sessionId) {
+        requireOpen(get(sessionId));
+        return states.computeIfAbsent(sessionId, id -> new ChunkState());
+    }
+
+    /**
+     * Re-reads the session under its state lock; a session closed in the meantime drops the state.
+     */
+    private UploadSession requireOpen(String sessionId, ChunkState state) {
+        return requireOpen(get(sessionId, state), state);
+    }
+
+    private UploadSession requireOpen(UploadSession session, ChunkState state) {
+        try {
+            return requireOpen(session);
+        } catch (VestigiumException e) {
+            states.remove(session.id(), state);
+            throw e;
+        }
+    }
+
+    private UploadSession get(String sessionId, ChunkState state) {
+        try {
+            return get(sessionId);
+        } catch (VestigiumException e) {
+            states.remove(sessionId, state);
+            throw e;
+        }
+    }
+
+    private static UploadSession requireOpen(UploadSession session) {
+        if (!"OPEN".equals(session.status())) {
+            throw new VestigiumException("UPLOAD_NOT_OPEN", HttpStatus.CONFLICT, "Upload session is already completed.");
+        }
+        return session;
+    }
+
+    private Attachment completedAttachment(UploadSession session) {
+        if ("COMPLETED".equals(session.status()) && session.attachmentId() != null) {
+            return attachments.getById(session.attachmentId()).orElseThrow();
+        }
+        return null;
+    }
+
+    private void deleteTemp(UploadSession session) {
+        try {
+            Files.deleteIfExists(resolve(session.tempPath()));
+        } catch (IOException | IllegalArgumentException ignored) {
+            // ignore best-effort cleanup
+        }
+    }
+
+    private Path resolve(String relativePath) {
+        var absolute = paths.root().resolve(relativePath).normalize();
+        if (!absolute.startsWith(paths.root())) {
+            throw new IllegalArgumentException("Path escapes storage root");
+        }
+        return absolute;
+    }
+
+    private String relativePath(Path absolute) {
+        return paths.root().relativize(absolute).toString().replace('\\', '/');
+    }
+
+    private static String sanitizeFileName(String name) {
+        var cleaned = name.trim().replace('\\', '_').replace('/', '_');
+        cleaned = cleaned.replaceAll("[^a-zA-Z0-9._ -]", "_");
+        cleaned = cleaned.replaceAll("\\s+", " ");
+        return cleaned.isBlank() ? "upload" : cleaned;
+    }
+
+    private static final class ChunkState {
+        private MessageDigest digest = BlobStore.newDigest();
+        private long hashedBytes = 0;
+        private boolean valid = true;
+
+        /**
+         * Makes the digest cover exactly the first {@code offset} bytes of the file, re-reading it if the in-memory
+         * state was lost (restart) or invalidated (failed chunk).
+         */
+        void catchUp(Path file, long offset) throws IOException {
+            if (valid && hashedBytes == offset) {
+                return;
+            }
+            digest = BlobStore.newDigest();
+            hashedBytes = 0;
+            if (offset > 0) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    var buffer = new byte[COPY_BUFFER_BYTES];
+                    while (hashedBytes < offset) {
+                        var read = in.read(buffer, 0, (int) Math.min(buffer.length, offset - hashedBytes));
+                        if (read < 0) {
+                            throw new IOException("Upload temp file is shorter than recorded offset");
+                        }
+                        digest.update(buffer, 0, read);
+                        hashedBytes += read;
+                    }
+                }
+            }
+            valid = true;
+        }
+
+        void invalidate() {
+            valid = false;
+        }
+    }
+}
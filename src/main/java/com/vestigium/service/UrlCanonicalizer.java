@@ -0,0 +1,248 @@
+package com.vestigium.service;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * URL normalization in two strengths. {@link #clean} is what an entry stores as its URL: the submitted URL with the
+ * scheme and host lowercased and tracking parameters removed, nothing else. {@link #canonicalize} is the rule-based
+ * canonical URL used to find duplicates: fragments, default ports and a bare root slash are dropped as well, and
+ * per-host rules map mobile hosts and alternate link forms (youtu.be, old.reddit.com, twitter.com, Amazon product
+ * slugs) onto one URL per page. Neither needs the network.
+ * <p>
+ * Redirects and {@code <link rel=canonical>} need a fetch; see {@link CanonicalUrlResolver}.
+ */
+public final class UrlCanonicalizer {
+
+    /** Query parameters that only record where a click came from. Matched case-insensitively. */
+    private static final Set<String> TRACKING_PARAMS = Set.of(
+            "fbclid", "gclid", "gclsrc", "dclid", "gbraid", "wbraid", "msclkid", "yclid", "twclid", "ttclid",
+            "li_fat_id", "mc_cid", "mc_eid", "igshid", "igsh", "_hsenc", "_hsmi", "__hstc", "__hssc", "__hsfp",
+            "mkt_tok", "oly_anon_id", "oly_enc_id", "vero_id", "vero_conv", "rb_clickid", "_ga", "_gl",
+            "pk_campaign", "pk_kwd", "pk_source", "pk_medium", "pk_content", "ref_src", "ref_url"
+    );
+    private static final List<String> TRACKING_PREFIXES = List.of("utm_", "mtm_");
+
+    private static final Set<String> YOUTUBE_HOSTS = Set.of("youtube.com", "www.youtube.com", "m.youtube.com");
+    private static final Set<String> REDDIT_HOSTS = Set.of("reddit.com", "www.reddit.com", "old.reddit.com", "np.reddit.com", "m.reddit.com", "new.reddit.com");
+    private static final Set<String> TWITTER_HOSTS = Set.of("twitter.com", "www.twitter.com", "mobile.twitter.com", "www.x.com", "mobile.x.com", "x.com");
+    private static final Set<String> FACEBOOK_HOSTS = Set.of("facebook.com", "m.facebook.com", "mobile.facebook.com", "mbasic.facebook.com");
+    private static final Set<String> IMDB_HOSTS = Set.of("imdb.com", "www.imdb.com", "m.imdb.com");
+
+    private static final Pattern VIDEO_ID = Pattern.compile("^[A-Za-z0-9_-]{6,}$");
+    private static final Pattern YOUTUBE_ID_PATH = Pattern.compile("^/(?:embed|live|v)/([A-Za-z0-9_-]{6,})/?$");
+    private static final Pattern YOUTUBE_SHORTS_PATH = Pattern.compile("^/shorts/([A-Za-z0-9_-]{6,})/?$");
+    private static final Pattern WIKI_MOBILE_HOST = Pattern.compile("^([a-z0-9-]+)\\.m\\.(wik[a-z]+\\.org)$");
+    private static final Pattern AMAZON_HOST = Pattern.compile("^(?:www\\.|smile\\.|m\\.)?(amazon\\.[a-z.]+)$");
+    private static final Pattern AMAZON_PRODUCT_PATH = Pattern.compile("/(?:dp|gp/product|gp/aw/d)/([A-Z0-9]{10})(?:[/?]|$)");
+
+    private UrlCanonicalizer() {}
+
+    /**
+     * {@code url} with a lowercase scheme and host and without tracking parameters; path, port, the other
+     * parameters and the fragment are kept as submitted.
+     *
+     * @throws IllegalArgumentException when {@code url} is not an absolute http or https URL
+     */
+    public static String clean(String url) {
+        return parse(url).toUrl();
+    }
+
+    /**
+     * The canonical form of an absolute http(s) URL.
+     *
+     * @throws IllegalArgumentException when {@code url} is not an absolute http or https URL
+     */
+    public static String canonicalize(String url) {
+        var parsed = parse(url);
+        var parts = new Parts(
+                parsed.scheme,
+                parsed.userInfo,
+                parsed.host,
+                isDefaultPort(parsed.scheme, parsed.port) ? -1 : parsed.port,
+                parsed.path,
+                parsed.params,
+                keepFragment(parsed.fragment) ? parsed.fragment : null
+        );
+        parts = applyHostRules(parts);
+        // A lone "/" is the same resource as no path at all.
+        var bare = parts.params.isEmpty() && parts.fragment == null;
+        var path = parts.path.equals("/") && bare ? "" : parts.path.isEmpty() && !bare ? "/" : parts.path;
+        return new Parts(parts.scheme, parts.userInfo, parts.host, parts.port, path, parts.params, parts.fragment).toUrl();
+    }
+
+    private static Parts parse(String url) {
+        var uri = URI.create(url.trim());
+        var scheme = uri.getScheme() == null ? null : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (scheme == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("Missing scheme or host");
+        }
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            throw new IllegalArgumentException("Only http/https supported");
+        }
+        return new Parts(
+                scheme,
+                uri.getRawUserInfo(),
+                uri.getHost().toLowerCase(Locale.ROOT),
+                uri.getPort(),
+                uri.getRawPath() == null ? "" : uri.getRawPath(),
+                stripTrackingParams(queryParams(uri.getRawQuery())),
+                uri.getRawFragment()
+        );
+    }
+
+    private static Parts applyHostRules(Parts p) {
+        var host = p.host;
+        if (host.equals("youtu.be")) {
+            var id = p.path.length() > 1 ? p.path.substring(1).split("/")[0] : "";
+            return VIDEO_ID.matcher(id).matches() ? youtubeWatch(id, p.param("list")) : p;
+        }
+        if (YOUTUBE_HOSTS.contains(host)) {
+            var shorts = YOUTUBE_SHORTS_PATH.matcher(p.path);
+            if (shorts.matches()) {
+                return new Parts("https", null, "www.youtube.com", -1, "/shorts/" + shorts.group(1), List.of(), null);
+            }
+            var idPath = YOUTUBE_ID_PATH.matcher(p.path);
+            if (idPath.matches()) {
+                return youtubeWatch(idPath.group(1), null);
+            }
+            var v = p.param("v");
+            if (p.path.equals("/watch") && v != null && VIDEO_ID.matcher(v).matches()) {
+                return youtubeWatch(v, p.param("list"));
+            }
+            return p.withHost("www.youtube.com").withoutParams(Set.of("si", "feature", "pp"));
+        }
+        if (REDDIT_HOSTS.contains(host)) {
+            return p.withHost("www.reddit.com").withoutParams(Set.of("share_id", "rdt", "ref", "ref_source", "utm_name"));
+        }
+        if (TWITTER_HOSTS.contains(host)) {
+            var x = p.withHost("x.com");
+            return p.path.contains("/status/") ? x.withoutParams(null) : x.withoutParams(Set.of("s", "t"));
+        }
+        if (FACEBOOK_HOSTS.contains(host)) {
+            return p.withHost("www.facebook.com").withoutParams(Set.of("mibextid", "rdid", "sfnsn"));
+        }
+        if (IMDB_HOSTS.contains(host)) {
+            return p.withHost("www.imdb.com").withoutParams(Set.of("ref_"));
+        }
+        var wiki = WIKI_MOBILE_HOST.matcher(host);
+        if (wiki.matches()) {
+            return p.withHost(wiki.group(1) + "." + wiki.group(2));
+        }
+        var amazon = AMAZON_HOST.matcher(host);
+        if (amazon.matches()) {
+            var product = AMAZON_PRODUCT_PATH.matcher(p.path);
+            if (product.find()) {
+                return new Parts("https", null, "www." + amazon.group(1), -1, "/dp/" + product.group(1), List.of(), null);
+            }
+        }
+        return p;
+    }
+
+    private static Parts youtubeWatch(String videoId, String list) {
+        var params = new ArrayList<String[]>();
+        params.add(new String[] {"v", videoId});
+        if (list != null && !list.isBlank()) {
+            params.add(new String[] {"list", list});
+        }
+        return new Parts("https", null, "www.youtube.com", -1, "/watch", params, null);
+    }
+
+    private static boolean isDefaultPort(String scheme, int port) {
+        return (scheme.equals("http") && port == 80) || (scheme.equals("https") && port == 443);
+    }
+
+    /**
+     * Fragments only select a position on the page, except for hash-routed single-page apps ({@code #!/...},
+     * {@code #/...}) where they are the address.
+     */
+    private static boolean keepFragment(String fragment) {
+        return fragment != null && (fragment.startsWith("!") || fragment.startsWith("/"));
+    }
+
+    /** Raw (still encoded) name/value pairs in their original order; a value is null for a bare {@code ?flag}. */
+    private static List<String[]> queryParams(String rawQuery) {
+        var out = new ArrayList<String[]>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return out;
+        }
+        for (var pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            var eq = pair.indexOf('=');
+            out.add(eq < 0 ? new String[] {pair, null} : new String[] {pair.substring(0, eq), pair.substring(eq + 1)});
+        }
+        return out;
+    }
+
+    private static List<String[]> stripTrackingParams(List<String[]> params) {
+        return params.stream().filter(p -> !isTracking(decode(p[0]))).toList();
+    }
+
+    private static boolean isTracking(String name) {
+        var n = name.toLowerCase(Locale.ROOT);
+        return TRACKING_PARAMS.contains(n) || TRACKING_PREFIXES.stream().anyMatch(n::startsWith);
+    }
+
+    private static String decode(String raw) {
+        try {
+            return URLDecoder.decode(raw, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return raw;
+        }
+    }
+
+    private record Parts(String scheme, String userInfo, String host, int port, String path, List<String[]> params, String fragment) {
+
+        Parts withHost(String newHost) {
+            return new Parts(scheme, userInfo, newHost, port, path, params, fragment);
+        }
+
+        /** Drops the named parameters, or all of them when {@code names} is null. */
+        Parts withoutParams(Set<String> names) {
+            var kept = names == null
+                    ? List.<String[]>of()
+                    : params.stream().filter(p -> !names.contains(decode(p[0]).toLowerCase(Locale.ROOT))).toList();
+            return new Parts(scheme, userInfo, host, port, path, kept, fragment);
+        }
+
+        String param(String name) {
+            for (var p : params) {
+                if (decode(p[0]).equals(name) && p[1] != null) {
+                    return decode(p[1]);
+                }
+            }
+            return null;
+        }
+
+        String toUrl() {
+            var sb = new StringBuilder(scheme).append("://");
+            if (userInfo != null) {
+                sb.append(userInfo).append('@');
+            }
+            sb.append(host);
+            if (port >= 0) {
+                sb.append(':').append(port);
+            }
+            sb.append(path);
+            for (int i = 0; i < params.size(); i++) {
+                var p = params.get(i);
+                sb.append(i == 0 ? '?' : '&').append(p[0]);
+                if (p[1] != null) {
+                    sb.append('=').append(p[1]);
+                }
+            }
+            if (fragment != null) {
+                sb.append('#').append(fragment);
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.vestigium.storage;
+
+import com.vestigium.domain.Blob;
+import com.vestigium.persistence.BlobRepository;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-addressed file store. Files live at {@code blobs/ab/cd/<sha256>} and are shared by every row that
+ * stores the same bytes; {@link BlobRepository} keeps the reference counts.
+ */
+@Component
+public class BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final StoragePaths paths;
+    private final BlobRepository blobs;
+
+    public BlobStore(StoragePaths paths, BlobRepository blobs) {
+        this.paths = paths;
+        this.blobs = blobs;
+    }
+
+    /**
+     * Stores bytes and acquires one reference. Nothing is written if a blob with the same hash exists.
+     */
+    public Blob put(byte[] bytes, String mimeType) throws IOException {
+        var hash = sha256Hex(bytes);
+        var existing = acquireExisting(hash);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        var tmp = newTempFile();
+        try {
+            Files.write(tmp, bytes);
+            return adopt(tmp, hash, bytes.length, mimeType);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Stores a re-readable source (e.g. an uploaded multipart file) and acquires one reference. The source is hashed
+     * first so duplicates are never copied.
+     */
+    public Blob putFrom(InputStreamSource source, String mimeType) throws IOException {
+        var digest = newDigest();
+        try (InputStream in = new DigestInputStream(source.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        var hash = HexFormat.of().formatHex(digest.digest());
+        var existing = acquireExisting(hash);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        var tmp = newTempFile();
+        try {
+            try (InputStream in = source.getInputStream()) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return adopt(tmp, hash, Files.size(tmp), mimeType);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Moves an already hashed file into the store and acquires one reference. If the blob already exists the file
+     * is left in place for the caller to clean up.
+     */
+    public synchronized Blob adopt(Path file, String hash, long sizeBytes, String mimeType) throws IOException {
+        var target = pathFor(hash);
+        var existing = blobs.find(hash);
+        if (existing.isPresent() && Files.exists(target)) {
+            blobs.incrementRef(hash);
+            return existing.get();
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (existing.isPresent()) {
+            // The row outlived its file (manual cleanup, partial restore); the rewrite above repaired it.
+            log.warn("Restored missing blob file hash={}", hash);
+            blobs.incrementRef(hash);
+            return existing.get();
+        }
+        return blobs.insert(hash, sizeBytes, mimeType, relativePath(target));
+    }
+
+    /**
+     * Drops one reference; the file and row are removed once nothing points at the blob.
+     */
+    public synchronized void release(String hash) {
+        if (hash == null || hash.isBlank()) {
+            return;
+        }
+        var remaining = blobs.decrementRef(hash);
+        if (remaining.isEmpty() || remaining.get() > 0) {
+            return;
+        }
+        blobs.deleteIfUnreferenced(hash);
+        try {
+            Files.deleteIfExists(pathFor(hash));
+        } catch (IOException e) {
+            log.warn("Failed to delete blob file hash={}: {}", hash, e.getMessage());
+        }
+    }
+
+    public Optional<Blob> find(String hash) {
+        return blobs.find(hash);
+    }
+
+    /**
+     * Temporary file on the same file system as the store, so {@link #adopt} can move it atomically.
+     */
+    public Path newTempFile() throws IOException {
+        var tmpDir = paths.blobsRoot().resolve(".tmp");
+        Files.createDirectories(tmpDir);
+        return Files.createTempFile(tmpDir, "blob-", ".part");
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String sha256Hex(byte[] bytes) {
+        return HexFormat.of().formatHex(newDigest().digest(bytes));
+    }
+
+    private synchronized Optional<Blob> acquireExisting(String hash) {
+        var existing = blobs.find(hash);
+        if (existing.isEmpty() || !Files.exists(pathFor(hash))) {
+            return Optional.empty();
+        }
+        blobs.incrementRef(hash);
+        return existing;
+    }
+
+    private Path pathFor(String hash) {
+        if (!SHA256_HEX.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Invalid blob hash");
+        }
+        return paths.blobsRoot().resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private String relativePath(Path absolute) {
+        return paths.root().relativize(absolute).toString().replace('\\', '/');
+    }
+}
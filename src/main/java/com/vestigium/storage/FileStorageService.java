@@ -1,12 +1,13 @@
 package com.vestigium.storage;
 
+import com.vestigium.persistence.BlobRepository;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
-import java.util.UUID;
 import java.util.stream.Stream;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
@@ -17,33 +18,28 @@ import org.springframework.web.multipart.MultipartFile;
 @Service
 public class FileStorageService {
 
+    private static final List<String> LEGACY_THUMBNAIL_EXTENSIONS = List.of("jpg", "webp");
+
     private final StoragePaths paths;
+    private final BlobStore blobStore;
+    private final BlobRepository blobs;
 
-    public FileStorageService(StoragePaths paths) {
+    public FileStorageService(StoragePaths paths, BlobStore blobStore, BlobRepository blobs) {
         this.paths = paths;
+        this.blobStore = blobStore;
+        this.blobs = blobs;
     }
 
+    /**
+     * Stores an upload in the blob store. Identical uploads share one file; the returned blob hash carries one
+     * reference that the attachment row owns.
+     */
     public StoredFile saveAttachment(String entryId, MultipartFile file) throws IOException {
         var originalName = file.getOriginalFilename() == null ? "upload" : file.getOriginalFilename();
         var safeName = sanitizeFileName(originalName);
-        var ext = extensionFromName(safeName);
-        var id = UUID.randomUUID().toString();
-
-        var entryDir = paths.attachmentsRoot().resolve(entryId).normalize();
-        ensureUnderRoot(paths.attachmentsRoot(), entryDir);
-        Files.createDirectories(entryDir);
-
-        var storedFileName = ext.isEmpty() ? id : (id + "." + ext);
-        var absolutePath = entryDir.resolve(storedFileName).normalize();
-        ensureUnderRoot(paths.attachmentsRoot(), absolutePath);
-
-        try (InputStream in = file.getInputStream()) {
-            Files.copy(in, absolutePath, StandardCopyOption.REPLACE_EXISTING);
-        }
-
-        var relPath = paths.root().relativize(absolutePath).toString().replace('\\', '/');
         var mimeType = file.getContentType() == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE : file.getContentType();
-        return new StoredFile(relPath, safeName, mimeType, Files.size(absolutePath));
+        var blob = blobStore.putFrom(file, mimeType);
+        return new StoredFile(blob.storagePath(), safeName, mimeType, blob.sizeBytes(), blob.hash());
     }
 
     public StoredFile saveThumbnailJpeg(String entryId, byte[] jpegBytes) throws IOException {
@@ -52,17 +48,57 @@ public class FileStorageService {
 
     /**
      * Stores a thumbnail JPEG for an entry. Variant is optional (e.g. "large").
-     * If variant is null/blank, file name is "{entryId}.jpg". Otherwise "{entryId}-{variant}.jpg".
      */
     public StoredFile saveThumbnailJpeg(String entryId, String variant, byte[] jpegBytes) throws IOException {
+        return saveThumbnail(entryId, variant, "jpg", MediaType.IMAGE_JPEG_VALUE, jpegBytes);
+    }
+
+    /**
+     * Stores an encoded thumbnail in the blob store. The returned blob hash carries one reference that the
+     * thumbnail row owns; the original name stays "{entryId}[-{variant}].{extension}" for display/export.
+     */
+    public StoredFile saveThumbnail(String entryId, String variant, String extension, String mimeType, byte[] bytes) throws IOException {
         var suffix = (variant == null || variant.isBlank()) ? "" : ("-" + variant.trim().toLowerCase(Locale.ROOT));
-        var fileName = entryId + suffix + ".jpg";
-        var absolutePath = paths.thumbnailsRoot().resolve(fileName).normalize();
-        ensureUnderRoot(paths.thumbnailsRoot(), absolutePath);
-        Files.createDirectories(paths.thumbnailsRoot());
-        Files.write(absolutePath, jpegBytes);
-        var relPath = paths.root().relativize(absolutePath).toString().replace('\\', '/');
-        return new StoredFile(relPath, fileName, MediaType.IMAGE_JPEG_VALUE, jpegBytes.length);
+        var fileName = entryId + suffix + "." + extension;
+        var blob = blobStore.put(bytes, mimeType);
+        return new StoredFile(blob.storagePath(), fileName, mimeType, bytes.length, blob.hash());
+    }
+
+    /**
+     * Drops one reference per hash (a hash may appear more than once).
+     */
+    public void releaseBlobs(Collection<String> blobHashes) {
+        if (blobHashes == null) {
+            return;
+        }
+        for (var hash : blobHashes) {
+            blobStore.release(hash);
+        }
+    }
+
+    /**
+     * Blob references held by an entry's rows. Collect these before deleting the entry (rows cascade away).
+     */
+    public List<String> blobRefsForEntry(String entryId) {
+        return blobs.listRefsForEntry(entryId);
+    }
+
+    /**
+     * Deletes a pre-blob thumbnail file ({@code thumbnails/...}); blob paths are left alone.
+     */
+    public void deleteLegacyThumbnail(String relativePath) {
+        if (relativePath == null || relativePath.isBlank()) {
+            return;
+        }
+        var absolute = paths.root().resolve(relativePath).normalize();
+        if (!absolute.startsWith(paths.thumbnailsRoot())) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(absolute);
+        } catch (IOException ignored) {
+            // ignore best-effort cleanup
+        }
     }
 
     public Resource loadAsResource(String relativePath) {
@@ -71,33 +107,36 @@ public class FileStorageService {
         return new FileSystemResource(absolute);
     }
 
-    public void deleteEntryData(String entryId) throws IOException {
+    /**
+     * Releases the entry's blob references (see {@link #blobRefsForEntry}) and removes files written before the blob
+     * store existed.
+     */
+    public void deleteEntryData(String entryId, Collection<String> blobRefs) throws IOException {
         if (entryId == null || entryId.isBlank()) {
             return;
         }
+        releaseBlobs(blobRefs);
 
-        // Attachments directory: files/{entryId}
+        // Legacy attachments directory: files/{entryId}
         var entryDir = paths.attachmentsRoot().resolve(entryId).normalize();
         ensureUnderRoot(paths.attachmentsRoot(), entryDir);
         deleteRecursivelyIfExists(entryDir);
 
-        // Thumbnails: thumbnails/{entryId}.jpg and thumbnails/{entryId}-*.jpg
-        var thumbsDir = paths.thumbnailsRoot().normalize();
-        ensureUnderRoot(paths.thumbnailsRoot(), thumbsDir);
-        if (Files.exists(thumbsDir) && Files.isDirectory(thumbsDir)) {
-            try (Stream<Path> stream = Files.list(thumbsDir)) {
-                stream.forEach(p -> {
-                    try {
-                        var name = p.getFileName() == null ? "" : p.getFileName().toString();
-                        if (name.startsWith(entryId) && name.endsWith(".jpg")) {
-                            Files.deleteIfExists(p);
-                        }
-                    } catch (IOException ignored) {
-                        // ignore best-effort cleanup
-                    }
-                });
-            }
+        // Legacy thumbnails: thumbnails/{entryId}[-large].{jpg,webp}. The names are known, so no directory listing.
+        for (var name : legacyThumbnailNames(entryId)) {
+            var p = paths.thumbnailsRoot().resolve(name).normalize();
+            ensureUnderRoot(paths.thumbnailsRoot(), p);
+            Files.deleteIfExists(p);
+        }
+    }
+
+    private static List<String> legacyThumbnailNames(String entryId) {
+        var names = new ArrayList<String>();
+        for (var ext : LEGACY_THUMBNAIL_EXTENSIONS) {
+            names.add(entryId + "." + ext);
+            names.add(entryId + "-large." + ext);
         }
+        return names;
     }
 
     private static void deleteRecursivelyIfExists(Path p) throws IOException {
@@ -129,14 +168,6 @@ public class FileStorageService {
         return cleaned;
     }
 
-    private static String extensionFromName(String fileName) {
-        var i = fileName.lastIndexOf('.');
-        if (i < 0 || i == fileName.length() - 1) {
-            return "";
-        }
-        return fileName.substring(i + 1).toLowerCase(Locale.ROOT);
-    }
-
     private static void ensureUnderRoot(Path root, Path candidate) {
         var r = root.toAbsolutePath().normalize();
         var c = candidate.toAbsolutePath().normalize();
@@ -149,8 +180,13 @@ public class FileStorageService {
             String storagePath,
             String originalName,
             String mimeType,
-            long sizeBytes
-    ) {}
+            long sizeBytes,
+            String blobHash
+    ) {
+        public StoredFile(String storagePath, String originalName, String mimeType, long sizeBytes) {
+            this(storagePath, originalName, mimeType, sizeBytes, null);
+        }
+    }
 }
 
 
@@ -0,0 +1,184 @@
+package com.vestigium.storage;
+
+import com.vestigium.domain.Blob;
+import com.vestigium.persistence.AttachmentRepository;
+import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.ThumbnailRepository;
+import com.vestigium.thumb.ImageFormat;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves files from the old flat layout ({@code thumbnails/{id}[-large].jpg}, {@code files/{entryId}/...}) into the
+ * sharded blob store and repoints their rows. Idempotent: only rows without a blob hash are touched, and a legacy file
+ * is deleted only after every row that used it has been updated.
+ */
+@Component
+@Order(10)
+public class LegacyStorageMigrator implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LegacyStorageMigrator.class);
+
+    private final StoragePaths paths;
+    private final BlobStore blobStore;
+    private final EntryRepository entries;
+    private final ThumbnailRepository thumbnails;
+    private final AttachmentRepository attachments;
+    private final boolean enabled;
+
+    public LegacyStorageMigrator(
+            StoragePaths paths,
+            BlobStore blobStore,
+            EntryRepository entries,
+            ThumbnailRepository thumbnails,
+            AttachmentRepository attachments,
+            @Value("${vestigium.storage.migrate-legacy:true}") boolean enabled
+    ) {
+        this.paths = paths;
+        this.blobStore = blobStore;
+        this.entries = entries;
+        this.thumbnails = thumbnails;
+        this.attachments = attachments;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            var movedThumbnails = migrateThumbnails();
+            var movedAttachments = migrateAttachments();
+            if (movedThumbnails > 0 || movedAttachments > 0) {
+                log.info("Migrated legacy storage: {} thumbnail files, {} attachments", movedThumbnails, movedAttachments);
+            }
+        } catch (Exception e) {
+            // Legacy files stay readable through their old paths, so a failed run only postpones the move.
+            log.warn("Legacy storage migration failed: {}", e.getMessage(), e);
+        }
+    }
+
+    int migrateThumbnails() throws IOException {
+        var moved = new HashMap<String, Blob>();
+
+        for (var row : thumbnails.listWithoutBlob()) {
+            var blob = adopt(row.storagePath(), mimeTypeForFormat(row.format()), moved);
+            if (blob == null) {
+                continue;
+            }
+            thumbnails.upsert(row.entryId(), row.variant(), row.format(), blob.storagePath(), blob.sizeBytes(), blob.hash());
+        }
+
+        // Entries created before per-format rows existed only have paths on the entry row. Give each file a jpeg row so
+        // the blob reference has an owner that regeneration and delete will release.
+        var prefix = relativePath(paths.thumbnailsRoot()) + "/";
+        for (var entry : entries.listThumbnailPathsWithPrefix(prefix)) {
+            var small = migrateEntryPath(entry.id(), "small", entry.thumbnailPath(), prefix, moved);
+            var large = migrateEntryPath(entry.id(), "large", entry.thumbnailLargePath(), prefix, moved);
+            if (small != null || large != null) {
+                entries.updateThumbnailPaths(
+                        entry.id(),
+                        small == null ? null : small.storagePath(),
+                        large == null ? null : large.storagePath()
+                );
+            }
+        }
+
+        deleteLegacyFiles(moved.keySet());
+        return moved.size();
+    }
+
+    int migrateAttachments() throws IOException {
+        var moved = new HashMap<String, Blob>();
+        var entryDirs = new ArrayList<Path>();
+        for (var attachment : attachments.listWithoutBlob()) {
+            var blob = adopt(attachment.storagePath(), attachment.mimeType(), moved);
+            if (blob == null) {
+                continue;
+            }
+            attachments.updateBlob(attachment.id(), blob.storagePath(), blob.hash());
+            entryDirs.add(paths.attachmentsRoot().resolve(attachment.entryId()));
+        }
+        deleteLegacyFiles(moved.keySet());
+        for (var dir : entryDirs) {
+            deleteIfEmpty(dir);
+        }
+        return moved.size();
+    }
+
+    private Blob migrateEntryPath(String entryId, String variant, String path, String prefix, Map<String, Blob> moved)
+            throws IOException {
+        if (path == null || !path.startsWith(prefix)) {
+            return null;
+        }
+        var blob = moved.get(path);
+        if (blob != null) {
+            return blob;
+        }
+        blob = adopt(path, ImageFormat.JPEG.mimeType(), moved);
+        if (blob != null) {
+            thumbnails.upsert(entryId, variant, ImageFormat.JPEG.id(), blob.storagePath(), blob.sizeBytes(), blob.hash());
+        }
+        return blob;
+    }
+
+    /**
+     * Copies a legacy file into the blob store, acquiring one reference for the caller's row. Each legacy path is
+     * adopted at most once per run and remembered in {@code moved} for later deletion.
+     */
+    private Blob adopt(String relativePath, String mimeType, Map<String, Blob> moved) throws IOException {
+        if (relativePath == null || relativePath.isBlank()) {
+            return null;
+        }
+        var absolute = paths.root().resolve(relativePath).normalize();
+        if (!absolute.startsWith(paths.root()) || !Files.isRegularFile(absolute)) {
+            log.debug("Skipping missing legacy file {}", relativePath);
+            return null;
+        }
+        var blob = blobStore.putFrom(new FileSystemResource(absolute), mimeType);
+        moved.put(relativePath, blob);
+        return blob;
+    }
+
+    private void deleteLegacyFiles(Iterable<String> relativePaths) {
+        for (var rel : relativePaths) {
+            try {
+                Files.deleteIfExists(paths.root().resolve(rel).normalize());
+            } catch (IOException e) {
+                log.debug("Failed to delete legacy file {}: {}", rel, e.getMessage());
+            }
+        }
+    }
+
+    private static void deleteIfEmpty(Path dir) {
+        try (var children = Files.list(dir)) {
+            if (children.findAny().isEmpty()) {
+                Files.deleteIfExists(dir);
+            }
+        } catch (IOException ignored) {
+            // ignore best-effort cleanup
+        }
+    }
+
+    private static String mimeTypeForFormat(String format) {
+        return ImageFormat.fromId(format).orElse(ImageFormat.JPEG).mimeType();
+    }
+
+    private String relativePath(Path absolute) {
+        return paths.root().relativize(absolute).toString().replace('\\', '/');
+    }
+
+}
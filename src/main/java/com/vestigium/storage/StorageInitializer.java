@@ -19,6 +19,8 @@ public class StorageInitializer implements ApplicationRunner {
     public void run(ApplicationArguments args) throws IOException {
         Files.createDirectories(paths.attachmentsRoot());
         Files.createDirectories(paths.thumbnailsRoot());
+        Files.createDirectories(paths.blobsRoot());
+        Files.createDirectories(paths.pageCacheRoot());
     }
 }
 
@@ -23,6 +23,19 @@ public class StoragePaths {
     public Path thumbnailsRoot() {
         return root().resolve(props.thumbnailsSubdir()).normalize();
     }
-}
 
+    /**
+     * Content-addressed store shared by attachments and thumbnails ({@code blobs/ab/cd/<sha256>}).
+     */
+    public Path blobsRoot() {
+        var subdir = props.blobsSubdir() == null || props.blobsSubdir().isBlank() ? "blobs" : props.blobsSubdir();
+        return root().resolve(subdir).normalize();
+    }
 
+    /**
+     * Gzipped readable-text extractions of fetched pages, keyed by URL hash ({@code page-cache/ab/<sha256>.json.gz}).
+     */
+    public Path pageCacheRoot() {
+        return root().resolve("page-cache").normalize();
+    }
+}
@@ -6,7 +6,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public record StorageProperties(
         String rootDir,
         String attachmentsSubdir,
-        String thumbnailsSubdir
+        String thumbnailsSubdir,
+        String blobsSubdir
 ) {}
 
 
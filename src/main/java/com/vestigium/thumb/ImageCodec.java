@@ -0,0 +1,18 @@
+package com.vestigium.thumb;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Encodes decoded images into one output format. Implementations are Spring beans collected by {@link ImageCodecs}.
+ */
+public interface ImageCodec {
+    ImageFormat format();
+
+    /**
+     * Whether this codec can encode in the current runtime (e.g. a native encoder may be missing on some platforms).
+     */
+    boolean canEncode();
+
+    byte[] encode(BufferedImage image) throws IOException;
+}
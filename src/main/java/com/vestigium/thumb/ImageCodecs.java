@@ -0,0 +1,87 @@
+package com.vestigium.thumb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.spi.ImageWriterSpi;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registry of available output codecs. JPEG always comes first so callers can rely on it as the baseline.
+ * <p>
+ * Two WebP plugins are on the classpath, each for one direction: TwelveMonkeys decodes in pure Java but cannot
+ * encode, and webp-imageio encodes through native libwebp, which does not load on every platform. Both register a
+ * reader, so the providers are chosen by class rather than left to ImageIO's unspecified order: reading must work
+ * everywhere, while WebP output is optional.
+ */
+@Component
+public class ImageCodecs {
+
+    static final String WEBP_READER_SPI = "com.twelvemonkeys.imageio.plugins.webp.WebPImageReaderSpi";
+    static final String WEBP_WRITER_SPI = "org.sejda.imageio.webp.WebPImageWriterSpi";
+
+    private final List<ImageCodec> codecs;
+
+    public ImageCodecs(List<ImageCodec> codecs) {
+        // Spring Boot's nested-jar classloader is not visible to ImageIO's initial plugin scan; re-scan so that
+        // WebP readers/writers from dependencies get registered.
+        ImageIO.scanForPlugins();
+        preferPureJavaWebpReader();
+        var all = new java.util.ArrayList<>(codecs);
+        if (all.stream().noneMatch(c -> c.format() == ImageFormat.JPEG)) {
+            all.add(new JpegImageCodec());
+        }
+        this.codecs = all.stream()
+                .sorted((a, b) -> Boolean.compare(b.format() == ImageFormat.JPEG, a.format() == ImageFormat.JPEG))
+                .toList();
+    }
+
+    /**
+     * Codecs that can encode in this runtime, JPEG first.
+     */
+    public List<ImageCodec> encoders() {
+        return codecs.stream().filter(ImageCodec::canEncode).toList();
+    }
+
+    public Optional<ImageCodec> forFormat(ImageFormat format) {
+        return codecs.stream().filter(c -> c.format() == format).findFirst();
+    }
+
+    /**
+     * A new writer from the native WebP plugin, if it is registered.
+     */
+    static Optional<ImageWriter> webpWriter() throws IOException {
+        var providers = IIORegistry.getDefaultInstance().getServiceProviders(ImageWriterSpi.class, true);
+        while (providers.hasNext()) {
+            var spi = providers.next();
+            if (spi.getClass().getName().equals(WEBP_WRITER_SPI)) {
+                return Optional.of(spi.createWriterInstance());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Orders the TwelveMonkeys reader ahead of every other WebP reader, which {@code ImageIO.read} and
+     * {@code ImageIO.getImageReaders} follow.
+     */
+    private static void preferPureJavaWebpReader() {
+        var registry = IIORegistry.getDefaultInstance();
+        var readers = new ArrayList<ImageReaderSpi>();
+        registry.getServiceProviders(ImageReaderSpi.class, false).forEachRemaining(readers::add);
+        var preferred = readers.stream().filter(spi -> spi.getClass().getName().equals(WEBP_READER_SPI)).findFirst();
+        if (preferred.isEmpty()) {
+            return;
+        }
+        for (var spi : readers) {
+            if (spi != preferred.get() && List.of(spi.getFormatNames()).stream().anyMatch("webp"::equalsIgnoreCase)) {
+                registry.setOrdering(ImageReaderSpi.class, preferred.get(), spi);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.vestigium.thumb;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Optional;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * Output formats we can store thumbnails in. Declaration order is the server preference (smallest first).
+ */
+public enum ImageFormat {
+    WEBP("webp", "image/webp", "webp"),
+    JPEG("jpeg", "image/jpeg", "jpg");
+
+    private final String id;
+    private final String mimeType;
+    private final String extension;
+
+    ImageFormat(String id, String mimeType, String extension) {
+        this.id = id;
+        this.mimeType = mimeType;
+        this.extension = extension;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String mimeType() {
+        return mimeType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static Optional<ImageFormat> fromId(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        var normalized = id.trim().toLowerCase(Locale.ROOT);
+        for (var f : values()) {
+            if (f.id.equals(normalized)) {
+                return Optional.of(f);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Picks the best format for an Accept header among the available ones.
+     * <p>
+     * JPEG is the universal fallback. Other formats are only chosen when the client names them explicitly
+     * (browsers that cannot decode WebP still send wildcard ranges such as "image/*").
+     */
+    public static ImageFormat negotiate(String acceptHeader, Collection<ImageFormat> available) {
+        if (acceptHeader == null || acceptHeader.isBlank() || available == null || available.isEmpty()) {
+            return JPEG;
+        }
+        java.util.List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(acceptHeader);
+        } catch (InvalidMediaTypeException e) {
+            return JPEG;
+        }
+        for (var f : values()) {
+            if (f == JPEG || !available.contains(f)) {
+                continue;
+            }
+            var explicit = accepted.stream()
+                    .filter(mt -> mt.getType().equalsIgnoreCase("image") && mt.getSubtype().equalsIgnoreCase(f.id))
+                    .findFirst();
+            if (explicit.isPresent() && explicit.get().getQualityValue() > 0) {
+                return f;
+            }
+        }
+        return JPEG;
+    }
+}
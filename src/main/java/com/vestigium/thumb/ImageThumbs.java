@@ -5,7 +5,10 @@ import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,7 +19,18 @@ public final class ImageThumbs {
     private ImageThumbs() {}
 
     public static byte[] toJpegThumbnail(byte[] imageBytes, int targetWidth) throws Exception {
-        BufferedImage src = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        var out = scaleToWidth(decode(imageBytes), targetWidth);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(out, "jpeg", baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Decodes any format ImageIO has a reader for (JPEG/PNG/GIF/BMP, plus WebP via the TwelveMonkeys plugin, which
+     * {@link ImageCodecs} orders ahead of the native one).
+     */
+    public static BufferedImage decode(byte[] imageBytes) throws Exception {
+        BufferedImage src = imageBytes == null ? null : ImageIO.read(new ByteArrayInputStream(imageBytes));
         if (src == null) {
             String magic = "";
             if (imageBytes != null && imageBytes.length >= 4) {
@@ -25,7 +39,49 @@ public final class ImageThumbs {
             log.error("Failed to decode image. Size={} Magic=[{}]", (imageBytes == null ? 0 : imageBytes.length), magic);
             throw new IllegalArgumentException("Unsupported image format");
         }
+        if (src.getWidth() <= 0 || src.getHeight() <= 0) {
+            throw new IllegalArgumentException("Invalid image");
+        }
+        return src;
+    }
+
+    /**
+     * Decodes an image file, letting the reader skip pixels when the source is far larger than {@code maxSide} (a
+     * 4000px phone photo is read at a fraction of the memory). The result keeps at least twice {@code maxSide} so the
+     * final downscale stays smooth; {@code width}/{@code height} are the original dimensions.
+     */
+    public static Decoded decodeForMaxSide(InputStream in, int maxSide) throws IOException {
+        try (var iis = ImageIO.createImageInputStream(in)) {
+            var readers = iis == null ? null : ImageIO.getImageReaders(iis);
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width <= 0 || height <= 0) {
+                    throw new IllegalArgumentException("Invalid image");
+                }
+                var param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (Math.max(1, maxSide) * 2));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return new Decoded(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public record Decoded(BufferedImage image, int width, int height) {}
 
+    /**
+     * Scales down to the target width keeping aspect ratio (never upscales). Output is opaque RGB.
+     */
+    public static BufferedImage scaleToWidth(BufferedImage src, int targetWidth) {
         int width = src.getWidth();
         int height = src.getHeight();
         if (width <= 0 || height <= 0) {
@@ -34,7 +90,38 @@ public final class ImageThumbs {
 
         int outW = Math.min(targetWidth, width);
         int outH = Math.max(1, (int) Math.round((double) height * outW / width));
+        return draw(src, outW, outH);
+    }
+
+    /**
+     * Scales down so the longer side is at most {@code maxSide}, keeping aspect ratio (never upscales). Output is
+     * opaque RGB.
+     */
+    public static BufferedImage scaleToFit(BufferedImage src, int maxSide) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid image");
+        }
+        if (width >= height) {
+            return scaleToWidth(src, maxSide);
+        }
+        int outH = Math.min(maxSide, height);
+        int outW = Math.max(1, (int) Math.round((double) width * outH / height));
+        return draw(src, outW, outH);
+    }
+
+    /**
+     * Returns an opaque RGB copy (JPEG and lossy WebP writers choke on alpha/indexed images).
+     */
+    static BufferedImage toRgb(BufferedImage src) {
+        if (src.getType() == BufferedImage.TYPE_INT_RGB) {
+            return src;
+        }
+        return draw(src, src.getWidth(), src.getHeight());
+    }
 
+    private static BufferedImage draw(BufferedImage src, int outW, int outH) {
         BufferedImage out = new BufferedImage(outW, outH, BufferedImage.TYPE_INT_RGB);
         Graphics2D g = out.createGraphics();
         try {
@@ -45,11 +132,6 @@ public final class ImageThumbs {
         } finally {
             g.dispose();
         }
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(out, "jpeg", baos);
-        return baos.toByteArray();
+        return out;
     }
 }
-
-
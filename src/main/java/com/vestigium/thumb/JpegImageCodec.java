@@ -0,0 +1,55 @@
+package com.vestigium.thumb;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import org.springframework.stereotype.Component;
+
+@Component
+public class JpegImageCodec implements ImageCodec {
+
+    @Override
+    public ImageFormat format() {
+        return ImageFormat.JPEG;
+    }
+
+    @Override
+    public boolean canEncode() {
+        return true;
+    }
+
+    @Override
+    public byte[] encode(BufferedImage image) throws IOException {
+        var baos = new ByteArrayOutputStream();
+        if (!ImageIO.write(ImageThumbs.toRgb(image), "jpeg", baos)) {
+            throw new IOException("No JPEG writer available");
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Encodes with an explicit quality (0..1) instead of the writer default (0.75).
+     */
+    public byte[] encode(BufferedImage image, float quality) throws IOException {
+        var writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+        ImageWriter writer = writers.next();
+        var baos = new ByteArrayOutputStream();
+        try (var out = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(out);
+            var param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(ImageThumbs.toRgb(image), null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+}
@@ -6,8 +6,11 @@ import com.microsoft.playwright.BrowserType;
 import com.microsoft.playwright.Locator;
 import com.microsoft.playwright.Page;
 import com.microsoft.playwright.Playwright;
+import com.vestigium.http.HostBusyException;
+import com.vestigium.http.HostScheduler;
 import java.net.URI;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -19,7 +22,31 @@ public class PageScreenshotter {
     private static final String UA =
             "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0.0.0 Safari/537.36";
 
+    /**
+     * Screenshots share the page politeness budget of their host; a screenshot may wait this long for it.
+     */
+    private static final Duration MAX_HOST_WAIT = Duration.ofSeconds(30);
+
+    private final HostScheduler hostScheduler;
+
+    public PageScreenshotter(HostScheduler hostScheduler) {
+        this.hostScheduler = hostScheduler;
+    }
+
     public byte[] screenshotPng(String url) {
+        var hostName = host(url).orElse("");
+        try (var permit = hostScheduler.acquire(hostName, MAX_HOST_WAIT)) {
+            return capture(url, hostName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + hostName, e);
+        } catch (HostBusyException e) {
+            // JobWorker finds the cause and defers the job until the host is ready.
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private byte[] capture(String url, String hostName) throws HostBusyException {
         try (Playwright playwright = Playwright.create()) {
             Browser browser = playwright.chromium().launch(new BrowserType.LaunchOptions()
                     .setHeadless(true)
@@ -35,9 +62,17 @@ public class PageScreenshotter {
                     Page page = ctx.newPage();
                     // Reduce obvious automation signals.
                     page.addInitScript("Object.defineProperty(navigator, 'webdriver', { get: () => undefined });");
-                    page.navigate(url, new Page.NavigateOptions()
+                    var navigation = page.navigate(url, new Page.NavigateOptions()
                             .setTimeout(Duration.ofSeconds(25).toMillis())
                             .setWaitUntil(com.microsoft.playwright.options.WaitUntilState.DOMCONTENTLOADED));
+                    if (navigation != null && navigation.status() == 429) {
+                        var retryAfter = HostScheduler.parseRetryAfter(navigation.headerValue("retry-after"), Instant.now());
+                        var readyAt = hostScheduler.backoff(hostName, retryAfter.orElse(null));
+                        // A throttling page is not a thumbnail; the job is deferred until the host cools down.
+                        throw new HostBusyException(hostName, readyAt);
+                    } else if (navigation != null && navigation.ok()) {
+                        hostScheduler.recordSuccess(hostName);
+                    }
                     // Small delay to let above-the-fold render.
                     page.waitForTimeout(800);
 
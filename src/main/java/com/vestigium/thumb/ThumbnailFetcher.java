@@ -1,33 +1,37 @@
 package com.vestigium.thumb;
 
+import com.vestigium.http.CallClass;
+import com.vestigium.http.OutboundHttp;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.Optional;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
 public class ThumbnailFetcher {
 
-    private final HttpClient client = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+    private final OutboundHttp http;
+    private final long ogScanBytes;
 
+    public ThumbnailFetcher(
+            OutboundHttp http,
+            @Value("${vestigium.thumbnails.og-scan-bytes:524288}") long ogScanBytes
+    ) {
+        this.http = http;
+        this.ogScanBytes = ogScanBytes;
+    }
+
+    /**
+     * Reads only the first {@code og-scan-bytes} of the page; og/twitter image tags live in the head.
+     */
     public Optional<String> findOgImageUrl(String pageUrl) throws Exception {
-        var req = HttpRequest.newBuilder(URI.create(pageUrl))
-                .timeout(Duration.ofSeconds(20))
-                .header("User-Agent", "vestigium/0.1")
-                .GET()
-                .build();
-        var resp = client.send(req, HttpResponse.BodyHandlers.ofString());
-        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+        var resp = http.fetchPage(URI.create(pageUrl), ogScanBytes);
+        if (!resp.isSuccess()) {
             return Optional.empty();
         }
-        Document doc = Jsoup.parse(resp.body(), pageUrl);
+        Document doc = Jsoup.parse(resp.bodyAsString(), pageUrl);
         var ogEl = doc.selectFirst("meta[property=og:image]");
         if (ogEl != null) {
             var abs = ogEl.absUrl("content");
@@ -54,13 +58,8 @@ public class ThumbnailFetcher {
     }
 
     public Optional<byte[]> downloadBytes(String url) throws Exception {
-        var req = HttpRequest.newBuilder(URI.create(url))
-                .timeout(Duration.ofSeconds(20))
-                .header("User-Agent", "vestigium/0.1")
-                .GET()
-                .build();
-        var resp = client.send(req, HttpResponse.BodyHandlers.ofByteArray());
-        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
+        var resp = http.get(CallClass.IMAGE, URI.create(url));
+        if (!resp.isSuccess()) {
             return Optional.empty();
         }
         if (resp.body() == null || resp.body().length == 0) {
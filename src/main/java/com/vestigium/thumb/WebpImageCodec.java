@@ -0,0 +1,91 @@
+package com.vestigium.thumb;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lossy WebP output via the webp-imageio writer (native libwebp), selected by {@link ImageCodecs#webpWriter}.
+ * Decoding WebP sources does not depend on this codec; see {@link ImageCodecs}.
+ */
+@Component
+public class WebpImageCodec implements ImageCodec {
+
+    private static final Logger log = LoggerFactory.getLogger(WebpImageCodec.class);
+
+    private final float quality;
+    private volatile Boolean available;
+
+    public WebpImageCodec(@Value("${vestigium.thumbnails.webp-quality:0.8}") float quality) {
+        this.quality = quality;
+    }
+
+    @Override
+    public ImageFormat format() {
+        return ImageFormat.WEBP;
+    }
+
+    @Override
+    public boolean canEncode() {
+        var a = available;
+        if (a == null) {
+            a = probe();
+            available = a;
+        }
+        return a;
+    }
+
+    @Override
+    public byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer;
+        try {
+            writer = ImageCodecs.webpWriter()
+                    .orElseThrow(() -> new IOException("No WebP writer registered (" + ImageCodecs.WEBP_WRITER_SPI + ")"));
+        } catch (LinkageError e) {
+            available = false;
+            throw new IOException("WebP encoder unavailable: " + e.getMessage(), e);
+        }
+        var baos = new ByteArrayOutputStream();
+        try (var out = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(out);
+            var param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                for (var type : param.getCompressionTypes()) {
+                    if (type.toLowerCase(Locale.ROOT).contains("lossy")) {
+                        param.setCompressionType(type);
+                        break;
+                    }
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(ImageThumbs.toRgb(image), null, null), param);
+        } catch (LinkageError e) {
+            // Native libwebp could not be loaded on this platform; stop offering WebP.
+            available = false;
+            throw new IOException("WebP encoder unavailable: " + e.getMessage(), e);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+
+    private boolean probe() {
+        try {
+            encode(new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB));
+            return true;
+        } catch (Exception e) {
+            log.warn("WebP encoder probe failed; WebP thumbnails disabled: {}", e.getMessage());
+            return false;
+        }
+    }
+}
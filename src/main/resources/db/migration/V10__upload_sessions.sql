@@ -0,0 +1,16 @@
+CREATE TABLE IF NOT EXISTS upload_sessions (
+  id TEXT PRIMARY KEY NOT NULL,
+  entry_id TEXT NOT NULL,
+  original_name TEXT NOT NULL,
+  mime_type TEXT NOT NULL,
+  total_bytes INTEGER NOT NULL,
+  received_bytes INTEGER NOT NULL DEFAULT 0,
+  temp_path TEXT NOT NULL,
+  status TEXT NOT NULL,
+  attachment_id TEXT,
+  created_at TEXT NOT NULL,
+  updated_at TEXT NOT NULL,
+  FOREIGN KEY (entry_id) REFERENCES entries(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_updated_at ON upload_sessions(updated_at);
@@ -0,0 +1,13 @@
+-- Per-URL fetch validators and the stored readable-text extraction (gzip JSON under page-cache/), plus a hash of the
+-- last enrichment inputs and the model answer for them.
+CREATE TABLE IF NOT EXISTS page_fetch_cache (
+  url TEXT PRIMARY KEY NOT NULL,
+  etag TEXT,
+  last_modified TEXT,
+  content_hash TEXT,
+  extract_path TEXT,
+  fetched_at TEXT,
+  enrich_input_hash TEXT,
+  enrich_model_text TEXT,
+  updated_at TEXT NOT NULL
+);
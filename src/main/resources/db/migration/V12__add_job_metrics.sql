@@ -0,0 +1,2 @@
+-- Per-job processing metrics as JSON (e.g. context source timings for ENRICH_ENTRY).
+ALTER TABLE jobs ADD COLUMN metrics_json TEXT;
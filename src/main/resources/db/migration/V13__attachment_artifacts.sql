@@ -0,0 +1,12 @@
+-- Derived data per attachment so enrichment does not re-parse the original file. pdf_text holds at most pdf_max_chars
+-- characters; pdf_truncated says whether the document had more.
+CREATE TABLE IF NOT EXISTS attachment_artifacts (
+  attachment_id TEXT PRIMARY KEY NOT NULL,
+  pdf_text TEXT,
+  pdf_max_chars INTEGER,
+  pdf_pages_read INTEGER,
+  pdf_page_count INTEGER,
+  pdf_truncated INTEGER,
+  updated_at TEXT NOT NULL,
+  FOREIGN KEY (attachment_id) REFERENCES attachments(id) ON DELETE CASCADE
+);
@@ -0,0 +1,10 @@
+-- Upload-time pre-processing: content hash, image size, a downscaled derivative for the model and a thumbnail. The
+-- derivative and thumbnail are blobs; their references are owned by this row.
+ALTER TABLE attachment_artifacts ADD COLUMN content_hash TEXT;
+ALTER TABLE attachment_artifacts ADD COLUMN image_width INTEGER;
+ALTER TABLE attachment_artifacts ADD COLUMN image_height INTEGER;
+ALTER TABLE attachment_artifacts ADD COLUMN derivative_path TEXT;
+ALTER TABLE attachment_artifacts ADD COLUMN derivative_blob_hash TEXT;
+ALTER TABLE attachment_artifacts ADD COLUMN thumbnail_path TEXT;
+ALTER TABLE attachment_artifacts ADD COLUMN thumbnail_blob_hash TEXT;
+ALTER TABLE attachment_artifacts ADD COLUMN preprocessed_at TEXT;
@@ -0,0 +1,2 @@
+-- Settings the image derivative was made with; a derivative from other settings is rebuilt on next use.
+ALTER TABLE attachment_artifacts ADD COLUMN derivative_spec TEXT;
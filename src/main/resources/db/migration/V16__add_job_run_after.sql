@@ -0,0 +1,2 @@
+-- Earliest time a PENDING job may be claimed; set when a job is deferred (e.g. LLM quota) instead of failed.
+ALTER TABLE jobs ADD COLUMN run_after TEXT;
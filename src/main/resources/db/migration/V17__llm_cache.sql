@@ -0,0 +1,12 @@
+-- Model answers keyed by a hash of model, generation config, prompt and images; trimmed least recently used first.
+CREATE TABLE IF NOT EXISTS llm_cache (
+  cache_key TEXT PRIMARY KEY NOT NULL,
+  model TEXT NOT NULL,
+  response_text TEXT NOT NULL,
+  size_bytes INTEGER NOT NULL,
+  hits INTEGER NOT NULL DEFAULT 0,
+  created_at TEXT NOT NULL,
+  last_used_at TEXT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_llm_cache_last_used_at ON llm_cache(last_used_at);
@@ -0,0 +1,12 @@
+-- One embedding per entry for semantic search. vector is a QuantizedVector (float32 scale + int8 values); content_hash
+-- covers the embedded text, so a touched entry whose text did not change is not embedded again. source_updated_at is
+-- the entry's updated_at when it was last checked.
+CREATE TABLE IF NOT EXISTS entry_embeddings (
+  entry_id TEXT PRIMARY KEY NOT NULL,
+  model TEXT NOT NULL,
+  content_hash TEXT NOT NULL,
+  vector BLOB NOT NULL,
+  source_updated_at TEXT NOT NULL,
+  updated_at TEXT NOT NULL,
+  FOREIGN KEY (entry_id) REFERENCES entries(id) ON DELETE CASCADE
+);
@@ -0,0 +1,9 @@
+-- Content fingerprints for near-duplicate detection: SimHash of the page's readable text and dHash of the thumbnail
+-- source image, each a 64-bit integer. Either may be missing (no usable text, no image yet).
+CREATE TABLE IF NOT EXISTS entry_fingerprints (
+  entry_id TEXT PRIMARY KEY NOT NULL,
+  text_simhash INTEGER,
+  image_dhash INTEGER,
+  updated_at TEXT NOT NULL,
+  FOREIGN KEY (entry_id) REFERENCES entries(id) ON DELETE CASCADE
+);
@@ -0,0 +1,13 @@
+-- Canonical URL of each entry: the stored URL after redirects and <link rel=canonical>, used to find duplicates
+-- before anything is queued. NULL for rows created before this migration until the startup backfill fills them in.
+ALTER TABLE entries ADD COLUMN canonical_url TEXT;
+CREATE INDEX IF NOT EXISTS idx_entries_canonical_url ON entries(canonical_url);
+
+-- Cache of network resolutions per (rule-canonical) URL. page_checked = 1 when the page itself was read for a
+-- canonical link, 0 when only redirects were followed.
+CREATE TABLE IF NOT EXISTS url_resolutions (
+  url TEXT PRIMARY KEY NOT NULL,
+  canonical_url TEXT NOT NULL,
+  page_checked INTEGER NOT NULL DEFAULT 0,
+  resolved_at TEXT NOT NULL
+);
@@ -0,0 +1,3 @@
+-- Enrichment answers are cached by the LLM response cache (llm_cache); the per-URL copy is no longer read.
+ALTER TABLE page_fetch_cache DROP COLUMN enrich_input_hash;
+ALTER TABLE page_fetch_cache DROP COLUMN enrich_model_text;
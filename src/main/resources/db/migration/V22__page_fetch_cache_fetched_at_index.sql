@@ -0,0 +1,2 @@
+-- Page extractions expire by fetch time (see PageFetchCache).
+CREATE INDEX IF NOT EXISTS idx_page_fetch_cache_fetched_at ON page_fetch_cache(fetched_at DESC);
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS entry_thumbnails (
+  entry_id TEXT NOT NULL,
+  variant TEXT NOT NULL,
+  format TEXT NOT NULL,
+  storage_path TEXT NOT NULL,
+  size_bytes INTEGER NOT NULL,
+  created_at TEXT NOT NULL,
+  PRIMARY KEY (entry_id, variant, format),
+  FOREIGN KEY (entry_id) REFERENCES entries(id) ON DELETE CASCADE
+);
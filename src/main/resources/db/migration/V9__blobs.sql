@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS blobs (
+  hash TEXT PRIMARY KEY NOT NULL,
+  size_bytes INTEGER NOT NULL,
+  mime_type TEXT NOT NULL,
+  storage_path TEXT NOT NULL,
+  ref_count INTEGER NOT NULL DEFAULT 0,
+  created_at TEXT NOT NULL,
+  updated_at TEXT NOT NULL
+);
+
+ALTER TABLE attachments ADD COLUMN blob_hash TEXT;
+ALTER TABLE entry_thumbnails ADD COLUMN blob_hash TEXT;
+
+CREATE INDEX IF NOT EXISTS idx_attachments_blob_hash ON attachments(blob_hash);
+CREATE INDEX IF NOT EXISTS idx_entry_thumbnails_blob_hash ON entry_thumbnails(blob_hash);
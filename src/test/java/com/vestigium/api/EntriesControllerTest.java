@@ -15,6 +15,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.vestigium.api.dto.EntryResponse;
 import com.vestigium.domain.Entry;
 import com.vestigium.persistence.EntryRepository;
+import com.vestigium.service.BulkIngestService;
 import com.vestigium.service.EntryService;
 import java.util.List;
 import org.junit.jupiter.api.Test;
@@ -33,6 +34,9 @@ class EntriesControllerTest {
     @MockBean
     private EntryService entryService;
 
+    @MockBean
+    private BulkIngestService bulkIngest;
+
     @Test
     @SuppressWarnings("unchecked")
     void list_ShouldReturnEntries() throws Exception {
@@ -8,8 +8,11 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import com.vestigium.domain.Attachment;
 import com.vestigium.domain.Entry;
+import com.vestigium.domain.EntryThumbnail;
+import com.vestigium.enrich.AttachmentPreprocessor;
 import com.vestigium.persistence.AttachmentRepository;
 import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.ThumbnailRepository;
 import com.vestigium.storage.FileStorageService;
 import java.util.List;
 import java.util.Optional;
@@ -33,9 +36,15 @@ class FilesControllerTest {
     @MockBean
     private EntryRepository entries;
 
+    @MockBean
+    private ThumbnailRepository thumbnails;
+
     @MockBean
     private FileStorageService fileStorage;
 
+    @MockBean
+    private AttachmentPreprocessor attachmentPreprocessor;
+
     @Test
     void downloadAttachment_ShouldReturnAttachment() throws Exception {
         var attachment = new Attachment(
@@ -53,6 +62,53 @@ class FilesControllerTest {
                 .andExpect(header().string("Content-Disposition", "attachment; filename=\"test.pdf\""));
     }
 
+    @Test
+    void downloadAttachment_ShouldServeSingleRange() throws Exception {
+        var attachment = new Attachment(
+                "att-1", "entry-1", "PDF", "test.pdf",
+                "application/pdf", 11, "path/to/file.pdf", "2023-01-01T00:00:00Z", "abc123"
+        );
+
+        when(attachments.getById("att-1")).thenReturn(Optional.of(attachment));
+        when(fileStorage.loadAsResource("path/to/file.pdf")).thenReturn(new ByteArrayResource("PDF content".getBytes()));
+
+        mockMvc.perform(get("/api/attachments/att-1").header("Range", "bytes=4-6"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 4-6/11"))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(content().bytes("con".getBytes()));
+    }
+
+    @Test
+    void downloadAttachment_ShouldReturn416ForUnsatisfiableRange() throws Exception {
+        var attachment = new Attachment(
+                "att-1", "entry-1", "PDF", "test.pdf",
+                "application/pdf", 11, "path/to/file.pdf", "2023-01-01T00:00:00Z", "abc123"
+        );
+
+        when(attachments.getById("att-1")).thenReturn(Optional.of(attachment));
+        when(fileStorage.loadAsResource("path/to/file.pdf")).thenReturn(new ByteArrayResource("PDF content".getBytes()));
+
+        mockMvc.perform(get("/api/attachments/att-1").header("Range", "bytes=50-60"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */11"));
+    }
+
+    @Test
+    void downloadAttachment_ShouldReturn304WhenEtagMatches() throws Exception {
+        var attachment = new Attachment(
+                "att-1", "entry-1", "PDF", "test.pdf",
+                "application/pdf", 11, "path/to/file.pdf", "2023-01-01T00:00:00Z", "abc123"
+        );
+
+        when(attachments.getById("att-1")).thenReturn(Optional.of(attachment));
+        when(fileStorage.loadAsResource("path/to/file.pdf")).thenReturn(new ByteArrayResource("PDF content".getBytes()));
+
+        mockMvc.perform(get("/api/attachments/att-1").header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     void downloadAttachment_ShouldReturn404WhenNotFound() throws Exception {
         when(attachments.getById("att-1")).thenReturn(Optional.empty());
@@ -174,5 +230,59 @@ class FilesControllerTest {
         mockMvc.perform(get("/api/entries/entry-1/thumbnail"))
                 .andExpect(status().isNotFound());
     }
-}
 
+    @Test
+    void entryThumbnail_ShouldServeWebpWhenAccepted() throws Exception {
+        var entry = new Entry(
+                "entry-1", "http://example.com", "Title", "Desc",
+                null, "thumb/small.jpg", "thumb/large.jpg", null, false,
+                "2023-01-01T00:00:00Z", "2023-01-01T00:00:00Z", null, true, null, List.of()
+        );
+        var webp = new EntryThumbnail("entry-1", "small", "webp", "thumb/small.webp", 50, "2023-01-01T00:00:00Z", null);
+        var jpeg = new EntryThumbnail("entry-1", "small", "jpeg", "thumb/small.jpg", 100, "2023-01-01T00:00:00Z", null);
+
+        when(entries.getById("entry-1")).thenReturn(Optional.of(entry));
+        when(thumbnails.listForEntry("entry-1")).thenReturn(List.of(webp, jpeg));
+        when(fileStorage.loadAsResource("thumb/small.webp")).thenReturn(new ByteArrayResource("webp".getBytes()));
+
+        mockMvc.perform(get("/api/entries/entry-1/thumbnail").header("Accept", "image/avif,image/webp,*/*;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.parseMediaType("image/webp")))
+                .andExpect(header().string("Vary", "Accept"));
+    }
+
+    @Test
+    void entryThumbnail_ShouldServeJpegWhenWebpNotExplicitlyAccepted() throws Exception {
+        var entry = new Entry(
+                "entry-1", "http://example.com", "Title", "Desc",
+                null, "thumb/small.jpg", "thumb/large.jpg", null, false,
+                "2023-01-01T00:00:00Z", "2023-01-01T00:00:00Z", null, true, null, List.of()
+        );
+        var webp = new EntryThumbnail("entry-1", "small", "webp", "thumb/small.webp", 50, "2023-01-01T00:00:00Z", null);
+
+        when(entries.getById("entry-1")).thenReturn(Optional.of(entry));
+        when(thumbnails.listForEntry("entry-1")).thenReturn(List.of(webp));
+        when(fileStorage.loadAsResource("thumb/small.jpg")).thenReturn(new ByteArrayResource("jpeg".getBytes()));
+
+        mockMvc.perform(get("/api/entries/entry-1/thumbnail").header("Accept", "image/*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_JPEG));
+    }
+
+    @Test
+    void attachmentThumbnail_ShouldServePrecomputedJpeg() throws Exception {
+        when(attachmentPreprocessor.thumbnail("att-1")).thenReturn(Optional.of(new ByteArrayResource("jpeg".getBytes())));
+
+        mockMvc.perform(get("/api/attachments/att-1/thumbnail"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_JPEG));
+    }
+
+    @Test
+    void attachmentThumbnail_ShouldReturn404WhenNotPreprocessed() throws Exception {
+        when(attachmentPreprocessor.thumbnail("att-1")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/attachments/att-1/thumbnail"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,71 @@
+package com.vestigium.dedup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SimHashTest {
+
+    @Test
+    void of_ShouldKeepNearCopiesCloseAndUnrelatedTextsApart() {
+        var random = new Random(5);
+        var article = words(random, 600);
+        var copy = article + " share this article subscribe to our newsletter cookie settings";
+        var unrelated = words(random, 600);
+
+        assertThat(SimHash.distance(SimHash.of(article), SimHash.of(copy))).isLessThanOrEqualTo(6);
+        assertThat(SimHash.distance(SimHash.of(article), SimHash.of(unrelated))).isGreaterThan(15);
+    }
+
+    @Test
+    void dHash_ShouldSurviveRescalingAndIgnoreBlankImages() {
+        var image = gradient(400, 300);
+        var smaller = gradient(200, 150);
+
+        assertThat(SimHash.distance(ImageHash.dHash(image), ImageHash.dHash(smaller))).isLessThanOrEqualTo(2);
+        assertThat(ImageHash.dHash(new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB))).isZero();
+    }
+
+    @Test
+    void lshIndex_ShouldFindEveryFingerprintWithinTheDistance() {
+        var index = new LshIndex(3);
+        var base = 0x0123_4567_89ab_cdefL;
+        index.put("same", base);
+        index.put("three-bits", base ^ 0b1011L << 20);
+        index.put("spread", base ^ (1L | 1L << 17 | 1L << 33));
+        index.put("far", ~base);
+
+        var near = index.near(base, 3, "same");
+
+        assertThat(near).extracting(LshIndex.Match::id).containsExactlyInAnyOrder("three-bits", "spread");
+        index.remove("spread");
+        assertThat(index.near(base, 3, null)).extracting(LshIndex.Match::id).containsExactly("same", "three-bits");
+    }
+
+    private static String words(Random random, int count) {
+        var text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            var length = 3 + random.nextInt(6);
+            for (int c = 0; c < length; c++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            text.append(' ');
+        }
+        return text.toString();
+    }
+
+    private static BufferedImage gradient(int width, int height) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        for (int x = 0; x < width; x++) {
+            var level = (int) (255 * Math.abs(Math.sin(x * 6.0 / width)));
+            g.setColor(new Color(level, level, 255 - level));
+            g.drawLine(x, 0, x, height * (x % 7 + 1) / 8);
+        }
+        g.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,98 @@
+package com.vestigium.embed;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @Test
+    void search_ShouldFindMostOfTheExactNearestNeighbours() {
+        var random = new Random(7);
+        var vectors = new HashMap<String, QuantizedVector>();
+        var index = new HnswIndex(DIMENSIONS, 16, 100, 1);
+        for (int i = 0; i < 2_000; i++) {
+            var vector = QuantizedVector.of(randomVector(random));
+            vectors.put("e" + i, vector);
+            index.put("e" + i, vector);
+        }
+
+        var found = 0;
+        var queries = 50;
+        for (int q = 0; q < queries; q++) {
+            var query = QuantizedVector.of(randomVector(random));
+            var exact = exactTop(vectors, query, 10);
+            var hits = index.search(query, 10, 64, id -> true).stream().map(HnswIndex.Hit::id).toList();
+            found += (int) hits.stream().filter(exact::contains).count();
+        }
+
+        assertThat(found / (double) (queries * 10)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void search_ShouldSkipRemovedAndRejectedIds() {
+        var random = new Random(3);
+        var index = new HnswIndex(DIMENSIONS, 8, 50, 1);
+        var first = QuantizedVector.of(randomVector(random));
+        index.put("a", first);
+        IntStream.range(0, 200).forEach(i -> index.put("e" + i, QuantizedVector.of(randomVector(random))));
+
+        assertThat(index.search(first, 1, 32, id -> true)).extracting(HnswIndex.Hit::id).containsExactly("a");
+
+        index.remove("a");
+        var hits = index.search(first, 5, 32, id -> !id.equals("e0"));
+
+        assertThat(hits).hasSize(5).extracting(HnswIndex.Hit::id).doesNotContain("a", "e0");
+        assertThat(index.deletedCount()).isEqualTo(1);
+        var compacted = index.compacted();
+        assertThat(compacted.liveCount()).isEqualTo(200);
+        assertThat(compacted.deletedCount()).isZero();
+    }
+
+    @Test
+    void quantizedVector_ShouldKeepCosineSimilarityThroughStorage() {
+        var random = new Random(11);
+        var a = randomVector(random);
+        var b = randomVector(random);
+
+        var restored = QuantizedVector.fromBytes(QuantizedVector.of(a).toBytes());
+
+        var expected = cosine(a, b);
+        assertThat((double) restored.dot(QuantizedVector.of(b))).isBetween(expected - 0.02, expected + 0.02);
+        assertThat((double) restored.dot(restored)).isBetween(0.98, 1.02);
+    }
+
+    private static List<String> exactTop(Map<String, QuantizedVector> vectors, QuantizedVector query, int k) {
+        return vectors.entrySet().stream()
+                .sorted(Comparator.comparingDouble((Map.Entry<String, QuantizedVector> e) -> e.getValue().dot(query)).reversed())
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static float[] randomVector(Random random) {
+        var v = new float[DIMENSIONS];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+}
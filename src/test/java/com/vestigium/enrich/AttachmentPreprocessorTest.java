@@ -0,0 +1,45 @@
+package com.vestigium.enrich;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vestigium.thumb.JpegImageCodec;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+class AttachmentPreprocessorTest {
+
+    @Test
+    void encodeWithinBudget_ShouldShrinkLargePhotosUnderTheByteBudget() throws Exception {
+        var preprocessor = new AttachmentPreprocessor(null, null, null, null, new JpegImageCodec(), 1024, 60_000, 320);
+
+        var bytes = preprocessor.encodeWithinBudget(noise(3000, 2000));
+
+        assertThat(bytes.length).isLessThanOrEqualTo(60_000);
+        var decoded = ImageIO.read(new ByteArrayInputStream(bytes));
+        assertThat(Math.max(decoded.getWidth(), decoded.getHeight())).isLessThanOrEqualTo(1024);
+    }
+
+    @Test
+    void encodeWithinBudget_ShouldNotUpscaleSmallImages() throws Exception {
+        var preprocessor = new AttachmentPreprocessor(null, null, null, null, new JpegImageCodec(), 1024, 400_000, 320);
+
+        var decoded = ImageIO.read(new ByteArrayInputStream(preprocessor.encodeWithinBudget(noise(300, 200))));
+
+        assertThat(decoded.getWidth()).isEqualTo(300);
+        assertThat(decoded.getHeight()).isEqualTo(200);
+    }
+
+    private static BufferedImage noise(int width, int height) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var random = new Random(7);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        return image;
+    }
+}
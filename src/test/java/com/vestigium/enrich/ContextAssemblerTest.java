@@ -0,0 +1,59 @@
+package com.vestigium.enrich;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vestigium.llm.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+class ContextAssemblerTest {
+
+    @Test
+    void assemble_ShouldKeepEverythingThatFits() {
+        var assembled = new ContextAssembler()
+                .fixed("URL: https://example.com\n\n")
+                .flexible("\nText:\n", "Short page.", 3)
+                .assemble(1_000);
+
+        assertThat(assembled.text()).isEqualTo("URL: https://example.com\n\n\nText:\nShort page.\n");
+        assertThat(assembled.trimmedSections()).isZero();
+    }
+
+    @Test
+    void assemble_ShouldGiveUnusedShareOfShortSourcesToLongOnes() {
+        var longPdf = "Sentence of filler text. ".repeat(2_000);
+
+        var assembled = new ContextAssembler()
+                .flexible("\nText:\n", "A short page that needs little.", 3)
+                .flexible("\nPDF: a.pdf\n", longPdf, 1)
+                .assemble(1_000);
+
+        assertThat(assembled.text()).contains("A short page that needs little.");
+        assertThat(assembled.trimmedSections()).isEqualTo(1);
+        // The PDF only had a quarter of the budget by weight, but gets what the page did not use.
+        assertThat(assembled.estimatedTokens()).isBetween(800, 1_000);
+    }
+
+    @Test
+    void assemble_ShouldTrimToHeadingsAndOpeningParagraphsFirst() {
+        var page = new StringBuilder("Opening paragraph.\n\n");
+        for (int i = 1; i <= 5; i++) {
+            page.append("## Part ").append(i).append("\n\n")
+                    .append("First paragraph of part ").append(i).append(".\n\n")
+                    .append("Detail that can go. ".repeat(40)).append("\n\n");
+        }
+
+        var text = new ContextAssembler().flexible("", page.toString(), 1).assemble(150).text();
+
+        assertThat(text).startsWith("Opening paragraph.");
+        for (int i = 1; i <= 5; i++) {
+            assertThat(text).contains("## Part " + i, "First paragraph of part " + i + ".");
+        }
+        assertThat(text).contains(ExtractiveTrimmer.GAP).doesNotContain("Detail that can go.");
+    }
+
+    @Test
+    void estimate_ShouldCountCjkCharactersAsWholeTokens() {
+        assertThat(TokenEstimator.estimate("abcdefgh")).isEqualTo(2);
+        assertThat(TokenEstimator.estimate("日本語のテキスト")).isEqualTo(8);
+    }
+}
@@ -0,0 +1,63 @@
+package com.vestigium.enrich;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PdfTextExtractorTest {
+
+    @TempDir
+    Path dir;
+
+    private final PdfTextExtractor extractor = new PdfTextExtractor(1024 * 1024);
+
+    @Test
+    void extract_ShouldStopReadingPagesOnceTheBudgetIsUsed() throws Exception {
+        var pdf = writePdf(10);
+
+        var result = extractor.extract(pdf, 30);
+
+        assertThat(result.pageCount()).isEqualTo(10);
+        assertThat(result.pagesRead()).isLessThan(10);
+        assertThat(result.truncated()).isTrue();
+        assertThat(result.text()).hasSize(30).startsWith("Page 1 ");
+    }
+
+    @Test
+    void extract_ShouldReadWholeDocumentWhenItFits() throws Exception {
+        var pdf = writePdf(2);
+
+        var result = extractor.extract(pdf, 15000);
+
+        assertThat(result.pagesRead()).isEqualTo(2);
+        assertThat(result.truncated()).isFalse();
+        assertThat(result.text()).contains("Page 1 ", "Page 2 ");
+    }
+
+    private Path writePdf(int pages) throws Exception {
+        var file = dir.resolve("doc.pdf");
+        try (var doc = new PDDocument()) {
+            var font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int i = 1; i <= pages; i++) {
+                var page = new PDPage();
+                doc.addPage(page);
+                try (var content = new PDPageContentStream(doc, page)) {
+                    content.beginText();
+                    content.setFont(font, 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText("Page " + i + " of the sample document");
+                    content.endText();
+                }
+            }
+            doc.save(file.toFile());
+        }
+        return file;
+    }
+}
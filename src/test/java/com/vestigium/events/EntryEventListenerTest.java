@@ -0,0 +1,34 @@
+package com.vestigium.events;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+import com.vestigium.api.dto.EntryResponse;
+import com.vestigium.domain.Entry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class EntryEventListenerTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @InjectMocks
+    private EntryEventListener listener;
+
+    @Test
+    void shouldSendWebSocketMessageOnEntryUpdated() {
+        var entry = new Entry("1", "http://example.com", "Title", null, null, null, null, null, false, "now", "now", null, true, null, List.of());
+
+        listener.handleEntryUpdated(new EntryUpdatedEvent(entry, false));
+
+        verify(messagingTemplate).convertAndSend(eq("/topic/entries"), ArgumentMatchers.any(EntryResponse.class));
+    }
+}
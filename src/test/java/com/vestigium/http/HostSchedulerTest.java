@@ -0,0 +1,120 @@
+package com.vestigium.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class HostSchedulerTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final HostScheduler scheduler = new HostScheduler(clock, 1.0, 2, 2, Duration.ofMinutes(10), Duration.ofMinutes(30));
+
+    @Test
+    void acquire_ShouldAllowBurstThenRequireTokens() throws Exception {
+        scheduler.acquire("example.com", Duration.ZERO).close();
+        scheduler.acquire("example.com", Duration.ZERO).close();
+
+        assertThatThrownBy(() -> scheduler.acquire("example.com", Duration.ZERO))
+                .isInstanceOf(HostBusyException.class);
+
+        clock.advance(Duration.ofSeconds(1));
+        try (var permit = scheduler.acquire("example.com", Duration.ZERO)) {
+            assertThat(permit.host()).isEqualTo("example.com");
+        }
+        // Other hosts have their own bucket.
+        scheduler.acquire("other.com", Duration.ZERO).close();
+    }
+
+    @Test
+    void backoff_ShouldBlockHostUntilRetryAfter() throws Exception {
+        scheduler.backoff("example.com", Duration.ofSeconds(30));
+
+        assertThat(scheduler.isReady("example.com")).isFalse();
+        assertThatThrownBy(() -> scheduler.acquire("example.com", Duration.ofSeconds(5)))
+                .isInstanceOf(HostBusyException.class);
+
+        clock.advance(Duration.ofSeconds(31));
+        assertThat(scheduler.isReady("example.com")).isTrue();
+    }
+
+    @Test
+    void pickInterleaved_ShouldTakeOneJobPerReadyHost() throws Exception {
+        scheduler.backoff("slow.com", null);
+        List<String> candidates = List.of(
+                "https://a.com/1", "https://a.com/2", "https://slow.com/1", "https://b.com/1", "https://c.com/1");
+        Function<String, String> hostOf = url -> URI.create(url).getHost();
+
+        var picks = scheduler.pickInterleaved(candidates, hostOf, Set.of("c.com"), 10);
+
+        assertThat(picks).containsExactly("https://a.com/1", "https://b.com/1");
+    }
+
+    @Test
+    void evictIdleHosts_ShouldDropOnlyHostsIdleWithFullBuckets() throws Exception {
+        scheduler.acquire("idle.com", Duration.ZERO).close();
+        var held = scheduler.acquire("busy.com", Duration.ZERO);
+        clock.advance(Duration.ofMinutes(20));
+        scheduler.acquire("recent.com", Duration.ZERO).close();
+        clock.advance(Duration.ofMinutes(11));
+
+        scheduler.evictIdleHosts();
+
+        assertThat(scheduler.snapshot()).extracting(HostScheduler.HostStatus::host).containsExactly("busy.com", "recent.com");
+        held.close();
+        scheduler.evictIdleHosts();
+        assertThat(scheduler.snapshot()).extracting(HostScheduler.HostStatus::host).containsExactly("recent.com");
+    }
+
+    @Test
+    void evictIdleHosts_ShouldKeepHostsCoolingDown() {
+        var patient = new HostScheduler(clock, 1.0, 2, 2, Duration.ofHours(2), Duration.ofMinutes(30));
+        patient.backoff("slow.com", Duration.ofHours(1));
+        clock.advance(Duration.ofMinutes(45));
+
+        patient.evictIdleHosts();
+
+        assertThat(patient.isReady("slow.com")).isFalse();
+    }
+
+    @Test
+    void parseRetryAfter_ShouldAcceptSecondsAndHttpDates() {
+        var now = Instant.parse("2024-01-01T00:00:00Z");
+
+        assertThat(HostScheduler.parseRetryAfter("120", now)).contains(Duration.ofSeconds(120));
+        assertThat(HostScheduler.parseRetryAfter("Mon, 01 Jan 2024 00:01:00 GMT", now)).contains(Duration.ofMinutes(1));
+        assertThat(HostScheduler.parseRetryAfter("soon", now)).isEmpty();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
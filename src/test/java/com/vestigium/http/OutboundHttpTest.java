@@ -0,0 +1,211 @@
+package com.vestigium.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OutboundHttpTest {
+
+    private HttpServer server;
+    private OutboundHttp http;
+    private final AtomicInteger flakyCalls = new AtomicInteger();
+    private final AtomicInteger throttledCalls = new AtomicInteger();
+    private final AtomicInteger slowCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", exchange -> {
+            var body = "héllo".getBytes(StandardCharsets.ISO_8859_1);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=ISO-8859-1");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/big", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            exchange.getResponseBody().write(new byte[4096]);
+            exchange.close();
+        });
+        server.createContext("/flaky", exchange -> {
+            var status = flakyCalls.incrementAndGet() == 1 ? 503 : 200;
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            slowCalls.incrementAndGet();
+            try {
+                Thread.sleep(2_500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/throttled", exchange -> {
+            if (throttledCalls.incrementAndGet() == 1) {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                exchange.sendResponseHeaders(429, -1);
+            } else {
+                exchange.sendResponseHeaders(200, -1);
+            }
+            exchange.close();
+        });
+        server.createContext("/page.gz", exchange -> {
+            var html = "<html><head><meta charset=\"windows-1250\"><title>Zażółć</title></head><body>tekst</body></html>";
+            var buf = new ByteArrayOutputStream();
+            try (var gz = new GZIPOutputStream(buf)) {
+                gz.write(html.getBytes(Charset.forName("windows-1250")));
+            }
+            var accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            exchange.getResponseHeaders().add("Content-Type", "text/html");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.getResponseHeaders().add("X-Accepted", accepted == null ? "" : accepted);
+            exchange.sendResponseHeaders(200, buf.size());
+            exchange.getResponseBody().write(buf.toByteArray());
+            exchange.close();
+        });
+        server.createContext("/events", exchange -> {
+            var body = "data: {\"n\":1}\n\ndata: {\"n\":2}\n\n".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/image.png", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "image/png");
+            exchange.sendResponseHeaders(200, 0);
+            exchange.getResponseBody().write(new byte[8192]);
+            exchange.close();
+        });
+        server.start();
+
+        http = new OutboundHttp(new HttpProperties(
+                "test-agent",
+                2000,
+                2,
+                Map.of("page", new HttpProperties.CallLimits(2000, 1, 1024L))
+        ), new HostScheduler(100, 10, 2, 600, 30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void get_ShouldDecodeBodyWithResponseCharset() throws Exception {
+        var resp = http.get(CallClass.PAGE, uri("/ok"));
+
+        assertThat(resp.isSuccess()).isTrue();
+        assertThat(resp.bodyAsString()).isEqualTo("héllo");
+    }
+
+    @Test
+    void get_ShouldRejectBodiesOverTheCallClassLimit() {
+        assertThatThrownBy(() -> http.get(CallClass.PAGE, uri("/big")))
+                .isInstanceOf(ResponseTooLargeException.class);
+
+        var metrics = http.metrics().getFirst();
+        assertThat(metrics.tooLarge()).isEqualTo(1);
+        assertThat(metrics.inFlight()).isZero();
+    }
+
+    @Test
+    void evictIdleHosts_ShouldDropMetricsOfHostsNotCalledSince() throws Exception {
+        http.get(CallClass.API, uri("/ok"));
+
+        http.evictIdleHosts(System.currentTimeMillis() - 60_000);
+        assertThat(http.metrics()).hasSize(1);
+
+        http.evictIdleHosts(System.currentTimeMillis() + 1);
+        assertThat(http.metrics()).isEmpty();
+        assertThat(http.get(CallClass.API, uri("/ok")).isSuccess()).isTrue();
+    }
+
+    @Test
+    void get_ShouldRetryGatewayErrors() throws Exception {
+        var resp = http.get(CallClass.PAGE, uri("/flaky"));
+
+        assertThat(resp.statusCode()).isEqualTo(200);
+        assertThat(flakyCalls.get()).isEqualTo(2);
+        var metrics = http.metrics().getFirst();
+        assertThat(metrics.requests()).isEqualTo(2);
+        assertThat(metrics.retries()).isEqualTo(1);
+        assertThat(metrics.failures()).isZero();
+    }
+
+    @Test
+    void post_ShouldNotResendTimedOutRequests() {
+        assertThatThrownBy(() -> http.post(CallClass.PAGE, uri("/slow"), "text/plain", HttpRequest.BodyPublishers.ofString("x")))
+                .isInstanceOf(HttpTimeoutException.class);
+
+        assertThat(slowCalls.get()).isEqualTo(1);
+        assertThat(http.metrics().getFirst().retries()).isZero();
+    }
+
+    @Test
+    void get_ShouldWaitOutRetryAfterBeforeRetrying() throws Exception {
+        var started = System.nanoTime();
+        var resp = http.get(CallClass.PAGE, uri("/throttled"));
+
+        assertThat(resp.statusCode()).isEqualTo(200);
+        assertThat(throttledCalls.get()).isEqualTo(2);
+        assertThat(System.nanoTime() - started).isGreaterThanOrEqualTo(900_000_000L);
+        assertThat(http.metrics().getFirst().throttled()).isEqualTo(1);
+    }
+
+    @Test
+    void fetchPage_ShouldDecompressAndHonourMetaCharset() throws Exception {
+        var resp = http.fetchPage(uri("/page.gz"));
+
+        assertThat(resp.headers().firstValue("X-Accepted").orElse("")).contains("gzip");
+        assertThat(resp.bodyAsString()).contains("<title>Zażółć</title>");
+        assertThat(resp.truncated()).isFalse();
+    }
+
+    @Test
+    void fetchPage_ShouldStopAtReadLimitInsteadOfFailing() throws Exception {
+        var resp = http.fetchPage(uri("/page.gz"), 20);
+
+        assertThat(resp.body()).hasSize(20);
+        assertThat(resp.truncated()).isTrue();
+    }
+
+    @Test
+    void fetchPage_ShouldRejectNonPageContentTypes() {
+        assertThatThrownBy(() -> http.fetchPage(uri("/image.png")))
+                .isInstanceOf(UnsupportedContentException.class);
+
+        assertThat(http.metrics().getFirst().rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void postStreaming_ShouldHandEachLineToTheHandler() throws Exception {
+        var lines = new ArrayList<String>();
+
+        var resp = http.postStreaming(CallClass.PAGE, uri("/events"), "application/json", HttpRequest.BodyPublishers.ofString("{}"), lines::add);
+
+        assertThat(resp.statusCode()).isEqualTo(200);
+        assertThat(lines).containsExactly("data: {\"n\":1}", "", "data: {\"n\":2}", "");
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+}
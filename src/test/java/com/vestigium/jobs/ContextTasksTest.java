@@ -0,0 +1,73 @@
+package com.vestigium.jobs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.vestigium.http.HostBusyException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class ContextTasksTest {
+
+    @Test
+    void await_ShouldReturnFastSourcesAndGiveUpOnSlowOnesAtTheirTimeout() throws Exception {
+        try (var tasks = new ContextTasks(Duration.ofSeconds(5))) {
+            var fast = tasks.submit("fast", Duration.ofSeconds(1), () -> "ok");
+            var slow = tasks.submit("slow", Duration.ofMillis(100), () -> {
+                Thread.sleep(5_000);
+                return "late";
+            });
+            var failing = tasks.submit("failing", Duration.ofSeconds(1), () -> {
+                throw new IllegalStateException("boom");
+            });
+
+            assertThat(tasks.await(fast)).contains("ok");
+            assertThat(tasks.await(slow)).isEmpty();
+            assertThat(tasks.await(failing)).isEmpty();
+
+            var timings = tasks.timings();
+            assertThat(timings.get("fast").status()).isEqualTo(ContextTasks.Status.OK);
+            assertThat(timings.get("slow").status()).isEqualTo(ContextTasks.Status.TIMEOUT);
+            assertThat(timings.get("slow").ms()).isBetween(100L, 1_000L);
+            assertThat(timings.get("failing").status()).isEqualTo(ContextTasks.Status.FAILED);
+        }
+    }
+
+    @Test
+    void await_ShouldStopAtTheJobDeadlineEvenWhenSourceTimeoutsAreLonger() throws Exception {
+        try (var tasks = new ContextTasks(Duration.ofMillis(200))) {
+            var a = tasks.submit("a", Duration.ofSeconds(10), () -> {
+                Thread.sleep(5_000);
+                return "a";
+            });
+            var b = tasks.submit("b", Duration.ofSeconds(10), () -> {
+                Thread.sleep(5_000);
+                return "b";
+            });
+
+            assertThat(tasks.await(a)).isEmpty();
+            assertThat(tasks.await(b)).isEmpty();
+            assertThat(tasks.elapsedMs()).isLessThan(1_000L);
+        }
+    }
+
+    @Test
+    void awaitUnlessBusy_ShouldPassOnBusyHostsOnly() throws Exception {
+        var readyAt = Instant.parse("2024-01-01T00:05:00Z");
+        try (var tasks = new ContextTasks(Duration.ofSeconds(5))) {
+            var busy = tasks.submit("page", Duration.ofSeconds(1), () -> {
+                throw new UncheckedIOException(new HostBusyException("example.com", readyAt));
+            });
+            var failing = tasks.submit("other", Duration.ofSeconds(1), () -> {
+                throw new IllegalStateException("boom");
+            });
+
+            assertThatThrownBy(() -> tasks.awaitUnlessBusy(busy))
+                    .isInstanceOfSatisfying(HostBusyException.class, e -> assertThat(e.getReadyAt()).isEqualTo(readyAt));
+            assertThat(tasks.awaitUnlessBusy(failing)).isEmpty();
+            assertThat(tasks.timings().get("page").status()).isEqualTo(ContextTasks.Status.FAILED);
+        }
+    }
+}
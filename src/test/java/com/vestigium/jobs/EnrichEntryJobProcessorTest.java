@@ -1,8 +1,12 @@
 package com.vestigium.jobs;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalMatchers.and;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -10,21 +14,28 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestigium.dedup.DuplicateDetector;
 import com.vestigium.domain.Attachment;
 import com.vestigium.domain.Entry;
 import com.vestigium.domain.Job;
+import com.vestigium.enrich.AttachmentPreprocessor;
+import com.vestigium.enrich.AttachmentTextCache;
+import com.vestigium.enrich.BatchEnrichmentProperties;
+import com.vestigium.enrich.ContextGatheringProperties;
 import com.vestigium.enrich.EnrichmentParser;
 import com.vestigium.enrich.EnrichmentResult;
-import com.vestigium.enrich.PdfTextExtractor;
 import com.vestigium.enrich.ImdbMetadataFetcher;
+import com.vestigium.enrich.PageFetchCache;
 import com.vestigium.enrich.UrlContentFetcher;
 import com.vestigium.enrich.YouTubeMetadataFetcher;
 import com.vestigium.llm.GeminiClient;
 import com.vestigium.persistence.AttachmentRepository;
 import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.JobRepository;
 import com.vestigium.persistence.TagRepository;
 import com.vestigium.storage.FileStorageService;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -49,7 +60,7 @@ class EnrichEntryJobProcessorTest {
     private FileStorageService fileStorage;
 
     @Mock
-    private UrlContentFetcher urlFetcher;
+    private PageFetchCache pageCache;
 
     @Mock
     private YouTubeMetadataFetcher youtubeMetadata;
@@ -58,7 +69,10 @@ class EnrichEntryJobProcessorTest {
     private ImdbMetadataFetcher imdb;
 
     @Mock
-    private PdfTextExtractor pdfTextExtractor;
+    private AttachmentTextCache attachmentText;
+
+    @Mock
+    private AttachmentPreprocessor attachmentPreprocessor;
 
     @Mock
     private GeminiClient gemini;
@@ -66,6 +80,12 @@ class EnrichEntryJobProcessorTest {
     @Mock
     private EnrichmentParser enrichmentParser;
 
+    @Mock
+    private JobRepository jobs;
+
+    @Mock
+    private DuplicateDetector duplicates;
+
     private ObjectMapper objectMapper;
     private EnrichEntryJobProcessor processor;
     private Entry mockEntry;
@@ -74,9 +94,12 @@ class EnrichEntryJobProcessorTest {
     void setUp() {
         objectMapper = new ObjectMapper();
         processor = new EnrichEntryJobProcessor(
-                entries, tags, attachments, fileStorage, urlFetcher,
-                youtubeMetadata, imdb, pdfTextExtractor, gemini,
-                enrichmentParser, objectMapper
+                entries, tags, attachments, fileStorage, pageCache,
+                youtubeMetadata, imdb, attachmentText, attachmentPreprocessor, gemini,
+                enrichmentParser, objectMapper, jobs,
+                new ContextGatheringProperties(null, null, null, null, null, null),
+                new BatchEnrichmentProperties(null, null, null, null),
+                duplicates
         );
 
         mockEntry = new Entry(
@@ -111,8 +134,8 @@ class EnrichEntryJobProcessorTest {
 
         when(entries.getById("entry-1")).thenReturn(Optional.of(mockEntry));
         when(attachments.listForEntry("entry-1")).thenReturn(List.of());
-        when(urlFetcher.fetchReadableText("http://example.com")).thenReturn(pageContent);
-        when(gemini.generateText(anyString(), any())).thenReturn("{\"title\":\"LLM Title\",\"description\":\"LLM Description\",\"tags\":[\"tag1\",\"tag2\"]}");
+        when(pageCache.fetchReadableText("http://example.com")).thenReturn(pageContent);
+        when(gemini.generateText(anyString(), any(), anyBoolean())).thenReturn("{\"title\":\"LLM Title\",\"description\":\"LLM Description\",\"tags\":[\"tag1\",\"tag2\"]}");
         when(enrichmentParser.parseFromModelText(anyString())).thenReturn(enrichment);
         when(entries.getById("entry-1")).thenReturn(Optional.of(mockEntry));
 
@@ -135,8 +158,8 @@ class EnrichEntryJobProcessorTest {
 
         when(entries.getById("entry-1")).thenReturn(Optional.of(entryWithTitle));
         when(attachments.listForEntry("entry-1")).thenReturn(List.of());
-        when(urlFetcher.fetchReadableText("http://example.com")).thenReturn(pageContent);
-        when(gemini.generateText(anyString(), any())).thenReturn("{\"title\":\"New Title\",\"description\":\"New Description\",\"tags\":[\"tag1\"]}");
+        when(pageCache.fetchReadableText("http://example.com")).thenReturn(pageContent);
+        when(gemini.generateText(anyString(), any(), anyBoolean())).thenReturn("{\"title\":\"New Title\",\"description\":\"New Description\",\"tags\":[\"tag1\"]}");
         when(enrichmentParser.parseFromModelText(anyString())).thenReturn(enrichment);
         when(entries.getById("entry-1")).thenReturn(Optional.of(entryWithTitle), Optional.of(entryWithTitle));
 
@@ -159,8 +182,8 @@ class EnrichEntryJobProcessorTest {
 
         when(entries.getById("entry-1")).thenReturn(Optional.of(entryWithContent));
         when(attachments.listForEntry("entry-1")).thenReturn(List.of());
-        when(urlFetcher.fetchReadableText("http://example.com")).thenReturn(pageContent);
-        when(gemini.generateText(anyString(), any())).thenReturn("{\"title\":\"New Title\",\"description\":\"New Description\",\"tags\":[\"tag1\"]}");
+        when(pageCache.fetchReadableText("http://example.com")).thenReturn(pageContent);
+        when(gemini.generateText(anyString(), any(), anyBoolean())).thenReturn("{\"title\":\"New Title\",\"description\":\"New Description\",\"tags\":[\"tag1\"]}");
         when(enrichmentParser.parseFromModelText(anyString())).thenReturn(enrichment);
         when(entries.getById("entry-1")).thenReturn(Optional.of(entryWithContent), Optional.of(entryWithContent));
 
@@ -196,14 +219,14 @@ class EnrichEntryJobProcessorTest {
         when(entries.getById("entry-1")).thenReturn(Optional.of(youtubeEntry));
         when(attachments.listForEntry("entry-1")).thenReturn(List.of());
         when(youtubeMetadata.fetch("https://youtube.com/watch?v=abc123")).thenReturn(Optional.of(ytMetadata));
-        when(gemini.generateText(anyString(), any())).thenReturn("{\"title\":\"LLM Title\",\"description\":\"LLM Description\",\"tags\":[\"youtube\"]}");
+        when(gemini.generateText(anyString(), any(), anyBoolean())).thenReturn("{\"title\":\"LLM Title\",\"description\":\"LLM Description\",\"tags\":[\"youtube\"]}");
         when(enrichmentParser.parseFromModelText(anyString())).thenReturn(enrichment);
         when(entries.getById("entry-1")).thenReturn(Optional.of(youtubeEntry), Optional.of(youtubeEntry));
 
         processor.process(job);
 
         verify(youtubeMetadata).fetch("https://youtube.com/watch?v=abc123");
-        verify(urlFetcher, never()).fetchReadableText(anyString());
+        verify(pageCache, never()).fetchReadableText(anyString());
     }
 
     @Test
@@ -217,16 +240,98 @@ class EnrichEntryJobProcessorTest {
         when(attachments.listForEntry("entry-1")).thenReturn(List.of(attachment));
         when(fileStorage.loadAsResource("path/to/file.pdf")).thenReturn(resource);
         when(resource.exists()).thenReturn(true);
-        when(resource.getInputStream()).thenReturn(new java.io.ByteArrayInputStream("PDF content".getBytes()));
-        when(pdfTextExtractor.extractText(any(), eq(15000))).thenReturn("Extracted PDF text");
-        when(gemini.generateText(anyString(), any())).thenReturn("{\"title\":\"Title\",\"description\":\"Description\",\"tags\":[\"tag1\"]}");
+        when(attachmentText.pdfText(attachment, resource, AttachmentPreprocessor.PDF_TEXT_BUDGET)).thenReturn("Extracted PDF text");
+        when(gemini.generateText(anyString(), any(), anyBoolean())).thenReturn("{\"title\":\"Title\",\"description\":\"Description\",\"tags\":[\"tag1\"]}");
         when(enrichmentParser.parseFromModelText(anyString())).thenReturn(enrichment);
         when(entries.getById("entry-1")).thenReturn(Optional.of(mockEntry));
 
         processor.process(job);
 
-        verify(pdfTextExtractor).extractText(any(), eq(15000));
-        verify(urlFetcher, never()).fetchReadableText(anyString());
+        verify(attachmentText).pdfText(attachment, resource, AttachmentPreprocessor.PDF_TEXT_BUDGET);
+        verify(gemini).generateText(contains("Extracted PDF text"), any(), anyBoolean());
+        verify(pageCache, never()).fetchReadableText(anyString());
+    }
+
+    @Test
+    void process_ShouldBuildPromptFromOtherSourcesWhenOneTimesOut() throws Exception {
+        processor = new EnrichEntryJobProcessor(
+                entries, tags, attachments, fileStorage, pageCache,
+                youtubeMetadata, imdb, attachmentText, attachmentPreprocessor, gemini,
+                enrichmentParser, objectMapper, jobs,
+                new ContextGatheringProperties(5_000L, null, 50L, null, null, null),
+                new BatchEnrichmentProperties(null, null, null, null),
+                duplicates
+        );
+        var job = new Job("job-1", "ENRICH_ENTRY", "PENDING", "entry-1", null, 0, null, null, null, null, "2023-01-01T00:00:00Z");
+        var pageContent = new UrlContentFetcher.PageContent("Page Title", "Meta Description", "Page text content");
+        var enrichment = new EnrichmentResult("LLM Title", "LLM Description", null, List.of("tag1"));
+
+        when(entries.getById("entry-1")).thenReturn(Optional.of(mockEntry));
+        when(attachments.listForEntry("entry-1")).thenReturn(List.of());
+        when(imdb.fetch("http://example.com")).thenAnswer(inv -> {
+            Thread.sleep(2_000);
+            return Optional.empty();
+        });
+        when(pageCache.fetchReadableText("http://example.com")).thenReturn(pageContent);
+        when(gemini.generateText(anyString(), any(), anyBoolean())).thenReturn("{}");
+        when(enrichmentParser.parseFromModelText(anyString())).thenReturn(enrichment);
+
+        var started = System.nanoTime();
+        processor.process(job);
+
+        assertThat(System.nanoTime() - started).isLessThan(1_500_000_000L);
+        verify(gemini).generateText(contains("Page text content"), any(), anyBoolean());
+        verify(jobs).saveMetrics(eq("job-1"), contains("\"imdb\":{\"status\":\"TIMEOUT\""));
+    }
+
+    @Test
+    void process_ShouldEnrichClaimedBatchJobsInOneRequest() throws Exception {
+        var lead = new Job("job-1", "ENRICH_ENTRY", "RUNNING", "entry-1", "{\"batch\":true}", 1, null, null, null, null, "2023-01-01T00:00:00Z");
+        var other = new Job("job-2", "ENRICH_ENTRY", "RUNNING", "entry-2", "{\"batch\":true}", 1, null, null, null, null, "2023-01-01T00:00:01Z");
+        var pageContent = new UrlContentFetcher.PageContent(null, null, "Page text content");
+        stubBatchEntries(lead, other, pageContent);
+        when(gemini.generateText(anyString(), any(), anyBoolean(), anyInt())).thenReturn("[]");
+        when(enrichmentParser.parseBatchFromModelText("[]")).thenReturn(Map.of(
+                "entry-1", new EnrichmentResult("First", "First description", null, List.of("one")),
+                "entry-2", new EnrichmentResult("Second", "Second description", null, List.of("two"))
+        ));
+
+        processor.process(lead);
+
+        verify(gemini).generateText(and(contains("Entry id: entry-1"), contains("Entry id: entry-2")), any(), eq(false), anyInt());
+        verify(gemini, never()).generateText(anyString(), any(), anyBoolean());
+        verify(entries).updateCore(eq("entry-1"), eq("First"), eq("First description"), eq((String) null), eq((String) null), eq((Boolean) null));
+        verify(entries).updateCore(eq("entry-2"), eq("Second"), eq("Second description"), eq((String) null), eq((String) null), eq((Boolean) null));
+        verify(jobs).markSucceeded("job-2");
+        verify(jobs, never()).requeue(anyString(), any(), any());
     }
-}
 
+    @Test
+    void process_ShouldSplitFailedBatchAndFallBackToSingleEntries() throws Exception {
+        var lead = new Job("job-1", "ENRICH_ENTRY", "RUNNING", "entry-1", "{\"batch\":true}", 1, null, null, null, null, "2023-01-01T00:00:00Z");
+        var other = new Job("job-2", "ENRICH_ENTRY", "RUNNING", "entry-2", "{\"batch\":true}", 1, null, null, null, null, "2023-01-01T00:00:01Z");
+        var pageContent = new UrlContentFetcher.PageContent(null, null, "Page text content");
+        stubBatchEntries(lead, other, pageContent);
+        when(gemini.generateText(anyString(), any(), anyBoolean(), anyInt())).thenThrow(new IllegalStateException("Gemini error: SAFETY"));
+        when(gemini.generateText(anyString(), any(), anyBoolean())).thenReturn("{}");
+        when(enrichmentParser.parseFromModelText("{}")).thenReturn(new EnrichmentResult("First", "First description", null, List.of("one")));
+
+        processor.process(lead);
+
+        verify(entries).updateCore(eq("entry-1"), eq("First"), eq("First description"), eq((String) null), eq((String) null), eq((Boolean) null));
+        verify(jobs).requeue(eq("job-2"), eq((String) null), anyString());
+        verify(jobs, never()).markSucceeded("job-2");
+    }
+
+    private void stubBatchEntries(Job lead, Job other, UrlContentFetcher.PageContent pageContent) {
+        var second = new Entry(
+                "entry-2", "http://example.org", null, null, null, null, null, null, false,
+                "2023-01-01T00:00:00Z", "2023-01-01T00:00:00Z", null, true, null, List.of()
+        );
+        when(entries.getById("entry-1")).thenReturn(Optional.of(mockEntry));
+        when(entries.getById("entry-2")).thenReturn(Optional.of(second));
+        when(attachments.listForEntry(anyString())).thenReturn(List.of());
+        when(jobs.claimPendingBatch("ENRICH_ENTRY", lead.id(), 7)).thenReturn(List.of(other));
+        when(pageCache.fetchReadableText(anyString())).thenReturn(pageContent);
+    }
+}
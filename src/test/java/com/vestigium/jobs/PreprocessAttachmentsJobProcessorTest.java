@@ -0,0 +1,64 @@
+package com.vestigium.jobs;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestigium.domain.Attachment;
+import com.vestigium.domain.Job;
+import com.vestigium.enrich.AttachmentPreprocessor;
+import com.vestigium.persistence.AttachmentRepository;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class PreprocessAttachmentsJobProcessorTest {
+
+    @Mock
+    private AttachmentRepository attachments;
+
+    @Mock
+    private AttachmentPreprocessor preprocessor;
+
+    private PreprocessAttachmentsJobProcessor processor;
+
+    private final Attachment pdf = new Attachment("att-1", "entry-1", "PDF", "a.pdf", "application/pdf", 10, "blobs/a", "now", "hash-a");
+    private final Attachment image = new Attachment("att-2", "entry-1", "IMAGE", "b.png", "image/png", 10, "blobs/b", "now", "hash-b");
+
+    @BeforeEach
+    void setUp() {
+        processor = new PreprocessAttachmentsJobProcessor(attachments, preprocessor, new ObjectMapper());
+    }
+
+    @Test
+    void process_ShouldPreprocessEveryAttachmentOfTheEntryWithoutPayload() throws Exception {
+        when(attachments.listForEntry("entry-1")).thenReturn(List.of(pdf, image));
+
+        processor.process(job(null));
+
+        verify(preprocessor).preprocess(pdf, false);
+        verify(preprocessor).preprocess(image, false);
+    }
+
+    @Test
+    void process_ShouldOnlyPreprocessTheNamedAttachment() throws Exception {
+        when(attachments.getById("att-2")).thenReturn(Optional.of(image));
+
+        processor.process(job("{\"attachmentId\":\"att-2\",\"force\":true}"));
+
+        verify(preprocessor).preprocess(image, true);
+        verify(preprocessor, never()).preprocess(pdf, false);
+        verify(attachments, never()).listForEntry(any());
+    }
+
+    private static Job job(String payload) {
+        return new Job("job-1", "PREPROCESS_ATTACHMENTS", "RUNNING", "entry-1", payload, 1, null, null, null, null, "now");
+    }
+}
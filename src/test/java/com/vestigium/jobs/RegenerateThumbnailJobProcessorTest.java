@@ -11,12 +11,17 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestigium.dedup.DuplicateDetector;
 import com.vestigium.domain.Entry;
+import com.vestigium.domain.EntryThumbnail;
 import com.vestigium.domain.Job;
 import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.ThumbnailRepository;
 import com.vestigium.storage.FileStorageService;
 import com.vestigium.storage.FileStorageService.StoredFile;
+import com.vestigium.thumb.ImageCodecs;
 import com.vestigium.thumb.ImageThumbs;
+import com.vestigium.thumb.JpegImageCodec;
 import com.vestigium.thumb.PageScreenshotter;
 import com.vestigium.thumb.ThumbnailFetcher;
 import java.awt.image.BufferedImage;
@@ -36,6 +41,9 @@ class RegenerateThumbnailJobProcessorTest {
     @Mock
     private EntryRepository entries;
 
+    @Mock
+    private ThumbnailRepository thumbnails;
+
     @Mock
     private ThumbnailFetcher fetcher;
 
@@ -45,6 +53,9 @@ class RegenerateThumbnailJobProcessorTest {
     @Mock
     private FileStorageService fileStorage;
 
+    @Mock
+    private DuplicateDetector duplicates;
+
     private ObjectMapper objectMapper;
 
     private RegenerateThumbnailJobProcessor processor;
@@ -64,7 +75,10 @@ class RegenerateThumbnailJobProcessorTest {
     @BeforeEach
     void setUp() throws Exception {
         objectMapper = new ObjectMapper();
-        processor = new RegenerateThumbnailJobProcessor(entries, fetcher, screenshotter, fileStorage, objectMapper);
+        processor = new RegenerateThumbnailJobProcessor(
+                entries, thumbnails, fetcher, screenshotter, fileStorage,
+                new ImageCodecs(List.of(new JpegImageCodec())), objectMapper, duplicates
+        );
 
         mockEntry = new Entry(
                 "entry-1",
@@ -158,6 +172,41 @@ class RegenerateThumbnailJobProcessorTest {
         verify(entries).updateThumbnailPaths("entry-1", "small.jpg", "large.jpg");
     }
 
+    @Test
+    void process_ShouldRecordJpegVariants() throws Exception {
+        var job = new Job("job-1", "REGENERATE_THUMBNAIL", "PENDING", "entry-1", null, 0, null, null, null, null, "2023-01-01T00:00:00Z");
+
+        when(entries.getById("entry-1")).thenReturn(Optional.of(mockEntry));
+        when(fetcher.findOgImageUrl(anyString())).thenReturn(Optional.empty());
+        when(screenshotter.screenshotPng("http://example.com")).thenReturn(createTestImageBytes());
+        when(fileStorage.saveThumbnailJpeg(eq("entry-1"), any(byte[].class))).thenReturn(new StoredFile("small.jpg", "small.jpg", "image/jpeg", 100));
+        when(fileStorage.saveThumbnailJpeg(eq("entry-1"), eq("large"), any(byte[].class))).thenReturn(new StoredFile("large.jpg", "large.jpg", "image/jpeg", 200));
+
+        processor.process(job);
+
+        verify(thumbnails).upsert("entry-1", "small", "jpeg", "small.jpg", 100, null);
+        verify(thumbnails).upsert("entry-1", "large", "jpeg", "large.jpg", 200, null);
+        verify(thumbnails).deleteFormatsNotIn("entry-1", List.of("jpeg"));
+    }
+
+    @Test
+    void process_ShouldReleasePreviousThumbnailBlobs() throws Exception {
+        var job = new Job("job-1", "REGENERATE_THUMBNAIL", "PENDING", "entry-1", null, 0, null, null, null, null, "2023-01-01T00:00:00Z");
+        var old = new EntryThumbnail("entry-1", "small", "jpeg", "blobs/aa/bb/old", 90, "2023-01-01T00:00:00Z", "old-hash");
+
+        when(entries.getById("entry-1")).thenReturn(Optional.of(mockEntry));
+        when(thumbnails.listForEntry("entry-1")).thenReturn(List.of(old));
+        when(fetcher.findOgImageUrl(anyString())).thenReturn(Optional.empty());
+        when(screenshotter.screenshotPng("http://example.com")).thenReturn(createTestImageBytes());
+        when(fileStorage.saveThumbnailJpeg(eq("entry-1"), any(byte[].class))).thenReturn(new StoredFile("small.jpg", "small.jpg", "image/jpeg", 100, "new-small"));
+        when(fileStorage.saveThumbnailJpeg(eq("entry-1"), eq("large"), any(byte[].class))).thenReturn(new StoredFile("large.jpg", "large.jpg", "image/jpeg", 200, "new-large"));
+
+        processor.process(job);
+
+        verify(thumbnails).upsert("entry-1", "small", "jpeg", "small.jpg", 100, "new-small");
+        verify(fileStorage).releaseBlobs(List.of("old-hash"));
+    }
+
     @Test
     void process_ShouldThrowWhenEntryNotFound() {
         var job = new Job("job-1", "REGENERATE_THUMBNAIL", "PENDING", "entry-1", null, 0, null, null, null, null, "2023-01-01T00:00:00Z");
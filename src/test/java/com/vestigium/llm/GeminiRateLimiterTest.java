@@ -0,0 +1,97 @@
+package com.vestigium.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+class GeminiRateLimiterTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final GeminiRateLimiter limiter = new GeminiRateLimiter(clock, 2, 1000, Duration.ofSeconds(30));
+
+    @Test
+    void acquire_ShouldSpendRequestsAndReportWhenTheyReturn() throws Exception {
+        limiter.acquire(100, Duration.ZERO);
+        limiter.acquire(100, Duration.ZERO);
+
+        assertThatThrownBy(() -> limiter.acquire(100, Duration.ZERO))
+                .isInstanceOf(GeminiQuotaException.class)
+                .satisfies(e -> assertThat(((GeminiQuotaException) e).getRetryAt())
+                        .isEqualTo(clock.instant().plusSeconds(30)));
+
+        clock.advance(Duration.ofSeconds(30));
+        limiter.acquire(100, Duration.ZERO);
+        var budget = limiter.snapshot();
+        assertThat(budget.granted()).isEqualTo(3);
+        assertThat(budget.deferred()).isEqualTo(1);
+        assertThat(budget.requestsRemaining()).isZero();
+    }
+
+    @Test
+    void acquire_ShouldWaitForTokensAndSettleToReportedUsage() throws Exception {
+        var reservation = limiter.acquire(800, Duration.ZERO);
+        limiter.settle(reservation, 200);
+
+        assertThat(limiter.snapshot().tokensRemaining()).isEqualTo(800);
+        limiter.acquire(800, Duration.ZERO);
+        assertThatThrownBy(() -> limiter.acquire(500, Duration.ofSeconds(10)))
+                .isInstanceOf(GeminiQuotaException.class);
+    }
+
+    @Test
+    void penalize_ShouldBlockUntilRetryDelay() throws Exception {
+        var retryAt = limiter.penalize(Duration.ofSeconds(40));
+
+        assertThat(retryAt).isEqualTo(clock.instant().plusSeconds(40));
+        assertThat(limiter.snapshot().blockedUntil()).isEqualTo(retryAt.toString());
+        assertThatThrownBy(() -> limiter.acquire(1, Duration.ofSeconds(30)))
+                .isInstanceOf(GeminiQuotaException.class);
+
+        clock.advance(Duration.ofSeconds(40));
+        limiter.acquire(1, Duration.ZERO);
+        assertThat(limiter.snapshot().throttled()).isEqualTo(1);
+    }
+
+    @Test
+    void parseRetryInfo_ShouldReadRetryDelayFromErrorDetails() throws Exception {
+        var body = new ObjectMapper().readTree("""
+                {"error":{"code":429,"status":"RESOURCE_EXHAUSTED","details":[
+                  {"@type":"type.googleapis.com/google.rpc.QuotaFailure","violations":[]},
+                  {"@type":"type.googleapis.com/google.rpc.RetryInfo","retryDelay":"37.5s"}
+                ]}}
+                """);
+
+        assertThat(GeminiRateLimiter.parseRetryInfo(body)).contains(Duration.ofMillis(37_500));
+        assertThat(GeminiRateLimiter.parseRetryInfo(new ObjectMapper().readTree("{\"error\":{}}"))).isEmpty();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.vestigium.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class GeminiRequestBodyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void iterator_ShouldProduceTheSameJsonAsSerialisingTheWholeRequest() throws Exception {
+        var first = new byte[200_000];
+        new Random(1).nextBytes(first);
+        var second = new byte[] {1, 2, 3, 4};
+        var images = List.of(
+                new GeminiClient.InlineImage("image/jpeg", first),
+                new GeminiClient.InlineImage("image/png", second)
+        );
+        var config = Map.<String, Object>of("temperature", 0.2);
+
+        var body = GeminiRequestBody.of(objectMapper, "Describe \"this\"\n", images, config);
+
+        var expected = Map.of(
+                "contents", List.of(Map.of("role", "user", "parts", List.of(
+                        Map.of("text", "Describe \"this\"\n"),
+                        Map.of("inlineData", Map.of("mimeType", "image/jpeg", "data", Base64.getEncoder().encodeToString(first))),
+                        Map.of("inlineData", Map.of("mimeType", "image/png", "data", Base64.getEncoder().encodeToString(second)))
+                ))),
+                "generationConfig", config
+        );
+        assertThat(objectMapper.readTree(concat(body))).isEqualTo(objectMapper.valueToTree(expected));
+        // Iterable again for retries.
+        assertThat(concat(body)).isEqualTo(concat(body));
+    }
+
+    @Test
+    void iterator_ShouldWorkWithoutImages() throws Exception {
+        var body = GeminiRequestBody.of(objectMapper, "hi", null, Map.of("maxOutputTokens", 10));
+
+        var tree = objectMapper.readTree(concat(body));
+
+        assertThat(tree.at("/contents/0/parts/0/text").asText()).isEqualTo("hi");
+        assertThat(tree.at("/contents/0/parts")).hasSize(1);
+        assertThat(tree.at("/generationConfig/maxOutputTokens").asInt()).isEqualTo(10);
+    }
+
+    private static byte[] concat(Iterable<byte[]> chunks) {
+        var out = new ByteArrayOutputStream();
+        chunks.forEach(out::writeBytes);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,51 @@
+package com.vestigium.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(BlobRepository.class)
+class BlobRepositoryTest {
+
+    private static final String HASH = "ab".repeat(32);
+
+    @Autowired
+    private BlobRepository blobs;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.getJdbcOperations().execute("DELETE FROM blobs");
+    }
+
+    @Test
+    void refCounting_ShouldTrackReferencesUntilZero() {
+        blobs.insert(HASH, 10, "image/jpeg", "blobs/ab/ab/" + HASH);
+
+        assertThat(blobs.incrementRef(HASH)).isTrue();
+        assertThat(blobs.find(HASH)).get().extracting(b -> b.refCount()).isEqualTo(2);
+
+        assertThat(blobs.decrementRef(HASH)).contains(1);
+        assertThat(blobs.deleteIfUnreferenced(HASH)).isZero();
+
+        assertThat(blobs.decrementRef(HASH)).contains(0);
+        assertThat(blobs.deleteIfUnreferenced(HASH)).isEqualTo(1);
+        assertThat(blobs.find(HASH)).isEmpty();
+    }
+
+    @Test
+    void decrementRef_ShouldReturnEmptyForUnknownHash() {
+        assertThat(blobs.decrementRef(HASH)).isEmpty();
+        assertThat(blobs.incrementRef(HASH)).isFalse();
+    }
+}
@@ -0,0 +1,67 @@
+package com.vestigium.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class EmbeddingRepositoryTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    private EmbeddingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new EmbeddingRepository(jdbc);
+        jdbc.getJdbcOperations().execute("DELETE FROM entry_embeddings");
+        jdbc.getJdbcOperations().execute("DELETE FROM entries");
+        jdbc.getJdbcOperations().update(
+                "INSERT INTO entries (id, url, title, created_at, updated_at) VALUES ('e1', 'https://a.example', 'Castles', '2024-01-01T00:00:00Z', '2024-01-01T00:00:00Z')"
+        );
+    }
+
+    @Test
+    void listStale_ShouldReturnEntriesWithoutCurrentEmbedding() {
+        var stale = repository.listStale("m1", 10);
+        assertThat(stale).singleElement().satisfies(e -> {
+            assertThat(e.id()).isEqualTo("e1");
+            assertThat(e.title()).isEqualTo("Castles");
+            assertThat(e.contentHash()).isNull();
+        });
+
+        repository.upsert("e1", "m1", "h1", new byte[] {1, 2, 3}, "2024-01-01T00:00:00Z");
+        assertThat(repository.listStale("m1", 10)).isEmpty();
+        assertThat(repository.listStale("m2", 10)).hasSize(1);
+
+        jdbc.getJdbcOperations().update("UPDATE entries SET updated_at = '2024-02-01T00:00:00Z' WHERE id = 'e1'");
+        assertThat(repository.listStale("m1", 10)).singleElement()
+                .satisfies(e -> assertThat(e.contentHash()).isEqualTo("h1"));
+
+        repository.markChecked("e1", "2024-02-01T00:00:00Z");
+        assertThat(repository.listStale("m1", 10)).isEmpty();
+    }
+
+    @Test
+    void forEachVector_ShouldStreamOnlyTheRequestedModel() {
+        repository.upsert("e1", "m1", "h1", new byte[] {1, 2, 3}, "2024-01-01T00:00:00Z");
+
+        var vectors = new HashMap<String, byte[]>();
+        repository.forEachVector("m1", vectors::put);
+        assertThat(vectors).containsOnlyKeys("e1");
+        assertThat(vectors.get("e1")).containsExactly(1, 2, 3);
+
+        repository.forEachVector("m2", (id, v) -> vectors.clear());
+        assertThat(vectors).isNotEmpty();
+        assertThat(repository.count("m1")).isEqualTo(1);
+        assertThat(repository.count("m2")).isZero();
+    }
+}
@@ -44,8 +44,8 @@ class EntryRepositoryTest {
 
     @Test
     void search_ShouldFilterByTags() {
-        var e1 = entries.create("http://e1.com", "Entry 1", "Desc", null, false);
-        var e2 = entries.create("http://e2.com", "Entry 2", "Desc", null, false);
+        var e1 = entries.create("http://e1.com", "http://e1.com", "Entry 1", "Desc", null, false);
+        var e2 = entries.create("http://e2.com", "http://e2.com", "Entry 2", "Desc", null, false);
 
         entries.replaceTags(e1.id(), List.of("tag1", "common"), tags);
         entries.replaceTags(e2.id(), List.of("tag2", "common"), tags);
@@ -67,8 +67,8 @@ class EntryRepositoryTest {
 
     @Test
     void search_ShouldFilterByList() {
-        var e1 = entries.create("http://e1.com", "Entry 1", "Desc", null, false);
-        var e2 = entries.create("http://e2.com", "Entry 2", "Desc", null, false);
+        var e1 = entries.create("http://e1.com", "http://e1.com", "Entry 1", "Desc", null, false);
+        var e2 = entries.create("http://e2.com", "http://e2.com", "Entry 2", "Desc", null, false);
 
         var listA = lists.create("List A");
         lists.replaceEntryLists(e1.id(), List.of(listA.id()));
@@ -81,8 +81,8 @@ class EntryRepositoryTest {
     @Test
     void search_ShouldExcludeNsfwByDefault() {
         // Assuming "porn" is an NSFW tag (as per EntryRepository impl)
-        var safe = entries.create("http://safe.com", "Safe", "Desc", null, false);
-        var nsfw = entries.create("http://nsfw.com", "NSFW", "Desc", null, false);
+        var safe = entries.create("http://safe.com", "http://safe.com", "Safe", "Desc", null, false);
+        var nsfw = entries.create("http://nsfw.com", "http://nsfw.com", "NSFW", "Desc", null, false);
 
         entries.replaceTags(nsfw.id(), List.of("porn"), tags);
 
@@ -98,8 +98,8 @@ class EntryRepositoryTest {
     
     @Test
     void search_ShouldFilterByQuery() {
-        entries.create("http://e1.com", "Apple Pie", "Recipe", null, false);
-        entries.create("http://e2.com", "Banana Bread", "Delicious bread", null, false);
+        entries.create("http://e1.com", "http://e1.com", "Apple Pie", "Recipe", null, false);
+        entries.create("http://e2.com", "http://e2.com", "Banana Bread", "Delicious bread", null, false);
         
         var res = entries.search("apple", null, null, null, null, null, null, null, true, 0, 10);
         assertThat(res).extracting(SearchResult::totalCount).isEqualTo(1L);
@@ -112,13 +112,38 @@ class EntryRepositoryTest {
 
     @Test
     void listRandomUnvisited_ShouldExcludeVisited() {
-        var visited = entries.create("http://v.com", "Visited", "Desc", null, false);
+        var visited = entries.create("http://v.com", "http://v.com", "Visited", "Desc", null, false);
         entries.setVisitedNow(visited.id());
 
-        var unvisited = entries.create("http://u.com", "Unvisited", "Desc", null, false);
+        var unvisited = entries.create("http://u.com", "http://u.com", "Unvisited", "Desc", null, false);
 
         var res = entries.listRandomUnvisited(10, true);
         assertThat(res).hasSize(1);
         assertThat(res.getFirst().id()).isEqualTo(unvisited.id());
     }
+
+    @Test
+    void listByIds_ShouldKeepRequestedOrderAndSkipUnknownIds() {
+        var first = entries.create("http://a.com", "http://a.com", "A", "Desc", null, false);
+        var second = entries.create("http://b.com", "http://b.com", "B", "Desc", null, false);
+
+        var res = entries.listByIds(List.of(second.id(), "missing", first.id()));
+
+        assertThat(res).extracting(Entry::id).containsExactly(second.id(), first.id());
+    }
+
+    @Test
+    void findByUrlOrCanonical_ShouldMatchCanonicalUrl() {
+        var entry = entries.create("https://youtu.be/abc?t=42", "https://www.youtube.com/watch?v=abc", "A", "Desc", null, false);
+
+        assertThat(entries.findByUrlOrCanonical("https://www.youtube.com/watch?v=abc&t=7", "https://www.youtube.com/watch?v=abc"))
+                .map(Entry::id).contains(entry.id());
+        assertThat(entries.findByUrlOrCanonical("https://youtu.be/abc?t=42", "https://other.com")).map(Entry::id).contains(entry.id());
+        assertThat(entries.findByUrlOrCanonical("https://example.com/other", "https://example.com/other")).isEmpty();
+        assertThat(entries.getById(entry.id())).map(Entry::url).contains("https://youtu.be/abc?t=42");
+        assertThat(entries.findExistingUrls(List.of("https://youtu.be/abc?t=42", "https://www.youtube.com/watch?v=abc")))
+                .containsExactly("https://youtu.be/abc?t=42");
+        assertThat(entries.findExistingCanonicalUrls(List.of("https://youtu.be/abc?t=42", "https://www.youtube.com/watch?v=abc")))
+                .containsExactly("https://www.youtube.com/watch?v=abc");
+    }
 }
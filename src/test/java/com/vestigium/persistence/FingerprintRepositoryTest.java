@@ -0,0 +1,39 @@
+package com.vestigium.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FingerprintRepositoryTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    private FingerprintRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new FingerprintRepository(jdbc);
+        jdbc.getJdbcOperations().execute("DELETE FROM entry_fingerprints");
+        jdbc.getJdbcOperations().execute("DELETE FROM entries");
+        jdbc.getJdbcOperations().update(
+                "INSERT INTO entries (id, url, created_at, updated_at) VALUES ('e1', 'https://a.example', '2024-01-01T00:00:00Z', '2024-01-01T00:00:00Z')"
+        );
+    }
+
+    @Test
+    void save_ShouldKeepTextAndImageHashesSideBySide() {
+        repository.saveImageHash("e1", -42L);
+        assertThat(repository.listAll()).containsExactly(new FingerprintRepository.Fingerprint("e1", null, -42L));
+
+        repository.saveTextHash("e1", Long.MIN_VALUE);
+        assertThat(repository.listAll()).containsExactly(new FingerprintRepository.Fingerprint("e1", Long.MIN_VALUE, -42L));
+    }
+}
@@ -6,6 +6,7 @@ import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.verify;
 
 import com.vestigium.events.JobUpdatedEvent;
+import java.time.Instant;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -60,6 +61,60 @@ class JobRepositoryTest {
         verify(events, atLeastOnce()).publishEvent(any(JobUpdatedEvent.class));
     }
 
+    @Test
+    void claimPending_ShouldClaimOnlyPendingJobsWithEntryUrl() {
+        var job = repository.enqueue("TEST_TYPE", "entry-1", null);
+
+        var candidates = repository.listPendingCandidates(10);
+        assertThat(candidates).hasSize(1);
+        assertThat(candidates.getFirst().jobId()).isEqualTo(job.id());
+        assertThat(candidates.getFirst().entryUrl()).isEqualTo("http://test.com");
+
+        assertThat(repository.claimPending(job.id())).isPresent();
+        assertThat(repository.claimPending(job.id())).isEmpty();
+        assertThat(repository.listPendingCandidates(10)).isEmpty();
+    }
+
+    @Test
+    void defer_ShouldHideJobUntilRunAfterWithoutCountingTheAttempt() {
+        var job = repository.enqueue("TEST_TYPE", "entry-1", null);
+        repository.claimPending(job.id()).orElseThrow();
+
+        repository.defer(job.id(), Instant.now().plusSeconds(60), "quota");
+
+        var deferred = repository.getById(job.id()).orElseThrow();
+        assertThat(deferred.status()).isEqualTo("PENDING");
+        assertThat(deferred.attempts()).isZero();
+        assertThat(deferred.lastError()).isEqualTo("quota");
+        assertThat(repository.listPendingCandidates(10)).isEmpty();
+        assertThat(repository.claimPending(job.id())).isEmpty();
+        assertThat(repository.claimNextPending()).isEmpty();
+
+        jdbc.getJdbcOperations().update("UPDATE jobs SET run_after = '2000-01-01T00:00:00Z' WHERE id = ?", job.id());
+        assertThat(repository.claimPending(job.id())).isPresent();
+    }
+
+    @Test
+    void claimPendingBatch_ShouldClaimOnlyOtherBatchJobsAndRequeueWithoutCountingAttempts() {
+        var lead = repository.enqueue("ENRICH_ENTRY", "entry-1", "{\"batch\":true}");
+        var batchable = repository.enqueue("ENRICH_ENTRY", "entry-1", "{\"batch\":true,\"isTitleSuggestion\":true}");
+        repository.enqueue("ENRICH_ENTRY", "entry-1", null);
+        repository.enqueue("OTHER", "entry-1", "{\"batch\":true}");
+
+        var claimed = repository.claimPendingBatch("ENRICH_ENTRY", lead.id(), 10);
+
+        assertThat(claimed).extracting(j -> j.id()).containsExactly(batchable.id());
+        assertThat(claimed.getFirst().status()).isEqualTo("RUNNING");
+
+        repository.requeue(batchable.id(), "{\"isTitleSuggestion\":true}", "alone");
+
+        var requeued = repository.getById(batchable.id()).orElseThrow();
+        assertThat(requeued.status()).isEqualTo("PENDING");
+        assertThat(requeued.attempts()).isZero();
+        assertThat(requeued.payloadJson()).isEqualTo("{\"isTitleSuggestion\":true}");
+        assertThat(repository.claimPendingBatch("ENRICH_ENTRY", lead.id(), 10)).isEmpty();
+    }
+
     @Test
     void shouldPublishEventOnSuccess() {
         var job = repository.enqueue("TEST_TYPE", "entry-1", "{}");
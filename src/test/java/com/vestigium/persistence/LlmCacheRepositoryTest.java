@@ -0,0 +1,53 @@
+package com.vestigium.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class LlmCacheRepositoryTest {
+
+    private static final String LONG_AGO = "2000-01-01T00:00:00Z";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    private LlmCacheRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new LlmCacheRepository(jdbc);
+        jdbc.getJdbcOperations().execute("DELETE FROM llm_cache");
+    }
+
+    @Test
+    void find_ShouldIgnoreAnswersStoredBeforeTtl() {
+        repository.put("k1", "model", "answer");
+
+        assertThat(repository.find("k1", LONG_AGO)).contains("answer");
+        assertThat(repository.find("k1", "2999-01-01T00:00:00Z")).isEmpty();
+        assertThat(repository.find("missing", LONG_AGO)).isEmpty();
+    }
+
+    @Test
+    void trim_ShouldEvictLeastRecentlyUsedBeyondLimits() {
+        repository.put("old", "model", "aaaa");
+        repository.put("mid", "model", "bbbb");
+        repository.put("new", "model", "cccc");
+        jdbc.getJdbcOperations().update("UPDATE llm_cache SET last_used_at = '2024-01-01T00:00:00Z' WHERE cache_key = 'old'");
+        jdbc.getJdbcOperations().update("UPDATE llm_cache SET last_used_at = '2024-01-02T00:00:00Z' WHERE cache_key = 'mid'");
+        jdbc.getJdbcOperations().update("UPDATE llm_cache SET last_used_at = '2024-01-03T00:00:00Z' WHERE cache_key = 'new'");
+
+        assertThat(repository.trim(LONG_AGO, 10, 8)).isEqualTo(1);
+        assertThat(repository.find("old", LONG_AGO)).isEmpty();
+
+        assertThat(repository.trim(LONG_AGO, 1, 1000)).isEqualTo(1);
+        assertThat(repository.totals()).isEqualTo(new LlmCacheRepository.Totals(1, 4));
+    }
+}
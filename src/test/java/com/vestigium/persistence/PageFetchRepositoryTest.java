@@ -0,0 +1,84 @@
+package com.vestigium.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vestigium.domain.PageFetch;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PageFetchRepositoryTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    private PageFetchRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new PageFetchRepository(jdbc);
+        jdbc.getJdbcOperations().execute("DELETE FROM page_fetch_cache");
+    }
+
+    @Test
+    void upsertFetch_ShouldReplaceValidatorsAndHash() {
+        repository.upsertFetch("http://a.test", "\"v1\"", null, "hash-1", "page-cache/aa/x.json.gz");
+
+        repository.upsertFetch("http://a.test", "\"v2\"", null, "hash-2", "page-cache/aa/x.json.gz");
+
+        var row = repository.find("http://a.test").orElseThrow();
+        assertThat(row.etag()).isEqualTo("\"v2\"");
+        assertThat(row.contentHash()).isEqualTo("hash-2");
+        assertThat(row.extractPath()).isEqualTo("page-cache/aa/x.json.gz");
+    }
+
+    @Test
+    void markRevalidated_ShouldKeepValidatorsWhenServerOmitsThem() {
+        repository.upsertFetch("http://a.test", "\"v1\"", "Mon, 01 Jan 2024 00:00:00 GMT", "hash-1", "p");
+
+        repository.markRevalidated("http://a.test", null, null);
+
+        var row = repository.find("http://a.test").orElseThrow();
+        assertThat(row.etag()).isEqualTo("\"v1\"");
+        assertThat(row.lastModified()).isEqualTo("Mon, 01 Jan 2024 00:00:00 GMT");
+        assertThat(row.fetchedAt()).isNotNull();
+    }
+
+    @Test
+    void listEvictable_ShouldReturnExpiredRowsAndRowsBeyondMaxEntries() {
+        repository.upsertFetch("http://old.test", null, null, "h", "p1");
+        repository.upsertFetch("http://older.test", null, null, "h", "p2");
+        repository.upsertFetch("http://new.test", null, null, "h", "p3");
+        repository.upsertFetch("http://newer.test", null, null, "h", "p4");
+        setFetchedAt("http://older.test", "2024-01-01T00:00:00Z");
+        setFetchedAt("http://old.test", "2024-01-02T00:00:00Z");
+        setFetchedAt("http://new.test", "2024-03-01T00:00:00Z");
+        setFetchedAt("http://newer.test", "2024-03-02T00:00:00Z");
+
+        assertThat(repository.listEvictable("2024-02-01T00:00:00Z", 10)).extracting(PageFetch::url)
+                .containsExactly("http://older.test", "http://old.test");
+        assertThat(repository.listEvictable("2023-01-01T00:00:00Z", 1)).extracting(PageFetch::url)
+                .containsExactly("http://older.test", "http://old.test", "http://new.test");
+    }
+
+    @Test
+    void deleteIfFetchedAt_ShouldKeepRowsFetchedAgain() {
+        repository.upsertFetch("http://a.test", null, null, "h", "p");
+        setFetchedAt("http://a.test", "2024-01-01T00:00:00Z");
+
+        assertThat(repository.deleteIfFetchedAt("http://a.test", "2023-12-31T00:00:00Z")).isFalse();
+        assertThat(repository.find("http://a.test")).isPresent();
+        assertThat(repository.deleteIfFetchedAt("http://a.test", "2024-01-01T00:00:00Z")).isTrue();
+        assertThat(repository.find("http://a.test")).isEmpty();
+    }
+
+    private void setFetchedAt(String url, String fetchedAt) {
+        jdbc.update("UPDATE page_fetch_cache SET fetched_at = :fetchedAt WHERE url = :url", Map.of("url", url, "fetchedAt", fetchedAt));
+    }
+}
@@ -0,0 +1,147 @@
+package com.vestigium.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vestigium.domain.Job;
+import com.vestigium.events.EntriesChangedEvent;
+import com.vestigium.events.JobUpdatedEvent;
+import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.JobRepository;
+import com.vestigium.persistence.TagRepository;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+class BulkIngestServiceTest {
+
+    @Mock
+    private EntryRepository entries;
+    @Mock
+    private TagRepository tags;
+    @Mock
+    private JobRepository jobs;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ApplicationEventPublisher events;
+    @Mock
+    private CanonicalUrlResolver canonicalUrls;
+
+    private BulkIngestService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new BulkIngestService(entries, tags, jobs, transactionManager, events, canonicalUrls, 200);
+    }
+
+    @Test
+    void ingest_ShouldBatchInsertNewUrlsAndReportErrors() {
+        var items = List.of(
+            new BulkIngestService.BulkCreateItem("http://ok.com", null),
+            new BulkIngestService.BulkCreateItem("invalid-url", null),
+            new BulkIngestService.BulkCreateItem("http://dupe.com", null)
+        );
+
+        when(entries.findExistingUrls(List.of("http://ok.com", "http://dupe.com"))).thenReturn(Set.of("http://dupe.com"));
+        when(entries.batchCreate(List.of(new EntryRepository.NewEntry("http://ok.com", "http://ok.com", null))))
+            .thenReturn(Map.of("http://ok.com", "1"));
+
+        var result = service.ingest(items);
+
+        assertThat(result.createdCount()).isEqualTo(1);
+        assertThat(result.skippedCount()).isEqualTo(1);
+        assertThat(result.errors()).hasSize(1);
+        assertThat(result.errors().getFirst().url()).isEqualTo("invalid-url");
+
+        var expectedPayloads = new HashMap<String, String>();
+        expectedPayloads.put("1", null);
+        verify(jobs).enqueueBatch("ENRICH_ENTRY", Map.of("1", "{\"batch\":true}"));
+        verify(jobs).enqueueBatch("REGENERATE_THUMBNAIL", expectedPayloads);
+    }
+
+    @Test
+    void ingest_ShouldMarkTitledItemsAsSuggestions() {
+        when(entries.findExistingUrls(List.of("http://ok.com"))).thenReturn(Set.of());
+        when(entries.batchCreate(List.of(new EntryRepository.NewEntry("http://ok.com", "http://ok.com", "Title"))))
+            .thenReturn(Map.of("http://ok.com", "1"));
+
+        service.ingest(List.of(new BulkIngestService.BulkCreateItem("http://ok.com", "Title")));
+
+        verify(jobs).enqueueBatch("ENRICH_ENTRY", Map.of("1", "{\"isTitleSuggestion\":true,\"batch\":true}"));
+    }
+
+    @Test
+    void ingest_ShouldPublishEventsAfterTheChunkCommits() {
+        var job = new Job("j1", "ENRICH_ENTRY", "PENDING", "1", "{\"batch\":true}", 0, null, null, null, null, "now");
+        when(entries.findExistingUrls(List.of("http://ok.com"))).thenReturn(Set.of());
+        when(entries.batchCreate(List.of(new EntryRepository.NewEntry("http://ok.com", "http://ok.com", null))))
+            .thenReturn(Map.of("http://ok.com", "1"));
+        when(jobs.enqueueBatch("ENRICH_ENTRY", Map.of("1", "{\"batch\":true}"))).thenReturn(List.of(job));
+
+        service.ingest(List.of(new BulkIngestService.BulkCreateItem("http://ok.com", null)));
+
+        var order = inOrder(transactionManager, events);
+        order.verify(transactionManager).commit(any());
+        order.verify(events).publishEvent(new EntriesChangedEvent(EntriesChangedEvent.Change.ADDED, List.of("1")));
+        order.verify(events).publishEvent(new JobUpdatedEvent(job));
+    }
+
+    @Test
+    void ingest_ShouldSkipUrlsWhoseCanonicalUrlIsTaken() {
+        var items = List.of(
+            new BulkIngestService.BulkCreateItem("https://bit.ly/known", null),
+            new BulkIngestService.BulkCreateItem("https://t.co/new?utm_source=x", null),
+            new BulkIngestService.BulkCreateItem("https://example.com/new", null),
+            new BulkIngestService.BulkCreateItem("https://youtu.be/dQw4w9WgXcQ?t=42", null)
+        );
+        var urls = List.of("https://bit.ly/known", "https://t.co/new", "https://example.com/new", "https://youtu.be/dQw4w9WgXcQ?t=42");
+        when(canonicalUrls.resolveRedirects(Set.of(
+            "https://bit.ly/known", "https://t.co/new", "https://example.com/new", "https://www.youtube.com/watch?v=dQw4w9WgXcQ"
+        ))).thenReturn(Map.of("https://bit.ly/known", "https://example.com/known", "https://t.co/new", "https://example.com/new"));
+        when(entries.findExistingUrls(urls)).thenReturn(Set.of());
+        when(entries.findExistingCanonicalUrls(Set.of(
+            "https://example.com/known", "https://example.com/new", "https://www.youtube.com/watch?v=dQw4w9WgXcQ"
+        ))).thenReturn(Set.of("https://example.com/known"));
+        when(entries.batchCreate(List.of(
+            new EntryRepository.NewEntry("https://t.co/new", "https://example.com/new", null),
+            new EntryRepository.NewEntry("https://youtu.be/dQw4w9WgXcQ?t=42", "https://www.youtube.com/watch?v=dQw4w9WgXcQ", null)
+        ))).thenReturn(Map.of("https://t.co/new", "1", "https://youtu.be/dQw4w9WgXcQ?t=42", "2"));
+
+        var result = service.ingest(items);
+
+        assertThat(result.createdCount()).isEqualTo(2);
+        assertThat(result.skippedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void start_ShouldExposeProgressUntilFinished() {
+        when(entries.findExistingUrls(List.of("http://dupe.com"))).thenReturn(Set.of("http://dupe.com"));
+
+        var started = service.start(List.of(new BulkIngestService.BulkCreateItem("http://dupe.com", null)));
+
+        verify(entries, timeout(2000)).findExistingUrls(List.of("http://dupe.com"));
+        var deadline = System.currentTimeMillis() + 2000;
+        while (!"SUCCEEDED".equals(service.get(started.id()).orElseThrow().status()) && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        var status = service.get(started.id()).orElseThrow();
+        assertThat(status.status()).isEqualTo("SUCCEEDED");
+        assertThat(status.skippedCount()).isEqualTo(1);
+        verify(entries, never()).batchCreate(any());
+    }
+}
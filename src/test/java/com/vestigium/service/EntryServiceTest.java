@@ -6,12 +6,16 @@ import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.vestigium.domain.Entry;
+import com.vestigium.enrich.PageFetchCache;
 import com.vestigium.enrich.UrlContentFetcher;
 import com.vestigium.enrich.YouTubeMetadataFetcher;
+import com.vestigium.events.EntryUpdatedEvent;
 import com.vestigium.persistence.AttachmentRepository;
 import com.vestigium.persistence.EntryRepository;
 import com.vestigium.persistence.JobRepository;
@@ -25,6 +29,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 @ExtendWith(MockitoExtension.class)
 class EntryServiceTest {
@@ -45,42 +50,83 @@ class EntryServiceTest {
     private YouTubeMetadataFetcher youtubeMetadata;
     @Mock
     private ListRepository lists;
+    @Mock
+    private ApplicationEventPublisher events;
+    @Mock
+    private CanonicalUrlResolver canonicalUrls;
+    @Mock
+    private PageFetchCache pageCache;
 
     private EntryService service;
 
     @BeforeEach
     void setUp() {
-        service = new EntryService(entries, tags, attachments, jobs, fileStorage, urlFetcher, youtubeMetadata, lists);
+        service = new EntryService(entries, tags, attachments, jobs, fileStorage, urlFetcher, youtubeMetadata, lists, events, canonicalUrls, pageCache, 5000);
     }
 
     @Test
     void create_ShouldThrowIfUrlExists() {
         var url = "http://example.com";
-        when(entries.getByUrl(anyString())).thenReturn(Optional.of(mock(Entry.class)));
+        when(entries.findByUrlOrCanonical(anyString(), anyString())).thenReturn(Optional.of(mock(Entry.class)));
 
         org.assertj.core.api.Assertions.assertThatThrownBy(() -> service.create(url, null, null, null, null, false, false, null))
                 .isInstanceOf(VestigiumException.class)
                 .hasMessageContaining("already exists");
     }
 
+    @Test
+    void create_ShouldThrowIfCanonicalUrlExists() throws Exception {
+        var url = "https://bit.ly/abc?utm_source=feed";
+        when(entries.findByUrlOrCanonical("https://bit.ly/abc", "https://bit.ly/abc")).thenReturn(Optional.empty());
+        when(urlFetcher.fetchLanding("https://bit.ly/abc")).thenReturn(new UrlContentFetcher.LandingPage(
+                "https://example.com/article", null, new UrlContentFetcher.PageContent("T", "D", "Text")
+        ));
+        when(canonicalUrls.recordPage("https://bit.ly/abc", "https://example.com/article", null))
+                .thenReturn("https://example.com/article");
+        when(entries.findByUrlOrCanonical("https://bit.ly/abc", "https://example.com/article"))
+                .thenReturn(Optional.of(mock(Entry.class)));
+
+        org.assertj.core.api.Assertions.assertThatThrownBy(() -> service.create(url, "Title", "Desc", null, null, false, false, null))
+                .isInstanceOf(VestigiumException.class)
+                .hasMessageContaining("already exists");
+        verify(entries, never()).create(any(), any(), any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void create_ShouldKeepSubmittedUrlAndStoreCanonicalUrl() {
+        var url = "https://www.youtube.com/watch?v=dQw4w9WgXcQ&t=42#comments";
+        var canonical = "https://www.youtube.com/watch?v=dQw4w9WgXcQ";
+        when(entries.findByUrlOrCanonical(url, canonical)).thenReturn(Optional.empty());
+        when(canonicalUrls.cachedPageResolution(canonical)).thenReturn(Optional.of(canonical));
+        var mockEntry = new Entry(
+            "123", url, "Title", "Desc", null, null, null, null, false, "now", "now", null, true, null, List.of()
+        );
+        when(entries.create(any(), any(), any(), any(), any(), anyBoolean())).thenReturn(mockEntry);
+
+        service.create(url, "Title", "Desc", null, null, false, false, null);
+
+        verify(entries).create(eq(url), eq(canonical), eq("Title"), eq("Desc"), eq((String) null), eq(false));
+    }
+
     @Test
     void create_ShouldCreateEntryAndEnqueueJobs() {
         var url = "http://example.com";
         var title = "Test Title";
         
-        when(entries.getByUrl(anyString())).thenReturn(Optional.empty());
+        when(entries.findByUrlOrCanonical(anyString(), anyString())).thenReturn(Optional.empty());
+        when(canonicalUrls.resolveRedirect(anyString())).thenAnswer(inv -> inv.getArgument(0));
         
         var mockEntry = new Entry(
             "123", "http://example.com", "Test Title", "Desc", null, null, null, null, false, "now", "now", null, true, null, List.of()
         );
-        when(entries.create(anyString(), anyString(), anyString(), any(), anyBoolean()))
+        when(entries.create(anyString(), anyString(), anyString(), anyString(), any(), anyBoolean()))
             .thenReturn(mockEntry);
         // when(entries.getById("123")).thenReturn(Optional.of(mockEntry)); // Unnecessary: create() returns the entry, and the service uses that return value directly now
 
         var result = service.create(url, title, "Desc", null, null, false, false, null);
 
         assertThat(result.entry().id()).isEqualTo("123");
-        verify(entries).create(eq("http://example.com"), eq("Test Title"), eq("Desc"), eq((String) null), eq(false));
+        verify(entries).create(eq("http://example.com"), eq("http://example.com"), eq("Test Title"), eq("Desc"), eq((String) null), eq(false));
         verify(jobs).enqueue(eq("ENRICH_ENTRY"), eq("123"), any());
         verify(jobs).enqueue(eq("REGENERATE_THUMBNAIL"), eq("123"), any());
     }
@@ -92,8 +138,9 @@ class EntryServiceTest {
             "123", "http://example.com", null, null, null, null, null, null, false, "now", "now", null, true, null, List.of()
         );
         
-        when(entries.getByUrl(anyString())).thenReturn(Optional.empty());
-        when(entries.create(any(), any(), any(), any(), anyBoolean())).thenReturn(mockEntry);
+        when(entries.findByUrlOrCanonical(anyString(), anyString())).thenReturn(Optional.empty());
+        when(canonicalUrls.resolveRedirect(anyString())).thenAnswer(inv -> inv.getArgument(0));
+        when(entries.create(any(), any(), any(), any(), any(), anyBoolean())).thenReturn(mockEntry);
         when(entries.getById("123")).thenReturn(Optional.of(mockEntry));
 
         service.create(url, null, null, null, List.of("TAG1", "tag2"), false, false, null);
@@ -105,46 +152,52 @@ class EntryServiceTest {
     void create_ShouldInferMetadataFromUrlFetcher() throws Exception {
          var url = "http://example.com";
          
-         when(entries.getByUrl(anyString())).thenReturn(Optional.empty());
-         when(urlFetcher.fetchReadableText(anyString()))
-             .thenReturn(new UrlContentFetcher.PageContent("Fetched Title", "Fetched Desc", "Text"));
+         when(entries.findByUrlOrCanonical(anyString(), anyString())).thenReturn(Optional.empty());
+         when(urlFetcher.fetchLanding(anyString())).thenReturn(new UrlContentFetcher.LandingPage(
+                 url, null, new UrlContentFetcher.PageContent("Fetched Title", "Fetched Desc", "Text")
+         ));
+         when(canonicalUrls.recordPage(url, url, null)).thenReturn(url);
              
          var mockEntry = new Entry(
             "123", url, "Fetched Title", "Fetched Desc", null, null, null, null, false, "now", "now", null, true, null, List.of()
          );
-         when(entries.create(any(), any(), any(), any(), anyBoolean())).thenReturn(mockEntry);
+         when(entries.create(any(), any(), any(), any(), any(), anyBoolean())).thenReturn(mockEntry);
          // getById is not called
 
          service.create(url, null, null, null, null, false, false, null);
 
-         verify(entries).create(eq(url), eq("Fetched Title"), eq("Fetched Desc"), eq((String) null), eq(false));
+         verify(urlFetcher).fetchLanding(url);
+         verify(entries).create(eq(url), eq(url), eq("Fetched Title"), eq("Fetched Desc"), eq((String) null), eq(false));
     }
 
     @Test
-    void bulkCreate_ShouldHandleErrorsIdeally() {
-        var items = List.of(
-            new EntryService.BulkCreateItem("http://ok.com", null),
-            new EntryService.BulkCreateItem("invalid-url", null),
-            new EntryService.BulkCreateItem("http://dupe.com", null)
+    void create_ShouldApplySlowMetadataInBackground() throws Exception {
+        var url = "http://example.com";
+        service = new EntryService(entries, tags, attachments, jobs, fileStorage, urlFetcher, youtubeMetadata, lists, events, canonicalUrls, pageCache, 10);
+
+        when(entries.findByUrlOrCanonical(anyString(), anyString())).thenReturn(Optional.empty());
+        when(urlFetcher.fetchLanding(anyString())).thenAnswer(inv -> {
+            Thread.sleep(200);
+            return new UrlContentFetcher.LandingPage(
+                    "https://example.com/home", null, new UrlContentFetcher.PageContent("Fetched Title", "Fetched Desc", "Text")
+            );
+        });
+        when(canonicalUrls.recordPage(url, "https://example.com/home", null)).thenReturn("https://example.com/home");
+        var created = new Entry(
+            "123", url, null, null, null, null, null, null, false, "now", "now", null, true, null, List.of()
         );
-        
-        // Mock behaviors
-        // 1. ok.com -> success
-        when(entries.getByUrl("http://ok.com")).thenReturn(Optional.empty());
-        when(entries.create(eq("http://ok.com"), any(), any(), any(), anyBoolean()))
-            .thenReturn(new Entry("1", "http://ok.com", null, null, null, null, null, null, false, "now", "now", null, true, null, List.of()));
-        // getById is not called for bulk create with no tags
-
-        // 3. dupe.com -> exists
-        when(entries.getByUrl("http://dupe.com")).thenReturn(Optional.of(mock(Entry.class)));
-
-        var result = service.bulkCreate(items);
-
-        // invalid-url throws exception in normalizeUrl which is caught inside bulkCreate
-        assertThat(result.createdCount()).isEqualTo(1); // ok.com
-        assertThat(result.skippedCount()).isEqualTo(1); // dupe.com
-        assertThat(result.errors()).hasSize(1);
-        assertThat(result.errors().getFirst().url()).isEqualTo("invalid-url");
+        var updated = new Entry(
+            "123", url, "Fetched Title", "Fetched Desc", null, null, null, null, false, "now", "now", null, true, null, List.of()
+        );
+        when(entries.create(any(), any(), any(), any(), any(), anyBoolean())).thenReturn(created);
+        when(entries.getById("123")).thenReturn(Optional.of(created), Optional.of(updated));
+
+        service.create(url, null, null, null, null, false, false, null);
+
+        verify(entries).create(eq(url), eq(url), eq((String) null), eq((String) null), eq((String) null), eq(false));
+        verify(entries, timeout(2000)).updateCanonicalUrl("123", "https://example.com/home");
+        verify(entries, timeout(2000)).updateCore("123", "Fetched Title", "Fetched Desc", null, null, null);
+        verify(events, timeout(2000)).publishEvent(any(EntryUpdatedEvent.class));
     }
 
     @Test
@@ -158,7 +211,7 @@ class EntryServiceTest {
             "123", "http://example.com", "Old Title", "Old Desc", null, null, null, null, false, "now", "now", null, true, null, List.of()
         );
 
-        when(entries.getByUrl("http://example.com")).thenReturn(Optional.of(existingEntry));
+        when(entries.findByUrlOrCanonical("http://example.com", "http://example.com")).thenReturn(Optional.of(existingEntry));
         
         when(lists.upsertByName("List A")).thenReturn("L1");
         when(lists.upsertByName("List B")).thenReturn("L2");
@@ -171,6 +224,17 @@ class EntryServiceTest {
         verify(lists).mergeEntryLists(eq("123"), eq(List.of("L1", "L2")));
     }
 
+    @Test
+    void delete_ShouldEvictStoredPageExtraction() {
+        var entry = new Entry("123", "https://example.com/a", null, null, null, null, null, null, false, "now", "now", null, true, null, List.of());
+        when(entries.getById("123")).thenReturn(Optional.of(entry));
+
+        service.delete("123");
+
+        verify(entries).deleteById("123");
+        verify(pageCache).evict("https://example.com/a");
+    }
+
     @Test
     void toResponse_ShouldFlagFailedLatestJob() {
         var entry = new Entry("123", "url", null, null, null, null, null, null, false, "now", "now", null, true, null, List.of());
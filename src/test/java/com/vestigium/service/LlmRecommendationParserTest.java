@@ -0,0 +1,36 @@
+package com.vestigium.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+class LlmRecommendationParserTest {
+
+    private final LlmRecommendationParser parser = new LlmRecommendationParser(new ObjectMapper());
+
+    @Test
+    void incremental_ShouldEmitEachRecommendationOnceItsObjectIsComplete() {
+        var incremental = parser.incremental();
+
+        assertThat(incremental.feed("```json\n{\"recommendations\": [ {\"id\": \"e1\", \"rea")).isEmpty();
+        assertThat(incremental.feed("son\": \"Has a } brace and \\\"quotes\\\"\"}, {\"id\""))
+                .containsExactly(new LlmRecommendationParser.Item("e1", "Has a } brace and \"quotes\""));
+        assertThat(incremental.feed(": \"e2\"}")).containsExactly(new LlmRecommendationParser.Item("e2", ""));
+        assertThat(incremental.feed("], \"extra\": [{\"id\": \"ignored\"}]}\n```")).isEmpty();
+    }
+
+    @Test
+    void incremental_ShouldMatchTheWholeAnswerParseWhenFedCharByChar() throws Exception {
+        var answer = "{\"recommendations\":[{\"id\":\"a\",\"reason\":\"one\"},{\"reason\":\"no id\"},{\"id\":\"b\",\"reason\":\"two\"}]}";
+        var incremental = parser.incremental();
+        var streamed = new ArrayList<LlmRecommendationParser.Item>();
+
+        for (var c : answer.toCharArray()) {
+            streamed.addAll(incremental.feed(String.valueOf(c)));
+        }
+
+        assertThat(streamed).isEqualTo(parser.parse(answer).recommendations());
+    }
+}
@@ -0,0 +1,87 @@
+package com.vestigium.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vestigium.domain.Entry;
+import com.vestigium.events.EntriesChangedEvent;
+import com.vestigium.persistence.EntryRepository;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class RecommendationPoolServiceTest {
+
+    @Mock
+    private RecommendationService recommendations;
+    @Mock
+    private EntryRepository entries;
+
+    private RecommendationPoolService pools;
+
+    @BeforeEach
+    void setUp() {
+        pools = new RecommendationPoolService(recommendations, entries, Clock.systemUTC(), true, 30, 2, 1, Duration.ofHours(24));
+    }
+
+    @Test
+    void serve_ShouldAnswerPresetsFromThePoolWithoutVisitedEntries() throws Exception {
+        var a = entry("a", null);
+        var b = entry("b", "2024-01-01T00:00:00Z");
+        var c = entry("c", null);
+        when(recommendations.rankForPool("movie", true, 30)).thenReturn(List.of(
+                new RecommendationService.LlmItem(a, "first"),
+                new RecommendationService.LlmItem(b, "second"),
+                new RecommendationService.LlmItem(c, "third")
+        ));
+        when(entries.listByIds(List.of("a", "b", "c"))).thenReturn(List.of(a, b, c));
+
+        pools.refresh(new RecommendationPoolService.PoolKey("movie", true));
+        var res = pools.serve("movie", 10, true);
+
+        assertThat(res).isPresent();
+        assertThat(res.get().items()).extracting(i -> i.entry().id()).containsExactly("a", "c");
+        assertThat(res.get().items().getFirst().reason()).isEqualTo("first");
+        assertThat(pools.serve("movie", 10, false)).isEmpty();
+        assertThat(pools.serve("not-a-preset", 10, true)).isEmpty();
+    }
+
+    @Test
+    void refreshDue_ShouldRecomputeOnlyAfterEntriesChanged() throws Exception {
+        when(recommendations.rankForPool(anyString(), anyBoolean(), anyInt()))
+                .thenAnswer(inv -> List.of(
+                        new RecommendationService.LlmItem(entry("a", null), "x"),
+                        new RecommendationService.LlmItem(entry("b", null), "y")
+                ));
+        var presets = RecommendationService.PRESET_GOALS.size() * 2;
+        for (int i = 0; i < presets; i++) {
+            pools.refreshDue();
+        }
+        verify(recommendations, times(presets)).rankForPool(anyString(), anyBoolean(), anyInt());
+
+        pools.refreshDue();
+        verify(recommendations, times(presets)).rankForPool(anyString(), anyBoolean(), anyInt());
+        assertThat(pools.status()).noneMatch(RecommendationPoolService.PoolStatus::due);
+
+        pools.onEntriesChanged(new EntriesChangedEvent(EntriesChangedEvent.Change.VISITED, List.of("a")));
+        assertThat(pools.status()).allMatch(s -> s.due() && s.size() == 1);
+
+        pools.refreshDue();
+        verify(recommendations, times(presets + 1)).rankForPool(anyString(), anyBoolean(), anyInt());
+    }
+
+    private static Entry entry(String id, String visitedAt) {
+        return new Entry(id, "https://" + id + ".example", id, null, null, null, null, visitedAt, false, null, null, null, false, null, List.of());
+    }
+}
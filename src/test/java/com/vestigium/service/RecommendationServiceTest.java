@@ -0,0 +1,70 @@
+package com.vestigium.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vestigium.domain.Entry;
+import com.vestigium.llm.GeminiClient;
+import com.vestigium.persistence.EntryRepository;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class RecommendationServiceTest {
+
+    @Mock
+    private EntryRepository entries;
+    @Mock
+    private GeminiClient gemini;
+    @Mock
+    private SemanticSearchService semanticSearch;
+
+    private RecommendationService service;
+
+    @BeforeEach
+    void setUp() {
+        var objectMapper = new ObjectMapper();
+        service = new RecommendationService(entries, gemini, new LlmRecommendationParser(objectMapper), objectMapper, semanticSearch, 2, 1);
+    }
+
+    @Test
+    void recommendWithLlm_ShouldSendSimilarEntriesPlusARandomOne() throws Exception {
+        when(semanticSearch.nearestUnvisited("I want to watch a good movie.", 2, true))
+                .thenReturn(List.of(entry("b", "Heat"), entry("a", "Alien")));
+        when(entries.listRandomUnvisited(3, true))
+                .thenReturn(List.of(entry("a", "Alien"), entry("c", "Bread recipe"), entry("d", "Guitar lesson")));
+        when(gemini.generateText(anyString(), eq(List.of()), eq(false)))
+                .thenReturn("{\"recommendations\":[{\"id\":\"b\",\"reason\":\"Classic.\"}]}");
+
+        var result = service.recommendWithLlm("movie", null, 10, true, false);
+
+        var prompt = ArgumentCaptor.forClass(String.class);
+        verify(gemini).generateText(prompt.capture(), eq(List.of()), eq(false));
+        assertThat(prompt.getValue()).contains("\"a\"", "\"b\"", "\"c\"").doesNotContain("\"d\"");
+        assertThat(result.items()).extracting(i -> i.entry().id()).containsExactly("b");
+    }
+
+    @Test
+    void recommendWithLlm_ShouldFallBackToRandomCandidatesWithoutIndex() throws Exception {
+        when(semanticSearch.nearestUnvisited(anyString(), eq(2), eq(true))).thenReturn(List.of());
+        when(entries.listRandomUnvisited(100, true)).thenReturn(List.of(entry("a", "Alien")));
+        when(gemini.generateText(anyString(), eq(List.of()), eq(false))).thenReturn("{\"recommendations\":[]}");
+
+        var result = service.recommendWithLlm("movie", null, 10, true, false);
+
+        assertThat(result.items()).extracting(i -> i.entry().id()).containsExactly("a");
+    }
+
+    private static Entry entry(String id, String title) {
+        return new Entry(id, "https://" + id + ".example", title, null, null, null, null, null, false, "t", "t", null, true, null, List.of());
+    }
+}
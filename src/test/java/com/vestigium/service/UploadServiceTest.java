@@ -0,0 +1,136 @@
+package com.vestigium.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vestigium.domain.Attachment;
+import com.vestigium.domain.Blob;
+import com.vestigium.domain.UploadSession;
+import com.vestigium.persistence.AttachmentRepository;
+import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.JobRepository;
+import com.vestigium.persistence.UploadSessionRepository;
+import com.vestigium.storage.BlobStore;
+import com.vestigium.storage.StoragePaths;
+import com.vestigium.storage.StorageProperties;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class UploadServiceTest {
+
+    @Mock
+    private UploadSessionRepository sessions;
+    @Mock
+    private EntryRepository entries;
+    @Mock
+    private AttachmentRepository attachments;
+    @Mock
+    private JobRepository jobs;
+    @Mock
+    private BlobStore blobStore;
+
+    @TempDir
+    Path tempDir;
+
+    private StoragePaths paths;
+    private AtomicReference<UploadSession> current;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        paths = new StoragePaths(new StorageProperties(tempDir.toString(), "files", "thumbnails", "blobs"));
+        Files.createDirectories(tempDir.resolve("blobs/.tmp"));
+        Files.createFile(tempDir.resolve("blobs/.tmp/upload.part"));
+        current = new AtomicReference<>(session(0));
+        when(sessions.getById("s1")).thenAnswer(inv -> Optional.of(current.get()));
+    }
+
+    @Test
+    void appendChunk_ShouldRejectUnexpectedOffset() {
+        var service = newService();
+
+        assertThatThrownBy(() -> service.appendChunk("s1", 5, stream("hello")))
+                .isInstanceOf(VestigiumException.class)
+                .hasMessageContaining("Expected offset 0");
+    }
+
+    @Test
+    void complete_ShouldAdoptHashedFileAfterResume() throws Exception {
+        doAnswer(inv -> {
+            current.set(session(inv.getArgument(1)));
+            return null;
+        }).when(sessions).updateReceived(eq("s1"), anyLong());
+
+        newService().appendChunk("s1", 0, stream("hello "));
+        // A fresh instance simulates a restart: the digest must be rebuilt from the temp file.
+        var service = newService();
+        service.appendChunk("s1", 6, stream("world"));
+
+        var hash = BlobStore.sha256Hex("hello world".getBytes(StandardCharsets.UTF_8));
+        var tmp = tempDir.resolve("blobs/.tmp/upload.part");
+        when(blobStore.adopt(any(Path.class), anyString(), anyLong(), anyString()))
+                .thenReturn(new Blob(hash, 11, "text/plain", "blobs/xx/yy/" + hash, 1, "now"));
+        var attachment = new Attachment("att-1", "entry-1", "OTHER", "notes.txt", "text/plain", 11, "blobs/xx/yy/" + hash, "now", hash);
+        when(attachments.create("entry-1", "OTHER", "notes.txt", "text/plain", 11, "blobs/xx/yy/" + hash, hash))
+                .thenReturn(attachment);
+
+        assertThat(Files.readString(tmp)).isEqualTo("hello world");
+
+        var result = service.complete("s1", hash);
+
+        assertThat(result).isEqualTo(attachment);
+        verify(blobStore).adopt(tmp, hash, 11, "text/plain");
+        verify(sessions).markCompleted("s1", "att-1");
+        verify(jobs).enqueue("PREPROCESS_ATTACHMENTS", "entry-1", "{\"attachmentId\":\"att-1\"}");
+        verify(jobs).enqueue("ENRICH_ENTRY", "entry-1", null);
+    }
+
+    @Test
+    void complete_ShouldRejectIncompleteUpload() {
+        assertThatThrownBy(() -> newService().complete("s1", null))
+                .isInstanceOf(VestigiumException.class)
+                .hasMessageContaining("Received 0 of 11");
+    }
+
+    @Test
+    void complete_ShouldReturnAttachmentOfCompletedSession() {
+        current.set(new UploadSession("s1", "entry-1", "notes.txt", "text/plain", 11, 11, "blobs/.tmp/upload.part", "COMPLETED", "att-1", "now", "now"));
+        var attachment = new Attachment("att-1", "entry-1", "OTHER", "notes.txt", "text/plain", 11, "blobs/xx/yy/h", "now", "h");
+        when(attachments.getById("att-1")).thenReturn(Optional.of(attachment));
+        var service = newService();
+
+        assertThat(service.complete("s1", null)).isEqualTo(attachment);
+        assertThatThrownBy(() -> service.appendChunk("s1", 11, stream("more")))
+                .isInstanceOf(VestigiumException.class)
+                .hasMessageContaining("already completed");
+    }
+
+    private UploadService newService() {
+        return new UploadService(sessions, entries, attachments, jobs, blobStore, paths, 1024, 24);
+    }
+
+    private static UploadSession session(long received) {
+        return new UploadSession("s1", "entry-1", "notes.txt", "text/plain", 11, received, "blobs/.tmp/upload.part", "OPEN", null, "now", "now");
+    }
+
+    private static ByteArrayInputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
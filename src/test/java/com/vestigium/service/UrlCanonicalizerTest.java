@@ -0,0 +1,65 @@
+package com.vestigium.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class UrlCanonicalizerTest {
+
+    @Test
+    void canonicalize_ShouldStripTrackingParamsFragmentsAndDefaultPorts() {
+        assertThat(UrlCanonicalizer.canonicalize("HTTPS://Example.COM:443/a?utm_source=x&b=1&fbclid=y#top"))
+                .isEqualTo("https://example.com/a?b=1");
+        assertThat(UrlCanonicalizer.canonicalize("https://example.com/?UTM_Campaign=1"))
+                .isEqualTo("https://example.com");
+        assertThat(UrlCanonicalizer.canonicalize("https://example.com?q=a%20b"))
+                .isEqualTo("https://example.com/?q=a%20b");
+    }
+
+    @Test
+    void canonicalize_ShouldKeepHashRoutes() {
+        assertThat(UrlCanonicalizer.canonicalize("https://app.example.com/#/settings"))
+                .isEqualTo("https://app.example.com/#/settings");
+    }
+
+    @Test
+    void canonicalize_ShouldMapYoutubeLinkFormsToOneUrl() {
+        assertThat(UrlCanonicalizer.canonicalize("https://youtu.be/dQw4w9WgXcQ?si=abc&t=10"))
+                .isEqualTo("https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+        assertThat(UrlCanonicalizer.canonicalize("https://m.youtube.com/watch?feature=share&v=dQw4w9WgXcQ"))
+                .isEqualTo("https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+        assertThat(UrlCanonicalizer.canonicalize("https://youtube.com/shorts/abcdefghijk?feature=share"))
+                .isEqualTo("https://www.youtube.com/shorts/abcdefghijk");
+    }
+
+    @Test
+    void canonicalize_ShouldApplyHostRules() {
+        assertThat(UrlCanonicalizer.canonicalize("https://old.reddit.com/r/java/comments/1?share_id=z"))
+                .isEqualTo("https://www.reddit.com/r/java/comments/1");
+        assertThat(UrlCanonicalizer.canonicalize("https://mobile.twitter.com/user/status/1?s=20&t=x"))
+                .isEqualTo("https://x.com/user/status/1");
+        assertThat(UrlCanonicalizer.canonicalize("https://en.m.wikipedia.org/wiki/Java"))
+                .isEqualTo("https://en.wikipedia.org/wiki/Java");
+        assertThat(UrlCanonicalizer.canonicalize("https://www.amazon.de/Some-Slug/dp/B0ABCDEFGH/ref=sr_1?keywords=x"))
+                .isEqualTo("https://www.amazon.de/dp/B0ABCDEFGH");
+    }
+
+    @Test
+    void clean_ShouldOnlyLowercaseAndStripTrackingParams() {
+        assertThat(UrlCanonicalizer.clean("HTTPS://Example.COM/a?utm_source=x&b=1&fbclid=y#top"))
+                .isEqualTo("https://example.com/a?b=1#top");
+        assertThat(UrlCanonicalizer.clean("https://youtu.be/dQw4w9WgXcQ?t=10"))
+                .isEqualTo("https://youtu.be/dQw4w9WgXcQ?t=10");
+        assertThat(UrlCanonicalizer.clean("https://www.amazon.de/Some-Slug/dp/B0ABCDEFGH/ref=sr_1?keywords=x"))
+                .isEqualTo("https://www.amazon.de/Some-Slug/dp/B0ABCDEFGH/ref=sr_1?keywords=x");
+    }
+
+    @Test
+    void canonicalize_ShouldRejectNonHttpUrls() {
+        assertThatThrownBy(() -> UrlCanonicalizer.canonicalize("ftp://example.com/file"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> UrlCanonicalizer.canonicalize("example.com"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,152 @@
+package com.vestigium.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vestigium.domain.Entry;
+import com.vestigium.persistence.AttachmentRepository;
+import com.vestigium.persistence.BlobRepository;
+import com.vestigium.persistence.EntryRepository;
+import com.vestigium.persistence.ThumbnailRepository;
+import com.vestigium.service.NsfwConfigService;
+import com.vestigium.thumb.ImageFormat;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EntryRepository.class, NsfwConfigService.class, JacksonAutoConfiguration.class})
+class LegacyStorageMigratorTest {
+
+    @Autowired
+    private EntryRepository entries;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    @TempDir
+    Path tempDir;
+
+    private ThumbnailRepository thumbnails;
+    private AttachmentRepository attachments;
+    private BlobStore blobStore;
+    private LegacyStorageMigrator migrator;
+    private Entry entry;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.getJdbcOperations().execute("DELETE FROM entry_thumbnails");
+        jdbc.getJdbcOperations().execute("DELETE FROM attachments");
+        jdbc.getJdbcOperations().execute("DELETE FROM blobs");
+        var paths = new StoragePaths(new StorageProperties(tempDir.toString(), "files", "thumbnails", "blobs"));
+        thumbnails = new ThumbnailRepository(jdbc);
+        attachments = new AttachmentRepository(jdbc);
+        blobStore = new BlobStore(paths, new BlobRepository(jdbc));
+        migrator = new LegacyStorageMigrator(paths, blobStore, entries, thumbnails, attachments, true);
+        entry = entries.create("http://legacy.test", "http://legacy.test", "Legacy", null, null, false);
+    }
+
+    @Test
+    void migrateThumbnails_ShouldMoveThumbnailRowsIntoBlobStore() throws Exception {
+        write("thumbnails/" + entry.id() + ".webp", "small");
+        thumbnails.upsert(entry.id(), "small", ImageFormat.WEBP.id(), "thumbnails/" + entry.id() + ".webp", 5, null);
+
+        assertThat(migrator.migrateThumbnails()).isEqualTo(1);
+
+        var row = thumbnails.find(entry.id(), "small", ImageFormat.WEBP.id()).orElseThrow();
+        assertThat(row.blobHash()).isEqualTo(BlobStore.sha256Hex(bytes("small")));
+        assertThat(row.storagePath()).startsWith("blobs/");
+        assertThat(tempDir.resolve(row.storagePath())).hasContent("small");
+        assertThat(blobStore.find(row.blobHash())).get().extracting(b -> b.refCount()).isEqualTo(1);
+        assertThat(tempDir.resolve("thumbnails/" + entry.id() + ".webp")).doesNotExist();
+    }
+
+    @Test
+    void migrateThumbnails_ShouldGiveEntryRowPathsJpegRows() throws Exception {
+        write("thumbnails/" + entry.id() + ".jpg", "small");
+        write("thumbnails/" + entry.id() + "-large.jpg", "large");
+        entries.updateThumbnailPaths(entry.id(), "thumbnails/" + entry.id() + ".jpg", "thumbnails/" + entry.id() + "-large.jpg");
+
+        assertThat(migrator.migrateThumbnails()).isEqualTo(2);
+
+        var small = thumbnails.find(entry.id(), "small", ImageFormat.JPEG.id()).orElseThrow();
+        var large = thumbnails.find(entry.id(), "large", ImageFormat.JPEG.id()).orElseThrow();
+        var updated = entries.getById(entry.id()).orElseThrow();
+        assertThat(updated.thumbnailPath()).isEqualTo(small.storagePath()).startsWith("blobs/");
+        assertThat(updated.thumbnailLargePath()).isEqualTo(large.storagePath()).startsWith("blobs/");
+        assertThat(tempDir.resolve(large.storagePath())).hasContent("large");
+        assertThat(tempDir.resolve("thumbnails/" + entry.id() + ".jpg")).doesNotExist();
+        assertThat(tempDir.resolve("thumbnails/" + entry.id() + "-large.jpg")).doesNotExist();
+    }
+
+    @Test
+    void migrateAttachments_ShouldMoveFilesAndRemoveEmptyEntryDirectory() throws Exception {
+        write("files/" + entry.id() + "/doc.pdf", "%PDF-1.4");
+        var attachment = attachments.create(entry.id(), "PDF", "doc.pdf", "application/pdf", 8, "files/" + entry.id() + "/doc.pdf");
+
+        assertThat(migrator.migrateAttachments()).isEqualTo(1);
+
+        var moved = attachments.getById(attachment.id()).orElseThrow();
+        assertThat(moved.blobHash()).isEqualTo(BlobStore.sha256Hex(bytes("%PDF-1.4")));
+        assertThat(tempDir.resolve(moved.storagePath())).hasContent("%PDF-1.4");
+        assertThat(blobStore.find(moved.blobHash())).get().extracting(b -> b.mimeType()).isEqualTo("application/pdf");
+        assertThat(tempDir.resolve("files/" + entry.id())).doesNotExist();
+    }
+
+    @Test
+    void migrate_ShouldLeaveRowsWithMissingFilesUntouched() throws Exception {
+        thumbnails.upsert(entry.id(), "small", ImageFormat.WEBP.id(), "thumbnails/gone.webp", 5, null);
+        entries.updateThumbnailPaths(entry.id(), "thumbnails/gone.jpg", null);
+        var attachment = attachments.create(entry.id(), "PDF", "gone.pdf", "application/pdf", 8, "files/" + entry.id() + "/gone.pdf");
+
+        assertThat(migrator.migrateThumbnails()).isZero();
+        assertThat(migrator.migrateAttachments()).isZero();
+
+        var row = thumbnails.find(entry.id(), "small", ImageFormat.WEBP.id()).orElseThrow();
+        assertThat(row.blobHash()).isNull();
+        assertThat(row.storagePath()).isEqualTo("thumbnails/gone.webp");
+        assertThat(thumbnails.find(entry.id(), "small", ImageFormat.JPEG.id())).isEmpty();
+        assertThat(entries.getById(entry.id()).orElseThrow().thumbnailPath()).isEqualTo("thumbnails/gone.jpg");
+        assertThat(attachments.getById(attachment.id()).orElseThrow().blobHash()).isNull();
+    }
+
+    @Test
+    void run_ShouldBeIdempotent() throws Exception {
+        write("thumbnails/" + entry.id() + ".webp", "small");
+        thumbnails.upsert(entry.id(), "small", ImageFormat.WEBP.id(), "thumbnails/" + entry.id() + ".webp", 5, null);
+        write("files/" + entry.id() + "/doc.pdf", "%PDF-1.4");
+        var attachment = attachments.create(entry.id(), "PDF", "doc.pdf", "application/pdf", 8, "files/" + entry.id() + "/doc.pdf");
+        migrator.run(null);
+        var thumbnail = thumbnails.find(entry.id(), "small", ImageFormat.WEBP.id()).orElseThrow();
+        var moved = attachments.getById(attachment.id()).orElseThrow();
+
+        migrator.run(null);
+
+        assertThat(migrator.migrateThumbnails()).isZero();
+        assertThat(migrator.migrateAttachments()).isZero();
+        assertThat(thumbnails.find(entry.id(), "small", ImageFormat.WEBP.id())).contains(thumbnail);
+        assertThat(attachments.getById(attachment.id())).contains(moved);
+        assertThat(blobStore.find(thumbnail.blobHash())).get().extracting(b -> b.refCount()).isEqualTo(1);
+        assertThat(blobStore.find(moved.blobHash())).get().extracting(b -> b.refCount()).isEqualTo(1);
+        assertThat(tempDir.resolve(thumbnail.storagePath())).hasContent("small");
+    }
+
+    private void write(String relativePath, String content) throws Exception {
+        var file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes(content));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}